@@ -0,0 +1,27 @@
+package com.tts.monitor.config;
+
+import com.tts.monitor.util.ManagedHttpClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 出站 HTTP 客户端配置类
+ *
+ */
+@Configuration
+public class HttpClientConfig {
+
+    /**
+     * 创建出站 HttpClient Bean
+     * TTS API 和飞书告警共用：HTTP/2 多路复用、连接扇出、专用执行器和连接指标
+     */
+    @Bean(destroyMethod = "close")
+    public ManagedHttpClient outboundHttpClient(HttpClientProperties httpClientProperties,
+                                                ObjectProvider<MeterRegistry> meterRegistry) {
+        ManagedHttpClient client = new ManagedHttpClient("outbound", httpClientProperties);
+        meterRegistry.ifAvailable(client::registerMetrics);
+        return client;
+    }
+}
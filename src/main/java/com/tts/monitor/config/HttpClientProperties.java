@@ -0,0 +1,50 @@
+package com.tts.monitor.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * 出站 HTTP 客户端配置属性
+ * TTS API 和飞书告警共用
+ *
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "http-client")
+public class HttpClientProperties {
+
+    /**
+     * 优先使用的 HTTP 版本，HTTP_2 时服务端不支持会自动回退到 HTTP/1.1
+     */
+    private HttpClient.Version version = HttpClient.Version.HTTP_2;
+
+    /**
+     * 连接扇出数：内部 HttpClient 的数量，请求按轮询分配。
+     * HTTP/2 下每个 HttpClient 到同一主机只使用一条连接，扇出数即到该主机的连接数
+     */
+    private Integer connections = 2;
+
+    /**
+     * 连接超时时间
+     */
+    private Duration connectTimeout = Duration.ofSeconds(10);
+
+    /**
+     * 连接空闲时间，超过该时间未使用的连接不计入活跃连接数（与 JDK HttpClient 默认的 keepalive 时间一致）
+     */
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 是否在校验运行开始前预热到 TTS 网关的连接
+     */
+    private Boolean prewarm = true;
+
+    /**
+     * 预热等待的最长时间，超时不影响运行
+     */
+    private Duration prewarmTimeout = Duration.ofSeconds(5);
+}
@@ -3,6 +3,7 @@ package com.tts.monitor.config;
 import com.tts.monitor.config.TtsApiProperties.ThreadPoolConfig;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -53,11 +54,35 @@ public class ThreadPoolConfiguration {
         return executor;
     }
 
+    /**
+     * 创建校验运行专用线程池
+     * 执行整次校验运行、校验后的告警等长时间阻塞的后台任务，不占用公共 ForkJoinPool；
+     * 同一范围同时只有一个运行，线程数只需覆盖范围数
+     */
+    @Bean(name = "checkTaskExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService checkTaskExecutor() {
+        ExecutorService executor = Executors.newFixedThreadPool(2, Thread.ofPlatform().name("tts-run-", 0).factory());
+        log.info("初始化校验运行线程池 - 线程数: 2");
+        return executor;
+    }
+
+    /**
+     * 创建商品导入专用线程池
+     * 导入任务与校验共用令牌桶，逐个执行即可；应用关闭时中断当前任务，任务停在最后保存的检查点
+     */
+    @Bean(name = "importJobExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService importJobExecutor() {
+        ExecutorService executor = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("tts-import-", 0).factory());
+        log.info("初始化商品导入线程池 - 线程数: 1");
+        return executor;
+    }
+
     /**
      * 应用关闭时优雅关闭线程池
      */
     @Bean
-    public ThreadPoolShutdownHook threadPoolShutdownHook(ThreadPoolExecutor productCheckExecutor) {
+    public ThreadPoolShutdownHook threadPoolShutdownHook(
+            @Qualifier("productCheckExecutor") ThreadPoolExecutor productCheckExecutor) {
         return new ThreadPoolShutdownHook(productCheckExecutor);
     }
 
@@ -1,25 +1,45 @@
 package com.tts.monitor.config;
 
+import com.tts.monitor.service.CredentialPool;
+import com.tts.monitor.service.ITokenBucketService;
+import com.tts.monitor.service.ProductInfoCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.net.http.HttpClient;
-import java.time.Duration;
-
 /**
  * TTS API 配置类
  *
  */
+@Slf4j
 @Configuration
 public class TtsApiConfig {
 
     /**
-     * 创建 HttpClient Bean
+     * 创建 TTS 凭证池 Bean
+     * 进程内唯一，校验、重试补查和新增商品都从这里获取令牌，TtsApiClient 从这里取出请求使用的凭证；
+     * 每个凭证有独立的令牌桶，启用共享令牌桶时还受各凭证的集群全局预算限制
+     */
+    @Bean
+    public CredentialPool ttsCredentialPool(TtsApiProperties ttsApiProperties,
+                                            ITokenBucketService tokenBucketService,
+                                            ObjectProvider<MeterRegistry> meterRegistry) {
+        CredentialPool pool = new CredentialPool(ttsApiProperties, tokenBucketService);
+        meterRegistry.ifAvailable(pool::registerMetrics);
+        return pool;
+    }
+
+    /**
+     * 创建商品信息缓存 Bean
+     * 新增商品先查缓存，定时校验刷新已缓存的商品
      */
     @Bean
-    public HttpClient ttsHttpClient(TtsApiProperties ttsApiProperties) {
-        return HttpClient.newBuilder()
-            .connectTimeout(Duration.ofMillis(ttsApiProperties.getTimeout()))
-            .build();
+    public ProductInfoCache productInfoCache(TtsApiProperties ttsApiProperties,
+                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        ProductInfoCache cache = new ProductInfoCache(ttsApiProperties.getCache());
+        meterRegistry.ifAvailable(cache::registerMetrics);
+        return cache;
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,10 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * TTS API 配置属性
  * 
@@ -33,13 +37,23 @@ public class TtsApiProperties {
      */
     private String accessToken;
 
+    /**
+     * 凭证列表，每个凭证单独限流；配置后忽略上面的 app-key、app-secret、access-token
+     */
+    private List<CredentialConfig> credentials = new ArrayList<>();
+
+    /**
+     * 凭证轮换配置
+     */
+    private CredentialPoolConfig credentialPool = new CredentialPoolConfig();
+
     /**
      * 接口版本
      */
     private String version;
 
     /**
-     * 请求超时时间（毫秒）
+     * 请求超时时间（毫秒），启用自适应超时时为上限
      */
     private Integer timeout;
 
@@ -58,12 +72,186 @@ public class TtsApiProperties {
      */
     private ThreadPoolConfig threadPool;
 
+    /**
+     * 客户端配置
+     */
+    private ClientConfig client = new ClientConfig();
+
+    /**
+     * 重试配置
+     */
+    private RetryConfig retry = new RetryConfig();
+
+    /**
+     * 熔断配置
+     */
+    private CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
+
+    /**
+     * 对冲请求配置
+     */
+    private HedgeConfig hedge = new HedgeConfig();
+
+    /**
+     * 自适应超时配置
+     */
+    private AdaptiveTimeoutConfig adaptiveTimeout = new AdaptiveTimeoutConfig();
+
+    /**
+     * 校验流水线配置
+     */
+    private CheckConfig check = new CheckConfig();
+
+    /**
+     * 商品信息缓存配置
+     */
+    private CacheConfig cache = new CacheConfig();
+
+    /**
+     * 批量新增商品配置
+     */
+    private BulkAddConfig bulkAdd = new BulkAddConfig();
+
+    /**
+     * 商品导入任务配置
+     */
+    private BulkImportConfig bulkImport = new BulkImportConfig();
+
+    @Data
+    public static class CredentialConfig {
+        /**
+         * 凭证名称（日志和指标中使用，默认按序号命名）
+         */
+        private String name;
+
+        /**
+         * 应用唯一 Key
+         */
+        private String appKey;
+
+        /**
+         * 应用密钥
+         */
+        private String appSecret;
+
+        /**
+         * 访问令牌
+         */
+        private String accessToken;
+
+        /**
+         * 该凭证的 QPS 上限，未配置时使用 rate-limit.qps
+         */
+        private Integer qps;
+    }
+
+    @Data
+    public static class CredentialPoolConfig {
+        /**
+         * 视为鉴权失败的接口错误码（code），HTTP 401、403 总是视为鉴权失败
+         */
+        private List<Integer> authErrorCodes = new ArrayList<>();
+
+        /**
+         * 鉴权失败的凭证移出轮换的时间，到期后放行一个请求试探
+         */
+        private Duration authCooldown = Duration.ofMinutes(5);
+
+        /**
+         * 试探请求的最长等待时间，超过后仍未得到结果时允许再次试探
+         */
+        private Duration probeTimeout = Duration.ofMinutes(1);
+    }
+
     @Data
     public static class RateLimitConfig {
         /**
-         * 每秒最大请求数（QPS）
+         * 每秒最大请求数（QPS），自适应调整时为上限
          */
         private Integer qps;
+
+        /**
+         * 是否根据接口反馈自适应调整速率（限流、服务端错误、耗时上升时降速，正常时逐步恢复）
+         */
+        private Boolean adaptive = true;
+
+        /**
+         * 自适应调整的速率下限
+         */
+        private Double minQps = 1.0;
+
+        /**
+         * 每个恢复间隔增加的 QPS
+         */
+        private Double increaseStep = 1.0;
+
+        /**
+         * 恢复间隔
+         */
+        private Duration increaseInterval = Duration.ofSeconds(1);
+
+        /**
+         * 降速比例
+         */
+        private Double decreaseFactor = 0.5;
+
+        /**
+         * 两次降速的最小间隔，避免同一波在途请求的失败连续降速
+         */
+        private Duration decreaseCooldown = Duration.ofSeconds(2);
+
+        /**
+         * 平均耗时超过基线的倍数时视为拥塞
+         */
+        private Double latencyFactor = 2.0;
+
+        /**
+         * 视为限流的接口错误码（code），HTTP 429 和 5xx 总是视为限流
+         */
+        private List<Integer> throttleCodes = new ArrayList<>();
+
+        /**
+         * Retry-After 的最长暂停时间
+         */
+        private Duration maxRetryAfter = Duration.ofSeconds(60);
+
+        /**
+         * 集群共享令牌桶配置
+         */
+        private SharedBucketConfig shared = new SharedBucketConfig();
+    }
+
+    @Data
+    public static class SharedBucketConfig {
+        /**
+         * 是否启用数据库共享令牌桶：所有实例、所有调用方式（校验、新增）共用 qps 的全局预算
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 令牌桶标识，未配置时使用 app-key（限流按 app key 计算）；配置多个凭证时作为前缀，每个凭证一个令牌桶
+         */
+        private String bucketKey;
+
+        /**
+         * 令牌桶容量（允许的突发请求数），未配置时等于 qps
+         */
+        private Integer burst;
+
+        /**
+         * 每次从数据库领取的令牌数，令牌不足时改为领取一个
+         */
+        private Integer chunkSize = 5;
+
+        /**
+         * 领取的令牌在本地的有效期，过期未用的令牌丢弃，避免实例囤积令牌后集中发出
+         */
+        private Duration sliceTtl = Duration.ofSeconds(1);
+
+        /**
+         * 数据库不可用时是否放行（只受本实例速率限制）
+         */
+        private Boolean failOpen = true;
     }
 
     @Data
@@ -77,6 +265,54 @@ public class TtsApiProperties {
          * 分页查询每页大小
          */
         private Integer pageSize;
+
+        /**
+         * 全量校验时按主键切分的并行读取区间数
+         */
+        private Integer rangeParallelism = 1;
+
+        /**
+         * 自适应批次大小配置（size 为初始值）
+         */
+        private AdaptiveBatchConfig adaptive = new AdaptiveBatchConfig();
+    }
+
+    @Data
+    public static class AdaptiveBatchConfig {
+        /**
+         * 是否根据响应耗时、返回完整性和 URL 长度调整批次大小，关闭时固定使用 batch.size
+         */
+        private Boolean enabled = true;
+
+        /**
+         * 批次大小下限
+         */
+        private Integer minSize = 10;
+
+        /**
+         * 批次大小上限
+         */
+        private Integer maxSize = 100;
+
+        /**
+         * 请求 URL 的字节预算，按预算装入商品 ID
+         */
+        private Integer urlByteBudget = 4096;
+
+        /**
+         * 目标响应耗时，平均耗时超过该值时缩小批次
+         */
+        private Duration latencyTarget = Duration.ofSeconds(3);
+
+        /**
+         * 每次增大的商品数
+         */
+        private Integer increaseStep = 5;
+
+        /**
+         * 连续多少个批次完整且未超过目标耗时后增大
+         */
+        private Integer increaseAfter = 10;
     }
 
     @Data
@@ -101,4 +337,372 @@ public class TtsApiProperties {
          */
         private String threadNamePrefix;
     }
+
+    @Data
+    public static class ClientConfig {
+        /**
+         * 最大在途请求数，超过时请求排队等待（不占用线程）
+         */
+        private Integer maxInFlight = 200;
+
+        /**
+         * 统计耗时分布的最近请求数（用于对冲阈值和自适应超时）
+         */
+        private Integer latencyWindow = 1000;
+
+        /**
+         * 是否请求压缩传输（Accept-Encoding: gzip, deflate），响应按 Content-Encoding 边读取边解压
+         */
+        private Boolean compression = true;
+
+        /**
+         * 是否合并并发查询：商品已在其他在途请求中时等待该请求的结果，只为未在途的商品发出请求
+         */
+        private Boolean coalesce = true;
+    }
+
+    @Data
+    public static class CacheConfig {
+        /**
+         * 是否启用商品信息缓存（新增商品等交互式查询先查缓存）
+         */
+        private Boolean enabled = true;
+
+        /**
+         * 缓存的商品数上限（负缓存单独计算）
+         */
+        private Long maximumSize = 10_000L;
+
+        /**
+         * 商品信息的有效期
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        /**
+         * 负缓存（接口未返回的商品）的有效期
+         */
+        private Duration negativeTtl = Duration.ofMinutes(2);
+    }
+
+    @Data
+    public static class BulkAddConfig {
+        /**
+         * 同时在途的查询批次数（仍受共享令牌桶限流）
+         */
+        private Integer parallelism = 4;
+
+        /**
+         * 单条 INSERT 语句和已存在商品查询包含的最大商品数
+         */
+        private Integer insertChunkSize = 500;
+    }
+
+    @Data
+    public static class BulkImportConfig {
+        /**
+         * 上传时单条 INSERT 语句写入暂存表的最大商品数
+         */
+        private Integer stageChunkSize = 1000;
+
+        /**
+         * 每页处理的商品数：每页执行一次批量新增，完成后保存一次检查点
+         */
+        private Integer pageSize = 2000;
+
+        /**
+         * 心跳超时时间：执行中或上传中的任务超过该时间未更新视为所在实例已退出
+         */
+        private Duration staleAfter = Duration.ofMinutes(2);
+
+        /**
+         * 执行中任务的心跳间隔：处理单页期间也按该间隔刷新，不超过心跳超时时间的三分之一
+         */
+        private Duration heartbeatInterval = Duration.ofSeconds(30);
+
+        /**
+         * 扫描待执行任务（含重启后需要继续的任务）的间隔
+         */
+        private Duration scanInterval = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class HedgeConfig {
+        /**
+         * 是否启用对冲请求：请求耗时超过分位数阈值时发出相同的请求，取先返回的结果
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 触发对冲的耗时分位数
+         */
+        private Double percentile = 95.0;
+
+        /**
+         * 对冲等待时间下限
+         */
+        private Duration minDelay = Duration.ofMillis(200);
+
+        /**
+         * 对冲请求数占请求总数的比例上限
+         */
+        private Double maxRatio = 0.1;
+
+        /**
+         * 耗时样本不足该数量时不对冲
+         */
+        private Integer minSamples = 100;
+    }
+
+    @Data
+    public static class AdaptiveTimeoutConfig {
+        /**
+         * 是否按耗时分布调整请求超时，上限为 timeout
+         */
+        private Boolean enabled = true;
+
+        /**
+         * 作为基准的耗时分位数
+         */
+        private Double percentile = 99.0;
+
+        /**
+         * 超时时间为分位数耗时的倍数
+         */
+        private Double multiplier = 3.0;
+
+        /**
+         * 超时时间下限
+         */
+        private Duration minTimeout = Duration.ofSeconds(2);
+
+        /**
+         * 耗时样本不足该数量时使用 timeout
+         */
+        private Integer minSamples = 100;
+    }
+
+    @Data
+    public static class RetryConfig {
+        /**
+         * 单个请求的最大尝试次数（包含首次），超时、限流、5xx 等临时错误时重试
+         */
+        private Integer maxAttempts = 3;
+
+        /**
+         * 首次重试的退避时间，之后每次翻倍，实际等待时间在 0 到退避时间之间随机
+         */
+        private Duration initialBackoff = Duration.ofMillis(500);
+
+        /**
+         * 退避时间上限
+         */
+        private Duration maxBackoff = Duration.ofSeconds(8);
+
+        /**
+         * 单个批次重试、拆分、补查的请求数上限（不含首次请求），超出后剩余商品计为失败
+         */
+        private Integer maxRequestsPerBatch = 16;
+
+        /**
+         * 返回缺少的商品不超过该数量时逐个补查，超过时对缺少的商品二分后重新查询
+         */
+        private Integer requeryIndividually = 3;
+
+        /**
+         * 与具体商品无关的业务错误码（如签名、参数格式、系统错误），按退避重试，不拆分批次查找问题商品
+         */
+        private List<Integer> globalErrorCodes = new ArrayList<>();
+    }
+
+    @Data
+    public static class CircuitBreakerConfig {
+        /**
+         * 是否启用熔断
+         */
+        private Boolean enabled = true;
+
+        /**
+         * 统计窗口（最近调用次数）
+         */
+        private Integer windowSize = 50;
+
+        /**
+         * 窗口内至少有该数量的调用才判断是否打开
+         */
+        private Integer minimumCalls = 20;
+
+        /**
+         * 错误率阈值（百分比），超时、连接失败、5xx 计为错误
+         */
+        private Integer failureRateThreshold = 50;
+
+        /**
+         * 耗时超过该值的调用计为慢调用
+         */
+        private Duration slowCallDuration = Duration.ofSeconds(10);
+
+        /**
+         * 慢调用率阈值（百分比）
+         */
+        private Integer slowCallRateThreshold = 80;
+
+        /**
+         * 打开后进入半开状态前的时间
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        /**
+         * 半开状态放行的探测调用数
+         */
+        private Integer halfOpenCalls = 3;
+
+        /**
+         * 校验运行等待熔断恢复的最长时间，超过后在检查点处停止，下次运行继续
+         */
+        private Duration maxPause = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class CheckConfig {
+        /**
+         * 预取的数据库分页数量
+         */
+        private Integer prefetchPages = 2;
+
+        /**
+         * 最大在途批次数（已获取令牌、尚未完成的批次）
+         */
+        private Integer maxInFlight = 20;
+
+        /**
+         * 批次执行方式
+         */
+        private ExecutionMode executionMode = ExecutionMode.POOL;
+
+        /**
+         * 虚拟线程模式下的最大在途批次数
+         */
+        private Integer virtualMaxInFlight = 200;
+
+        /**
+         * 异步模式下的最大在途批次数
+         */
+        private Integer asyncMaxInFlight = 200;
+
+        /**
+         * 单次校验运行的超时时间，超时后取消剩余批次，0 表示不限制
+         */
+        private Duration runTimeout = Duration.ofHours(6);
+
+        /**
+         * 单次校验运行的时间预算，用完后在检查点处停止，下次运行继续，0 表示不限制
+         */
+        private Duration timeBudget = Duration.ZERO;
+
+        /**
+         * 保存检查点（区间游标、计数、心跳）的间隔
+         */
+        private Duration checkpointInterval = Duration.ofSeconds(10);
+
+        /**
+         * 未完成的运行在该时间内开始的，下次运行从检查点继续，否则重新开始
+         */
+        private Duration resumeWindow = Duration.ofHours(24);
+
+        /**
+         * 成功完成的运行在该时间内再次触发时直接返回其结果
+         */
+        private Duration resultTtl = Duration.ofMinutes(10);
+
+        /**
+         * 是否刷新未变化商品的最后校验时间（只更新 last_check_time 一列）
+         */
+        private Boolean touchUnchanged = true;
+
+        /**
+         * 校验结果写回配置
+         */
+        private WriterConfig writer = new WriterConfig();
+
+        /**
+         * 多实例分片校验配置
+         */
+        private ClusterConfig cluster = new ClusterConfig();
+    }
+
+    @Data
+    public static class ClusterConfig {
+        /**
+         * 是否启用多实例分片校验（各实例通过数据库租约领取主键区间）
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 每次运行切分的区间（租约）数量
+         */
+        private Integer leaseCount = 32;
+
+        /**
+         * 每个实例同时持有的租约数量
+         */
+        private Integer leasesPerNode = 2;
+
+        /**
+         * 租约有效期，持有实例按检查点间隔续约，到期未续约的区间可被其他实例领取
+         */
+        private Duration leaseTtl = Duration.ofSeconds(60);
+
+        /**
+         * 全部实例合计的 QPS 上限，按持有租约的实例数均分；未配置时使用所有凭证的 QPS 之和
+         */
+        private Integer globalQps;
+
+        /**
+         * 实例标识，记录在租约的 owner 中；未配置时使用 pid@hostname
+         */
+        private String nodeId;
+    }
+
+    @Data
+    public static class WriterConfig {
+        /**
+         * 写回队列容量（批次数），队列满时 Worker 阻塞
+         */
+        private Integer queueCapacity = 200;
+
+        /**
+         * 缓冲商品数达到该值时写回
+         */
+        private Integer flushSize = 2000;
+
+        /**
+         * 距上次写回超过该时间时写回
+         */
+        private Duration flushInterval = Duration.ofSeconds(1);
+
+        /**
+         * 单条 UPDATE 语句包含的最大商品数
+         */
+        private Integer chunkSize = 500;
+    }
+
+    /**
+     * 批次执行方式
+     */
+    public enum ExecutionMode {
+        /**
+         * 共享平台线程池（productCheckExecutor）
+         */
+        POOL,
+
+        /**
+         * 每个批次一个虚拟线程
+         */
+        VIRTUAL,
+
+        /**
+         * 异步请求 TTS API，响应由共享线程池处理
+         */
+        ASYNC
+    }
 }
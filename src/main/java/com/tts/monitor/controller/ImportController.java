@@ -0,0 +1,109 @@
+package com.tts.monitor.controller;
+
+import com.tts.monitor.dto.Result;
+import com.tts.monitor.entity.TtsImportJob;
+import com.tts.monitor.exception.BusinessException;
+import com.tts.monitor.service.IImportJobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * 商品导入控制器
+ * 大批量商品ID通过文件上传导入，后台分页执行，可查询进度
+ *
+ */
+@Slf4j
+@RestController
+@RequestMapping("/TTS/monitor/products/imports")
+@RequiredArgsConstructor
+public class ImportController {
+
+    private final IImportJobService importJobService;
+
+    /**
+     * 上传文件创建导入任务（multipart/form-data，字段名 file）
+     *
+     * @param file CSV 或按行分隔的商品ID文件
+     * @return 任务记录
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Result<TtsImportJob> uploadFile(@RequestParam("file") MultipartFile file) {
+        log.info("上传商品导入文件 - 文件: {}, 大小: {}", file.getOriginalFilename(), file.getSize());
+        try (InputStream in = file.getInputStream()) {
+            return Result.success("导入任务已提交", importJobService.createJob(file.getOriginalFilename(), in));
+        } catch (IOException e) {
+            throw new BusinessException("读取上传文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 以请求体流式上传创建导入任务（text/csv、text/plain、application/x-ndjson、application/octet-stream）
+     *
+     * @param fileName 文件名（可选，仅用于展示）
+     * @param body 请求体
+     * @return 任务记录
+     */
+    @PostMapping(consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+        MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public Result<TtsImportJob> uploadStream(@RequestParam(required = false) String fileName, InputStream body) {
+        log.info("上传商品导入数据 - 文件: {}", fileName);
+        return Result.success("导入任务已提交", importJobService.createJob(fileName, body));
+    }
+
+    /**
+     * 查询导入任务进度
+     *
+     * @param jobId 任务 ID
+     * @return 任务记录（状态、游标和计数）
+     */
+    @GetMapping("/{jobId}")
+    public Result<TtsImportJob> getJob(@PathVariable String jobId) {
+        return Result.success(importJobService.getJob(jobId));
+    }
+
+    /**
+     * 查询导入任务中指定处理结果的商品ID（如失败的商品，可重新导入）
+     *
+     * @param jobId 任务 ID
+     * @param result 处理结果：ADDED、EXISTING、UNKNOWN、FAILED
+     * @param limit 最大数量（不超过 10000）
+     * @return 商品ID列表
+     */
+    @GetMapping("/{jobId}/items")
+    public Result<List<String>> getItems(@PathVariable String jobId,
+                                         @RequestParam String result,
+                                         @RequestParam(defaultValue = "1000") int limit) {
+        return Result.success(importJobService.getItems(jobId, result, limit));
+    }
+
+    /**
+     * 取消导入任务
+     *
+     * @param jobId 任务 ID
+     * @return 任务记录
+     */
+    @PostMapping("/{jobId}/cancel")
+    public Result<TtsImportJob> cancel(@PathVariable String jobId) {
+        log.info("取消商品导入任务 - 任务ID: {}", jobId);
+        return Result.success("已请求取消", importJobService.cancel(jobId));
+    }
+
+    /**
+     * 从检查点继续已取消或失败的导入任务
+     *
+     * @param jobId 任务 ID
+     * @return 任务记录
+     */
+    @PostMapping("/{jobId}/resume")
+    public Result<TtsImportJob> resume(@PathVariable String jobId) {
+        log.info("继续商品导入任务 - 任务ID: {}", jobId);
+        return Result.success("任务已提交", importJobService.resume(jobId));
+    }
+}
@@ -1,6 +1,7 @@
 package com.tts.monitor.controller;
 
 import com.tts.monitor.dto.PageResult;
+import com.tts.monitor.dto.ProductAddReport;
 import com.tts.monitor.dto.ProductAddRequest;
 import com.tts.monitor.dto.ProductQueryDTO;
 import com.tts.monitor.dto.Result;
@@ -8,10 +9,12 @@ import com.tts.monitor.entity.TtsProductMonitor;
 import com.tts.monitor.service.IAlertService;
 import com.tts.monitor.service.IProductService;
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.ExecutorService;
+
 /**
  * 商品监控控制器
  * 
@@ -19,11 +22,19 @@ import org.springframework.web.bind.annotation.*;
 @Slf4j
 @RestController
 @RequestMapping("/TTS/monitor/products")
-@RequiredArgsConstructor
 public class ProductController {
 
     private final IProductService productService;
     private final IAlertService alertService;
+    private final ExecutorService checkTaskExecutor;
+
+    public ProductController(IProductService productService,
+                             IAlertService alertService,
+                             @Qualifier("checkTaskExecutor") ExecutorService checkTaskExecutor) {
+        this.productService = productService;
+        this.alertService = alertService;
+        this.checkTaskExecutor = checkTaskExecutor;
+    }
 
     /**
      * 获取商品监控列表
@@ -42,16 +53,17 @@ public class ProductController {
      * 新增监控商品
      * 
      * @param request 新增请求
-     * @return 新增数量
+     * @return 每个商品的处理结果
      */
     @PostMapping("/add")
-    public Result<Integer> addProducts(@Valid @RequestBody ProductAddRequest request) {
+    public Result<ProductAddReport> addProducts(@Valid @RequestBody ProductAddRequest request) {
         log.info("新增监控商品 - 数量: {}", request.getProductIds().size());
-        int count = productService.addProducts(request.getProductIds());
+        ProductAddReport report = productService.addProducts(request.getProductIds());
+        int count = report.getAdded().size();
         
         // 新增商品后执行告警检查（异步）
         if (count > 0) {
-            java.util.concurrent.CompletableFuture.runAsync(() -> {
+            checkTaskExecutor.execute(() -> {
                 try {
                     log.info("新增 {} 个商品后，开始执行告警检查", count);
                     alertService.executeAlert();
@@ -61,7 +73,7 @@ public class ProductController {
             });
         }
         
-        return Result.success("成功新增 " + count + " 个商品", count);
+        return Result.success(report.summary(), report);
     }
 
     /**
@@ -1,18 +1,23 @@
 package com.tts.monitor.controller;
 
 import com.tts.monitor.dto.Result;
-import com.tts.monitor.service.IAlertService;
-import com.tts.monitor.service.IProductCheckService;
+import com.tts.monitor.entity.TtsCheckRun;
+import com.tts.monitor.exception.BusinessException;
+import com.tts.monitor.service.CheckTask;
+import com.tts.monitor.service.ICheckRunService;
+import com.tts.monitor.service.ICheckTaskService;
 import com.tts.monitor.service.ProductCheckService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * 任务控制器
@@ -24,39 +29,111 @@ import java.util.concurrent.CompletableFuture;
 @RequiredArgsConstructor
 public class TaskController {
 
-    private final IProductCheckService productCheckService;
-    private final IAlertService alertService;
+    private final ICheckTaskService checkTaskService;
+    private final ICheckRunService checkRunService;
 
     /**
      * 手动触发商品校验任务
+     * 已有运行时返回该运行；最近成功完成的运行在结果缓存期内时返回其结果，force=true 时重新执行
      * 
+     * @param force 是否忽略最近完成的运行结果
      * @return 执行结果
      */
     @PostMapping("/execute")
-    public Result<Map<String, Object>> executeProductCheck() {
-        log.info("手动触发商品校验任务");
+    public Result<Map<String, Object>> executeProductCheck(@RequestParam(defaultValue = "false") boolean force) {
+        log.info("手动触发商品校验任务 - 强制执行: {}", force);
         
         // 异步执行，避免接口超时
-        CompletableFuture.runAsync(() -> {
-            try {
-                ProductCheckService.CheckResult result = productCheckService.executeProductCheck();
-                log.info("手动校验任务完成 - 成功: {}, 总数: {}, 有效: {}, 失效: {}, 失败: {}, 耗时: {}ms",
-                    result.isSuccess(), result.getTotalCount(), result.getValidCount(),
-                    result.getInvalidCount(), result.getFailedCount(), result.getDuration());
-                
-                // 校验完成后执行告警检查
-                if (result.isSuccess() && result.getInvalidCount() > 0) {
-                    alertService.executeAlert();
-                }
-            } catch (Exception e) {
-                log.error("手动校验任务执行异常", e);
-            }
-        });
+        CheckTask task = checkTaskService.submit(ICheckTaskService.SCOPE_ALL, null, force);
         
-        Map<String, Object> data = new HashMap<>();
-        data.put("status", "started");
-        data.put("message", "商品校验任务已启动，请查看日志了解执行进度");
+        Map<String, Object> data = toTaskData(task);
+        data.put("message", "商品校验任务已启动，可通过 /TTS/monitor/task/runs/" + task.getRunId() + " 查看进度");
         
         return Result.success("任务已提交", data);
     }
+
+    /**
+     * 查询正在执行的校验运行
+     *
+     * @return 运行进度，没有运行时 data 为空
+     */
+    @GetMapping("/runs/current")
+    public Result<Map<String, Object>> getCurrentRun() {
+        CheckTask task = checkTaskService.getActiveTask(ICheckTaskService.SCOPE_ALL);
+        return Result.success(task != null ? toTaskData(task) : null);
+    }
+
+    /**
+     * 查询校验运行进度
+     * 本实例内的运行返回实时计数，其他运行返回最近一次保存的检查点
+     *
+     * @param runId 运行 ID
+     * @return 运行进度
+     */
+    @GetMapping("/runs/{runId}")
+    public Result<Map<String, Object>> getRun(@PathVariable String runId) {
+        CheckTask task = checkTaskService.getTask(runId);
+        if (task != null) {
+            return Result.success(toTaskData(task));
+        }
+
+        TtsCheckRun run = checkRunService.getByRunId(runId);
+        if (run == null) {
+            throw new BusinessException("校验运行不存在: " + runId);
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("runId", run.getRunId());
+        data.put("status", run.getStatus());
+        data.put("owner", run.getOwner());
+        data.put("progress", checkRunService.getProgress(run));
+        data.put("startedAt", run.getStartedAt());
+        data.put("finishedAt", run.getFinishedAt());
+        data.put("heartbeatTime", run.getHeartbeatTime());
+        data.put("errorMessage", run.getErrorMessage());
+        return Result.success(data);
+    }
+
+    /**
+     * 取消本实例内正在执行的校验运行
+     *
+     * @param runId 运行 ID
+     * @return 运行进度
+     */
+    @PostMapping("/runs/{runId}/cancel")
+    public Result<Map<String, Object>> cancelRun(@PathVariable String runId) {
+        log.info("手动取消商品校验任务 - 运行ID: {}", runId);
+        CheckTask task = checkTaskService.cancel(runId);
+        return Result.success("已请求取消", toTaskData(task));
+    }
+
+    /**
+     * 从检查点继续指定的校验运行
+     *
+     * @param runId 运行 ID
+     * @return 执行结果
+     */
+    @PostMapping("/runs/{runId}/resume")
+    public Result<Map<String, Object>> resumeProductCheck(@PathVariable String runId) {
+        log.info("手动继续商品校验任务 - 运行ID: {}", runId);
+
+        CheckTask task = checkTaskService.submit(ICheckTaskService.SCOPE_ALL, runId, true);
+
+        Map<String, Object> data = toTaskData(task);
+        data.put("message", "商品校验任务已从检查点继续，请查看日志了解执行进度");
+
+        return Result.success("任务已提交", data);
+    }
+
+    private Map<String, Object> toTaskData(CheckTask task) {
+        ProductCheckService.CheckResult progress = task.progress();
+        Map<String, Object> data = new HashMap<>();
+        data.put("runId", task.getRunId());
+        data.put("scope", task.getScope());
+        data.put("status", task.getStatus());
+        data.put("progress", progress);
+        data.put("submittedAt", task.getSubmittedAt());
+        data.put("finishedAt", task.getFinishedAt());
+        data.put("errorMessage", progress.getErrorMessage());
+        return data;
+    }
 }
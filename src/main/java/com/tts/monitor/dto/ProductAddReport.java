@@ -0,0 +1,47 @@
+package com.tts.monitor.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量新增商品结果，按商品 ID 列出每个商品的处理结果
+ *
+ */
+@Data
+public class ProductAddReport {
+
+    /**
+     * 去重后的商品数
+     */
+    private int requested;
+
+    /**
+     * 新增成功的商品ID（包括本次请求期间被并发请求新增的商品）
+     */
+    private List<String> added = new ArrayList<>();
+
+    /**
+     * 已在监控中的商品ID
+     */
+    private List<String> existing = new ArrayList<>();
+
+    /**
+     * TTS 未返回的商品ID（商品ID无效）
+     */
+    private List<String> unknown = new ArrayList<>();
+
+    /**
+     * 查询或写入失败、可重新提交的商品ID
+     */
+    private List<String> failed = new ArrayList<>();
+
+    /**
+     * 结果摘要
+     */
+    public String summary() {
+        return String.format("新增 %d 个，已存在 %d 个，无效 %d 个，失败 %d 个",
+            added.size(), existing.size(), unknown.size(), failed.size());
+    }
+}
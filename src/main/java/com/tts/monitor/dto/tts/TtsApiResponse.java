@@ -1,7 +1,9 @@
 package com.tts.monitor.dto.tts;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -32,6 +34,55 @@ public class TtsApiResponse {
     @JsonProperty("request_id")
     private String requestId;
 
+    /**
+     * HTTP 状态码（客户端填充，不参与反序列化）
+     */
+    @JsonIgnore
+    private Integer httpStatus;
+
+    /**
+     * 响应头 Retry-After 指定的等待时间，未返回时为 null
+     */
+    @JsonIgnore
+    private Duration retryAfter;
+
+    /**
+     * 是否因请求超时失败
+     */
+    @JsonIgnore
+    private boolean timedOut;
+
+    /**
+     * 是否因熔断被拒绝（未发出请求）
+     */
+    @JsonIgnore
+    private boolean circuitOpen;
+
+    /**
+     * 发出请求使用的凭证名称
+     */
+    @JsonIgnore
+    private String credential;
+
+    /**
+     * 是否因凭证鉴权失败（HTTP 401/403 或配置的鉴权错误码）
+     */
+    @JsonIgnore
+    private boolean authFailed;
+
+    /**
+     * 合并到其他在途请求的商品数，为 0 时全部商品由本次请求查询
+     */
+    @JsonIgnore
+    private int coalescedIds;
+
+    /**
+     * 结果是否取自其他调用方的请求（全部商品已在途，或在途请求失败）
+     * 该请求的结果已由发出方记录，调用方不再重复计入速率反馈
+     */
+    @JsonIgnore
+    private boolean coalesced;
+
     @Data
     public static class DataWrapper {
         /**
@@ -0,0 +1,87 @@
+package com.tts.monitor.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 商品校验区间租约实体类
+ * 集群模式下校验运行的主键空间切分为多个区间，各实例领取租约后校验对应区间
+ *
+ */
+@Data
+@TableName("tts_check_lease")
+public class TtsCheckLease implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 自增主键
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 所属运行 ID
+     */
+    @TableField("run_id")
+    private String runId;
+
+    /**
+     * 区间序号
+     */
+    @TableField("range_index")
+    private Integer rangeIndex;
+
+    /**
+     * 区间已提交的游标（不包含），恢复时从该位置继续
+     */
+    @TableField("cursor_id")
+    private Integer cursorId;
+
+    /**
+     * 区间上界主键（包含），为 null 时不限制
+     */
+    @TableField(value = "end_id", updateStrategy = FieldStrategy.NEVER)
+    private Integer endId;
+
+    /**
+     * 租约状态：PENDING、LEASED、DONE
+     */
+    @TableField("status")
+    private String status;
+
+    /**
+     * 持有租约的实例（pid@hostname）
+     */
+    @TableField("owner")
+    private String owner;
+
+    /**
+     * 租约到期时间，到期未续约的区间可被其他实例领取
+     */
+    @TableField("lease_until")
+    private LocalDateTime leaseUntil;
+
+    /**
+     * 记录创建时间
+     */
+    @TableField(value = "created_at", fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    /**
+     * 记录更新时间
+     */
+    @TableField(value = "updated_at", fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+
+    /**
+     * 租约状态枚举
+     */
+    public static class LeaseStatus {
+        public static final String PENDING = "PENDING";   // 待领取
+        public static final String LEASED = "LEASED";     // 已领取
+        public static final String DONE = "DONE";         // 已完成
+    }
+}
@@ -0,0 +1,149 @@
+package com.tts.monitor.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 商品校验运行记录实体类
+ * 记录每次全量校验的区间游标、计数和状态，用于中断后从检查点继续
+ *
+ */
+@Data
+@TableName("tts_check_run")
+public class TtsCheckRun implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 自增主键
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 运行 ID（唯一键）
+     */
+    @TableField("run_id")
+    private String runId;
+
+    /**
+     * 运行状态：RUNNING、STOPPED、COMPLETED、FAILED、CANCELLED
+     */
+    @TableField("status")
+    private String status;
+
+    /**
+     * 未完成运行的占位键（唯一键），同时只允许一个未完成的运行；完成或取消后置为 NULL
+     */
+    @TableField("active_key")
+    private String activeKey;
+
+    /**
+     * 各主键区间已提交的游标（JSON）
+     */
+    @TableField("range_state")
+    private String rangeState;
+
+    /**
+     * 已分发的商品数
+     */
+    @TableField("total_count")
+    private Integer totalCount;
+
+    /**
+     * 已校验的商品数
+     */
+    @TableField("checked_count")
+    private Integer checkedCount;
+
+    /**
+     * 有效商品数
+     */
+    @TableField("valid_count")
+    private Integer validCount;
+
+    /**
+     * 失效商品数
+     */
+    @TableField("invalid_count")
+    private Integer invalidCount;
+
+    /**
+     * 失败商品数
+     */
+    @TableField("failed_count")
+    private Integer failedCount;
+
+    /**
+     * 状态变化商品数
+     */
+    @TableField("changed_count")
+    private Integer changedCount;
+
+    /**
+     * 确认未变化商品数
+     */
+    @TableField("unchanged_count")
+    private Integer unchangedCount;
+
+    /**
+     * 佣金率下降商品数
+     */
+    @TableField("commission_drop_count")
+    private Integer commissionDropCount;
+
+    /**
+     * 当前执行的实例（pid@hostname）
+     */
+    @TableField("owner")
+    private String owner;
+
+    /**
+     * 最后一次保存检查点的时间，运行中的记录长时间未更新视为实例已退出
+     */
+    @TableField("heartbeat_time")
+    private LocalDateTime heartbeatTime;
+
+    /**
+     * 开始时间
+     */
+    @TableField("started_at")
+    private LocalDateTime startedAt;
+
+    /**
+     * 结束时间
+     */
+    @TableField("finished_at")
+    private LocalDateTime finishedAt;
+
+    /**
+     * 失败原因
+     */
+    @TableField("error_message")
+    private String errorMessage;
+
+    /**
+     * 记录创建时间
+     */
+    @TableField(value = "created_at", fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    /**
+     * 记录更新时间
+     */
+    @TableField(value = "updated_at", fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+
+    /**
+     * 运行状态枚举
+     */
+    public static class RunStatus {
+        public static final String RUNNING = "RUNNING";       // 运行中
+        public static final String STOPPED = "STOPPED";       // 时间预算用完，停在检查点
+        public static final String COMPLETED = "COMPLETED";   // 已完成
+        public static final String FAILED = "FAILED";         // 失败
+        public static final String CANCELLED = "CANCELLED";   // 已取消（不自动继续）
+    }
+}
@@ -0,0 +1,51 @@
+package com.tts.monitor.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.io.Serializable;
+
+/**
+ * 商品导入暂存实体类
+ * 上传文件中的每个商品ID一条记录，同一任务内按商品ID去重；按主键顺序分页处理
+ *
+ */
+@Data
+@TableName("tts_import_item")
+public class TtsImportItem implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 自增主键（处理游标）
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 所属任务 ID
+     */
+    @TableField("job_id")
+    private String jobId;
+
+    /**
+     * TTS 商品唯一 ID
+     */
+    @TableField("product_id")
+    private String productId;
+
+    /**
+     * 处理结果：ADDED、EXISTING、UNKNOWN、FAILED，未处理时为 NULL
+     */
+    @TableField("result")
+    private String result;
+
+    /**
+     * 处理结果枚举
+     */
+    public static class ItemResult {
+        public static final String ADDED = "ADDED";         // 新增
+        public static final String EXISTING = "EXISTING";   // 已在监控中
+        public static final String UNKNOWN = "UNKNOWN";     // TTS 未返回（商品ID无效）
+        public static final String FAILED = "FAILED";       // 查询或写入失败
+    }
+}
@@ -0,0 +1,150 @@
+package com.tts.monitor.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 商品导入任务实体类
+ * 记录上传文件的暂存数量、处理游标、计数和状态，用于后台分页处理和重启后从检查点继续
+ *
+ */
+@Data
+@TableName("tts_import_job")
+public class TtsImportJob implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 自增主键
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 任务 ID（唯一键）
+     */
+    @TableField("job_id")
+    private String jobId;
+
+    /**
+     * 任务状态：UPLOADING、PENDING、RUNNING、COMPLETED、FAILED、CANCELLED
+     */
+    @TableField("status")
+    private String status;
+
+    /**
+     * 上传的文件名
+     */
+    @TableField("file_name")
+    private String fileName;
+
+    /**
+     * 去重后暂存的商品数
+     */
+    @TableField("total_count")
+    private Integer totalCount;
+
+    /**
+     * 文件内重复的商品数
+     */
+    @TableField("duplicate_count")
+    private Integer duplicateCount;
+
+    /**
+     * 无法解析为商品ID的行数
+     */
+    @TableField("invalid_line_count")
+    private Integer invalidLineCount;
+
+    /**
+     * 已处理的最后一个暂存记录主键，继续时从该位置之后处理
+     */
+    @TableField("cursor_id")
+    private Long cursorId;
+
+    /**
+     * 已处理的商品数
+     */
+    @TableField("processed_count")
+    private Integer processedCount;
+
+    /**
+     * 新增的商品数
+     */
+    @TableField("added_count")
+    private Integer addedCount;
+
+    /**
+     * 已在监控中的商品数
+     */
+    @TableField("existing_count")
+    private Integer existingCount;
+
+    /**
+     * TTS 未返回的商品数（商品ID无效）
+     */
+    @TableField("unknown_count")
+    private Integer unknownCount;
+
+    /**
+     * 查询或写入失败的商品数
+     */
+    @TableField("failed_count")
+    private Integer failedCount;
+
+    /**
+     * 当前执行的实例（pid@hostname）
+     */
+    @TableField("owner")
+    private String owner;
+
+    /**
+     * 最后一次保存检查点的时间，上传中或执行中的任务长时间未更新视为实例已退出
+     */
+    @TableField("heartbeat_time")
+    private LocalDateTime heartbeatTime;
+
+    /**
+     * 开始处理时间
+     */
+    @TableField("started_at")
+    private LocalDateTime startedAt;
+
+    /**
+     * 结束时间
+     */
+    @TableField("finished_at")
+    private LocalDateTime finishedAt;
+
+    /**
+     * 失败原因
+     */
+    @TableField("error_message")
+    private String errorMessage;
+
+    /**
+     * 记录创建时间
+     */
+    @TableField(value = "created_at", fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    /**
+     * 记录更新时间
+     */
+    @TableField(value = "updated_at", fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+
+    /**
+     * 任务状态枚举
+     */
+    public static class JobStatus {
+        public static final String UPLOADING = "UPLOADING";   // 上传中（边读取边写入暂存表）
+        public static final String PENDING = "PENDING";       // 等待执行
+        public static final String RUNNING = "RUNNING";       // 执行中
+        public static final String COMPLETED = "COMPLETED";   // 已完成
+        public static final String FAILED = "FAILED";         // 失败
+        public static final String CANCELLED = "CANCELLED";   // 已取消（不自动继续）
+    }
+}
@@ -75,6 +75,18 @@ public class TtsProductMonitor implements Serializable {
     @TableField("commission_currency")
     private String commissionCurrency;
 
+    /**
+     * 佣金率变化前的值（佣金率下降时可据此提示）
+     */
+    @TableField("prev_commission_rate")
+    private Integer prevCommissionRate;
+
+    /**
+     * 校验快照哈希（有效性、佣金、标题、店铺），未变化时跳过写回
+     */
+    @TableField("check_hash")
+    private Long checkHash;
+
     /**
      * 最后一次系统校验的时间
      */
@@ -0,0 +1,42 @@
+package com.tts.monitor.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 共享令牌桶实体类
+ * 同一 app key 的所有实例、所有调用方式共用一行，按数据库时钟补充令牌
+ *
+ */
+@Data
+@TableName("tts_rate_bucket")
+public class TtsRateBucket implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 令牌桶标识
+     */
+    @TableId(value = "bucket_key", type = IdType.INPUT)
+    private String bucketKey;
+
+    /**
+     * 剩余令牌数（截至 refilled_at）
+     */
+    @TableField("tokens")
+    private Double tokens;
+
+    /**
+     * 上次补充令牌的时间（毫秒，数据库时钟）
+     */
+    @TableField("refilled_at")
+    private Long refilledAt;
+
+    /**
+     * 记录更新时间
+     */
+    @TableField(value = "updated_at", insertStrategy = FieldStrategy.NEVER, updateStrategy = FieldStrategy.NEVER)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,13 @@
+package com.tts.monitor.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.tts.monitor.entity.TtsCheckLease;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 商品校验区间租约 Mapper 接口
+ *
+ */
+@Mapper
+public interface TtsCheckLeaseMapper extends BaseMapper<TtsCheckLease> {
+}
@@ -0,0 +1,13 @@
+package com.tts.monitor.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.tts.monitor.entity.TtsCheckRun;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 商品校验运行记录 Mapper 接口
+ *
+ */
+@Mapper
+public interface TtsCheckRunMapper extends BaseMapper<TtsCheckRun> {
+}
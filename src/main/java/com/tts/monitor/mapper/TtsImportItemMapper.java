@@ -0,0 +1,49 @@
+package com.tts.monitor.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.tts.monitor.entity.TtsImportItem;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 商品导入暂存 Mapper 接口
+ *
+ */
+@Mapper
+public interface TtsImportItemMapper extends BaseMapper<TtsImportItem> {
+
+    /**
+     * 批量写入暂存商品（同一任务内重复的商品忽略）
+     *
+     * @param jobId 任务 ID
+     * @param productIds 商品ID列表
+     * @return 写入数量（不含重复的商品）
+     */
+    int batchInsertIgnore(@Param("jobId") String jobId, @Param("productIds") List<String> productIds);
+
+    /**
+     * 按主键游标查询下一页待处理的商品
+     *
+     * @param jobId 任务 ID
+     * @param lastId 上一页最后一条记录的主键（不包含）
+     * @param limit 每页数量
+     * @return 按主键升序排列的暂存记录（仅包含 id、product_id）
+     */
+    List<TtsImportItem> selectPageAfter(@Param("jobId") String jobId,
+                                        @Param("lastId") long lastId,
+                                        @Param("limit") int limit);
+
+    /**
+     * 批量写入处理结果
+     *
+     * @param jobId 任务 ID
+     * @param productIds 商品ID列表
+     * @param result 处理结果
+     * @return 影响行数
+     */
+    int batchUpdateResult(@Param("jobId") String jobId,
+                          @Param("productIds") List<String> productIds,
+                          @Param("result") String result);
+}
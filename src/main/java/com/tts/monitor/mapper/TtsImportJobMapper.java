@@ -0,0 +1,13 @@
+package com.tts.monitor.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.tts.monitor.entity.TtsImportJob;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 商品导入任务 Mapper 接口
+ *
+ */
+@Mapper
+public interface TtsImportJobMapper extends BaseMapper<TtsImportJob> {
+}
@@ -6,6 +6,7 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * TTS商品监控 Mapper 接口
@@ -15,25 +16,46 @@ import java.util.List;
 public interface TtsProductMonitorMapper extends BaseMapper<TtsProductMonitor> {
 
     /**
-     * 批量查询商品ID列表（用于分页校验）
+     * 查询主键的最小值和最大值（用于切分校验区间）
      * 
-     * @param offset 偏移量
+     * @return 包含 minId、maxId 的结果，表为空时值为 null
+     */
+    Map<String, Object> selectIdBounds();
+
+    /**
+     * 按主键游标查询下一页校验数据
+     * 只读取 id、product_id、commission_rate、check_hash 四列，不读取 is_valid 和其他佣金字段：
+     * 是否变化由 check_hash（有效性、佣金、标题、店铺的快照哈希）判断，commission_rate 只用于判断佣金率下降
+     * 
+     * @param lastId 上一页最后一条记录的主键（不包含）
+     * @param endId 区间上界主键（包含），为 null 时不限制
      * @param limit 每页数量
-     * @return 商品ID列表
+     * @return 按主键升序排列的商品列表（仅包含 id、product_id、commission_rate、check_hash）
      */
-    List<String> selectProductIdsByPage(@Param("offset") int offset, @Param("limit") int limit);
+    List<TtsProductMonitor> selectCheckRowsAfter(@Param("lastId") int lastId,
+                                                 @Param("endId") Integer endId,
+                                                 @Param("limit") int limit);
 
     /**
-     * 批量更新商品有效性状态和最后校验时间
+     * 按主键批量写回校验结果（有效性状态、佣金、标题、店铺、快照哈希、最后校验时间）
+     * 每行的值各不相同，使用 CASE 在一条语句内完成；快照字段为 null 时保留原值
      * 
-     * @param productIds 商品ID列表
-     * @param isValid 有效性状态
+     * @param products 状态发生变化的商品（需包含 id）
+     * @param lastCheckTime 最后校验时间
+     * @return 影响行数
+     */
+    int batchUpdateCheckState(@Param("products") List<TtsProductMonitor> products,
+                              @Param("lastCheckTime") LocalDateTime lastCheckTime);
+
+    /**
+     * 只刷新最后校验时间，保持 updated_at 不变
+     * 
+     * @param ids 主键列表
      * @param lastCheckTime 最后校验时间
      * @return 影响行数
      */
-    int batchUpdateValidStatus(@Param("productIds") List<String> productIds, 
-                                @Param("isValid") Integer isValid,
-                                @Param("lastCheckTime") LocalDateTime lastCheckTime);
+    int touchLastCheckTime(@Param("ids") List<Integer> ids,
+                           @Param("lastCheckTime") LocalDateTime lastCheckTime);
 
     /**
      * 查询失效且未确认的商品列表（用于告警）
@@ -0,0 +1,38 @@
+package com.tts.monitor.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.tts.monitor.entity.TtsRateBucket;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 共享令牌桶 Mapper 接口
+ *
+ */
+@Mapper
+public interface TtsRateBucketMapper extends BaseMapper<TtsRateBucket> {
+
+    /**
+     * 创建令牌桶（已存在时忽略）
+     *
+     * @param bucketKey 令牌桶标识
+     * @param tokens 初始令牌数
+     * @return 影响行数
+     */
+    int insertIgnore(@Param("bucketKey") String bucketKey, @Param("tokens") double tokens);
+
+    /**
+     * 按数据库时钟补充令牌后取出 count 个令牌，令牌不足时不更新
+     * 补充和取出在一条语句内完成，多个实例并发领取时由行锁串行化
+     *
+     * @param bucketKey 令牌桶标识
+     * @param count 领取的令牌数
+     * @param rate 每秒补充的令牌数
+     * @param capacity 令牌桶容量
+     * @return 影响行数，1 表示领取成功
+     */
+    int claimTokens(@Param("bucketKey") String bucketKey,
+                    @Param("count") int count,
+                    @Param("rate") double rate,
+                    @Param("capacity") double capacity);
+}
@@ -0,0 +1,254 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 自适应批次大小
+ * 根据响应耗时、返回完整性和 URL 字节数调整每次请求的商品 ID 数量，使每个 QPS 令牌校验尽可能多的商品：
+ * 连续多个批次耗时低于目标时逐步增大，耗时超过目标时按比例缩小；
+ * 返回结果缺少请求末尾的连续多个商品时视为请求被截断，将上限降到实际返回的位置，之后缓慢试探恢复。
+ * 切分批次时按 URL 字节预算装入商品 ID，不超过当前批次大小
+ *
+ */
+@Slf4j
+public class AdaptiveBatchSizer {
+
+    /**
+     * 末尾连续缺失达到该数量才视为截断，避免末尾恰好是失效商品时误判
+     */
+    private static final int TRUNCATION_MIN_TAIL = 3;
+
+    /**
+     * 耗时指数移动平均的权重
+     */
+    private static final double LATENCY_ALPHA = 0.2;
+
+    /**
+     * 耗时超过目标时的缩小比例
+     */
+    private static final double DECREASE_FACTOR = 0.75;
+
+    /**
+     * 截断后的上限在连续多少轮增长周期内未再截断时试探提高
+     */
+    private static final int CEILING_PROBE_ROUNDS = 5;
+
+    private final boolean enabled;
+    private final int minSize;
+    private final int maxSize;
+    private final int urlByteBudget;
+    private final int urlOverheadBytes;
+    private final long latencyTargetNanos;
+    private final int increaseStep;
+    private final int increaseAfter;
+
+    private volatile int currentSize;
+    private volatile int ceiling;
+    private volatile double latencyEwmaNanos;
+    private volatile int lastUrlBytes;
+    private volatile long truncatedCount;
+
+    /**
+     * 自上次调整以来的样本数
+     */
+    private int samplesSinceChange = 0;
+
+    /**
+     * 连续完整且未超时的批次数
+     */
+    private int healthyStreak = 0;
+
+    /**
+     * 当前上限下未截断的增长周期数
+     */
+    private int ceilingRounds = 0;
+
+    /**
+     * @param config 自适应配置
+     * @param initialSize 初始批次大小（batch.size），未启用时固定使用
+     * @param urlOverheadBytes 请求 URL 中 product_ids 之外部分的字节数
+     */
+    public AdaptiveBatchSizer(TtsApiProperties.AdaptiveBatchConfig config, int initialSize, int urlOverheadBytes) {
+        this.enabled = config.getEnabled();
+        this.minSize = Math.max(1, config.getMinSize());
+        this.maxSize = Math.max(minSize, config.getMaxSize());
+        this.urlByteBudget = config.getUrlByteBudget();
+        this.urlOverheadBytes = urlOverheadBytes;
+        this.latencyTargetNanos = config.getLatencyTarget().toNanos();
+        this.increaseStep = Math.max(1, config.getIncreaseStep());
+        this.increaseAfter = Math.max(1, config.getIncreaseAfter());
+        this.currentSize = enabled ? clamp(initialSize) : initialSize;
+        this.ceiling = maxSize;
+    }
+
+    /**
+     * 从 from 开始按当前批次大小和 URL 字节预算装入商品，返回批次结束位置（不包含）
+     * 单个商品 ID 超出预算时也至少装入一个
+     */
+    public <T> int pack(List<T> items, int from, Function<T, String> productId) {
+        int limit = Math.min(items.size(), from + currentSize);
+        if (!enabled) {
+            return limit;
+        }
+        int bytes = urlOverheadBytes;
+        int end = from;
+        while (end < limit) {
+            // 逗号分隔，第一个 ID 之前没有逗号
+            int next = productId.apply(items.get(end)).length() + (end > from ? 1 : 0);
+            if (end > from && bytes + next > urlByteBudget) {
+                break;
+            }
+            bytes += next;
+            end++;
+        }
+        lastUrlBytes = bytes;
+        return end;
+    }
+
+    /**
+     * 记录一次请求的结果并调整批次大小
+     *
+     * @param requestedIds 请求的商品 ID（按请求顺序）
+     * @param response 接口响应
+     * @param latencyNanos 请求耗时
+     * @return 被截断的末尾商品数，这些商品未被接口处理，不能据此判定失效
+     */
+    public synchronized int record(List<String> requestedIds, TtsApiResponse response, long latencyNanos) {
+        if (response != null && (response.isCircuitOpen() || response.getCoalescedIds() > 0)) {
+            // 部分商品合并到其他请求时，响应不反映本批次大小的耗时和截断情况
+            return 0;
+        }
+        latencyEwmaNanos = latencyEwmaNanos == 0
+            ? latencyNanos
+            : latencyEwmaNanos + LATENCY_ALPHA * (latencyNanos - latencyEwmaNanos);
+        int truncatedTail = response != null && response.isSuccess() ? truncatedTail(requestedIds, response) : 0;
+        if (!enabled) {
+            return truncatedTail;
+        }
+        samplesSinceChange++;
+
+        if (truncatedTail > 0) {
+            truncatedCount++;
+            int accepted = requestedIds.size() - truncatedTail;
+            ceiling = Math.max(minSize, accepted);
+            log.warn("TTS 接口返回被截断 - 请求商品数: {}, 末尾缺失: {}, 批次上限调整为: {}",
+                requestedIds.size(), truncatedTail, ceiling);
+            resize(Math.min(currentSize, ceiling));
+            ceilingRounds = 0;
+            return truncatedTail;
+        }
+
+        if (latencyNanos > latencyTargetNanos) {
+            healthyStreak = 0;
+            // 调整后等待足够的新样本再判断，避免平均值滞后导致连续缩小
+            if (latencyEwmaNanos > latencyTargetNanos && samplesSinceChange >= increaseAfter && currentSize > minSize) {
+                resize((int) (currentSize * DECREASE_FACTOR));
+                log.info("TTS 接口耗时超过目标 - 平均耗时: {}ms, 批次大小调整为: {}",
+                    TimeUnit.NANOSECONDS.toMillis((long) latencyEwmaNanos), currentSize);
+            }
+            return 0;
+        }
+
+        if (requestedIds.size() < currentSize) {
+            // 分页末尾或字节预算限制的小批次不代表当前大小可靠
+            return 0;
+        }
+        if (++healthyStreak < increaseAfter) {
+            return 0;
+        }
+        healthyStreak = 0;
+        if (currentSize < ceiling) {
+            resize(currentSize + increaseStep);
+        } else if (ceiling < maxSize && ++ceilingRounds >= CEILING_PROBE_ROUNDS) {
+            ceiling = Math.min(maxSize, ceiling + increaseStep);
+            ceilingRounds = 0;
+            resize(currentSize + increaseStep);
+            log.info("试探提高批次上限 - 上限: {}", ceiling);
+        }
+        return 0;
+    }
+
+    /**
+     * 当前批次大小（每次请求的商品 ID 数量上限）
+     */
+    public int getCurrentSize() {
+        return currentSize;
+    }
+
+    /**
+     * 当前批次上限（检测到截断后降低）
+     */
+    public int getCeiling() {
+        return ceiling;
+    }
+
+    /**
+     * 请求耗时的指数移动平均（毫秒）
+     */
+    public double getLatencyMillis() {
+        return latencyEwmaNanos / 1_000_000d;
+    }
+
+    /**
+     * 最近一次切分批次的 URL 字节数
+     */
+    public int getLastUrlBytes() {
+        return lastUrlBytes;
+    }
+
+    /**
+     * 检测到的截断次数
+     */
+    public long getTruncatedCount() {
+        return truncatedCount;
+    }
+
+    private void resize(int size) {
+        int resized = Math.min(clamp(size), ceiling);
+        if (resized != currentSize) {
+            log.debug("批次大小调整 - {} -> {}", currentSize, resized);
+            currentSize = resized;
+        }
+        samplesSinceChange = 0;
+        healthyStreak = 0;
+    }
+
+    private int clamp(int size) {
+        return Math.max(minSize, Math.min(maxSize, size));
+    }
+
+    /**
+     * 计算请求末尾连续缺失的商品数：缺失的商品全部位于末尾且达到阈值时视为截断，否则返回 0
+     */
+    private static int truncatedTail(List<String> requestedIds, TtsApiResponse response) {
+        List<TtsApiResponse.ProductInfo> products = response.getData() != null
+            ? response.getData().getProducts()
+            : null;
+        if (products == null || products.isEmpty() || products.size() >= requestedIds.size()) {
+            return 0;
+        }
+        Set<String> returned = new HashSet<>();
+        for (TtsApiResponse.ProductInfo product : products) {
+            returned.add(product.getId());
+        }
+        int tail = 0;
+        for (int i = requestedIds.size() - 1; i >= 0 && !returned.contains(requestedIds.get(i)); i--) {
+            tail++;
+        }
+        int missing = 0;
+        for (String id : requestedIds) {
+            if (!returned.contains(id)) {
+                missing++;
+            }
+        }
+        return tail >= TRUNCATION_MIN_TAIL && missing == tail ? tail : 0;
+    }
+}
@@ -0,0 +1,302 @@
+package com.tts.monitor.service;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自适应速率控制（AIMD）
+ * 根据 TTS 接口反馈调整令牌桶速率：HTTP 429、5xx、配置的限流错误码、超时或平均耗时明显高于基线时按比例降速，
+ * 正常时每个恢复间隔增加固定 QPS，最高恢复到上限。响应带 Retry-After 时暂停分发到指定时间。
+ * 同一波在途请求的失败只降速一次（降速冷却时间内不再降速）。
+ * 启用共享令牌桶时，每个请求同时需要本地令牌和共享令牌，所有实例共用全局预算；
+ * 非阻塞和限时获取时先取共享令牌，本地令牌桶未放行时归还
+ *
+ */
+@Slf4j
+public class AdaptiveRateController {
+
+    /**
+     * 耗时快速平均的权重
+     */
+    private static final double FAST_ALPHA = 0.3;
+
+    /**
+     * 耗时基线（慢速平均）的权重，只用非错误响应更新
+     */
+    private static final double BASELINE_ALPHA = 0.02;
+
+    /**
+     * 暂停期间分段等待的最长时间，便于及时响应中断
+     */
+    private static final long PAUSE_SLICE_MS = 200;
+
+    private final RateLimiter rateLimiter;
+    private final boolean enabled;
+    private final double minQps;
+    private final double increaseStep;
+    private final long increaseIntervalNanos;
+    private final double decreaseFactor;
+    private final long decreaseCooldownNanos;
+    private final double latencyFactor;
+    private final Set<Integer> throttleCodes;
+    private final Duration maxRetryAfter;
+    private final SharedTokenBucket sharedBucket;
+
+    private volatile double ceiling;
+    private volatile double rate;
+    private volatile long pausedUntilNanos = System.nanoTime();
+    private volatile long throttledCount = 0;
+
+    private double fastLatencyNanos = 0;
+    private double baselineLatencyNanos = 0;
+    private long lastIncreaseNanos = System.nanoTime();
+    private long lastDecreaseNanos = 0;
+
+    /**
+     * @param rateLimiter 被调整的令牌桶
+     * @param config 限流配置，qps 为速率上限
+     */
+    public AdaptiveRateController(RateLimiter rateLimiter, TtsApiProperties.RateLimitConfig config) {
+        this(rateLimiter, config, null);
+    }
+
+    /**
+     * @param rateLimiter 被调整的令牌桶
+     * @param config 限流配置，qps 为速率上限
+     * @param sharedBucket 集群共享令牌桶，为 null 时只按本实例速率限流
+     */
+    public AdaptiveRateController(RateLimiter rateLimiter, TtsApiProperties.RateLimitConfig config,
+                                  SharedTokenBucket sharedBucket) {
+        this(rateLimiter, config, config.getQps(), sharedBucket);
+    }
+
+    /**
+     * @param rateLimiter 被调整的令牌桶
+     * @param config 限流配置
+     * @param qps 速率上限（多凭证时为凭证各自的 QPS）
+     * @param sharedBucket 集群共享令牌桶，为 null 时只按本实例速率限流
+     */
+    public AdaptiveRateController(RateLimiter rateLimiter, TtsApiProperties.RateLimitConfig config, double qps,
+                                  SharedTokenBucket sharedBucket) {
+        this.rateLimiter = rateLimiter;
+        this.sharedBucket = sharedBucket;
+        this.enabled = config.getAdaptive();
+        this.minQps = config.getMinQps();
+        this.increaseStep = config.getIncreaseStep();
+        this.increaseIntervalNanos = config.getIncreaseInterval().toNanos();
+        this.decreaseFactor = config.getDecreaseFactor();
+        this.decreaseCooldownNanos = config.getDecreaseCooldown().toNanos();
+        this.latencyFactor = config.getLatencyFactor();
+        this.throttleCodes = Set.copyOf(config.getThrottleCodes());
+        this.maxRetryAfter = config.getMaxRetryAfter();
+        this.ceiling = qps;
+        this.rate = qps;
+        rateLimiter.setRate(rate);
+    }
+
+    /**
+     * 获取一个令牌：Retry-After 暂停期间先等待，再从令牌桶和共享令牌桶获取
+     */
+    public void acquire() throws InterruptedException {
+        long wait;
+        while ((wait = pausedUntilNanos - System.nanoTime()) > 0) {
+            Thread.sleep(Math.min(PAUSE_SLICE_MS, TimeUnit.NANOSECONDS.toMillis(wait) + 1));
+        }
+        rateLimiter.acquire();
+        if (sharedBucket != null) {
+            sharedBucket.acquire();
+        }
+    }
+
+    /**
+     * 不等待地获取一个令牌（对冲请求使用），暂停期间或没有空闲令牌时返回 false
+     * 先取共享令牌，本地令牌桶未放行时归还，不浪费任一侧的令牌
+     */
+    public boolean tryAcquire() {
+        if (pausedUntilNanos - System.nanoTime() > 0) {
+            return false;
+        }
+        if (sharedBucket == null) {
+            return rateLimiter.tryAcquire();
+        }
+        if (!sharedBucket.tryAcquire()) {
+            return false;
+        }
+        if (!rateLimiter.tryAcquire()) {
+            sharedBucket.release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 在等待时间内获取一个令牌：暂停期间或等待时间内无法获取时返回 false，不占用令牌
+     * 共享令牌和本地令牌合计等待不超过 timeout
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        if (pausedUntilNanos - System.nanoTime() > 0) {
+            return false;
+        }
+        if (sharedBucket == null) {
+            return rateLimiter.tryAcquire(1, timeout, unit);
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!sharedBucket.tryAcquire(timeout, unit)) {
+            return false;
+        }
+        if (!rateLimiter.tryAcquire(1, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            sharedBucket.release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 是否启用了集群共享令牌桶（启用时全局预算由共享令牌桶分配，不需要按实例数均分）
+     */
+    public boolean isShared() {
+        return sharedBucket != null;
+    }
+
+    /**
+     * 记录一次请求的结果并调整速率
+     *
+     * @param response 接口响应
+     * @param latencyNanos 请求耗时
+     */
+    public synchronized void record(TtsApiResponse response, long latencyNanos) {
+        if (response.isCircuitOpen()) {
+            // 熔断拒绝的调用未发出请求，不反映接口状态
+            return;
+        }
+        long now = System.nanoTime();
+        fastLatencyNanos = fastLatencyNanos == 0
+            ? latencyNanos
+            : fastLatencyNanos + FAST_ALPHA * (latencyNanos - fastLatencyNanos);
+
+        if (response.getRetryAfter() != null && !response.getRetryAfter().isZero()) {
+            Duration pause = response.getRetryAfter().compareTo(maxRetryAfter) > 0 ? maxRetryAfter : response.getRetryAfter();
+            long until = now + pause.toNanos();
+            if (until - pausedUntilNanos > 0) {
+                pausedUntilNanos = until;
+                log.warn("TTS 接口要求等待 - Retry-After: {}s，暂停分发", pause.toSeconds());
+            }
+        }
+
+        String reason = errorReason(response);
+        if (reason == null) {
+            if (baselineLatencyNanos > 0 && fastLatencyNanos > baselineLatencyNanos * latencyFactor) {
+                reason = String.format("耗时上升（%dms，基线 %dms）",
+                    TimeUnit.NANOSECONDS.toMillis((long) fastLatencyNanos),
+                    TimeUnit.NANOSECONDS.toMillis((long) baselineLatencyNanos));
+            }
+            // 基线缓慢跟随非错误响应，耗时整体上升后不会一直停在低速
+            baselineLatencyNanos = baselineLatencyNanos == 0
+                ? latencyNanos
+                : baselineLatencyNanos + BASELINE_ALPHA * (latencyNanos - baselineLatencyNanos);
+        }
+        if (reason != null) {
+            throttledCount++;
+            if (enabled && now - lastDecreaseNanos >= decreaseCooldownNanos) {
+                lastDecreaseNanos = now;
+                lastIncreaseNanos = now;
+                apply(Math.max(minQps, rate * decreaseFactor));
+                log.warn("TTS 接口{}，降低请求速率 - 当前 QPS: {}", reason, String.format("%.2f", rate));
+            }
+            return;
+        }
+
+        if (enabled && rate < ceiling && now - lastIncreaseNanos >= increaseIntervalNanos) {
+            lastIncreaseNanos = now;
+            apply(Math.min(ceiling, rate + increaseStep));
+            log.debug("恢复请求速率 - 当前 QPS: {}", String.format("%.2f", rate));
+        }
+    }
+
+    /**
+     * 调整速率上限（集群模式按实例数均分全局 QPS），当前速率高于上限时立即降到上限
+     */
+    public synchronized void setCeiling(double ceiling) {
+        this.ceiling = ceiling;
+        if (!enabled || rate > ceiling) {
+            apply(ceiling);
+        }
+    }
+
+    /**
+     * 响应是否为限流、服务端错误或超时（可重试的临时错误）
+     */
+    public boolean isThrottled(TtsApiResponse response) {
+        return errorReason(response) != null;
+    }
+
+    /**
+     * 响应是否为限流（HTTP 429 或配置的限流错误码）
+     */
+    public boolean isRateLimited(TtsApiResponse response) {
+        Integer status = response.getHttpStatus();
+        return (status != null && status == 429)
+            || (response.getCode() != null && throttleCodes.contains(response.getCode()));
+    }
+
+    /**
+     * 当前生效的速率（QPS）
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * 当前速率上限（QPS）
+     */
+    public double getCeiling() {
+        return ceiling;
+    }
+
+    /**
+     * 是否处于 Retry-After 暂停中
+     */
+    public boolean isPaused() {
+        return pausedUntilNanos - System.nanoTime() > 0;
+    }
+
+    /**
+     * 收到限流或拥塞反馈的次数
+     */
+    public long getThrottledCount() {
+        return throttledCount;
+    }
+
+    private void apply(double newRate) {
+        if (newRate != rate) {
+            rate = newRate;
+            rateLimiter.setRate(newRate);
+        }
+    }
+
+    /**
+     * 判断响应是否为限流、服务端错误或超时，返回原因描述，其他情况返回 null
+     */
+    private String errorReason(TtsApiResponse response) {
+        Integer status = response.getHttpStatus();
+        if (status != null && status == 429) {
+            return "限流（HTTP 429）";
+        }
+        if (status != null && status >= 500) {
+            return "服务端错误（HTTP " + status + "）";
+        }
+        if (response.getCode() != null && throttleCodes.contains(response.getCode())) {
+            return "限流（code " + response.getCode() + "）";
+        }
+        if (response.isTimedOut()) {
+            return "请求超时";
+        }
+        return null;
+    }
+}
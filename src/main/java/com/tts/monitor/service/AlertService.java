@@ -31,6 +31,7 @@ public class AlertService implements IAlertService {
     private final AlertProperties alertProperties;
     private final IProductService productService;
     private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
 
     // 告警专用日志标记
     private static final Marker ALERT_MARKER = MarkerFactory.getMarker("ALERT");
@@ -141,11 +142,6 @@ public class AlertService implements IAlertService {
 
             String jsonBody = objectMapper.writeValueAsString(message);
 
-            // 创建 HttpClient
-            HttpClient client = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
-
             // 构建请求
             HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(webhookUrl))
@@ -155,7 +151,7 @@ public class AlertService implements IAlertService {
                 .build();
 
             // 发送请求
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
 
             log.debug("飞书消息发送响应 - 状态码: {}, 响应: {}", response.statusCode(), response.body());
 
@@ -0,0 +1,298 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+import com.tts.monitor.util.TtsApiClient;
+import com.tts.monitor.util.TtsCredential;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批次结果补全
+ * 在首次请求的响应基础上处理失败和缺少的商品，使一个批次内的问题不影响其他商品：
+ * <ul>
+ *   <li>超时、限流、5xx、连接失败和配置的全局错误码按指数退避（随机抖动）重试，重试后仍失败时整批计为失败，不拆分；</li>
+ *   <li>接口返回可能由个别商品引起的业务错误（非鉴权、限流、服务端错误或全局错误码）时二分批次分别查询，找出导致失败的商品；</li>
+ *   <li>返回缺少少量商品时逐个补查，缺少较多时对缺少的商品二分后重新查询，单独查询仍未返回的商品才判定失效。</li>
+ * </ul>
+ * 每次额外请求都从共享令牌桶获取令牌，单个批次的额外请求数有上限，超出后剩余商品计为失败。
+ * 熔断拒绝的调用等待熔断恢复后重新发起（不计入尝试次数），等待超过最长暂停时间时整批延后，由下次运行重新校验。
+ * 重试和补查在调用线程中阻塞执行
+ *
+ */
+@Slf4j
+public class BatchResolver {
+
+    private final TtsApiClient ttsApiClient;
+    private final CredentialPool credentialPool;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final int maxRequestsPerBatch;
+    private final int requeryIndividually;
+    private final Duration maxPause;
+
+    /**
+     * 与具体商品无关的业务错误码，不拆分批次
+     */
+    private final Set<Integer> globalErrorCodes;
+
+    public BatchResolver(TtsApiClient ttsApiClient, CredentialPool credentialPool,
+                         TtsApiProperties.RetryConfig config, Duration maxPause) {
+        this.ttsApiClient = ttsApiClient;
+        this.credentialPool = credentialPool;
+        this.maxAttempts = Math.max(1, config.getMaxAttempts());
+        this.initialBackoffMs = config.getInitialBackoff().toMillis();
+        this.maxBackoffMs = config.getMaxBackoff().toMillis();
+        this.maxRequestsPerBatch = config.getMaxRequestsPerBatch();
+        this.requeryIndividually = config.getRequeryIndividually();
+        this.maxPause = maxPause;
+        this.globalErrorCodes = Set.copyOf(config.getGlobalErrorCodes());
+    }
+
+    /**
+     * 根据首次请求的响应补全批次结果
+     *
+     * @param productIds 批次商品 ID
+     * @param firstResponse 首次请求的响应（令牌已由分发器获取）
+     * @return 批次查询结果
+     */
+    public BatchLookup resolve(List<String> productIds, TtsApiResponse firstResponse) {
+        BatchLookup lookup = new BatchLookup();
+        try {
+            TtsApiResponse response = firstResponse;
+            if (response.isCircuitOpen()) {
+                response = awaitAndCall(productIds, lookup, null);
+            }
+            if (response != null && !response.isSuccess() && isRetryable(response)) {
+                response = retry(productIds, lookup, 1);
+            }
+            if (response != null) {
+                handle(productIds, response, lookup);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (lookup.deferred) {
+            log.warn("TTS API 熔断超过 {}s，批次延后 - 商品数: {}", maxPause.toSeconds(), productIds.size());
+            return lookup;
+        }
+        // 中断或额外请求数用完时，未确定结果的商品计为失败
+        for (String id : productIds) {
+            if (!lookup.found.containsKey(id) && !lookup.missing.contains(id)) {
+                lookup.failed.add(id);
+            }
+        }
+        if (lookup.requests > 0) {
+            log.info("批次补全 - 商品数: {}, 额外请求: {}, 确认未返回: {}, 失败: {}",
+                productIds.size(), lookup.requests, lookup.missing.size(), lookup.failed.size());
+        }
+        return lookup;
+    }
+
+    /**
+     * 处理一次查询的响应：可能由个别商品引起的失败时二分，缺少商品时补查
+     */
+    private void handle(List<String> ids, TtsApiResponse response, BatchLookup lookup) throws InterruptedException {
+        if (!response.isSuccess()) {
+            // 鉴权、限流、服务端错误等与商品无关的失败，拆分只会增加请求，重试用完后直接计为失败
+            if (ids.size() == 1 || !isIdSpecific(response)) {
+                log.warn("商品查询失败 - 商品数: {}, 首个商品ID: {}, code: {}, message: {}",
+                    ids.size(), ids.get(0), response.getCode(), response.getMessage());
+                lookup.failed.addAll(ids);
+                return;
+            }
+            int mid = ids.size() / 2;
+            query(ids.subList(0, mid), lookup);
+            query(ids.subList(mid, ids.size()), lookup);
+            return;
+        }
+
+        List<TtsApiResponse.ProductInfo> products = response.getData() != null && response.getData().getProducts() != null
+            ? response.getData().getProducts()
+            : List.of();
+        Set<String> requested = new HashSet<>(ids);
+        for (TtsApiResponse.ProductInfo product : products) {
+            if (requested.contains(product.getId())) {
+                lookup.found.putIfAbsent(product.getId(), product);
+            }
+        }
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            if (!lookup.found.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        if (ids.size() == 1) {
+            // 单独查询仍未返回，确认失效
+            lookup.missing.add(ids.get(0));
+            return;
+        }
+        if (missing.size() <= requeryIndividually) {
+            for (String id : missing) {
+                query(List.of(id), lookup);
+            }
+            return;
+        }
+        int mid = missing.size() / 2;
+        query(missing.subList(0, mid), lookup);
+        query(missing.subList(mid, missing.size()), lookup);
+    }
+
+    /**
+     * 发起一次额外查询（临时错误时重试）并处理响应
+     */
+    private void query(List<String> ids, BatchLookup lookup) throws InterruptedException {
+        if (lookup.deferred) {
+            return;
+        }
+        TtsApiResponse response = retry(ids, lookup, 0);
+        if (response != null) {
+            handle(ids, response, lookup);
+        }
+    }
+
+    /**
+     * 发起查询，临时错误时按退避重试
+     *
+     * @param attempt 已进行的尝试次数
+     * @return 最后一次响应，额外请求数用完时返回 null
+     */
+    private TtsApiResponse retry(List<String> ids, BatchLookup lookup, int attempt) throws InterruptedException {
+        TtsApiResponse response = null;
+        while (attempt < maxAttempts) {
+            if (lookup.requests >= maxRequestsPerBatch) {
+                log.warn("批次额外请求数已达上限 {}，剩余商品计为失败", maxRequestsPerBatch);
+                return response;
+            }
+            if (attempt > 0) {
+                TimeUnit.MILLISECONDS.sleep(backoff(attempt));
+            }
+            TtsCredential credential = credentialPool.acquire();
+            lookup.requests++;
+            long start = System.nanoTime();
+            response = ttsApiClient.getProductsByIds(ids, credential);
+            if (response.isCircuitOpen()) {
+                // 熔断拒绝的调用未发出请求，令牌留给熔断恢复后的调用
+                response = awaitAndCall(ids, lookup, credential);
+                if (response == null) {
+                    return null;
+                }
+            } else {
+                credentialPool.record(response, System.nanoTime() - start);
+            }
+            attempt++;
+            if (response.isSuccess() || !isRetryable(response)) {
+                return response;
+            }
+            log.warn("商品查询临时失败，准备重试 - 商品数: {}, 第 {} 次, message: {}",
+                ids.size(), attempt, response.getMessage());
+        }
+        return response;
+    }
+
+    /**
+     * 等待熔断恢复后重新发起查询，熔断期间被拒绝时继续等待
+     * 熔断恢复后才获取令牌；被拒绝的调用未发出请求，令牌保留给下一次调用，不重复获取
+     *
+     * @param held 已获取令牌的凭证（前一次调用被熔断拒绝），为 null 时在熔断恢复后获取
+     * @return 响应，等待超过最长暂停时间时标记延后并返回 null
+     */
+    private TtsApiResponse awaitAndCall(List<String> ids, BatchLookup lookup, TtsCredential held)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + maxPause.toNanos();
+        TtsCredential credential = held;
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !ttsApiClient.awaitCircuit(Duration.ofNanos(remaining))) {
+                lookup.deferred = true;
+                return null;
+            }
+            if (credential == null) {
+                credential = credentialPool.acquire();
+            }
+            long start = System.nanoTime();
+            TtsApiResponse response = ttsApiClient.getProductsByIds(ids, credential);
+            if (!response.isCircuitOpen()) {
+                credentialPool.record(response, System.nanoTime() - start);
+                return response;
+            }
+        }
+    }
+
+    /**
+     * 失败是否可能由批次中的个别商品引起：接口正常返回了业务错误，且不是鉴权失败、限流、服务端错误或全局错误码
+     */
+    private boolean isIdSpecific(TtsApiResponse response) {
+        Integer status = response.getHttpStatus();
+        return status != null && status < 500
+            && !response.isAuthFailed()
+            && !credentialPool.isRateLimited(response)
+            && !isGlobalError(response);
+    }
+
+    /**
+     * 失败是否值得重试：临时错误（超时、限流、5xx，多凭证时的鉴权失败）、连接失败或全局错误码
+     */
+    private boolean isRetryable(TtsApiResponse response) {
+        return credentialPool.isThrottled(response) || response.getHttpStatus() == null || isGlobalError(response);
+    }
+
+    private boolean isGlobalError(TtsApiResponse response) {
+        return response.getCode() != null && globalErrorCodes.contains(response.getCode());
+    }
+
+    /**
+     * 第 attempt 次重试前的等待时间：退避时间按次数翻倍，在 0 到退避时间之间随机（full jitter）
+     */
+    private long backoff(int attempt) {
+        long cap = Math.min(maxBackoffMs, initialBackoffMs << Math.min(20, attempt - 1));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    /**
+     * 批次查询结果
+     */
+    @Getter
+    public static class BatchLookup {
+
+        /**
+         * 接口返回的商品
+         */
+        private final Map<String, TtsApiResponse.ProductInfo> found = new HashMap<>();
+
+        /**
+         * 单独查询仍未返回的商品（判定失效）
+         */
+        private final Set<String> missing = new LinkedHashSet<>();
+
+        /**
+         * 查询失败、无法确定状态的商品
+         */
+        private final Set<String> failed = new LinkedHashSet<>();
+
+        /**
+         * 额外请求数
+         */
+        private int requests = 0;
+
+        /**
+         * 是否因熔断延后（整批不写回、不推进检查点）
+         */
+        private boolean deferred = false;
+    }
+}
@@ -0,0 +1,122 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.entity.TtsProductMonitor;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 校验计数器
+ * 多个 Worker 线程并发累加，使用 LongAdder 避免锁竞争
+ *
+ */
+public class CheckCounters {
+
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder checkedCount = new LongAdder();
+    private final LongAdder validCount = new LongAdder();
+    private final LongAdder invalidCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder changedCount = new LongAdder();
+    private final LongAdder unchangedCount = new LongAdder();
+    private final LongAdder commissionDropCount = new LongAdder();
+
+    public CheckCounters() {
+    }
+
+    /**
+     * 从检查点保存的计数继续累加
+     *
+     * @param baseline 检查点计数
+     */
+    public CheckCounters(ProductCheckService.CheckResult baseline) {
+        totalCount.add(baseline.getTotalCount());
+        checkedCount.add(baseline.getCheckedCount());
+        validCount.add(baseline.getValidCount());
+        invalidCount.add(baseline.getInvalidCount());
+        failedCount.add(baseline.getFailedCount());
+        changedCount.add(baseline.getChangedCount());
+        unchangedCount.add(baseline.getUnchangedCount());
+        commissionDropCount.add(baseline.getCommissionDropCount());
+    }
+
+    /**
+     * 记录已读取的商品数
+     */
+    public void addTotal(int count) {
+        totalCount.add(count);
+    }
+
+    /**
+     * 累加单个批次的校验结果
+     */
+    public void add(ProductCheckService.BatchCheckResult batchResult) {
+        checkedCount.add(batchResult.getCheckedCount());
+        validCount.add(batchResult.getValidCount());
+        invalidCount.add(batchResult.getInvalidCount());
+        failedCount.add(batchResult.getFailedCount());
+        changedCount.add(batchResult.getChangedCount());
+        unchangedCount.add(batchResult.getUnchangedCount());
+        commissionDropCount.add(batchResult.getCommissionDropCount());
+    }
+
+    /**
+     * 累加一份计数（如两次快照的差值）
+     */
+    public void merge(ProductCheckService.CheckResult delta) {
+        totalCount.add(delta.getTotalCount());
+        checkedCount.add(delta.getCheckedCount());
+        validCount.add(delta.getValidCount());
+        invalidCount.add(delta.getInvalidCount());
+        failedCount.add(delta.getFailedCount());
+        changedCount.add(delta.getChangedCount());
+        unchangedCount.add(delta.getUnchangedCount());
+        commissionDropCount.add(delta.getCommissionDropCount());
+    }
+
+    /**
+     * 记录失败的商品数
+     */
+    public void addFailed(int count) {
+        failedCount.add(count);
+    }
+
+    /**
+     * 状态变化商品写回失败：从已校验、状态变化及对应的有效/失效、佣金下降计数中扣除，改计为失败，
+     * 保证已校验与失败之和不超过已分发数
+     *
+     * @param changedRows 写回失败的状态变化商品（校验后的快照）
+     */
+    public void moveToFailed(List<TtsProductMonitor> changedRows) {
+        for (TtsProductMonitor row : changedRows) {
+            checkedCount.decrement();
+            changedCount.decrement();
+            if (row.getIsValid() != null && row.getIsValid() == TtsProductMonitor.ValidStatus.VALID) {
+                validCount.decrement();
+            } else {
+                invalidCount.decrement();
+            }
+            if (row.getPrevCommissionRate() != null && row.getCommissionRate() != null
+                && row.getCommissionRate() < row.getPrevCommissionRate()) {
+                commissionDropCount.decrement();
+            }
+        }
+        failedCount.add(changedRows.size());
+    }
+
+    /**
+     * 生成当前计数快照
+     */
+    public ProductCheckService.CheckResult snapshot() {
+        ProductCheckService.CheckResult result = new ProductCheckService.CheckResult();
+        result.setTotalCount(totalCount.intValue());
+        result.setCheckedCount(checkedCount.intValue());
+        result.setValidCount(validCount.intValue());
+        result.setInvalidCount(invalidCount.intValue());
+        result.setFailedCount(failedCount.intValue());
+        result.setChangedCount(changedCount.intValue());
+        result.setUnchangedCount(unchangedCount.intValue());
+        result.setCommissionDropCount(commissionDropCount.intValue());
+        return result;
+    }
+}
@@ -0,0 +1,169 @@
+package com.tts.monitor.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 批次执行方式（单次校验运行内有效）
+ * POOL：提交到共享的平台线程池；VIRTUAL：本次运行内每个批次一个虚拟线程，运行结束后统一回收
+ *
+ */
+public interface CheckExecution extends AutoCloseable {
+
+    /**
+     * 执行一个批次任务
+     *
+     * @param task 批次任务
+     */
+    void execute(Runnable task);
+
+    /**
+     * 取消本次运行中尚未完成的批次
+     */
+    void cancel();
+
+    /**
+     * 结束本次运行，等待本次运行提交的任务退出
+     */
+    @Override
+    void close();
+
+    /**
+     * 使用共享平台线程池执行
+     * 线程池跨运行共享，取消和关闭不会影响线程池本身
+     */
+    static CheckExecution pooled(ThreadPoolExecutor executor) {
+        return new PooledExecution(executor);
+    }
+
+    /**
+     * 每个批次一个虚拟线程
+     * 并发度只受令牌桶和在途批次许可限制，无需配置核心线程数
+     */
+    static CheckExecution virtual() {
+        return new VirtualExecution(Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("tts-vworker-", 0).factory()));
+    }
+
+    /**
+     * 共享线程池执行
+     * 记录本次运行提交的任务：取消时中断正在执行的批次，关闭时等待本次运行的任务全部退出
+     */
+    @Slf4j
+    final class PooledExecution implements CheckExecution {
+
+        private final ThreadPoolExecutor executor;
+
+        /**
+         * 正在执行本次运行批次的线程
+         */
+        private final Set<Thread> running = new HashSet<>();
+
+        /**
+         * 已提交但尚未结束的任务数
+         */
+        private int pending = 0;
+        private boolean cancelled = false;
+
+        private PooledExecution(ThreadPoolExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            synchronized (this) {
+                pending++;
+            }
+            try {
+                executor.execute(() -> run(task));
+            } catch (RuntimeException e) {
+                finish(null);
+                throw e;
+            }
+        }
+
+        @Override
+        public synchronized void cancel() {
+            // 只中断本次运行的线程，已排队的批次由流水线的取消标记跳过
+            cancelled = true;
+            running.forEach(Thread::interrupt);
+            log.warn("已取消线程池批次 - 执行中: {}, 未结束: {}", running.size(), pending);
+        }
+
+        @Override
+        public synchronized void close() {
+            // 共享线程池由 ThreadPoolShutdownHook 负责关闭，这里只等待本次运行的任务
+            boolean interrupted = false;
+            while (pending > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void run(Runnable task) {
+            Thread current = Thread.currentThread();
+            synchronized (this) {
+                running.add(current);
+                if (cancelled) {
+                    current.interrupt();
+                }
+            }
+            try {
+                task.run();
+            } finally {
+                finish(current);
+            }
+        }
+
+        private synchronized void finish(Thread current) {
+            if (current != null) {
+                running.remove(current);
+                // 清除取消时设置的中断标记，避免影响共享线程池中的下一个任务
+                Thread.interrupted();
+            }
+            pending--;
+            notifyAll();
+        }
+    }
+
+    /**
+     * 单次运行的虚拟线程执行
+     */
+    @Slf4j
+    final class VirtualExecution implements CheckExecution {
+
+        private final ExecutorService executor;
+
+        private VirtualExecution(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            executor.execute(task);
+        }
+
+        @Override
+        public void cancel() {
+            // 中断所有虚拟线程，阻塞在 HTTP 请求上的批次会立即退出
+            int pending = executor.shutdownNow().size();
+            log.warn("已取消虚拟线程批次 - 未开始: {}", pending);
+        }
+
+        @Override
+        public void close() {
+            executor.close();
+        }
+    }
+}
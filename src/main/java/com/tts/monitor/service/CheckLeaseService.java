@@ -0,0 +1,168 @@
+package com.tts.monitor.service;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.entity.TtsCheckLease;
+import com.tts.monitor.entity.TtsCheckRun;
+import com.tts.monitor.mapper.TtsCheckLeaseMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商品校验区间租约服务实现类
+ * 租约的领取、续约和释放都以当前状态为条件更新，多个实例并发操作同一租约时只有一个成功；
+ * 实例退出后租约到期，由其他实例从已保存的游标处继续
+ *
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CheckLeaseService implements ICheckLeaseService {
+
+    private final TtsCheckLeaseMapper leaseMapper;
+    private final ICheckRunService checkRunService;
+    private final TtsApiProperties ttsApiProperties;
+
+    /**
+     * 创建运行记录及其区间租约（同一事务，其他实例不会看到没有租约的运行）
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public TtsCheckRun createRun(List<ProductIdCursor.IdRange> ranges) {
+        TtsCheckRun run = checkRunService.create(ranges);
+        for (int i = 0; i < ranges.size(); i++) {
+            TtsCheckLease lease = new TtsCheckLease();
+            lease.setRunId(run.getRunId());
+            lease.setRangeIndex(i);
+            lease.setCursorId(ranges.get(i).getStartAfterId());
+            lease.setEndId(ranges.get(i).getEndId());
+            lease.setStatus(TtsCheckLease.LeaseStatus.PENDING);
+            leaseMapper.insert(lease);
+        }
+        log.info("创建区间租约 - 运行ID: {}, 区间数: {}", run.getRunId(), ranges.size());
+        return run;
+    }
+
+    /**
+     * 领取租约：候选租约打乱顺序后逐个按原状态条件更新，减少多个实例争抢同一租约
+     */
+    @Override
+    public List<TtsCheckLease> claim(TtsCheckRun run, int max) {
+        LocalDateTime now = LocalDateTime.now();
+        List<TtsCheckLease> candidates = new ArrayList<>(leaseMapper.selectList(Wrappers.<TtsCheckLease>lambdaQuery()
+            .eq(TtsCheckLease::getRunId, run.getRunId())
+            .and(w -> w.eq(TtsCheckLease::getStatus, TtsCheckLease.LeaseStatus.PENDING)
+                .or(expired -> expired.eq(TtsCheckLease::getStatus, TtsCheckLease.LeaseStatus.LEASED)
+                    .lt(TtsCheckLease::getLeaseUntil, now)))
+            .orderByAsc(TtsCheckLease::getRangeIndex)
+            .last("LIMIT " + max * 4)));
+        Collections.shuffle(candidates);
+
+        LocalDateTime leaseUntil = now.plus(ttsApiProperties.getCheck().getCluster().getLeaseTtl());
+        List<TtsCheckLease> claimed = new ArrayList<>();
+        for (TtsCheckLease candidate : candidates) {
+            if (claimed.size() >= max) {
+                break;
+            }
+            int updated = leaseMapper.update(null, Wrappers.<TtsCheckLease>lambdaUpdate()
+                .set(TtsCheckLease::getStatus, TtsCheckLease.LeaseStatus.LEASED)
+                .set(TtsCheckLease::getOwner, nodeId())
+                .set(TtsCheckLease::getLeaseUntil, leaseUntil)
+                .eq(TtsCheckLease::getId, candidate.getId())
+                .eq(TtsCheckLease::getStatus, candidate.getStatus())
+                .eq(candidate.getLeaseUntil() != null, TtsCheckLease::getLeaseUntil, candidate.getLeaseUntil()));
+            if (updated == 0) {
+                continue;
+            }
+            if (TtsCheckLease.LeaseStatus.LEASED.equals(candidate.getStatus())) {
+                log.info("接管过期租约 - 运行ID: {}, 区间: {}, 原实例: {}, 游标: {}",
+                    run.getRunId(), candidate.getRangeIndex(), candidate.getOwner(), candidate.getCursorId());
+            }
+            candidate.setStatus(TtsCheckLease.LeaseStatus.LEASED);
+            candidate.setOwner(nodeId());
+            candidate.setLeaseUntil(leaseUntil);
+            claimed.add(candidate);
+        }
+        claimed.sort((a, b) -> Integer.compare(a.getRangeIndex(), b.getRangeIndex()));
+        return claimed;
+    }
+
+    @Override
+    public int renew(List<TtsCheckLease> leases, List<ProductIdCursor.IdRange> cursors) {
+        LocalDateTime leaseUntil = LocalDateTime.now().plus(ttsApiProperties.getCheck().getCluster().getLeaseTtl());
+        int lost = 0;
+        for (int i = 0; i < leases.size(); i++) {
+            TtsCheckLease lease = leases.get(i);
+            int updated = leaseMapper.update(null, Wrappers.<TtsCheckLease>lambdaUpdate()
+                .set(TtsCheckLease::getCursorId, cursors.get(i).getStartAfterId())
+                .set(TtsCheckLease::getLeaseUntil, leaseUntil)
+                .eq(TtsCheckLease::getId, lease.getId())
+                .eq(TtsCheckLease::getOwner, nodeId())
+                .eq(TtsCheckLease::getStatus, TtsCheckLease.LeaseStatus.LEASED));
+            if (updated == 0) {
+                lost++;
+                log.warn("租约已被其他实例接管 - 运行ID: {}, 区间: {}", lease.getRunId(), lease.getRangeIndex());
+            }
+        }
+        return lost;
+    }
+
+    @Override
+    public void complete(List<TtsCheckLease> leases) {
+        for (TtsCheckLease lease : leases) {
+            leaseMapper.update(null, Wrappers.<TtsCheckLease>lambdaUpdate()
+                .set(TtsCheckLease::getStatus, TtsCheckLease.LeaseStatus.DONE)
+                .set(TtsCheckLease::getLeaseUntil, null)
+                .eq(TtsCheckLease::getId, lease.getId())
+                .eq(TtsCheckLease::getOwner, nodeId()));
+        }
+    }
+
+    @Override
+    public void release(List<TtsCheckLease> leases, List<ProductIdCursor.IdRange> cursors) {
+        for (int i = 0; i < leases.size(); i++) {
+            TtsCheckLease lease = leases.get(i);
+            leaseMapper.update(null, Wrappers.<TtsCheckLease>lambdaUpdate()
+                .set(TtsCheckLease::getStatus, TtsCheckLease.LeaseStatus.PENDING)
+                .set(TtsCheckLease::getCursorId, cursors.get(i).getStartAfterId())
+                .set(TtsCheckLease::getOwner, null)
+                .set(TtsCheckLease::getLeaseUntil, null)
+                .eq(TtsCheckLease::getId, lease.getId())
+                .eq(TtsCheckLease::getOwner, nodeId())
+                .eq(TtsCheckLease::getStatus, TtsCheckLease.LeaseStatus.LEASED));
+        }
+    }
+
+    @Override
+    public int countActiveNodes(String runId) {
+        List<Map<String, Object>> rows = leaseMapper.selectMaps(Wrappers.<TtsCheckLease>query()
+            .select("COUNT(DISTINCT owner) AS nodes")
+            .eq("run_id", runId)
+            .eq("status", TtsCheckLease.LeaseStatus.LEASED)
+            .gt("lease_until", LocalDateTime.now()));
+        if (rows.isEmpty() || rows.get(0) == null || rows.get(0).get("nodes") == null) {
+            return 0;
+        }
+        return ((Number) rows.get(0).get("nodes")).intValue();
+    }
+
+    @Override
+    public long countUnfinished(String runId) {
+        return leaseMapper.selectCount(Wrappers.<TtsCheckLease>lambdaQuery()
+            .eq(TtsCheckLease::getRunId, runId)
+            .ne(TtsCheckLease::getStatus, TtsCheckLease.LeaseStatus.DONE));
+    }
+
+    private String nodeId() {
+        String nodeId = ttsApiProperties.getCheck().getCluster().getNodeId();
+        return nodeId != null && !nodeId.isBlank() ? nodeId : CheckRunService.OWNER;
+    }
+}
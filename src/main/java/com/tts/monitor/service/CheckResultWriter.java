@@ -0,0 +1,248 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.entity.TtsProductMonitor;
+import com.tts.monitor.mapper.TtsProductMonitorMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 校验结果写回器（单次运行）
+ * Worker 只负责把结果放入有界队列，由专用写线程合并所有 Worker 的结果，
+ * 按主键排序后分块写回：减少小事务数量和连接池争用，也避免多个 IN 列表交叉加锁导致死锁。
+ * 队列满时 Worker 阻塞，进而占住在途许可，使分发器同步放慢；关闭后的提交不再阻塞，直接丢弃。
+ * 写回失败或被丢弃的状态变化商品从已校验计数中移到失败计数，已校验与失败之和不超过已分发数。
+ * 每个请求可附带回调，在所属结果写回后执行（用于推进检查点）；请求中有商品写回失败时不执行回调，
+ * 检查点停在该批次之前，恢复时重新校验
+ *
+ */
+@Slf4j
+public class CheckResultWriter implements AutoCloseable {
+
+    private final TtsProductMonitorMapper productMapper;
+    private final CheckCounters counters;
+    private final BlockingQueue<WriteRequest> queue;
+    private final int flushSize;
+    private final int chunkSize;
+    private final long flushIntervalNanos;
+    private final long pollIntervalMs;
+    private final Thread writerThread;
+
+    /**
+     * 待写回的状态变化商品
+     */
+    private final List<TtsProductMonitor> changedBuffer = new ArrayList<>();
+
+    /**
+     * 待刷新校验时间的未变化商品主键
+     */
+    private final List<Integer> unchangedBuffer = new ArrayList<>();
+
+    /**
+     * 缓冲区中带回调的写回请求，写回后执行回调
+     */
+    private final List<WriteRequest> pendingCallbacks = new ArrayList<>();
+
+    /**
+     * 正在提交的请求数
+     */
+    private final AtomicInteger submitting = new AtomicInteger();
+
+    private volatile boolean closed = false;
+    private long flushCount = 0;
+
+    public CheckResultWriter(TtsProductMonitorMapper productMapper,
+                             CheckCounters counters,
+                             int queueCapacity,
+                             int flushSize,
+                             int chunkSize,
+                             Duration flushInterval) {
+        this.productMapper = productMapper;
+        this.counters = counters;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.flushSize = flushSize;
+        this.chunkSize = chunkSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.pollIntervalMs = Math.max(10, Math.min(100, flushInterval.toMillis()));
+        this.writerThread = Thread.ofPlatform().name("tts-writer").start(this::writeLoop);
+    }
+
+    /**
+     * 提交一个批次的写回请求，队列满时阻塞
+     *
+     * @param changedRows 状态发生变化的商品
+     * @param unchangedIds 需刷新校验时间的未变化商品主键
+     */
+    public void submit(List<TtsProductMonitor> changedRows, List<Integer> unchangedIds) throws InterruptedException {
+        submit(changedRows, unchangedIds, null);
+    }
+
+    /**
+     * 提交一个批次的写回请求，队列满时阻塞
+     * 写回器已关闭（或写线程已退出）时不再阻塞，结果丢弃，状态变化商品改计为失败，不执行回调
+     *
+     * @param changedRows 状态发生变化的商品
+     * @param unchangedIds 需刷新校验时间的未变化商品主键
+     * @param onWritten 写回成功后执行的回调，没有需要写回的内容时立即执行，写回失败时不执行，可为 null
+     */
+    public void submit(List<TtsProductMonitor> changedRows, List<Integer> unchangedIds, Runnable onWritten)
+            throws InterruptedException {
+        if (changedRows.isEmpty() && unchangedIds.isEmpty()) {
+            if (onWritten != null) {
+                onWritten.run();
+            }
+            return;
+        }
+
+        // 先登记再检查关闭标记：写线程只在关闭且没有提交中的请求时退出，不会漏掉已入队的请求
+        submitting.incrementAndGet();
+        try {
+            WriteRequest request = new WriteRequest(changedRows, unchangedIds, onWritten);
+            while (!closed && writerThread.isAlive()) {
+                if (queue.offer(request, pollIntervalMs, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } finally {
+            submitting.decrementAndGet();
+        }
+        log.warn("写回器已关闭，丢弃写回请求 - 状态变化: {}, 未变化: {}", changedRows.size(), unchangedIds.size());
+        counters.moveToFailed(changedRows);
+    }
+
+    /**
+     * 等待队列中的结果全部写回后结束写线程
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            writerThread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+        log.info("校验结果写回完成 - 写回次数: {}", flushCount);
+    }
+
+    /**
+     * 写线程：按数量或时间阈值合并写回
+     */
+    private void writeLoop() {
+        long lastFlush = System.nanoTime();
+        try {
+            while (true) {
+                WriteRequest request = queue.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+                if (request != null) {
+                    buffer(request);
+                } else if (closed && submitting.get() == 0 && queue.isEmpty()) {
+                    break;
+                }
+
+                int buffered = changedBuffer.size() + unchangedBuffer.size();
+                boolean sizeReached = buffered >= flushSize;
+                boolean timeReached = buffered > 0 && System.nanoTime() - lastFlush >= flushIntervalNanos;
+                if (sizeReached || timeReached) {
+                    flush();
+                    lastFlush = System.nanoTime();
+                }
+            }
+        } catch (InterruptedException e) {
+            log.warn("写线程被中断，写回剩余结果后退出");
+            Thread.currentThread().interrupt();
+            List<WriteRequest> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            remaining.forEach(this::buffer);
+        } finally {
+            flush();
+        }
+    }
+
+    /**
+     * 将写回请求放入缓冲区
+     */
+    private void buffer(WriteRequest request) {
+        changedBuffer.addAll(request.changedRows());
+        unchangedBuffer.addAll(request.unchangedIds());
+        if (request.onWritten() != null) {
+            pendingCallbacks.add(request);
+        }
+    }
+
+    /**
+     * 按主键排序后分块写回缓冲区
+     */
+    private void flush() {
+        if (changedBuffer.isEmpty() && unchangedBuffer.isEmpty() && pendingCallbacks.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        changedBuffer.sort(Comparator.comparing(TtsProductMonitor::getId));
+        unchangedBuffer.sort(Comparator.naturalOrder());
+
+        Set<Integer> failedIds = new HashSet<>();
+        for (int i = 0; i < changedBuffer.size(); i += chunkSize) {
+            List<TtsProductMonitor> chunk = changedBuffer.subList(i, Math.min(i + chunkSize, changedBuffer.size()));
+            try {
+                productMapper.batchUpdateCheckState(chunk, now);
+            } catch (Exception e) {
+                log.error("写回状态变化商品失败 - 数量: {}, 主键范围: {}~{}",
+                    chunk.size(), chunk.get(0).getId(), chunk.get(chunk.size() - 1).getId(), e);
+                counters.moveToFailed(chunk);
+                chunk.forEach(row -> failedIds.add(row.getId()));
+            }
+        }
+
+        for (int i = 0; i < unchangedBuffer.size(); i += chunkSize) {
+            List<Integer> chunk = unchangedBuffer.subList(i, Math.min(i + chunkSize, unchangedBuffer.size()));
+            try {
+                productMapper.touchLastCheckTime(chunk, now);
+            } catch (Exception e) {
+                // 只影响校验时间，不计入失败
+                log.warn("刷新校验时间失败 - 数量: {}", chunk.size(), e);
+            }
+        }
+
+        flushCount++;
+        log.debug("写回校验结果 - 状态变化: {}, 未变化: {}, 队列剩余: {}",
+            changedBuffer.size(), unchangedBuffer.size(), queue.size());
+        changedBuffer.clear();
+        unchangedBuffer.clear();
+
+        // 有商品写回失败的批次不执行回调，检查点停在该批次之前，恢复时重新校验
+        int skipped = 0;
+        for (WriteRequest request : pendingCallbacks) {
+            if (!failedIds.isEmpty()
+                && request.changedRows().stream().anyMatch(row -> failedIds.contains(row.getId()))) {
+                skipped++;
+                continue;
+            }
+            try {
+                request.onWritten().run();
+            } catch (Exception e) {
+                log.warn("写回回调执行失败", e);
+            }
+        }
+        if (skipped > 0) {
+            log.warn("{} 个批次有商品写回失败，检查点不越过这些批次", skipped);
+        }
+        pendingCallbacks.clear();
+    }
+
+    /**
+     * 单个批次的写回请求
+     */
+    private record WriteRequest(List<TtsProductMonitor> changedRows, List<Integer> unchangedIds, Runnable onWritten) {
+    }
+}
@@ -0,0 +1,322 @@
+package com.tts.monitor.service;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.entity.TtsCheckRun;
+import com.tts.monitor.exception.BusinessException;
+import com.tts.monitor.mapper.TtsCheckRunMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 商品校验运行记录服务实现类
+ * 运行中的记录按检查点间隔刷新心跳，心跳超过三个间隔未更新视为所在实例已退出，可被接管；
+ * 未完成的运行持有唯一的占位键，多个实例同时创建运行时只有一个成功
+ *
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CheckRunService implements ICheckRunService {
+
+    private static final DateTimeFormatter RUN_ID_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    /**
+     * 当前实例标识
+     */
+    static final String OWNER = ManagementFactory.getRuntimeMXBean().getName();
+
+    static final String ACTIVE_KEY = "product-check";
+
+    private final TtsCheckRunMapper checkRunMapper;
+    private final TtsApiProperties ttsApiProperties;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 接管未完成的运行
+     * 只继续续跑窗口内开始的运行，更早的运行放弃，由新运行从头校验；已取消的运行只能手动继续
+     */
+    @Override
+    public TtsCheckRun claimResumable() {
+        TtsCheckRun active = findActive();
+        if (active == null || abandonIfExpired(active)) {
+            return null;
+        }
+        return takeOver(active);
+    }
+
+    @Override
+    public TtsCheckRun findActive() {
+        return checkRunMapper.selectOne(Wrappers.<TtsCheckRun>lambdaQuery()
+            .eq(TtsCheckRun::getActiveKey, ACTIVE_KEY));
+    }
+
+    /**
+     * 超出续跑窗口且不在心跳中的运行标记为失败并释放占位键
+     *
+     * @return 是否已放弃
+     */
+    @Override
+    public boolean abandonIfExpired(TtsCheckRun run) {
+        LocalDateTime windowStart = LocalDateTime.now().minus(ttsApiProperties.getCheck().getResumeWindow());
+        boolean live = TtsCheckRun.RunStatus.RUNNING.equals(run.getStatus()) && !isStale(run);
+        if (live || run.getStartedAt() == null || !run.getStartedAt().isBefore(windowStart)) {
+            return false;
+        }
+        checkRunMapper.update(null, Wrappers.<TtsCheckRun>lambdaUpdate()
+            .set(TtsCheckRun::getStatus, TtsCheckRun.RunStatus.FAILED)
+            .set(TtsCheckRun::getActiveKey, null)
+            .set(TtsCheckRun::getErrorMessage, "超出续跑窗口，不再继续")
+            .eq(TtsCheckRun::getId, run.getId())
+            .eq(TtsCheckRun::getActiveKey, ACTIVE_KEY));
+        log.info("放弃超出续跑窗口的校验运行 - 运行ID: {}, 开始时间: {}", run.getRunId(), run.getStartedAt());
+        return true;
+    }
+
+    /**
+     * 接管指定的运行
+     */
+    @Override
+    public TtsCheckRun claim(String runId) {
+        TtsCheckRun run = getByRunId(runId);
+        if (run == null) {
+            throw new BusinessException("校验运行不存在: " + runId);
+        }
+        if (TtsCheckRun.RunStatus.COMPLETED.equals(run.getStatus())) {
+            throw new BusinessException("校验运行已完成: " + runId);
+        }
+        if (run.getActiveKey() == null) {
+            // 已取消或已放弃的运行：重新占位后继续，已有其他未完成运行时占位失败
+            reactivate(run);
+        }
+        return takeOver(run);
+    }
+
+    @Override
+    public TtsCheckRun getByRunId(String runId) {
+        return checkRunMapper.selectOne(Wrappers.<TtsCheckRun>lambdaQuery()
+            .eq(TtsCheckRun::getRunId, runId));
+    }
+
+    /**
+     * 创建新的运行记录
+     * 已有未完成的运行时占位键冲突，抛出 DuplicateKeyException
+     */
+    @Override
+    public TtsCheckRun create(List<ProductIdCursor.IdRange> ranges) {
+        LocalDateTime now = LocalDateTime.now();
+        TtsCheckRun run = new TtsCheckRun();
+        run.setRunId(now.format(RUN_ID_FORMATTER) + "-" + UUID.randomUUID().toString().substring(0, 8));
+        run.setActiveKey(ACTIVE_KEY);
+        run.setStatus(TtsCheckRun.RunStatus.RUNNING);
+        run.setRangeState(writeRanges(ranges));
+        run.setOwner(OWNER);
+        run.setHeartbeatTime(now);
+        run.setStartedAt(now);
+        applyProgress(run, new ProductCheckService.CheckResult());
+        checkRunMapper.insert(run);
+        log.info("创建校验运行 - 运行ID: {}, 区间数: {}", run.getRunId(), ranges.size());
+        return run;
+    }
+
+    @Override
+    public List<ProductIdCursor.IdRange> getRanges(TtsCheckRun run) {
+        try {
+            return objectMapper.readValue(run.getRangeState(), new TypeReference<List<ProductIdCursor.IdRange>>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("解析校验运行检查点失败: " + run.getRunId(), e);
+        }
+    }
+
+    @Override
+    public ProductCheckService.CheckResult getProgress(TtsCheckRun run) {
+        ProductCheckService.CheckResult progress = new ProductCheckService.CheckResult();
+        progress.setRunId(run.getRunId());
+        progress.setTotalCount(valueOf(run.getTotalCount()));
+        progress.setCheckedCount(valueOf(run.getCheckedCount()));
+        progress.setValidCount(valueOf(run.getValidCount()));
+        progress.setInvalidCount(valueOf(run.getInvalidCount()));
+        progress.setFailedCount(valueOf(run.getFailedCount()));
+        progress.setChangedCount(valueOf(run.getChangedCount()));
+        progress.setUnchangedCount(valueOf(run.getUnchangedCount()));
+        progress.setCommissionDropCount(valueOf(run.getCommissionDropCount()));
+        return progress;
+    }
+
+    /**
+     * 保存检查点，同时刷新心跳
+     */
+    @Override
+    public void checkpoint(TtsCheckRun run, List<ProductIdCursor.IdRange> ranges,
+                           ProductCheckService.CheckResult progress) {
+        TtsCheckRun update = new TtsCheckRun();
+        update.setId(run.getId());
+        update.setRangeState(writeRanges(ranges));
+        update.setHeartbeatTime(LocalDateTime.now());
+        applyProgress(update, progress);
+        checkRunMapper.updateById(update);
+        log.debug("保存校验检查点 - 运行ID: {}, 已校验: {}", run.getRunId(), progress.getCheckedCount());
+    }
+
+    /**
+     * 结束运行并保存最终检查点
+     */
+    @Override
+    public void finish(TtsCheckRun run, String status, List<ProductIdCursor.IdRange> ranges,
+                       ProductCheckService.CheckResult result) {
+        LocalDateTime now = LocalDateTime.now();
+        TtsCheckRun update = new TtsCheckRun();
+        update.setId(run.getId());
+        update.setStatus(status);
+        update.setRangeState(writeRanges(ranges));
+        update.setHeartbeatTime(now);
+        update.setErrorMessage(result.getErrorMessage());
+        if (TtsCheckRun.RunStatus.COMPLETED.equals(status)) {
+            update.setFinishedAt(now);
+        }
+        applyProgress(update, result);
+        checkRunMapper.updateById(update);
+        if (TtsCheckRun.RunStatus.COMPLETED.equals(status) || TtsCheckRun.RunStatus.CANCELLED.equals(status)) {
+            releaseActiveKey(run);
+        }
+        log.info("校验运行结束 - 运行ID: {}, 状态: {}", run.getRunId(), status);
+    }
+
+    /**
+     * 累加计数并刷新心跳（集群模式下各实例分别累加本实例的增量）
+     */
+    @Override
+    public void addProgress(TtsCheckRun run, ProductCheckService.CheckResult delta) {
+        checkRunMapper.update(null, Wrappers.<TtsCheckRun>lambdaUpdate()
+            .setSql("total_count = total_count + " + delta.getTotalCount())
+            .setSql("checked_count = checked_count + " + delta.getCheckedCount())
+            .setSql("valid_count = valid_count + " + delta.getValidCount())
+            .setSql("invalid_count = invalid_count + " + delta.getInvalidCount())
+            .setSql("failed_count = failed_count + " + delta.getFailedCount())
+            .setSql("changed_count = changed_count + " + delta.getChangedCount())
+            .setSql("unchanged_count = unchanged_count + " + delta.getUnchangedCount())
+            .setSql("commission_drop_count = commission_drop_count + " + delta.getCommissionDropCount())
+            .set(TtsCheckRun::getHeartbeatTime, LocalDateTime.now())
+            .eq(TtsCheckRun::getId, run.getId()));
+    }
+
+    /**
+     * 标记运行完成，只有一个实例会成功
+     */
+    @Override
+    public boolean complete(TtsCheckRun run) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = checkRunMapper.update(null, Wrappers.<TtsCheckRun>lambdaUpdate()
+            .set(TtsCheckRun::getStatus, TtsCheckRun.RunStatus.COMPLETED)
+            .set(TtsCheckRun::getActiveKey, null)
+            .set(TtsCheckRun::getFinishedAt, now)
+            .set(TtsCheckRun::getHeartbeatTime, now)
+            .eq(TtsCheckRun::getId, run.getId())
+            .ne(TtsCheckRun::getStatus, TtsCheckRun.RunStatus.COMPLETED));
+        if (updated > 0) {
+            log.info("校验运行完成 - 运行ID: {}", run.getRunId());
+        }
+        return updated > 0;
+    }
+
+    @Override
+    public void fail(TtsCheckRun run, String errorMessage) {
+        TtsCheckRun update = new TtsCheckRun();
+        update.setId(run.getId());
+        update.setStatus(TtsCheckRun.RunStatus.FAILED);
+        update.setHeartbeatTime(LocalDateTime.now());
+        update.setErrorMessage(errorMessage);
+        checkRunMapper.updateById(update);
+        log.info("校验运行失败 - 运行ID: {}, 原因: {}", run.getRunId(), errorMessage);
+    }
+
+    /**
+     * 接管运行：仍在心跳中的运行不允许接管；
+     * 以状态和心跳时间为条件更新，多个实例同时接管时只有一个成功
+     */
+    private TtsCheckRun takeOver(TtsCheckRun run) {
+        if (TtsCheckRun.RunStatus.RUNNING.equals(run.getStatus()) && !isStale(run)) {
+            throw new BusinessException("校验运行正在执行中: " + run.getRunId() + " (" + run.getOwner() + ")");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int updated = checkRunMapper.update(null, Wrappers.<TtsCheckRun>lambdaUpdate()
+            .set(TtsCheckRun::getStatus, TtsCheckRun.RunStatus.RUNNING)
+            .set(TtsCheckRun::getOwner, OWNER)
+            .set(TtsCheckRun::getHeartbeatTime, now)
+            .set(TtsCheckRun::getErrorMessage, null)
+            .eq(TtsCheckRun::getId, run.getId())
+            .eq(TtsCheckRun::getStatus, run.getStatus())
+            .eq(TtsCheckRun::getHeartbeatTime, run.getHeartbeatTime()));
+        if (updated == 0) {
+            throw new BusinessException("校验运行已被其他实例接管: " + run.getRunId());
+        }
+
+        log.info("接管校验运行 - 运行ID: {}, 原状态: {}, 原实例: {}", run.getRunId(), run.getStatus(), run.getOwner());
+        run.setStatus(TtsCheckRun.RunStatus.RUNNING);
+        run.setOwner(OWNER);
+        run.setHeartbeatTime(now);
+        return run;
+    }
+
+    private void releaseActiveKey(TtsCheckRun run) {
+        checkRunMapper.update(null, Wrappers.<TtsCheckRun>lambdaUpdate()
+            .set(TtsCheckRun::getActiveKey, null)
+            .eq(TtsCheckRun::getId, run.getId()));
+    }
+
+    private void reactivate(TtsCheckRun run) {
+        try {
+            checkRunMapper.update(null, Wrappers.<TtsCheckRun>lambdaUpdate()
+                .set(TtsCheckRun::getActiveKey, ACTIVE_KEY)
+                .eq(TtsCheckRun::getId, run.getId()));
+        } catch (DuplicateKeyException e) {
+            throw new BusinessException("已有未完成的校验运行，无法继续: " + run.getRunId());
+        }
+        run.setActiveKey(ACTIVE_KEY);
+    }
+
+    /**
+     * 运行中的记录心跳是否已超时
+     */
+    private boolean isStale(TtsCheckRun run) {
+        Duration staleAfter = ttsApiProperties.getCheck().getCheckpointInterval().multipliedBy(3);
+        return run.getHeartbeatTime() == null
+            || run.getHeartbeatTime().isBefore(LocalDateTime.now().minus(staleAfter));
+    }
+
+    private void applyProgress(TtsCheckRun run, ProductCheckService.CheckResult progress) {
+        run.setTotalCount(progress.getTotalCount());
+        run.setCheckedCount(progress.getCheckedCount());
+        run.setValidCount(progress.getValidCount());
+        run.setInvalidCount(progress.getInvalidCount());
+        run.setFailedCount(progress.getFailedCount());
+        run.setChangedCount(progress.getChangedCount());
+        run.setUnchangedCount(progress.getUnchangedCount());
+        run.setCommissionDropCount(progress.getCommissionDropCount());
+    }
+
+    private String writeRanges(List<ProductIdCursor.IdRange> ranges) {
+        try {
+            return objectMapper.writeValueAsString(ranges);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("序列化校验运行检查点失败", e);
+        }
+    }
+
+    private static int valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+}
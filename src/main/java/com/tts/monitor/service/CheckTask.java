@@ -0,0 +1,101 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.entity.TtsCheckRun;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 校验运行任务（本实例内正在执行或最近完成的运行）
+ * 由运行协调服务创建，校验服务在流水线启动后挂接，用于查询实时进度和取消
+ *
+ */
+@Getter
+public class CheckTask {
+
+    private final String runId;
+    private final String scope;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+
+    /**
+     * 检查点保存的计数，流水线启动前作为进度返回
+     */
+    private final ProductCheckService.CheckResult baseline;
+
+    private final CompletableFuture<ProductCheckService.CheckResult> future = new CompletableFuture<>();
+
+    private volatile LocalDateTime finishedAt;
+    private volatile boolean cancelRequested = false;
+    private volatile ProductCheckPipeline pipeline;
+
+    public CheckTask(String runId, String scope, ProductCheckService.CheckResult baseline) {
+        this.runId = runId;
+        this.scope = scope;
+        this.baseline = baseline;
+    }
+
+    /**
+     * 挂接本次运行的流水线；挂接前已请求取消的，立即取消
+     */
+    void attach(ProductCheckPipeline pipeline) {
+        this.pipeline = pipeline;
+        if (cancelRequested) {
+            pipeline.cancel();
+        }
+    }
+
+    /**
+     * 请求取消：停止分发，在途批次写回后以 CANCELLED 状态结束
+     */
+    public void cancel() {
+        cancelRequested = true;
+        ProductCheckPipeline current = pipeline;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    /**
+     * 运行结束时调用
+     */
+    void complete(ProductCheckService.CheckResult result) {
+        finishedAt = LocalDateTime.now();
+        pipeline = null;
+        future.complete(result);
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * 当前进度：运行中返回实时计数，结束后返回最终结果
+     */
+    public ProductCheckService.CheckResult progress() {
+        if (future.isDone()) {
+            return future.join();
+        }
+        ProductCheckPipeline current = pipeline;
+        ProductCheckService.CheckResult progress = current != null ? current.progress() : baseline;
+        progress.setRunId(runId);
+        return progress;
+    }
+
+    /**
+     * 运行状态，与运行记录的状态一致
+     */
+    public String getStatus() {
+        if (!future.isDone()) {
+            return TtsCheckRun.RunStatus.RUNNING;
+        }
+        ProductCheckService.CheckResult result = future.join();
+        if (cancelRequested) {
+            return TtsCheckRun.RunStatus.CANCELLED;
+        }
+        if (!result.isSuccess()) {
+            return TtsCheckRun.RunStatus.FAILED;
+        }
+        return result.isStopped() ? TtsCheckRun.RunStatus.STOPPED : TtsCheckRun.RunStatus.COMPLETED;
+    }
+}
@@ -0,0 +1,201 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.exception.BusinessException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 校验运行协调服务实现类
+ * 手动触发、定时任务都经由此处提交，同一范围同时只有一个运行；
+ * 运行在专用线程池中执行，不占用公共 ForkJoinPool
+ *
+ */
+@Slf4j
+@Service
+public class CheckTaskService implements ICheckTaskService {
+
+    /**
+     * 保留的最近运行任务数（用于查询进度）
+     */
+    private static final int MAX_RECENT_TASKS = 50;
+
+    private final IProductCheckService productCheckService;
+    private final IAlertService alertService;
+    private final TtsApiProperties ttsApiProperties;
+    private final ExecutorService checkTaskExecutor;
+
+    /**
+     * 范围 -> 正在执行或最近完成的运行任务
+     */
+    private final Map<String, CheckTask> tasksByScope = new HashMap<>();
+
+    /**
+     * 范围 -> 正在准备（接管/创建运行记录）的运行
+     */
+    private final Map<String, CompletableFuture<CheckTask>> preparing = new HashMap<>();
+
+    /**
+     * 运行 ID -> 最近的运行任务（按提交顺序淘汰）
+     */
+    private final Map<String, CheckTask> recentTasks = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CheckTask> eldest) {
+            return size() > MAX_RECENT_TASKS && eldest.getValue().isDone();
+        }
+    };
+
+    public CheckTaskService(IProductCheckService productCheckService,
+                            IAlertService alertService,
+                            TtsApiProperties ttsApiProperties,
+                            @Qualifier("checkTaskExecutor") ExecutorService checkTaskExecutor) {
+        this.productCheckService = productCheckService;
+        this.alertService = alertService;
+        this.ttsApiProperties = ttsApiProperties;
+        this.checkTaskExecutor = checkTaskExecutor;
+    }
+
+    /**
+     * 提交校验运行
+     * 锁内只决定由谁准备运行，运行记录的接管/创建（数据库操作）在锁外完成，返回时即可拿到运行 ID；
+     * 准备期间同一范围的其他提交等待并返回同一个运行
+     */
+    @Override
+    public CheckTask submit(String scope, String resumeRunId, boolean force) {
+        CompletableFuture<CheckTask> slot;
+        CompletableFuture<CheckTask> inProgress;
+        synchronized (this) {
+            inProgress = preparing.get(scope);
+            if (inProgress == null) {
+                CheckTask existing = tasksByScope.get(scope);
+                if (existing != null && !existing.isDone()) {
+                    log.info("校验范围 {} 已有运行 {}，返回已有运行", scope, existing.getRunId());
+                    return existing;
+                }
+                if (existing != null && resumeRunId == null && !force && isReusable(existing)) {
+                    log.info("校验范围 {} 最近完成的运行 {} 仍在结果缓存期内，返回已有结果", scope, existing.getRunId());
+                    return existing;
+                }
+                slot = new CompletableFuture<>();
+                preparing.put(scope, slot);
+            } else {
+                slot = null;
+            }
+        }
+        if (inProgress != null) {
+            log.info("校验范围 {} 正在准备运行，等待并返回该运行", scope);
+            return awaitPrepared(inProgress);
+        }
+
+        try {
+            ProductCheckService.CheckRunPlan plan = productCheckService.prepareRun(resumeRunId);
+            CheckTask task = new CheckTask(plan.getRunId(), scope, plan.getBaseline());
+            try {
+                checkTaskExecutor.execute(() -> execute(plan, task));
+            } catch (RejectedExecutionException e) {
+                throw new BusinessException("校验任务提交失败: " + e.getMessage());
+            }
+
+            synchronized (this) {
+                tasksByScope.put(scope, task);
+                recentTasks.put(task.getRunId(), task);
+                preparing.remove(scope);
+            }
+            slot.complete(task);
+            log.info("提交校验运行 - 范围: {}, 运行ID: {}", scope, task.getRunId());
+            return task;
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                preparing.remove(scope);
+            }
+            slot.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized CheckTask getTask(String runId) {
+        return recentTasks.get(runId);
+    }
+
+    @Override
+    public synchronized CheckTask getActiveTask(String scope) {
+        CheckTask task = tasksByScope.get(scope);
+        return task != null && !task.isDone() ? task : null;
+    }
+
+    @Override
+    public CheckTask cancel(String runId) {
+        CheckTask task = getTask(runId);
+        if (task == null || task.isDone()) {
+            throw new BusinessException("运行 " + runId + " 不在本实例执行中");
+        }
+        log.info("取消校验运行 - 运行ID: {}", runId);
+        task.cancel();
+        return task;
+    }
+
+    /**
+     * 在专用线程池中执行运行，完成后执行告警检查
+     */
+    private void execute(ProductCheckService.CheckRunPlan plan, CheckTask task) {
+        ProductCheckService.CheckResult result;
+        try {
+            result = productCheckService.executeRun(plan, task);
+        } catch (Exception e) {
+            log.error("校验运行执行异常 - 运行ID: {}", task.getRunId(), e);
+            result = new ProductCheckService.CheckResult();
+            result.setRunId(task.getRunId());
+            result.setSuccess(false);
+            result.setErrorMessage(e.getMessage());
+        }
+        task.complete(result);
+
+        log.info("校验运行结束 - 运行ID: {}, 状态: {}, 总数: {}, 有效: {}, 失效: {}, 失败: {}, 耗时: {}ms",
+            task.getRunId(), task.getStatus(), result.getTotalCount(), result.getValidCount(),
+            result.getInvalidCount(), result.getFailedCount(), result.getDuration());
+
+        // 校验完成后执行告警检查（告警按库中失效商品判断，与本次是否发现失效无关）
+        if (result.isSuccess()) {
+            try {
+                alertService.executeAlert();
+            } catch (Exception e) {
+                log.error("校验完成后告警检查失败", e);
+            }
+        }
+    }
+
+    /**
+     * 等待其他提交准备好的运行（在锁外等待），准备失败时抛出同一异常
+     */
+    private CheckTask awaitPrepared(CompletableFuture<CheckTask> slot) {
+        try {
+            return slot.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new BusinessException("校验任务提交失败: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * 最近完成的运行是否可直接复用：成功跑完且在结果缓存期内
+     */
+    private boolean isReusable(CheckTask task) {
+        ProductCheckService.CheckResult result = task.getFuture().join();
+        return result.isSuccess() && !result.isStopped()
+            && task.getFinishedAt() != null
+            && task.getFinishedAt().isAfter(LocalDateTime.now().minus(ttsApiProperties.getCheck().getResultTtl()));
+    }
+}
@@ -0,0 +1,138 @@
+package com.tts.monitor.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 校验检查点（单次运行）
+ * 批次并发完成、乱序写回，每个区间只把游标推进到“之前的批次全部写回”的位置，
+ * 恢复时从该位置继续，不会漏掉尚未写回的批次。
+ * 可同时累加已提交批次的计数，检查点保存的计数与游标一致，恢复时重新校验的批次不会重复计数
+ *
+ */
+public class CheckpointTracker {
+
+    /**
+     * 已分发未写回的占位标记
+     */
+    private static final Completed PENDING = new Completed(0, null);
+
+    private final List<RangeState> states = new ArrayList<>();
+
+    /**
+     * 已提交批次的计数，为 null 时不累加
+     */
+    private final CheckCounters committedCounters;
+
+    /**
+     * @param ranges 本次运行的主键区间，startAfterId 为已提交的游标
+     */
+    public CheckpointTracker(List<ProductIdCursor.IdRange> ranges) {
+        this(ranges, null);
+    }
+
+    /**
+     * @param ranges 本次运行的主键区间，startAfterId 为已提交的游标
+     * @param committedCounters 已提交批次的计数（从检查点计数开始累加），为 null 时不累加
+     */
+    public CheckpointTracker(List<ProductIdCursor.IdRange> ranges, CheckCounters committedCounters) {
+        for (ProductIdCursor.IdRange range : ranges) {
+            states.add(new RangeState(range));
+        }
+        this.committedCounters = committedCounters;
+    }
+
+    /**
+     * 登记已分发的批次（同一区间内按主键递增的顺序调用）
+     *
+     * @param rangeIndex 区间序号
+     * @param batchLastId 批次最后一个商品的主键
+     */
+    public void register(int rangeIndex, int batchLastId) {
+        RangeState state = states.get(rangeIndex);
+        synchronized (state) {
+            state.pending.put(batchLastId, PENDING);
+        }
+    }
+
+    /**
+     * 标记批次已写回，并推进该区间的游标
+     *
+     * @param rangeIndex 区间序号
+     * @param batchLastId 批次最后一个商品的主键
+     */
+    public void complete(int rangeIndex, int batchLastId) {
+        complete(rangeIndex, batchLastId, 0, null);
+    }
+
+    /**
+     * 标记批次已写回，并推进该区间的游标；批次随游标提交时累加其计数
+     *
+     * @param rangeIndex 区间序号
+     * @param batchLastId 批次最后一个商品的主键
+     * @param batchSize 批次商品数
+     * @param batchResult 批次校验结果，可为 null
+     */
+    public void complete(int rangeIndex, int batchLastId, int batchSize,
+                         ProductCheckService.BatchCheckResult batchResult) {
+        RangeState state = states.get(rangeIndex);
+        synchronized (state) {
+            state.pending.put(batchLastId, new Completed(batchSize, batchResult));
+            while (!state.pending.isEmpty() && state.pending.firstEntry().getValue() != PENDING) {
+                Map.Entry<Integer, Completed> committed = state.pending.pollFirstEntry();
+                state.committedId = committed.getKey();
+                commit(committed.getValue());
+            }
+        }
+    }
+
+    /**
+     * 生成检查点：每个区间的游标替换为已提交的位置
+     */
+    public List<ProductIdCursor.IdRange> snapshot() {
+        List<ProductIdCursor.IdRange> ranges = new ArrayList<>();
+        for (RangeState state : states) {
+            synchronized (state) {
+                ranges.add(new ProductIdCursor.IdRange(state.committedId, state.endId));
+            }
+        }
+        return ranges;
+    }
+
+    private void commit(Completed completed) {
+        if (committedCounters == null) {
+            return;
+        }
+        committedCounters.addTotal(completed.batchSize());
+        if (completed.batchResult() != null) {
+            committedCounters.add(completed.batchResult());
+        }
+    }
+
+    /**
+     * 已写回的批次
+     */
+    private record Completed(int batchSize, ProductCheckService.BatchCheckResult batchResult) {
+    }
+
+    /**
+     * 单个区间的提交状态
+     */
+    private static final class RangeState {
+
+        private final Integer endId;
+        private int committedId;
+
+        /**
+         * 已分发批次的最后主键 -> 写回结果（未写回时为 PENDING）
+         */
+        private final TreeMap<Integer, Completed> pending = new TreeMap<>();
+
+        private RangeState(ProductIdCursor.IdRange range) {
+            this.committedId = range.getStartAfterId();
+            this.endId = range.getEndId();
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.tts.monitor.service;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+import com.tts.monitor.util.TtsCredential;
+import com.tts.monitor.util.TtsCredentialProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 凭证池
+ * 每个凭证有独立的自适应令牌桶（启用时还有各自的共享令牌桶）和健康状态。获取令牌时从有空闲令牌的健康凭证中选取并返回该凭证，
+ * 调用方用它发出请求（TtsApiClient 按传入的凭证签名）；响应按凭证名称回到对应凭证的速率控制。
+ * 鉴权失败（HTTP 401/403 或配置的错误码）的凭证移出轮换 auth-cooldown，到期后放行一个请求试探，成功后恢复；
+ * 试探请求返回其他结果（超时、熔断拒绝等）或超过 probe-timeout 未返回时，允许再次试探。
+ * 只有一个凭证时等价于单个自适应速率控制
+ *
+ */
+@Slf4j
+public class CredentialPool implements TtsCredentialProvider {
+
+    /**
+     * 所有凭证都不可用时分段等待的时间
+     */
+    private static final long UNAVAILABLE_WAIT_MS = 200;
+
+    private final List<Member> members = new ArrayList<>();
+    private final Map<String, Member> byName = new HashMap<>();
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final long authCooldownNanos;
+    private final long probeTimeoutNanos;
+    private final double totalQps;
+
+    /**
+     * @param ttsApiProperties TTS 配置，未配置 credentials 时使用 app-key、app-secret、access-token
+     * @param tokenBucketService 共享令牌桶服务，为 null 时只按本实例速率限流
+     */
+    public CredentialPool(TtsApiProperties ttsApiProperties, ITokenBucketService tokenBucketService) {
+        TtsApiProperties.RateLimitConfig rateLimit = ttsApiProperties.getRateLimit();
+        String sharedKey = rateLimit.getShared().getBucketKey();
+        boolean hasSharedKey = sharedKey != null && !sharedKey.isBlank();
+        List<TtsApiProperties.CredentialConfig> configs = ttsApiProperties.getCredentials();
+        if (configs == null || configs.isEmpty()) {
+            TtsCredential credential = new TtsCredential("default", ttsApiProperties.getAppKey(),
+                ttsApiProperties.getAppSecret(), ttsApiProperties.getAccessToken());
+            addMember(credential, rateLimit.getQps(), hasSharedKey ? sharedKey : credential.appKey(),
+                rateLimit, tokenBucketService);
+        } else {
+            for (int i = 0; i < configs.size(); i++) {
+                TtsApiProperties.CredentialConfig config = configs.get(i);
+                String name = config.getName() != null && !config.getName().isBlank()
+                    ? config.getName()
+                    : "credential-" + (i + 1);
+                TtsCredential credential = new TtsCredential(name, config.getAppKey(), config.getAppSecret(),
+                    config.getAccessToken());
+                int qps = config.getQps() != null ? config.getQps() : rateLimit.getQps();
+                addMember(credential, qps, (hasSharedKey ? sharedKey : credential.appKey()) + ":" + name,
+                    rateLimit, tokenBucketService);
+            }
+        }
+        this.totalQps = members.stream().mapToDouble(member -> member.qps).sum();
+        this.authCooldownNanos = ttsApiProperties.getCredentialPool().getAuthCooldown().toNanos();
+        this.probeTimeoutNanos = ttsApiProperties.getCredentialPool().getProbeTimeout().toNanos();
+        log.info("初始化凭证池 - 凭证数: {}, 总 QPS: {}", members.size(), totalQps);
+    }
+
+    private void addMember(TtsCredential credential, int qps, String bucketKey,
+                           TtsApiProperties.RateLimitConfig rateLimit, ITokenBucketService tokenBucketService) {
+        if (byName.containsKey(credential.name())) {
+            throw new IllegalArgumentException("凭证名称重复: " + credential.name());
+        }
+        SharedTokenBucket sharedBucket = tokenBucketService != null ? tokenBucketService.bucket(bucketKey, qps) : null;
+        Member member = new Member(credential, qps,
+            new AdaptiveRateController(RateLimiter.create(qps), rateLimit, qps, sharedBucket));
+        members.add(member);
+        byName.put(credential.name(), member);
+    }
+
+    /**
+     * 获取一个令牌：依次尝试有空闲令牌的健康凭证，都没有时短暂等待后重试
+     *
+     * @return 令牌所属的凭证，请求必须使用该凭证发出
+     */
+    public TtsCredential acquire() throws InterruptedException {
+        if (members.size() == 1) {
+            // 单个凭证不轮换，鉴权失败也继续使用
+            Member member = members.get(0);
+            member.controller.acquire();
+            return member.credential;
+        }
+        // 每轮最多等待约一个令牌的间隔
+        long sliceMicros = Math.max(1000, (long) (1_000_000 / totalQps));
+        while (true) {
+            int start = Math.floorMod(cursor.getAndIncrement(), members.size());
+            boolean anyAvailable = false;
+            for (int i = 0; i < members.size(); i++) {
+                Member member = members.get((start + i) % members.size());
+                if (!member.isAvailable(probeTimeoutNanos)) {
+                    continue;
+                }
+                anyAvailable = true;
+                if (member.controller.tryAcquire(sliceMicros, TimeUnit.MICROSECONDS)) {
+                    return member.credential;
+                }
+                // 未取得令牌，试探机会留给下一轮
+                member.endProbe();
+            }
+            if (anyAvailable) {
+                TimeUnit.MICROSECONDS.sleep(sliceMicros);
+            } else {
+                Thread.sleep(UNAVAILABLE_WAIT_MS);
+            }
+        }
+    }
+
+    /**
+     * 不等待地获取一个令牌（对冲请求使用）
+     *
+     * @return 令牌所属的凭证，没有健康凭证有空闲令牌时返回 null
+     */
+    public TtsCredential tryAcquire() {
+        if (members.size() == 1) {
+            Member member = members.get(0);
+            return member.controller.tryAcquire() ? member.credential : null;
+        }
+        int start = Math.floorMod(cursor.getAndIncrement(), members.size());
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get((start + i) % members.size());
+            // 试探中的凭证不用于对冲
+            if (member.isHealthy() && member.controller.tryAcquire()) {
+                return member.credential;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 未经令牌桶的调用使用的凭证：轮换选取健康凭证
+     */
+    @Override
+    public TtsCredential next() {
+        if (members.size() == 1) {
+            return members.get(0).credential;
+        }
+        int start = Math.floorMod(cursor.getAndIncrement(), members.size());
+        for (int i = 0; i < members.size(); i++) {
+            Member candidate = members.get((start + i) % members.size());
+            if (candidate.isHealthy()) {
+                return candidate.credential;
+            }
+        }
+        return members.get(start).credential;
+    }
+
+    /**
+     * 记录一次请求的结果：鉴权失败时凭证移出轮换，其他结果交给对应凭证的速率控制
+     *
+     * @param response 接口响应（携带凭证名称）
+     * @param latencyNanos 请求耗时
+     */
+    public void record(TtsApiResponse response, long latencyNanos) {
+        Member member = response.getCredential() != null ? byName.get(response.getCredential()) : null;
+        if (member == null) {
+            member = members.get(0);
+        }
+        if (response.isCoalesced()) {
+            // 结果取自其他调用方的请求，已由发出方记录；本次凭证若在试探则结束试探
+            member.endProbe();
+            return;
+        }
+        if (response.isAuthFailed()) {
+            if (members.size() > 1) {
+                member.onAuthFailure(authCooldownNanos);
+                if (members.stream().noneMatch(Member::isHealthy)) {
+                    log.error("所有 TTS 凭证鉴权失败，等待 {}s 后试探", TimeUnit.NANOSECONDS.toSeconds(authCooldownNanos));
+                }
+            } else {
+                log.error("TTS 凭证鉴权失败 - 凭证: {}, code: {}, message: {}",
+                    member.credential.name(), response.getCode(), response.getMessage());
+            }
+            return;
+        }
+        if (response.getHttpStatus() != null) {
+            member.onSuccess();
+        } else {
+            // 超时、连接失败、熔断拒绝等没有 HTTP 状态的结果不能判断凭证是否恢复
+            member.endProbe();
+        }
+        member.controller.record(response, latencyNanos);
+    }
+
+    /**
+     * 响应是否为可重试的临时错误；有多个凭证时鉴权失败也重试（换用其他凭证）
+     */
+    public boolean isThrottled(TtsApiResponse response) {
+        return (response.isAuthFailed() && members.size() > 1) || members.get(0).controller.isThrottled(response);
+    }
+
+    /**
+     * 响应是否为限流（HTTP 429 或配置的限流错误码）
+     */
+    public boolean isRateLimited(TtsApiResponse response) {
+        return members.get(0).controller.isRateLimited(response);
+    }
+
+    /**
+     * 调整速率上限（集群模式按实例数均分），按各凭证的 QPS 比例分配
+     */
+    public void setCeiling(double ceiling) {
+        for (Member member : members) {
+            member.controller.setCeiling(ceiling * member.qps / totalQps);
+        }
+    }
+
+    /**
+     * 所有凭证的 QPS 上限之和
+     */
+    public double getTotalQps() {
+        return totalQps;
+    }
+
+    /**
+     * 当前速率上限之和（QPS）
+     */
+    public double getCeiling() {
+        return members.stream().mapToDouble(member -> member.controller.getCeiling()).sum();
+    }
+
+    /**
+     * 健康凭证当前生效的速率之和（QPS）
+     */
+    public double getRate() {
+        return members.stream().filter(Member::isHealthy).mapToDouble(member -> member.controller.getRate()).sum();
+    }
+
+    /**
+     * 是否所有凭证都处于 Retry-After 暂停中
+     */
+    public boolean isPaused() {
+        return members.stream().allMatch(member -> member.controller.isPaused());
+    }
+
+    /**
+     * 收到限流或拥塞反馈的次数
+     */
+    public long getThrottledCount() {
+        return members.stream().mapToLong(member -> member.controller.getThrottledCount()).sum();
+    }
+
+    /**
+     * 是否启用了集群共享令牌桶
+     */
+    public boolean isShared() {
+        return members.get(0).controller.isShared();
+    }
+
+    /**
+     * 凭证数
+     */
+    public int size() {
+        return members.size();
+    }
+
+    /**
+     * 健康（未移出轮换）的凭证数
+     */
+    public int getHealthyCount() {
+        return (int) members.stream().filter(Member::isHealthy).count();
+    }
+
+    /**
+     * 注册每个凭证的速率和健康状态指标
+     */
+    public void registerMetrics(MeterRegistry registry) {
+        for (Member member : members) {
+            Gauge.builder("tts.api.credential.rate", member, m -> m.controller.getRate())
+                .tag("credential", member.credential.name())
+                .description("凭证当前生效的请求速率（QPS）")
+                .register(registry);
+            Gauge.builder("tts.api.credential.healthy", member, m -> m.isHealthy() ? 1 : 0)
+                .tag("credential", member.credential.name())
+                .description("凭证是否在轮换中")
+                .register(registry);
+        }
+    }
+
+    /**
+     * 凭证及其速率控制和健康状态
+     */
+    private static final class Member {
+
+        private final TtsCredential credential;
+        private final double qps;
+        private final AdaptiveRateController controller;
+
+        private boolean disabled = false;
+        private long disabledUntil;
+        private boolean probing = false;
+
+        /**
+         * 试探请求的截止时间，超过后视为试探结束
+         */
+        private long probeUntil;
+
+        private Member(TtsCredential credential, double qps, AdaptiveRateController controller) {
+            this.credential = credential;
+            this.qps = qps;
+            this.controller = controller;
+        }
+
+        synchronized boolean isHealthy() {
+            return !disabled;
+        }
+
+        /**
+         * 是否可以发出请求：健康，或移出轮换已到期且没有未结束的试探请求（返回 true 时占用试探机会）
+         */
+        synchronized boolean isAvailable(long probeTimeoutNanos) {
+            if (!disabled) {
+                return true;
+            }
+            long now = System.nanoTime();
+            if (now - disabledUntil >= 0 && (!probing || now - probeUntil >= 0)) {
+                probing = true;
+                probeUntil = now + probeTimeoutNanos;
+                log.info("TTS 凭证移出轮换已到期，放行一个请求试探 - 凭证: {}", credential.name());
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void onAuthFailure(long cooldownNanos) {
+            if (!disabled) {
+                log.error("TTS 凭证鉴权失败，移出轮换 {}s - 凭证: {}", TimeUnit.NANOSECONDS.toSeconds(cooldownNanos),
+                    credential.name());
+            }
+            disabled = true;
+            probing = false;
+            disabledUntil = System.nanoTime() + cooldownNanos;
+        }
+
+        /**
+         * 试探请求没有得出结论（未取得令牌或没有 HTTP 状态），允许再次试探
+         */
+        synchronized void endProbe() {
+            probing = false;
+        }
+
+        synchronized void onSuccess() {
+            if (disabled) {
+                disabled = false;
+                probing = false;
+                log.info("TTS 凭证恢复轮换 - 凭证: {}", credential.name());
+            }
+        }
+    }
+}
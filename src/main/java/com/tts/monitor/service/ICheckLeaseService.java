@@ -0,0 +1,70 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.entity.TtsCheckLease;
+import com.tts.monitor.entity.TtsCheckRun;
+
+import java.util.List;
+
+/**
+ * 商品校验区间租约服务接口
+ *
+ */
+public interface ICheckLeaseService {
+
+    /**
+     * 创建运行记录及其区间租约
+     *
+     * @param ranges 主键区间
+     * @return 运行记录
+     */
+    TtsCheckRun createRun(List<ProductIdCursor.IdRange> ranges);
+
+    /**
+     * 领取待校验或已过期的区间租约
+     *
+     * @param run 运行记录
+     * @param max 最多领取的数量
+     * @return 领取到的租约
+     */
+    List<TtsCheckLease> claim(TtsCheckRun run, int max);
+
+    /**
+     * 续约并保存区间游标
+     *
+     * @param leases 本实例持有的租约
+     * @param cursors 与租约一一对应的已提交游标
+     * @return 续约失败（已被其他实例领取）的数量
+     */
+    int renew(List<TtsCheckLease> leases, List<ProductIdCursor.IdRange> cursors);
+
+    /**
+     * 标记区间已完成
+     *
+     * @param leases 本实例持有的租约
+     */
+    void complete(List<TtsCheckLease> leases);
+
+    /**
+     * 释放租约，保存游标后放回待领取状态
+     *
+     * @param leases 本实例持有的租约
+     * @param cursors 与租约一一对应的已提交游标
+     */
+    void release(List<TtsCheckLease> leases, List<ProductIdCursor.IdRange> cursors);
+
+    /**
+     * 统计持有有效租约的实例数
+     *
+     * @param runId 运行 ID
+     * @return 实例数
+     */
+    int countActiveNodes(String runId);
+
+    /**
+     * 统计未完成的区间数
+     *
+     * @param runId 运行 ID
+     * @return 未完成的区间数
+     */
+    long countUnfinished(String runId);
+}
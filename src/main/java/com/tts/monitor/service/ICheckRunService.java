@@ -0,0 +1,118 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.entity.TtsCheckRun;
+
+import java.util.List;
+
+/**
+ * 商品校验运行记录服务接口
+ *
+ */
+public interface ICheckRunService {
+
+    /**
+     * 接管最近一次未完成的运行（时间预算用完、失败或实例退出后心跳超时）
+     *
+     * @return 接管的运行记录，没有可继续的运行时返回 null
+     */
+    TtsCheckRun claimResumable();
+
+    /**
+     * 查询未完成的运行（同时最多一个）
+     *
+     * @return 运行记录，没有时返回 null
+     */
+    TtsCheckRun findActive();
+
+    /**
+     * 超出续跑窗口且不在心跳中的运行标记为失败，不再继续
+     *
+     * @param run 运行记录
+     * @return 是否已放弃
+     */
+    boolean abandonIfExpired(TtsCheckRun run);
+
+    /**
+     * 接管指定的运行
+     *
+     * @param runId 运行 ID
+     * @return 接管的运行记录
+     */
+    TtsCheckRun claim(String runId);
+
+    /**
+     * 按运行 ID 查询运行记录
+     *
+     * @param runId 运行 ID
+     * @return 运行记录，不存在时返回 null
+     */
+    TtsCheckRun getByRunId(String runId);
+
+    /**
+     * 创建新的运行记录
+     *
+     * @param ranges 主键区间
+     * @return 运行记录
+     */
+    TtsCheckRun create(List<ProductIdCursor.IdRange> ranges);
+
+    /**
+     * 读取运行记录中保存的区间游标
+     *
+     * @param run 运行记录
+     * @return 主键区间，startAfterId 为已提交的游标
+     */
+    List<ProductIdCursor.IdRange> getRanges(TtsCheckRun run);
+
+    /**
+     * 读取运行记录中保存的计数
+     *
+     * @param run 运行记录
+     * @return 计数
+     */
+    ProductCheckService.CheckResult getProgress(TtsCheckRun run);
+
+    /**
+     * 保存检查点
+     *
+     * @param run 运行记录
+     * @param ranges 已提交的区间游标
+     * @param progress 当前计数
+     */
+    void checkpoint(TtsCheckRun run, List<ProductIdCursor.IdRange> ranges, ProductCheckService.CheckResult progress);
+
+    /**
+     * 结束运行并保存最终检查点
+     *
+     * @param run 运行记录
+     * @param status 结束状态
+     * @param ranges 已提交的区间游标
+     * @param result 校验结果
+     */
+    void finish(TtsCheckRun run, String status, List<ProductIdCursor.IdRange> ranges,
+                ProductCheckService.CheckResult result);
+
+    /**
+     * 标记运行失败，保留上一次保存的检查点
+     *
+     * @param run 运行记录
+     * @param errorMessage 失败原因
+     */
+    void fail(TtsCheckRun run, String errorMessage);
+
+    /**
+     * 累加计数并刷新心跳
+     *
+     * @param run 运行记录
+     * @param delta 计数增量
+     */
+    void addProgress(TtsCheckRun run, ProductCheckService.CheckResult delta);
+
+    /**
+     * 标记运行完成
+     *
+     * @param run 运行记录
+     * @return 是否由本次调用标记完成
+     */
+    boolean complete(TtsCheckRun run);
+}
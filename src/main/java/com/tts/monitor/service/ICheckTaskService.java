@@ -0,0 +1,49 @@
+package com.tts.monitor.service;
+
+/**
+ * 校验运行协调服务接口
+ * 同一校验范围同时只允许一个运行
+ *
+ */
+public interface ICheckTaskService {
+
+    /**
+     * 全量校验范围
+     */
+    String SCOPE_ALL = "all";
+
+    /**
+     * 提交校验运行
+     * 同一范围已有运行时返回该运行；未要求强制执行且最近完成的运行仍在结果缓存期内时返回该运行
+     *
+     * @param scope 校验范围
+     * @param resumeRunId 要继续的运行 ID，为 null 时自动继续最近一次未完成的运行或创建新运行
+     * @param force 是否忽略最近完成的运行结果
+     * @return 运行任务
+     */
+    CheckTask submit(String scope, String resumeRunId, boolean force);
+
+    /**
+     * 查询本实例内的运行任务
+     *
+     * @param runId 运行 ID
+     * @return 运行任务，不存在时返回 null
+     */
+    CheckTask getTask(String runId);
+
+    /**
+     * 查询范围内正在执行的运行任务
+     *
+     * @param scope 校验范围
+     * @return 运行任务，没有时返回 null
+     */
+    CheckTask getActiveTask(String scope);
+
+    /**
+     * 取消本实例内正在执行的运行
+     *
+     * @param runId 运行 ID
+     * @return 运行任务
+     */
+    CheckTask cancel(String runId);
+}
@@ -0,0 +1,61 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.entity.TtsImportJob;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * 商品导入任务服务接口
+ *
+ */
+public interface IImportJobService {
+
+    /**
+     * 创建导入任务：边读取上传的文件边写入暂存表（同一任务内去重），完成后提交后台执行
+     *
+     * @param fileName 文件名
+     * @param in 文件内容（CSV 或按行分隔的商品ID）
+     * @return 任务记录
+     */
+    TtsImportJob createJob(String fileName, InputStream in);
+
+    /**
+     * 按任务 ID 查询任务记录
+     *
+     * @param jobId 任务 ID
+     * @return 任务记录，不存在时抛出业务异常
+     */
+    TtsImportJob getJob(String jobId);
+
+    /**
+     * 查询任务中指定处理结果的商品ID
+     *
+     * @param jobId 任务 ID
+     * @param result 处理结果：ADDED、EXISTING、UNKNOWN、FAILED
+     * @param limit 最大数量
+     * @return 商品ID列表（按文件中的顺序）
+     */
+    List<String> getItems(String jobId, String result, int limit);
+
+    /**
+     * 取消等待中或执行中的任务（执行中的任务在当前页处理完后停止）
+     *
+     * @param jobId 任务 ID
+     * @return 任务记录
+     */
+    TtsImportJob cancel(String jobId);
+
+    /**
+     * 从检查点继续已取消或执行失败的任务
+     *
+     * @param jobId 任务 ID
+     * @return 任务记录
+     */
+    TtsImportJob resume(String jobId);
+
+    /**
+     * 执行等待中的任务和心跳超时的任务（所在实例已退出），本实例同时只执行一个任务
+     */
+    void dispatch();
+}
@@ -12,4 +12,21 @@ public interface IProductCheckService {
      * @return 校验结果统计
      */
     ProductCheckService.CheckResult executeProductCheck();
+
+    /**
+     * 准备校验运行：接管指定或最近一次未完成的运行，没有时创建新运行
+     *
+     * @param runId 要继续的运行 ID，为 null 时自动查找
+     * @return 运行计划
+     */
+    ProductCheckService.CheckRunPlan prepareRun(String runId);
+
+    /**
+     * 执行校验运行
+     *
+     * @param plan 运行计划
+     * @param task 运行任务，用于上报进度和响应取消，可为 null
+     * @return 校验结果统计
+     */
+    ProductCheckService.CheckResult executeRun(ProductCheckService.CheckRunPlan plan, CheckTask task);
 }
@@ -1,6 +1,7 @@
 package com.tts.monitor.service;
 
 import com.tts.monitor.dto.PageResult;
+import com.tts.monitor.dto.ProductAddReport;
 import com.tts.monitor.dto.ProductQueryDTO;
 import com.tts.monitor.entity.TtsProductMonitor;
 
@@ -24,9 +25,9 @@ public interface IProductService {
      * 批量新增监控商品
      * 
      * @param productIds 商品ID列表
-     * @return 新增数量
+     * @return 每个商品的处理结果（新增、已存在、无效、失败）
      */
-    int addProducts(List<String> productIds);
+    ProductAddReport addProducts(List<String> productIds);
 
     /**
      * 删除监控商品
@@ -0,0 +1,22 @@
+package com.tts.monitor.service;
+
+/**
+ * 集群共享令牌桶服务接口
+ *
+ */
+public interface ITokenBucketService {
+
+    /**
+     * 是否启用共享令牌桶
+     */
+    boolean isEnabled();
+
+    /**
+     * 获取指定标识的共享令牌桶，同一标识返回同一个实例
+     *
+     * @param bucketKey 令牌桶标识（每个凭证一个）
+     * @param qps 令牌补充速率
+     * @return 共享令牌桶，未启用时返回 null
+     */
+    SharedTokenBucket bucket(String bucketKey, double qps);
+}
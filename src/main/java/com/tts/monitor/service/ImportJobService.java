@@ -0,0 +1,515 @@
+package com.tts.monitor.service;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.ProductAddReport;
+import com.tts.monitor.entity.TtsImportItem;
+import com.tts.monitor.entity.TtsImportJob;
+import com.tts.monitor.exception.BusinessException;
+import com.tts.monitor.mapper.TtsImportItemMapper;
+import com.tts.monitor.mapper.TtsImportJobMapper;
+import com.tts.monitor.util.ProductIdReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 商品导入任务服务实现类
+ * 上传的文件逐行解析，按 stage-chunk-size 写入暂存表（唯一键去重），不把文件读入内存；
+ * 后台按暂存表主键分页，每页执行一次批量新增（已存在商品分块批量排除，查询受共享令牌桶限流），
+ * 每页处理完后保存游标和计数。执行期间按 heartbeat-interval 定时刷新心跳（不依赖单页耗时），
+ * 心跳超时的任务由其他实例或重启后的实例从游标处继续
+ *
+ */
+@Slf4j
+@Service
+public class ImportJobService implements IImportJobService {
+
+    private static final DateTimeFormatter JOB_ID_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final Set<String> ITEM_RESULTS = Set.of(TtsImportItem.ItemResult.ADDED,
+        TtsImportItem.ItemResult.EXISTING, TtsImportItem.ItemResult.UNKNOWN, TtsImportItem.ItemResult.FAILED);
+    private static final int MAX_ITEMS = 10_000;
+
+    private final TtsImportJobMapper jobMapper;
+    private final TtsImportItemMapper itemMapper;
+    private final IProductService productService;
+    private final IAlertService alertService;
+    private final TtsApiProperties ttsApiProperties;
+    private final ExecutorService importJobExecutor;
+
+    /**
+     * 本实例是否正在执行任务
+     */
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    /**
+     * 执行期间是否有新的任务提交（执行结束前再扫描一次）
+     */
+    private volatile boolean wakeUp;
+
+    public ImportJobService(TtsImportJobMapper jobMapper,
+                            TtsImportItemMapper itemMapper,
+                            IProductService productService,
+                            IAlertService alertService,
+                            TtsApiProperties ttsApiProperties,
+                            @Qualifier("importJobExecutor") ExecutorService importJobExecutor) {
+        this.jobMapper = jobMapper;
+        this.itemMapper = itemMapper;
+        this.productService = productService;
+        this.alertService = alertService;
+        this.ttsApiProperties = ttsApiProperties;
+        this.importJobExecutor = importJobExecutor;
+    }
+
+    /**
+     * 创建导入任务
+     * 每写入一块暂存记录刷新一次心跳和计数，上传中断的任务由扫描标记为失败
+     */
+    @Override
+    public TtsImportJob createJob(String fileName, InputStream in) {
+        TtsApiProperties.BulkImportConfig config = ttsApiProperties.getBulkImport();
+        int chunkSize = Math.max(1, config.getStageChunkSize());
+        LocalDateTime now = LocalDateTime.now();
+        TtsImportJob job = new TtsImportJob();
+        job.setJobId(now.format(JOB_ID_FORMATTER) + "-" + UUID.randomUUID().toString().substring(0, 8));
+        job.setStatus(TtsImportJob.JobStatus.UPLOADING);
+        job.setFileName(fileName != null && fileName.length() > 255 ? fileName.substring(0, 255) : fileName);
+        job.setTotalCount(0);
+        job.setDuplicateCount(0);
+        job.setInvalidLineCount(0);
+        job.setCursorId(0L);
+        job.setProcessedCount(0);
+        job.setAddedCount(0);
+        job.setExistingCount(0);
+        job.setUnknownCount(0);
+        job.setFailedCount(0);
+        job.setOwner(CheckRunService.OWNER);
+        job.setHeartbeatTime(now);
+        jobMapper.insert(job);
+        log.info("创建商品导入任务 - 任务ID: {}, 文件: {}", job.getJobId(), fileName);
+
+        int parsed = 0;
+        int staged = 0;
+        int invalidLines;
+        try (ProductIdReader reader = new ProductIdReader(in)) {
+            List<String> chunk = new ArrayList<>(chunkSize);
+            String productId;
+            while ((productId = reader.next()) != null) {
+                chunk.add(productId);
+                parsed++;
+                if (chunk.size() >= chunkSize) {
+                    staged += itemMapper.batchInsertIgnore(job.getJobId(), chunk);
+                    chunk.clear();
+                    updateUploadProgress(job, staged, parsed - staged, reader.getInvalidLineCount(), null);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                staged += itemMapper.batchInsertIgnore(job.getJobId(), chunk);
+            }
+            invalidLines = reader.getInvalidLineCount();
+        } catch (IOException | RuntimeException e) {
+            log.error("读取上传文件失败 - 任务ID: {}, 已读取商品数: {}", job.getJobId(), parsed, e);
+            abandonUpload(job, "读取上传文件失败: " + e.getMessage());
+            throw new BusinessException("读取上传文件失败: " + e.getMessage(), e);
+        }
+
+        if (staged == 0) {
+            abandonUpload(job, "文件中没有有效的商品ID");
+            throw new BusinessException("文件中没有有效的商品ID");
+        }
+        if (!updateUploadProgress(job, staged, parsed - staged, invalidLines, TtsImportJob.JobStatus.PENDING)) {
+            abandonUpload(job, "上传期间任务状态已变化");
+            throw new BusinessException("上传期间任务状态已变化: " + job.getJobId());
+        }
+        log.info("商品导入文件上传完成 - 任务ID: {}, 商品数: {}, 文件内重复: {}, 无效行: {}",
+            job.getJobId(), staged, parsed - staged, invalidLines);
+
+        dispatch();
+        return getJob(job.getJobId());
+    }
+
+    @Override
+    public TtsImportJob getJob(String jobId) {
+        TtsImportJob job = jobMapper.selectOne(Wrappers.<TtsImportJob>lambdaQuery()
+            .eq(TtsImportJob::getJobId, jobId));
+        if (job == null) {
+            throw new BusinessException("导入任务不存在: " + jobId);
+        }
+        return job;
+    }
+
+    @Override
+    public List<String> getItems(String jobId, String result, int limit) {
+        if (!ITEM_RESULTS.contains(result)) {
+            throw new BusinessException("不支持的处理结果: " + result);
+        }
+        getJob(jobId);
+        return itemMapper.selectList(Wrappers.<TtsImportItem>lambdaQuery()
+                .select(TtsImportItem::getProductId)
+                .eq(TtsImportItem::getJobId, jobId)
+                .eq(TtsImportItem::getResult, result)
+                .orderByAsc(TtsImportItem::getId)
+                .last("LIMIT " + Math.clamp(limit, 1, MAX_ITEMS)))
+            .stream()
+            .map(TtsImportItem::getProductId)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * 取消任务：上传中的任务由客户端中断上传取消
+     */
+    @Override
+    public TtsImportJob cancel(String jobId) {
+        TtsImportJob job = getJob(jobId);
+        int updated = jobMapper.update(null, Wrappers.<TtsImportJob>lambdaUpdate()
+            .set(TtsImportJob::getStatus, TtsImportJob.JobStatus.CANCELLED)
+            .eq(TtsImportJob::getId, job.getId())
+            .in(TtsImportJob::getStatus, TtsImportJob.JobStatus.PENDING, TtsImportJob.JobStatus.RUNNING));
+        if (updated == 0) {
+            throw new BusinessException("导入任务当前状态不能取消: " + jobId + " (" + job.getStatus() + ")");
+        }
+        log.info("取消商品导入任务 - 任务ID: {}, 原状态: {}", jobId, job.getStatus());
+        return getJob(jobId);
+    }
+
+    /**
+     * 继续任务：只有文件已完整上传（开始执行过或已取消）的任务可以继续
+     */
+    @Override
+    public TtsImportJob resume(String jobId) {
+        TtsImportJob job = getJob(jobId);
+        boolean resumable = TtsImportJob.JobStatus.CANCELLED.equals(job.getStatus())
+            || (TtsImportJob.JobStatus.FAILED.equals(job.getStatus()) && job.getStartedAt() != null);
+        if (!resumable) {
+            throw new BusinessException("导入任务当前状态不能继续: " + jobId + " (" + job.getStatus() + ")");
+        }
+        int updated = jobMapper.update(null, Wrappers.<TtsImportJob>lambdaUpdate()
+            .set(TtsImportJob::getStatus, TtsImportJob.JobStatus.PENDING)
+            .set(TtsImportJob::getErrorMessage, null)
+            .set(TtsImportJob::getHeartbeatTime, LocalDateTime.now())
+            .eq(TtsImportJob::getId, job.getId())
+            .eq(TtsImportJob::getStatus, job.getStatus()));
+        if (updated == 0) {
+            throw new BusinessException("导入任务状态已变化: " + jobId);
+        }
+        log.info("继续商品导入任务 - 任务ID: {}, 游标: {}", jobId, job.getCursorId());
+        dispatch();
+        return getJob(jobId);
+    }
+
+    /**
+     * 在导入线程中逐个执行可领取的任务；已在执行时只标记需要再扫描一次
+     */
+    @Override
+    public void dispatch() {
+        wakeUp = true;
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            importJobExecutor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            draining.set(false);
+            log.warn("导入线程池已关闭，跳过任务扫描");
+        }
+    }
+
+    private void drain() {
+        do {
+            try {
+                wakeUp = false;
+                abandonStaleUploads();
+                TtsImportJob job;
+                while (!Thread.currentThread().isInterrupted() && (job = claimNext()) != null) {
+                    run(job);
+                }
+            } catch (Exception e) {
+                log.error("扫描商品导入任务异常", e);
+            } finally {
+                draining.set(false);
+            }
+        } while (wakeUp && !Thread.currentThread().isInterrupted() && draining.compareAndSet(false, true));
+    }
+
+    /**
+     * 领取一个等待中或心跳超时的任务，以原状态和心跳时间为条件更新，多个实例同时领取时只有一个成功
+     */
+    private TtsImportJob claimNext() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minus(ttsApiProperties.getBulkImport().getStaleAfter());
+        List<TtsImportJob> candidates = jobMapper.selectList(Wrappers.<TtsImportJob>lambdaQuery()
+            .eq(TtsImportJob::getStatus, TtsImportJob.JobStatus.PENDING)
+            .or(stale -> stale.eq(TtsImportJob::getStatus, TtsImportJob.JobStatus.RUNNING)
+                .lt(TtsImportJob::getHeartbeatTime, staleBefore))
+            .orderByAsc(TtsImportJob::getId)
+            .last("LIMIT 10"));
+        for (TtsImportJob candidate : candidates) {
+            LocalDateTime startedAt = candidate.getStartedAt() != null ? candidate.getStartedAt() : now;
+            int updated = jobMapper.update(null, Wrappers.<TtsImportJob>lambdaUpdate()
+                .set(TtsImportJob::getStatus, TtsImportJob.JobStatus.RUNNING)
+                .set(TtsImportJob::getOwner, CheckRunService.OWNER)
+                .set(TtsImportJob::getHeartbeatTime, now)
+                .set(TtsImportJob::getStartedAt, startedAt)
+                .eq(TtsImportJob::getId, candidate.getId())
+                .eq(TtsImportJob::getStatus, candidate.getStatus())
+                .eq(TtsImportJob::getHeartbeatTime, candidate.getHeartbeatTime()));
+            if (updated > 0) {
+                log.info("领取商品导入任务 - 任务ID: {}, 原状态: {}, 原实例: {}, 游标: {}",
+                    candidate.getJobId(), candidate.getStatus(), candidate.getOwner(), candidate.getCursorId());
+                candidate.setStatus(TtsImportJob.JobStatus.RUNNING);
+                candidate.setOwner(CheckRunService.OWNER);
+                candidate.setHeartbeatTime(now);
+                candidate.setStartedAt(startedAt);
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 从游标处按页执行任务
+     * 应用关闭（线程被中断）时当前页不保存检查点，任务放回等待状态，重启后重新处理该页：
+     * 已写入的商品再次处理时计为已存在，不会重复新增
+     */
+    private void run(TtsImportJob job) {
+        int pageSize = Math.max(1, ttsApiProperties.getBulkImport().getPageSize());
+        long cursor = job.getCursorId() != null ? job.getCursorId() : 0L;
+        log.info("开始执行商品导入任务 - 任务ID: {}, 商品数: {}, 游标: {}", job.getJobId(), job.getTotalCount(), cursor);
+
+        AtomicBoolean lost = new AtomicBoolean();
+        ScheduledExecutorService heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("tts-import-heartbeat").daemon().factory());
+        long heartbeatMs = heartbeatInterval().toMillis();
+        heartbeatScheduler.scheduleWithFixedDelay(() -> heartbeat(job, lost), heartbeatMs, heartbeatMs,
+            TimeUnit.MILLISECONDS);
+        try {
+            while (true) {
+                List<TtsImportItem> page = itemMapper.selectPageAfter(job.getJobId(), cursor, pageSize);
+                if (page.isEmpty()) {
+                    complete(job);
+                    return;
+                }
+                List<String> productIds = page.stream().map(TtsImportItem::getProductId).collect(Collectors.toList());
+                ProductAddReport report = productService.addProducts(productIds);
+                if (Thread.currentThread().isInterrupted()) {
+                    release(job);
+                    return;
+                }
+                if (lost.get()) {
+                    log.info("商品导入任务已取消或被其他实例接管，停止执行 - 任务ID: {}", job.getJobId());
+                    return;
+                }
+
+                writeResults(job, report);
+                long lastId = page.get(page.size() - 1).getId();
+                if (!checkpoint(job, lastId, page.size(), report)) {
+                    log.info("商品导入任务已取消或被其他实例接管，停止执行 - 任务ID: {}", job.getJobId());
+                    return;
+                }
+                cursor = lastId;
+                log.debug("商品导入任务保存检查点 - 任务ID: {}, 游标: {}, 本页: {}", job.getJobId(), cursor, report.summary());
+            }
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                release(job);
+                return;
+            }
+            log.error("商品导入任务执行失败 - 任务ID: {}", job.getJobId(), e);
+            fail(job, e.getMessage());
+        } finally {
+            heartbeatScheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 心跳间隔，不超过心跳超时时间的三分之一，避免单次刷新失败或延迟就被其他实例接管
+     */
+    private Duration heartbeatInterval() {
+        TtsApiProperties.BulkImportConfig config = ttsApiProperties.getBulkImport();
+        Duration limit = config.getStaleAfter().dividedBy(3);
+        Duration interval = config.getHeartbeatInterval();
+        return interval.compareTo(limit) > 0 ? limit : interval;
+    }
+
+    /**
+     * 刷新心跳；以执行中且由本实例持有为条件，任务已取消或被接管时标记并停止刷新
+     * 刷新失败（数据库异常）只记录日志，等待下一次刷新
+     */
+    private void heartbeat(TtsImportJob job, AtomicBoolean lost) {
+        if (lost.get()) {
+            return;
+        }
+        try {
+            int updated = jobMapper.update(null, Wrappers.<TtsImportJob>lambdaUpdate()
+                .set(TtsImportJob::getHeartbeatTime, LocalDateTime.now())
+                .eq(TtsImportJob::getId, job.getId())
+                .eq(TtsImportJob::getStatus, TtsImportJob.JobStatus.RUNNING)
+                .eq(TtsImportJob::getOwner, CheckRunService.OWNER));
+            if (updated == 0) {
+                lost.set(true);
+            }
+        } catch (Exception e) {
+            log.warn("刷新商品导入任务心跳失败 - 任务ID: {}", job.getJobId(), e);
+        }
+    }
+
+    private void writeResults(TtsImportJob job, ProductAddReport report) {
+        writeResult(job, report.getAdded(), TtsImportItem.ItemResult.ADDED);
+        writeResult(job, report.getExisting(), TtsImportItem.ItemResult.EXISTING);
+        writeResult(job, report.getUnknown(), TtsImportItem.ItemResult.UNKNOWN);
+        writeResult(job, report.getFailed(), TtsImportItem.ItemResult.FAILED);
+    }
+
+    private void writeResult(TtsImportJob job, List<String> productIds, String result) {
+        if (!productIds.isEmpty()) {
+            itemMapper.batchUpdateResult(job.getJobId(), productIds, result);
+        }
+    }
+
+    /**
+     * 保存游标、累加计数并刷新心跳；以执行中且由本实例持有为条件，任务已取消或被接管时返回 false
+     */
+    private boolean checkpoint(TtsImportJob job, long lastId, int processed, ProductAddReport report) {
+        return jobMapper.update(null, Wrappers.<TtsImportJob>lambdaUpdate()
+            .set(TtsImportJob::getCursorId, lastId)
+            .setSql("processed_count = processed_count + " + processed)
+            .setSql("added_count = added_count + " + report.getAdded().size())
+            .setSql("existing_count = existing_count + " + report.getExisting().size())
+            .setSql("unknown_count = unknown_count + " + report.getUnknown().size())
+            .setSql("failed_count = failed_count + " + report.getFailed().size())
+            .set(TtsImportJob::getHeartbeatTime, LocalDateTime.now())
+            .eq(TtsImportJob::getId, job.getId())
+            .eq(TtsImportJob::getStatus, TtsImportJob.JobStatus.RUNNING)
+            .eq(TtsImportJob::getOwner, CheckRunService.OWNER)) > 0;
+    }
+
+    /**
+     * 标记任务完成，有新增商品时执行告警检查
+     */
+    private void complete(TtsImportJob job) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = jobMapper.update(null, Wrappers.<TtsImportJob>lambdaUpdate()
+            .set(TtsImportJob::getStatus, TtsImportJob.JobStatus.COMPLETED)
+            .set(TtsImportJob::getFinishedAt, now)
+            .set(TtsImportJob::getHeartbeatTime, now)
+            .eq(TtsImportJob::getId, job.getId())
+            .eq(TtsImportJob::getStatus, TtsImportJob.JobStatus.RUNNING)
+            .eq(TtsImportJob::getOwner, CheckRunService.OWNER));
+        if (updated == 0) {
+            return;
+        }
+
+        TtsImportJob finished = getJob(job.getJobId());
+        log.info("商品导入任务完成 - 任务ID: {}, 商品数: {}, 新增: {}, 已存在: {}, 无效: {}, 失败: {}",
+            finished.getJobId(), finished.getTotalCount(), finished.getAddedCount(), finished.getExistingCount(),
+            finished.getUnknownCount(), finished.getFailedCount());
+        if (finished.getAddedCount() != null && finished.getAddedCount() > 0) {
+            try {
+                alertService.executeAlert();
+            } catch (Exception e) {
+                log.error("导入商品后告警检查失败 - 任务ID: {}", finished.getJobId(), e);
+            }
+        }
+    }
+
+    private void fail(TtsImportJob job, String errorMessage) {
+        jobMapper.update(null, Wrappers.<TtsImportJob>lambdaUpdate()
+            .set(TtsImportJob::getStatus, TtsImportJob.JobStatus.FAILED)
+            .set(TtsImportJob::getErrorMessage, truncate(errorMessage))
+            .set(TtsImportJob::getHeartbeatTime, LocalDateTime.now())
+            .eq(TtsImportJob::getId, job.getId())
+            .eq(TtsImportJob::getStatus, TtsImportJob.JobStatus.RUNNING)
+            .eq(TtsImportJob::getOwner, CheckRunService.OWNER));
+    }
+
+    /**
+     * 应用关闭时把任务放回等待状态，重启后或其他实例无需等待心跳超时即可继续
+     */
+    private void release(TtsImportJob job) {
+        // 暂时清除中断标记，避免获取数据库连接失败
+        boolean interrupted = Thread.interrupted();
+        try {
+            jobMapper.update(null, Wrappers.<TtsImportJob>lambdaUpdate()
+                .set(TtsImportJob::getStatus, TtsImportJob.JobStatus.PENDING)
+                .eq(TtsImportJob::getId, job.getId())
+                .eq(TtsImportJob::getStatus, TtsImportJob.JobStatus.RUNNING)
+                .eq(TtsImportJob::getOwner, CheckRunService.OWNER));
+            log.info("应用关闭，商品导入任务停在检查点 - 任务ID: {}", job.getJobId());
+        } catch (Exception e) {
+            log.warn("释放商品导入任务失败，心跳超时后由其他实例继续 - 任务ID: {}", job.getJobId(), e);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 刷新上传进度；status 不为 null 时同时更新状态（以仍在上传中为条件）
+     *
+     * @return 是否更新成功
+     */
+    private boolean updateUploadProgress(TtsImportJob job, int staged, int duplicates, int invalidLines,
+                                         String status) {
+        return jobMapper.update(null, Wrappers.<TtsImportJob>lambdaUpdate()
+            .set(TtsImportJob::getTotalCount, staged)
+            .set(TtsImportJob::getDuplicateCount, duplicates)
+            .set(TtsImportJob::getInvalidLineCount, invalidLines)
+            .set(TtsImportJob::getHeartbeatTime, LocalDateTime.now())
+            .set(status != null, TtsImportJob::getStatus, status)
+            .eq(TtsImportJob::getId, job.getId())
+            .eq(TtsImportJob::getStatus, TtsImportJob.JobStatus.UPLOADING)) > 0;
+    }
+
+    /**
+     * 上传失败：任务标记为失败，删除已写入的暂存记录
+     */
+    private void abandonUpload(TtsImportJob job, String errorMessage) {
+        try {
+            jobMapper.update(null, Wrappers.<TtsImportJob>lambdaUpdate()
+                .set(TtsImportJob::getStatus, TtsImportJob.JobStatus.FAILED)
+                .set(TtsImportJob::getErrorMessage, truncate(errorMessage))
+                .set(TtsImportJob::getFinishedAt, LocalDateTime.now())
+                .eq(TtsImportJob::getId, job.getId())
+                .eq(TtsImportJob::getStatus, TtsImportJob.JobStatus.UPLOADING));
+            itemMapper.delete(Wrappers.<TtsImportItem>lambdaQuery().eq(TtsImportItem::getJobId, job.getJobId()));
+        } catch (Exception e) {
+            log.error("清理上传失败的导入任务失败 - 任务ID: {}", job.getJobId(), e);
+        }
+    }
+
+    /**
+     * 上传中心跳超时的任务（所在实例在上传期间退出）标记为失败
+     */
+    private void abandonStaleUploads() {
+        LocalDateTime staleBefore = LocalDateTime.now().minus(ttsApiProperties.getBulkImport().getStaleAfter());
+        List<TtsImportJob> stale = jobMapper.selectList(Wrappers.<TtsImportJob>lambdaQuery()
+            .eq(TtsImportJob::getStatus, TtsImportJob.JobStatus.UPLOADING)
+            .lt(TtsImportJob::getHeartbeatTime, staleBefore));
+        for (TtsImportJob job : stale) {
+            log.info("上传中断的商品导入任务标记为失败 - 任务ID: {}, 实例: {}", job.getJobId(), job.getOwner());
+            abandonUpload(job, "上传中断，请重新上传");
+        }
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 512 ? message.substring(0, 512) : message;
+    }
+}
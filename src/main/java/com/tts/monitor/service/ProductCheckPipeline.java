@@ -0,0 +1,539 @@
+package com.tts.monitor.service;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.tts.monitor.entity.TtsProductMonitor;
+import com.tts.monitor.mapper.TtsProductMonitorMapper;
+import com.tts.monitor.util.CircuitBreaker;
+import com.tts.monitor.util.TtsCredential;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 商品校验流水线（单次运行）
+ * 生产者（按区间读取数据库分页）→ 分发器（切分批次、获取令牌）→ Worker（调用 TTS API）→ 写回器（合并写库）
+ * 生产者预取下一页，分发器在批次之间不等待整页完成，只受在途批次数和令牌桶限制，
+ * 运行全程保持配置的 QPS。批次写回完成后推进检查点，时间预算用完时停止分发并在检查点处结束。
+ * TTS API 熔断时暂停分发，超过最长暂停时间或有批次因熔断延后时停止分发，在检查点处结束，下次运行继续
+ *
+ */
+@Slf4j
+public class ProductCheckPipeline {
+
+    /**
+     * 分发器轮询预取队列的间隔
+     */
+    private static final long POLL_INTERVAL_MS = 200;
+
+    private final TtsProductMonitorMapper productMapper;
+    private final CheckExecution execution;
+    private final RateLimiter rateLimiter;
+    private final CredentialPool credentialPool;
+    private final BatchChecker batchChecker;
+    private final AsyncBatchChecker asyncBatchChecker;
+    private final CheckResultWriter writer;
+    private final CheckpointTracker checkpointTracker;
+    private final int pageSize;
+    private final int batchSize;
+    private final AdaptiveBatchSizer batchSizer;
+    private final int maxInFlight;
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * 熔断时暂停分发的最长时间（纳秒）
+     */
+    private final long maxPauseNanos;
+
+    /**
+     * 单次运行的截止时间（纳秒），超时后取消剩余批次，0 表示不限制
+     */
+    private final long deadlineNanos;
+
+    /**
+     * 单次运行的时间预算（纳秒），用完后停止分发、等待在途批次完成，0 表示不限制
+     */
+    private final long budgetNanos;
+
+    /**
+     * 预取的数据库分页
+     */
+    private final BlockingQueue<Page> pageQueue;
+
+    /**
+     * 在途批次许可，分发器获取、Worker 完成后释放
+     */
+    private final Semaphore inFlight;
+
+    private final CheckCounters counters;
+    private final AtomicInteger activeProducers = new AtomicInteger();
+    private final AtomicReference<Throwable> producerError = new AtomicReference<>();
+    private volatile boolean cancelled = false;
+    private volatile boolean stopped = false;
+    private int batchSequence = 0;
+
+    @Builder
+    private ProductCheckPipeline(TtsProductMonitorMapper productMapper,
+                                 CheckExecution execution,
+                                 RateLimiter rateLimiter,
+                                 CredentialPool credentialPool,
+                                 BatchChecker batchChecker,
+                                 AsyncBatchChecker asyncBatchChecker,
+                                 CheckResultWriter writer,
+                                 CheckpointTracker checkpointTracker,
+                                 int pageSize,
+                                 int batchSize,
+                                 AdaptiveBatchSizer batchSizer,
+                                 int prefetchPages,
+                                 int maxInFlight,
+                                 Duration runTimeout,
+                                 Duration timeBudget,
+                                 CircuitBreaker circuitBreaker,
+                                 Duration maxPause,
+                                 CheckCounters counters) {
+        this.productMapper = productMapper;
+        this.execution = execution;
+        this.rateLimiter = rateLimiter;
+        this.credentialPool = credentialPool;
+        this.batchChecker = batchChecker;
+        this.asyncBatchChecker = asyncBatchChecker;
+        this.writer = writer;
+        this.checkpointTracker = checkpointTracker;
+        this.pageSize = pageSize;
+        this.batchSize = batchSize;
+        this.batchSizer = batchSizer;
+        this.maxInFlight = maxInFlight;
+        this.pageQueue = new ArrayBlockingQueue<>(Math.max(1, prefetchPages));
+        this.inFlight = new Semaphore(maxInFlight);
+        this.counters = counters != null ? counters : new CheckCounters();
+        this.deadlineNanos = toDeadline(runTimeout);
+        this.budgetNanos = toDeadline(timeBudget);
+        this.circuitBreaker = circuitBreaker;
+        this.maxPauseNanos = maxPause != null ? maxPause.toNanos() : 0;
+    }
+
+    /**
+     * 执行流水线，直到所有区间读取完毕且在途批次全部完成
+     *
+     * @param ranges 主键区间，每个区间一个生产者线程
+     * @return 校验结果统计
+     */
+    public ProductCheckService.CheckResult run(List<ProductIdCursor.IdRange> ranges) {
+        List<Thread> producers = startProducers(ranges);
+        boolean interrupted = false;
+        boolean timedOut = false;
+
+        try {
+            timedOut = !dispatch();
+            if (stopped) {
+                // 时间预算用完：停止读取，已分发的批次照常完成并写回
+                producers.forEach(Thread::interrupt);
+            }
+            timedOut = timedOut || !awaitInFlight();
+            if (timedOut) {
+                log.error("校验运行超时，取消剩余批次");
+            }
+        } catch (InterruptedException e) {
+            log.error("校验流水线被中断");
+            interrupted = true;
+            Thread.currentThread().interrupt();
+        }
+
+        if (timedOut || interrupted || cancelled) {
+            cancel();
+            producers.forEach(Thread::interrupt);
+            // 已取消的批次很快退出，等它们释放许可后再返回，避免关闭写回器后仍有批次提交结果
+            awaitCancelled();
+        }
+
+        ProductCheckService.CheckResult result = counters.snapshot();
+        result.setStopped(stopped);
+        Throwable error = producerError.get();
+        if (error != null) {
+            result.setSuccess(false);
+            result.setErrorMessage("读取商品分页失败: " + error.getMessage());
+        } else if (timedOut) {
+            result.setSuccess(false);
+            result.setErrorMessage("校验运行超时");
+        } else if (interrupted || cancelled) {
+            result.setSuccess(false);
+            result.setErrorMessage("校验运行已取消");
+        }
+        return result;
+    }
+
+    /**
+     * 取消本次运行：停止分发，已排队的批次跳过，正在执行的批次交由执行方式处理
+     */
+    public void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+            execution.cancel();
+        }
+    }
+
+    /**
+     * 当前计数快照
+     */
+    public ProductCheckService.CheckResult progress() {
+        return counters.snapshot();
+    }
+
+    /**
+     * 为每个区间启动一个生产者线程
+     */
+    private List<Thread> startProducers(List<ProductIdCursor.IdRange> ranges) {
+        activeProducers.set(ranges.size());
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            final ProductIdCursor.IdRange range = ranges.get(i);
+            final int rangeIndex = i;
+            producers.add(Thread.ofPlatform()
+                .name("tts-producer-" + rangeIndex)
+                .start(() -> produce(range, rangeIndex)));
+        }
+        return producers;
+    }
+
+    /**
+     * 生产者：按游标逐页读取，预取队列满时阻塞
+     */
+    private void produce(ProductIdCursor.IdRange range, int rangeIndex) {
+        ProductIdCursor cursor = new ProductIdCursor(productMapper, range, pageSize);
+        try {
+            while (producerError.get() == null && !cancelled && !stopped) {
+                List<TtsProductMonitor> rows = cursor.nextPage();
+                if (rows.isEmpty()) {
+                    break;
+                }
+                pageQueue.put(new Page(rangeIndex, rows));
+                log.debug("区间 {} 预取一页 - 商品数: {}, 游标: {}", rangeIndex, rows.size(), cursor.getLastId());
+            }
+            log.info("区间 {} 读取结束 - 游标: {}", rangeIndex, cursor.getLastId());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            if (stopped || cancelled) {
+                // 停止或取消时中断读取引发的异常，不计为读取失败
+                log.debug("区间 {} 读取已中止 - 游标: {}", rangeIndex, cursor.getLastId());
+            } else {
+                log.error("区间 {} 读取失败 - 游标: {}", rangeIndex, cursor.getLastId(), e);
+                producerError.compareAndSet(null, e);
+            }
+        } finally {
+            activeProducers.decrementAndGet();
+        }
+    }
+
+    /**
+     * 分发器：取出预取的分页，切分批次，获取在途许可和令牌后提交给 Worker
+     *
+     * @return 是否在截止时间前分发完毕（时间预算用完视为正常结束）
+     */
+    private boolean dispatch() throws InterruptedException {
+        int page = 0;
+        while (!cancelled) {
+            Page next = pageQueue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            if (next == null) {
+                // 生产者先入队再递减计数，此处计数为 0 且队列为空即表示已读完
+                if (activeProducers.get() == 0 && pageQueue.isEmpty()) {
+                    break;
+                }
+                if (isExpired()) {
+                    return false;
+                }
+                continue;
+            }
+
+            page++;
+            List<TtsProductMonitor> rows = next.rows();
+            for (int i = 0, end; i < rows.size(); i = end) {
+                // 自适应时按当前批次大小和 URL 字节预算切分
+                end = batchSizer != null
+                    ? batchSizer.pack(rows, i, TtsProductMonitor::getProductId)
+                    : Math.min(i + batchSize, rows.size());
+                List<TtsProductMonitor> batch = rows.subList(i, end);
+                if (isExpired()) {
+                    return false;
+                }
+                if (isBudgetSpent()) {
+                    // 未分发的批次不登记检查点，恢复时从已写回的位置继续
+                    log.info("校验运行时间预算已用完，停止分发");
+                    stopped = true;
+                    return true;
+                }
+                if (cancelled) {
+                    return true;
+                }
+                if (!awaitCircuit()) {
+                    if (cancelled) {
+                        return true;
+                    }
+                    if (isExpired()) {
+                        return false;
+                    }
+                    log.warn("TTS API 熔断超过最长暂停时间，停止分发");
+                    stopped = true;
+                    return true;
+                }
+                if (stopped) {
+                    // 有批次因熔断延后，后续批次不再分发
+                    return true;
+                }
+                if (!acquireInFlight()) {
+                    return false;
+                }
+                TtsCredential credential = null;
+                if (credentialPool != null) {
+                    // 凭证池：从有空闲令牌的健康凭证获取令牌（Retry-After 暂停的凭证跳过），批次用该凭证发出请求
+                    try {
+                        credential = credentialPool.acquire();
+                    } catch (InterruptedException e) {
+                        inFlight.release();
+                        throw e;
+                    }
+                } else {
+                    rateLimiter.acquire();
+                }
+                counters.addTotal(batch.size());
+                int batchLastId = batch.get(batch.size() - 1).getId();
+                if (checkpointTracker != null) {
+                    checkpointTracker.register(next.rangeIndex(), batchLastId);
+                }
+                submit(batch, batchSequence++, credential, next.rangeIndex(), batchLastId);
+            }
+
+            ProductCheckService.CheckResult progress = counters.snapshot();
+            log.info("第 {} 页已分发 - 已分发: {}, 已校验: {}, 有效: {}, 失效: {}, 失败: {}, 批次大小: {}",
+                page, progress.getTotalCount(), progress.getCheckedCount(),
+                progress.getValidCount(), progress.getInvalidCount(), progress.getFailedCount(),
+                batchSizer != null ? batchSizer.getCurrentSize() : batchSize);
+        }
+        return true;
+    }
+
+    /**
+     * 提交单个批次给 Worker
+     * 处理失败、被拒绝或取消的批次只计入失败，不推进检查点，恢复时重新校验
+     */
+    private void submit(List<TtsProductMonitor> batch, int batchIndex, TtsCredential credential,
+                        int rangeIndex, int batchLastId) {
+        BatchRef ref = new BatchRef(rangeIndex, batchLastId, batch.size());
+        if (asyncBatchChecker != null) {
+            submitAsync(batch, batchIndex, credential, ref);
+            return;
+        }
+        try {
+            execution.execute(() -> {
+                try {
+                    if (cancelled) {
+                        counters.addFailed(batch.size());
+                        return;
+                    }
+                    complete(batchChecker.check(batch, batchIndex, credential), ref);
+                } catch (Exception e) {
+                    log.error("批次 {} 处理失败", batchIndex, e);
+                    counters.addFailed(batch.size());
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.error("批次 {} 提交被拒绝", batchIndex, e);
+            counters.addFailed(batch.size());
+            inFlight.release();
+        }
+    }
+
+    /**
+     * 异步提交单个批次，在途许可在 Future 完成时释放
+     */
+    private void submitAsync(List<TtsProductMonitor> batch, int batchIndex, TtsCredential credential, BatchRef ref) {
+        CompletableFuture<ProductCheckService.BatchCheckResult> future;
+        try {
+            future = asyncBatchChecker.checkAsync(batch, batchIndex, credential);
+        } catch (Exception e) {
+            log.error("批次 {} 提交失败", batchIndex, e);
+            counters.addFailed(batch.size());
+            inFlight.release();
+            return;
+        }
+
+        future.whenComplete((batchResult, e) -> {
+            try {
+                if (e != null) {
+                    log.error("批次 {} 处理失败", batchIndex, e);
+                    counters.addFailed(batch.size());
+                } else {
+                    complete(batchResult, ref);
+                }
+            } catch (Exception writeError) {
+                log.error("批次 {} 写回提交失败", batchIndex, writeError);
+                counters.addFailed(batch.size());
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * 累加批次结果并交给写回器，写回完成后推进检查点（检查点同时累加该批次的计数）
+     */
+    private void complete(ProductCheckService.BatchCheckResult batchResult, BatchRef ref)
+            throws InterruptedException {
+        if (batchResult.isDeferred()) {
+            // 不推进检查点，停止分发后在检查点处结束
+            stopped = true;
+            return;
+        }
+        counters.add(batchResult);
+        Runnable onDurable = () -> {
+            if (checkpointTracker != null) {
+                checkpointTracker.complete(ref.rangeIndex(), ref.batchLastId(), ref.size(), batchResult);
+            }
+        };
+        if (writer == null) {
+            onDurable.run();
+            return;
+        }
+        writer.submit(batchResult.getChangedRows(), batchResult.getUnchangedIds(), onDurable);
+    }
+
+    /**
+     * 熔断打开时暂停分发，直到熔断恢复
+     *
+     * @return 是否恢复；取消、超时、时间预算用完或超过最长暂停时间时返回 false
+     */
+    private boolean awaitCircuit() throws InterruptedException {
+        if (circuitBreaker == null || circuitBreaker.isCallPermitted()) {
+            return true;
+        }
+        log.warn("TTS API 熔断中，暂停分发");
+        long pauseStart = System.nanoTime();
+        while (!circuitBreaker.awaitCallPermitted(Duration.ofMillis(POLL_INTERVAL_MS))) {
+            if (cancelled || isExpired() || isBudgetSpent()
+                || (maxPauseNanos != 0 && System.nanoTime() - pauseStart > maxPauseNanos)) {
+                return false;
+            }
+        }
+        log.info("TTS API 熔断恢复，继续分发 - 暂停 {}s", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - pauseStart));
+        return true;
+    }
+
+    /**
+     * 获取一个在途许可，等待时间不超过本次运行的截止时间
+     *
+     * @return 是否在截止时间前获取到
+     */
+    private boolean acquireInFlight() throws InterruptedException {
+        if (deadlineNanos == 0) {
+            inFlight.acquire();
+            return true;
+        }
+        return inFlight.tryAcquire(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 等待所有在途批次完成
+     *
+     * @return 是否在截止时间前全部完成
+     */
+    private boolean awaitInFlight() throws InterruptedException {
+        if (deadlineNanos == 0) {
+            inFlight.acquire(maxInFlight);
+        } else if (!inFlight.tryAcquire(maxInFlight, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        inFlight.release(maxInFlight);
+        return true;
+    }
+
+    /**
+     * 取消后等待在途批次退出（不受截止时间限制）
+     * 同步批次已被取消或中断，异步批次受单次请求超时限制，都会在有限时间内释放许可
+     */
+    private void awaitCancelled() {
+        int pending = maxInFlight - inFlight.availablePermits();
+        if (pending > 0) {
+            log.warn("等待已取消的在途批次退出 - 数量: {}", pending);
+        }
+        inFlight.acquireUninterruptibly(maxInFlight);
+        inFlight.release(maxInFlight);
+    }
+
+    /**
+     * 是否已超过本次运行的截止时间
+     */
+    private boolean isExpired() {
+        return deadlineNanos != 0 && System.nanoTime() - deadlineNanos > 0;
+    }
+
+    /**
+     * 是否已用完本次运行的时间预算
+     */
+    private boolean isBudgetSpent() {
+        return budgetNanos != 0 && System.nanoTime() - budgetNanos > 0;
+    }
+
+    private static long toDeadline(Duration duration) {
+        return duration == null || duration.isZero() ? 0 : System.nanoTime() + duration.toNanos();
+    }
+
+    /**
+     * 已分发批次在检查点中的位置
+     */
+    private record BatchRef(int rangeIndex, int batchLastId, int size) {
+    }
+
+    /**
+     * 预取的一页商品及其所属区间
+     */
+    private record Page(int rangeIndex, List<TtsProductMonitor> rows) {
+    }
+
+    /**
+     * 单批次校验逻辑
+     */
+    @FunctionalInterface
+    public interface BatchChecker {
+
+        /**
+         * 校验一个批次的商品，结果中携带待写回的商品
+         *
+         * @param batch 批次商品（包含 id、product_id）
+         * @param batchIndex 批次序号
+         * @param credential 分发器获取令牌时选定的凭证，未使用凭证池时为 null
+         * @return 批次校验结果
+         */
+        ProductCheckService.BatchCheckResult check(List<TtsProductMonitor> batch, int batchIndex,
+                                                   TtsCredential credential);
+    }
+
+    /**
+     * 单批次异步校验逻辑
+     */
+    @FunctionalInterface
+    public interface AsyncBatchChecker {
+
+        /**
+         * 异步校验一个批次的商品，结果中携带待写回的商品
+         *
+         * @param batch 批次商品（包含 id、product_id）
+         * @param batchIndex 批次序号
+         * @param credential 分发器获取令牌时选定的凭证，未使用凭证池时为 null
+         * @return 批次校验结果
+         */
+        CompletableFuture<ProductCheckService.BatchCheckResult> checkAsync(List<TtsProductMonitor> batch, int batchIndex,
+                                                                           TtsCredential credential);
+    }
+}
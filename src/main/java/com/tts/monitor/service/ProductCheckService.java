@@ -1,21 +1,31 @@
 package com.tts.monitor.service;
 
-import com.google.common.util.concurrent.RateLimiter;
 import com.tts.monitor.config.TtsApiProperties;
 import com.tts.monitor.dto.tts.TtsApiResponse;
+import com.tts.monitor.entity.TtsCheckLease;
+import com.tts.monitor.entity.TtsCheckRun;
 import com.tts.monitor.entity.TtsProductMonitor;
+import com.tts.monitor.exception.BusinessException;
 import com.tts.monitor.mapper.TtsProductMonitorMapper;
+import com.tts.monitor.util.ProductSnapshotHasher;
 import com.tts.monitor.util.TtsApiClient;
+import com.tts.monitor.util.TtsCredential;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import java.time.LocalDateTime;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 /**
@@ -30,257 +40,711 @@ public class ProductCheckService implements IProductCheckService {
     private final TtsApiClient ttsApiClient;
     private final TtsApiProperties ttsApiProperties;
     private final ThreadPoolExecutor productCheckExecutor;
+    private final ICheckRunService checkRunService;
+    private final ICheckLeaseService checkLeaseService;
     
-    // 令牌桶限流器
-    private final RateLimiter rateLimiter;
+    // 自适应速率控制，根据接口反馈调整令牌桶速率（与新增商品共用）
+    private final CredentialPool credentialPool;
+
+    // 批次重试、拆分和补查
+    private final BatchResolver batchResolver;
+
+    // 商品信息缓存，校验结果只刷新已缓存的商品
+    private final ProductInfoCache productInfoCache;
+
+    // 自适应批次大小，跨运行保留学习到的大小
+    private final AdaptiveBatchSizer batchSizer;
 
     public ProductCheckService(
             TtsProductMonitorMapper productMapper,
             TtsApiClient ttsApiClient,
             TtsApiProperties ttsApiProperties,
-            @Qualifier("productCheckExecutor") ThreadPoolExecutor productCheckExecutor) {
+            @Qualifier("productCheckExecutor") ThreadPoolExecutor productCheckExecutor,
+            ICheckRunService checkRunService,
+            ICheckLeaseService checkLeaseService,
+            CredentialPool credentialPool,
+            ProductInfoCache productInfoCache,
+            ObjectProvider<MeterRegistry> meterRegistry) {
         this.productMapper = productMapper;
         this.ttsApiClient = ttsApiClient;
         this.ttsApiProperties = ttsApiProperties;
         this.productCheckExecutor = productCheckExecutor;
-        
-        // 初始化令牌桶，每秒固定产生指定数量的令牌
-        int qps = ttsApiProperties.getRateLimit().getQps();
-        this.rateLimiter = RateLimiter.create(qps);
-        log.info("初始化令牌桶限流器 - QPS: {}", qps);
+        this.checkRunService = checkRunService;
+        this.checkLeaseService = checkLeaseService;
+        this.credentialPool = credentialPool;
+        this.productInfoCache = productInfoCache;
+        this.batchResolver = new BatchResolver(ttsApiClient, credentialPool, ttsApiProperties.getRetry(),
+            ttsApiProperties.getCircuitBreaker().getMaxPause());
+
+        TtsApiProperties.BatchConfig batchConfig = ttsApiProperties.getBatch();
+        this.batchSizer = new AdaptiveBatchSizer(batchConfig.getAdaptive(), batchConfig.getSize(),
+            ttsApiClient.urlOverheadBytes());
+        meterRegistry.ifAvailable(this::registerBatchMetrics);
+        meterRegistry.ifAvailable(this::registerRateMetrics);
+    }
+
+    /**
+     * 注册请求速率指标（/actuator/metrics/tts.check.rate.effective 等）
+     */
+    private void registerRateMetrics(MeterRegistry registry) {
+        Gauge.builder("tts.check.rate.effective", credentialPool, CredentialPool::getRate)
+            .description("当前生效的请求速率（QPS）")
+            .register(registry);
+        Gauge.builder("tts.check.rate.ceiling", credentialPool, CredentialPool::getCeiling)
+            .description("请求速率上限（QPS）")
+            .register(registry);
+        Gauge.builder("tts.check.rate.paused", credentialPool, pool -> pool.isPaused() ? 1 : 0)
+            .description("是否所有凭证都处于 Retry-After 暂停中")
+            .register(registry);
+        Gauge.builder("tts.check.rate.credentials.healthy", credentialPool, CredentialPool::getHealthyCount)
+            .description("在轮换中的凭证数")
+            .register(registry);
+        FunctionCounter.builder("tts.check.rate.throttled", credentialPool, CredentialPool::getThrottledCount)
+            .description("收到限流或拥塞反馈的次数")
+            .register(registry);
     }
 
     /**
-     * 执行全量商品校验
+     * 注册批次大小指标（/actuator/metrics/tts.check.batch.size 等）
+     */
+    private void registerBatchMetrics(MeterRegistry registry) {
+        Gauge.builder("tts.check.batch.size", batchSizer, AdaptiveBatchSizer::getCurrentSize)
+            .description("每次请求的商品 ID 数量")
+            .register(registry);
+        Gauge.builder("tts.check.batch.ceiling", batchSizer, AdaptiveBatchSizer::getCeiling)
+            .description("批次大小上限（检测到截断后降低）")
+            .register(registry);
+        Gauge.builder("tts.check.batch.latency", batchSizer, AdaptiveBatchSizer::getLatencyMillis)
+            .description("请求耗时的指数移动平均")
+            .baseUnit("milliseconds")
+            .register(registry);
+        Gauge.builder("tts.check.batch.url.bytes", batchSizer, AdaptiveBatchSizer::getLastUrlBytes)
+            .description("最近一次切分批次的 URL 字节数")
+            .baseUnit("bytes")
+            .register(registry);
+        FunctionCounter.builder("tts.check.batch.truncated", batchSizer, AdaptiveBatchSizer::getTruncatedCount)
+            .description("检测到接口返回被截断的次数")
+            .register(registry);
+    }
+
+    /**
+     * 执行全量商品校验（同步执行，不经过运行协调）
+     * 最近一次运行未完成（时间预算用完、失败或实例退出）时从其检查点继续
      * 
      * @return 校验结果统计
      */
     public CheckResult executeProductCheck() {
+        try {
+            return executeRun(prepareRun(null), null);
+        } catch (Exception e) {
+            log.error("商品校验任务执行失败", e);
+            CheckResult result = new CheckResult();
+            result.setSuccess(false);
+            result.setErrorMessage(e.getMessage());
+            return result;
+        }
+    }
+
+    /**
+     * 准备校验运行：接管指定或最近一次未完成的运行，没有时按主键切分区间创建新运行
+     * 集群模式下加入当前未完成的运行，由各实例领取区间租约
+     *
+     * @param runId 要继续的运行 ID，为 null 时自动查找
+     * @return 运行计划
+     */
+    public CheckRunPlan prepareRun(String runId) {
+        if (ttsApiProperties.getCheck().getCluster().getEnabled()) {
+            return prepareClusterRun(runId);
+        }
+
+        TtsCheckRun run = runId != null ? checkRunService.claim(runId) : checkRunService.claimResumable();
+        CheckRunPlan plan = new CheckRunPlan();
+        if (run != null) {
+            plan.setRun(run);
+            plan.setRanges(checkRunService.getRanges(run));
+            plan.setBaseline(checkRunService.getProgress(run));
+            log.info("从检查点继续校验 - 运行ID: {}, 区间游标: {}", run.getRunId(), plan.getRanges());
+        } else {
+            // 按主键切分区间，不再预先 COUNT(*) 全表
+            int parallelism = ttsApiProperties.getBatch().getRangeParallelism();
+            List<ProductIdCursor.IdRange> ranges = ProductIdCursor.splitRanges(productMapper, parallelism);
+            plan.setRun(checkRunService.create(ranges));
+            plan.setRanges(ranges);
+            plan.setBaseline(new CheckResult());
+        }
+        plan.getBaseline().setRunId(plan.getRunId());
+        return plan;
+    }
+
+    /**
+     * 准备集群模式的校验运行：已有未完成的运行时加入，否则创建运行和区间租约；
+     * 多个实例同时创建时只有一个成功，其余实例加入该运行
+     */
+    private CheckRunPlan prepareClusterRun(String runId) {
+        TtsCheckRun run = checkRunService.findActive();
+        if (run != null && checkRunService.abandonIfExpired(run)) {
+            run = null;
+        }
+        if (runId != null && (run == null || !runId.equals(run.getRunId()))) {
+            throw new BusinessException("集群模式下只能继续当前未完成的运行");
+        }
+
+        if (run == null) {
+            int leaseCount = ttsApiProperties.getCheck().getCluster().getLeaseCount();
+            List<ProductIdCursor.IdRange> ranges = ProductIdCursor.splitRanges(productMapper, leaseCount);
+            try {
+                run = checkLeaseService.createRun(ranges);
+            } catch (DuplicateKeyException e) {
+                run = checkRunService.findActive();
+                if (run == null) {
+                    throw new BusinessException("创建校验运行冲突，请稍后重试");
+                }
+                log.info("其他实例已创建校验运行，加入运行 - 运行ID: {}", run.getRunId());
+            }
+        } else {
+            log.info("加入未完成的校验运行 - 运行ID: {}, 状态: {}", run.getRunId(), run.getStatus());
+        }
+
+        CheckRunPlan plan = new CheckRunPlan();
+        plan.setRun(run);
+        plan.setRanges(List.of());
+        plan.setBaseline(checkRunService.getProgress(run));
+        plan.setCluster(true);
+        return plan;
+    }
+
+    /**
+     * 执行校验运行
+     *
+     * @param plan 运行计划
+     * @param task 运行任务，用于上报进度和响应取消，可为 null
+     * @return 校验结果统计
+     */
+    public CheckResult executeRun(CheckRunPlan plan, CheckTask task) {
+        if (plan.isCluster()) {
+            return executeClusterRun(plan, task);
+        }
+
         log.info("========== 开始执行商品校验任务 ==========");
         long startTime = System.currentTimeMillis();
+        ttsApiClient.prewarm();
+        long wireStart = ttsApiClient.getWireBytes();
+        long decodedStart = ttsApiClient.getDecodedBytes();
         
+        TtsCheckRun run = plan.getRun();
+        List<ProductIdCursor.IdRange> ranges = plan.getRanges();
         CheckResult result = new CheckResult();
+        result.setRunId(run.getRunId());
         
         try {
-            // 统计总商品数
-            Long totalCount = productMapper.selectCount(null);
-            log.info("商品总数: {}", totalCount);
-            
-            if (totalCount == 0) {
+            CheckCounters counters = new CheckCounters(plan.getBaseline());
+
+            if (ranges.isEmpty()) {
                 log.warn("没有需要校验的商品");
+                checkRunService.finish(run, TtsCheckRun.RunStatus.COMPLETED, ranges, result);
                 return result;
             }
-            
-            result.setTotalCount(totalCount.intValue());
-            
-            // 分页参数
-            int pageSize = ttsApiProperties.getBatch().getPageSize();
-            int batchSize = ttsApiProperties.getBatch().getSize();
-            int totalPages = (int) Math.ceil((double) totalCount / pageSize);
-            
-            log.info("分页参数 - 每页: {}, 批次大小: {}, 总页数: {}", pageSize, batchSize, totalPages);
-            
-            // 分页加载并处理
-            for (int page = 0; page < totalPages; page++) {
-                int offset = page * pageSize;
-                log.info("处理第 {}/{} 页 - offset: {}, limit: {}", page + 1, totalPages, offset, pageSize);
-                
-                // 查询当前页的商品ID列表
-                List<String> productIds = productMapper.selectProductIdsByPage(offset, pageSize);
-                
-                if (productIds.isEmpty()) {
-                    log.warn("第 {} 页没有查询到商品", page + 1);
-                    continue;
-                }
-                
-                // 处理当前页的商品
-                CheckResult pageResult = processProductBatch(productIds, batchSize);
-                result.merge(pageResult);
-                
-                log.info("第 {}/{} 页处理完成 - 已处理: {}, 有效: {}, 失效: {}", 
-                    page + 1, totalPages, pageResult.getCheckedCount(), 
-                    pageResult.getValidCount(), pageResult.getInvalidCount());
+
+            // 检查点只保存已写回前缀的计数，恢复时重新校验的批次不会重复计数
+            CheckCounters committed = new CheckCounters(plan.getBaseline());
+            CheckpointTracker tracker = new CheckpointTracker(ranges, committed);
+            result = runPipeline(ranges, counters, tracker, task, ttsApiProperties.getCheck().getTimeBudget(),
+                () -> saveCheckpoint(run, tracker, committed));
+            result.setRunId(run.getRunId());
+
+            // 保存最终检查点：可继续的运行保存已写回前缀的计数，其余保存全部计数
+            String status = task != null && task.isCancelRequested() ? TtsCheckRun.RunStatus.CANCELLED
+                : !result.isSuccess() ? TtsCheckRun.RunStatus.FAILED
+                : result.isStopped() ? TtsCheckRun.RunStatus.STOPPED
+                : TtsCheckRun.RunStatus.COMPLETED;
+            CheckResult saved = result;
+            if (TtsCheckRun.RunStatus.FAILED.equals(status) || TtsCheckRun.RunStatus.STOPPED.equals(status)) {
+                saved = committed.snapshot();
+                saved.setErrorMessage(result.getErrorMessage());
             }
+            checkRunService.finish(run, status, tracker.snapshot(), saved);
             
             long duration = System.currentTimeMillis() - startTime;
             result.setDuration(duration);
-            
-            log.info("========== 商品校验任务完成 ==========");
-            log.info("总计 - 商品总数: {}, 已校验: {}, 有效: {}, 失效: {}, 失败: {}, 耗时: {}ms", 
-                result.getTotalCount(), result.getCheckedCount(), 
-                result.getValidCount(), result.getInvalidCount(), 
-                result.getFailedCount(), duration);
-            
+            result.setWireBytes(ttsApiClient.getWireBytes() - wireStart);
+            result.setDecodedBytes(ttsApiClient.getDecodedBytes() - decodedStart);
+            logSummary(result);
             return result;
             
         } catch (Exception e) {
-            log.error("商品校验任务执行失败", e);
+            log.error("商品校验任务执行失败 - 运行ID: {}", run.getRunId(), e);
             result.setSuccess(false);
             result.setErrorMessage(e.getMessage());
+            try {
+                // 未保存最终检查点，保留上一次定期保存的游标
+                checkRunService.fail(run, e.getMessage());
+            } catch (Exception finishError) {
+                log.warn("更新校验运行状态失败 - 运行ID: {}", run.getRunId(), finishError);
+            }
             return result;
         }
     }
 
     /**
-     * 按分页处理商品
-     * 按 batchSize 分割批次，一次TTS请求查询batchSize个商品，并发调用TTS API校验商品状态
+     * 执行集群模式的校验运行
+     * 循环领取区间租约并校验，区间完成后标记租约完成；时间预算用完、取消或失败时保存游标并释放租约。
+     * 没有可领取的租约但仍有区间未完成时，等待其他实例完成或租约过期后接管。
+     * 计数以增量方式累加到运行记录，全局 QPS 按持有租约的实例数均分
      */
-    private CheckResult processProductBatch(List<String> productIds, int batchSize) {
-        CheckResult result = new CheckResult();
-        
-        List<List<String>> batches = partitionList(productIds, batchSize);
-        log.debug("将 {} 个商品分成 {} 个批次", productIds.size(), batches.size());
-        
-        // 使用CountDownLatch等待所有批次完成
-        CountDownLatch latch = new CountDownLatch(batches.size());
-        
-        // 并发结果收集
-        List<BatchCheckResult> batchResults = new CopyOnWriteArrayList<>();
-        
-        // 提交所有批次任务到线程池
-        for (int i = 0; i < batches.size(); i++) {
-            final List<String> batch = batches.get(i);
-            final int batchIndex = i;
-            
-            // 提交任务（队列满时会阻塞）
-            productCheckExecutor.execute(() -> {
-                try {
-                    BatchCheckResult batchResult = processSingleBatch(batch, batchIndex);
-                    batchResults.add(batchResult);
-                } catch (Exception e) {
-                    log.error("批次 {} 处理失败", batchIndex, e);
-                    BatchCheckResult errorResult = new BatchCheckResult();
-                    errorResult.setFailedCount(batch.size());
-                    batchResults.add(errorResult);
-                } finally {
-                    latch.countDown();
-                }
-            });
-        }
-        
-        // 等待所有批次完成
+    private CheckResult executeClusterRun(CheckRunPlan plan, CheckTask task) {
+        log.info("========== 开始执行商品校验任务（集群模式） ==========");
+        long startTime = System.currentTimeMillis();
+        ttsApiClient.prewarm();
+        long wireStart = ttsApiClient.getWireBytes();
+        long decodedStart = ttsApiClient.getDecodedBytes();
+
+        TtsCheckRun run = plan.getRun();
+        TtsApiProperties.CheckConfig checkConfig = ttsApiProperties.getCheck();
+        TtsApiProperties.ClusterConfig clusterConfig = checkConfig.getCluster();
+        CheckCounters counters = new CheckCounters(plan.getBaseline());
+        // 运行记录只累加已写回前缀的计数，释放的租约由接管的实例重新校验并计数
+        CheckCounters committed = new CheckCounters(plan.getBaseline());
+        AtomicReference<CheckResult> flushed = new AtomicReference<>(committed.snapshot());
+        long budgetDeadline = toDeadline(checkConfig.getTimeBudget());
+        long runDeadline = toDeadline(checkConfig.getRunTimeout());
+
+        boolean success = true;
+        boolean stopped = false;
+        String errorMessage = null;
+        int leaseRounds = 0;
+
         try {
-            boolean finished = latch.await(10, TimeUnit.MINUTES);
-            if (!finished) {
-                log.error("批次处理超时（10分钟）");
+            while (true) {
+                if (task != null && task.isCancelRequested()) {
+                    success = false;
+                    errorMessage = "校验运行已取消";
+                    break;
+                }
+                if (isExpired(runDeadline)) {
+                    success = false;
+                    errorMessage = "校验运行超时";
+                    break;
+                }
+                if (isExpired(budgetDeadline)) {
+                    stopped = true;
+                    break;
+                }
+
+                List<TtsCheckLease> leases = checkLeaseService.claim(run, clusterConfig.getLeasesPerNode());
+                if (leases.isEmpty()) {
+                    if (checkLeaseService.countUnfinished(run.getRunId()) == 0) {
+                        break;
+                    }
+                    // 剩余区间由其他实例持有，等待完成或租约过期
+                    Thread.sleep(checkConfig.getCheckpointInterval().toMillis());
+                    continue;
+                }
+                adjustClusterRate(run);
+
+                List<ProductIdCursor.IdRange> ranges = leases.stream()
+                    .map(lease -> new ProductIdCursor.IdRange(lease.getCursorId(), lease.getEndId()))
+                    .collect(Collectors.toList());
+                log.info("领取区间租约 - 运行ID: {}, 区间: {}", run.getRunId(),
+                    leases.stream().map(TtsCheckLease::getRangeIndex).collect(Collectors.toList()));
+
+                CheckpointTracker tracker = new CheckpointTracker(ranges, committed);
+                CheckResult leaseResult = runPipeline(ranges, counters, tracker, task, remaining(budgetDeadline),
+                    () -> saveLeaseCheckpoint(run, leases, tracker, committed, flushed));
+                leaseRounds++;
+
+                if (leaseResult.isSuccess() && !leaseResult.isStopped()) {
+                    checkLeaseService.complete(leases);
+                    // 区间已完成，不会再被校验：失败的批次也计入运行记录
+                    committed.merge(counters.snapshot().minus(committed.snapshot()));
+                } else {
+                    checkLeaseService.release(leases, tracker.snapshot());
+                }
+                flushProgress(run, committed, flushed);
+
+                if (!leaseResult.isSuccess() || leaseResult.isStopped()) {
+                    success = leaseResult.isSuccess();
+                    stopped = leaseResult.isStopped();
+                    errorMessage = leaseResult.getErrorMessage();
+                    break;
+                }
+            }
+
+            if (success && !stopped && checkLeaseService.countUnfinished(run.getRunId()) == 0) {
+                checkRunService.complete(run);
             }
         } catch (InterruptedException e) {
-            log.error("等待批次完成时被中断", e);
             Thread.currentThread().interrupt();
+            success = false;
+            errorMessage = "校验运行已取消";
+        } catch (Exception e) {
+            log.error("商品校验任务执行失败 - 运行ID: {}", run.getRunId(), e);
+            success = false;
+            errorMessage = e.getMessage();
+        } finally {
+            credentialPool.setCeiling(credentialPool.getTotalQps());
         }
-        
-        // 汇总结果
-        for (BatchCheckResult batchResult : batchResults) {
-            result.setCheckedCount(result.getCheckedCount() + batchResult.getCheckedCount());
-            result.setValidCount(result.getValidCount() + batchResult.getValidCount());
-            result.setInvalidCount(result.getInvalidCount() + batchResult.getInvalidCount());
-            result.setFailedCount(result.getFailedCount() + batchResult.getFailedCount());
+
+        try {
+            flushProgress(run, committed, flushed);
+        } catch (Exception e) {
+            log.warn("累加校验计数失败 - 运行ID: {}", run.getRunId(), e);
         }
-        
+
+        CheckResult result = counters.snapshot();
+        result.setRunId(run.getRunId());
+        result.setSuccess(success);
+        result.setStopped(stopped);
+        result.setErrorMessage(errorMessage);
+        result.setDuration(System.currentTimeMillis() - startTime);
+        result.setWireBytes(ttsApiClient.getWireBytes() - wireStart);
+        result.setDecodedBytes(ttsApiClient.getDecodedBytes() - decodedStart);
+        log.info("本实例处理租约批次数: {}", leaseRounds);
+        logSummary(result);
         return result;
     }
 
     /**
-     * 处理单个批次
+     * 在流水线中校验给定区间，写回器关闭后返回结果
+     *
+     * @param ranges 主键区间
+     * @param counters 计数器
+     * @param tracker 检查点
+     * @param task 运行任务，可为 null
+     * @param timeBudget 时间预算，为 null 或 0 时不限制
+     * @param onCheckpoint 按检查点间隔执行
+     * @return 校验结果统计
      */
-    private BatchCheckResult processSingleBatch(List<String> productIds, int batchIndex) {
+    private CheckResult runPipeline(List<ProductIdCursor.IdRange> ranges, CheckCounters counters,
+                                    CheckpointTracker tracker, CheckTask task, Duration timeBudget,
+                                    Runnable onCheckpoint) {
+        // 分页参数
+        int pageSize = ttsApiProperties.getBatch().getPageSize();
+        int batchSize = ttsApiProperties.getBatch().getSize();
+        TtsApiProperties.CheckConfig checkConfig = ttsApiProperties.getCheck();
+
+        // 虚拟线程、异步模式下并发度只受令牌桶和在途许可限制
+        TtsApiProperties.ExecutionMode mode = checkConfig.getExecutionMode();
+        int maxInFlight = switch (mode) {
+            case VIRTUAL -> checkConfig.getVirtualMaxInFlight();
+            case ASYNC -> checkConfig.getAsyncMaxInFlight();
+            default -> checkConfig.getMaxInFlight();
+        };
+
+        log.info("分页参数 - 每页: {}, 批次大小: {}, 区间数: {}, 预取页数: {}, 执行方式: {}, 最大在途批次: {}, 时间预算: {}",
+            pageSize, batchSizer.getCurrentSize(), ranges.size(), checkConfig.getPrefetchPages(), mode, maxInFlight, timeBudget);
+
+        TtsApiProperties.WriterConfig writerConfig = checkConfig.getWriter();
+        ScheduledExecutorService checkpointScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("tts-checkpoint").daemon().factory());
+        long checkpointMs = checkConfig.getCheckpointInterval().toMillis();
+        checkpointScheduler.scheduleWithFixedDelay(onCheckpoint, checkpointMs, checkpointMs, TimeUnit.MILLISECONDS);
+
+        CheckResult result;
+        try (CheckResultWriter writer = new CheckResultWriter(
+                productMapper,
+                counters,
+                writerConfig.getQueueCapacity(),
+                writerConfig.getFlushSize(),
+                writerConfig.getChunkSize(),
+                writerConfig.getFlushInterval());
+             CheckExecution execution = mode == TtsApiProperties.ExecutionMode.VIRTUAL
+                ? CheckExecution.virtual()
+                : CheckExecution.pooled(productCheckExecutor)) {
+            ProductCheckPipeline pipeline = ProductCheckPipeline.builder()
+                .productMapper(productMapper)
+                .execution(execution)
+                .credentialPool(credentialPool)
+                .batchChecker(this::processSingleBatch)
+                .asyncBatchChecker(mode == TtsApiProperties.ExecutionMode.ASYNC
+                    ? this::processSingleBatchAsync
+                    : null)
+                .writer(writer)
+                .checkpointTracker(tracker)
+                .pageSize(pageSize)
+                .batchSize(batchSize)
+                .batchSizer(batchSizer)
+                .prefetchPages(checkConfig.getPrefetchPages())
+                .maxInFlight(maxInFlight)
+                .runTimeout(checkConfig.getRunTimeout())
+                .timeBudget(timeBudget)
+                .circuitBreaker(ttsApiClient.getCircuitBreaker())
+                .maxPause(ttsApiProperties.getCircuitBreaker().getMaxPause())
+                .counters(counters)
+                .build();
+            if (task != null) {
+                task.attach(pipeline);
+            }
+            result = pipeline.run(ranges);
+        } finally {
+            checkpointScheduler.shutdownNow();
+        }
+        // 写回器关闭后计入写回失败的商品
+        result.setFailedCount(counters.snapshot().getFailedCount());
+        return result;
+    }
+
+    /**
+     * 定期保存检查点，失败时只记录日志，等待下一次保存
+     */
+    private void saveCheckpoint(TtsCheckRun run, CheckpointTracker tracker, CheckCounters counters) {
+        try {
+            checkRunService.checkpoint(run, tracker.snapshot(), counters.snapshot());
+        } catch (Exception e) {
+            log.warn("保存校验检查点失败 - 运行ID: {}", run.getRunId(), e);
+        }
+    }
+
+    /**
+     * 集群模式定期续约并保存区间游标、累加计数、调整本实例的 QPS
+     * 续约失败说明租约已被其他实例接管，本实例继续校验手上的批次（重复校验不影响结果）
+     */
+    private void saveLeaseCheckpoint(TtsCheckRun run, List<TtsCheckLease> leases, CheckpointTracker tracker,
+                                     CheckCounters counters, AtomicReference<CheckResult> flushed) {
+        try {
+            checkLeaseService.renew(leases, tracker.snapshot());
+            flushProgress(run, counters, flushed);
+            adjustClusterRate(run);
+        } catch (Exception e) {
+            log.warn("续约区间租约失败 - 运行ID: {}", run.getRunId(), e);
+        }
+    }
+
+    /**
+     * 将本实例自上次累加以来的计数增量累加到运行记录
+     */
+    private void flushProgress(TtsCheckRun run, CheckCounters counters, AtomicReference<CheckResult> flushed) {
+        synchronized (flushed) {
+            CheckResult current = counters.snapshot();
+            checkRunService.addProgress(run, current.minus(flushed.get()));
+            flushed.set(current);
+        }
+    }
+
+    /**
+     * 按持有租约的实例数均分全局 QPS，作为本实例自适应速率的上限
+     * 未配置全局 QPS 时为所有凭证的 QPS 之和；启用共享令牌桶时全局预算由令牌桶分配，本实例上限保持不变
+     */
+    private void adjustClusterRate(TtsCheckRun run) {
+        if (credentialPool.isShared()) {
+            return;
+        }
+        TtsApiProperties.ClusterConfig clusterConfig = ttsApiProperties.getCheck().getCluster();
+        int globalQps = clusterConfig.getGlobalQps() != null
+            ? clusterConfig.getGlobalQps()
+            : (int) credentialPool.getTotalQps();
+        int nodes = Math.max(1, checkLeaseService.countActiveNodes(run.getRunId()));
+        double rate = (double) globalQps / nodes;
+        if (Math.abs(credentialPool.getCeiling() - rate) > 0.01) {
+            credentialPool.setCeiling(rate);
+            log.info("调整本实例 QPS - 全局: {}, 实例数: {}, 本实例: {}", globalQps, nodes, String.format("%.2f", rate));
+        }
+    }
+
+    private void logSummary(CheckResult result) {
+        log.info("========== 商品校验任务{} ==========", result.isStopped() ? "已停在检查点" : "完成");
+        log.info("总计 - 运行ID: {}, 商品总数: {}, 已校验: {}, 有效: {}, 失效: {}, 失败: {}, 状态变化: {}, 未变化: {}, 佣金率下降: {}, 耗时: {}ms", 
+            result.getRunId(), result.getTotalCount(), result.getCheckedCount(), 
+            result.getValidCount(), result.getInvalidCount(), 
+            result.getFailedCount(), result.getChangedCount(),
+            result.getUnchangedCount(), result.getCommissionDropCount(), result.getDuration());
+        if (result.getDecodedBytes() > 0) {
+            log.info("响应传输 - 接收: {} 字节, 解压后: {} 字节, 节省: {}%", result.getWireBytes(), result.getDecodedBytes(),
+                String.format("%.1f", 100d * (result.getDecodedBytes() - result.getWireBytes()) / result.getDecodedBytes()));
+        }
+    }
+
+    private static long toDeadline(Duration duration) {
+        return duration == null || duration.isZero() ? 0 : System.nanoTime() + duration.toNanos();
+    }
+
+    private static boolean isExpired(long deadline) {
+        return deadline != 0 && System.nanoTime() - deadline > 0;
+    }
+
+    private static Duration remaining(long deadline) {
+        return deadline == 0 ? Duration.ZERO : Duration.ofNanos(Math.max(1, deadline - System.nanoTime()));
+    }
+
+    /**
+     * 处理单个批次（在 Worker 线程中执行）
+     */
+    private BatchCheckResult processSingleBatch(List<TtsProductMonitor> batch, int batchIndex,
+                                                TtsCredential credential) {
+        List<String> productIds = toProductIds(batch);
+
+        // 令牌已由分发器获取，使用令牌所属的凭证
+        log.debug("批次 {} 开始请求 TTS API - 商品数: {}", batchIndex, productIds.size());
+
+        // 调用 TTS API，耗时过长时用令牌桶中空闲的令牌发出对冲请求
+        long start = System.nanoTime();
+        TtsApiResponse apiResponse = ttsApiClient.getProductsByIds(productIds, credential, credentialPool::tryAcquire);
+        long latency = System.nanoTime() - start;
+        credentialPool.record(apiResponse, latency);
+        batchSizer.record(productIds, apiResponse, latency);
+        return applyResponse(batch, batchIndex, batchResolver.resolve(productIds, apiResponse));
+    }
+
+    /**
+     * 异步处理单个批次
+     * 请求在途期间不占用线程，响应由共享线程池解析，重试和补查也在该线程池中执行
+     */
+    private CompletableFuture<BatchCheckResult> processSingleBatchAsync(List<TtsProductMonitor> batch, int batchIndex,
+                                                                        TtsCredential credential) {
+        List<String> productIds = toProductIds(batch);
+        log.debug("批次 {} 开始异步请求 TTS API - 商品数: {}", batchIndex, productIds.size());
+
+        long start = System.nanoTime();
+        return ttsApiClient.getProductsByIdsAsync(productIds, credential, credentialPool::tryAcquire)
+            .thenApplyAsync(apiResponse -> {
+                long latency = System.nanoTime() - start;
+                credentialPool.record(apiResponse, latency);
+                batchSizer.record(productIds, apiResponse, latency);
+                // 需要重试或补查时在线程池中阻塞执行
+                return applyResponse(batch, batchIndex, batchResolver.resolve(productIds, apiResponse));
+            }, productCheckExecutor);
+    }
+
+    /**
+     * 根据补全后的查询结果更新批次内商品状态
+     * 与库中快照哈希对比，只写回有效性、佣金、标题或店铺发生变化的商品；未变化的商品只刷新校验时间。
+     * 待写回的商品随结果返回，由流水线交给写回器合并执行。
+     * 查询失败的商品计为失败，不改动库中状态；熔断延后的批次不计数、不写回
+     */
+    private BatchCheckResult applyResponse(List<TtsProductMonitor> batch, int batchIndex,
+                                           BatchResolver.BatchLookup lookup) {
         BatchCheckResult result = new BatchCheckResult();
         
         try {
-            // 获取令牌（阻塞等待）
-            rateLimiter.acquire();
-            log.debug("批次 {} 获取令牌成功，开始请求 TTS API - 商品数: {}", batchIndex, productIds.size());
-            
-            // 调用 TTS API
-            TtsApiResponse apiResponse = ttsApiClient.getProductsByIds(productIds);
-            
-            if (!apiResponse.isSuccess()) {
-                log.error("批次 {} TTS API 调用失败 - code: {}, message: {}", 
-                    batchIndex, apiResponse.getCode(), apiResponse.getMessage());
-                result.setFailedCount(productIds.size());
+            if (lookup.isDeferred()) {
+                // 熔断期间未完成，整批延后，检查点停在批次之前
+                result.setDeferred(true);
+                return result;
+            }
+            if (lookup.getFailed().size() == batch.size()) {
+                log.error("批次 {} TTS API 调用失败 - 商品数: {}", batchIndex, batch.size());
+                result.setFailedCount(batch.size());
                 return result;
             }
             
-            // 解析响应并更新状态
-            List<TtsApiResponse.ProductInfo> products = apiResponse.getData() != null 
-                && apiResponse.getData().getProducts() != null 
-                ? apiResponse.getData().getProducts() 
-                : new ArrayList<>();
-            
-            log.debug("批次 {} 返回 {} 个商品信息", batchIndex, products.size());
-            
-            // 构建商品ID -> 商品信息的映射
-            Map<String, TtsApiResponse.ProductInfo> productMap = products.stream()
-                .collect(Collectors.toMap(
-                    TtsApiResponse.ProductInfo::getId, 
-                    p -> p, 
-                    (p1, p2) -> p1
-                ));
-            
-            LocalDateTime now = LocalDateTime.now();
+            Map<String, TtsApiResponse.ProductInfo> productMap = lookup.getFound();
+            log.debug("批次 {} 返回 {} 个商品信息", batchIndex, productMap.size());
+            productInfoCache.refresh(productMap.values(), lookup.getMissing());
             
-            // 根据API返回结果更新商品状态
-            List<String> validProductIds = new ArrayList<>();
-            List<String> invalidProductIds = new ArrayList<>();
+            // 根据API返回结果计算新状态，并与库中当前状态对比
+            List<TtsProductMonitor> changedRows = new ArrayList<>();
+            List<Integer> unchangedIds = new ArrayList<>();
             
-            for (String productId : productIds) {
-                TtsApiResponse.ProductInfo productInfo = productMap.get(productId);
-                
-                // 佣金信息完整性校验：commission、rate、currency、amount 都必须有效
-                if (productInfo != null 
-                    && productInfo.getCommission() != null
-                    && productInfo.getCommission().getRate() != null
-                    && StringUtils.hasText(productInfo.getCommission().getCurrency())
-                    && StringUtils.hasText(productInfo.getCommission().getAmount())) {
-                    // 佣金信息完整，标记为有效
-                    validProductIds.add(productId);
+            int checkedCount = 0;
+            for (TtsProductMonitor row : batch) {
+                if (lookup.getFailed().contains(row.getProductId())) {
+                    continue;
+                }
+                checkedCount++;
+                TtsApiResponse.ProductInfo productInfo = productMap.get(row.getProductId());
+                TtsProductMonitor checked = evaluate(row, productInfo);
+
+                if (checked.getIsValid() == TtsProductMonitor.ValidStatus.VALID) {
+                    result.setValidCount(result.getValidCount() + 1);
                 } else {
-                    // 佣金信息不完整或未返回，标记为失效
-                    invalidProductIds.add(productId);
+                    result.setInvalidCount(result.getInvalidCount() + 1);
+                }
+
+                if (isCommissionDropped(row, checked)) {
+                    result.setCommissionDropCount(result.getCommissionDropCount() + 1);
+                    log.warn("商品佣金率下降 - 商品ID: {}, 佣金率: {} -> {}",
+                        row.getProductId(), row.getCommissionRate(), checked.getCommissionRate());
+                }
+
+                if (isChanged(row, checked)) {
+                    changedRows.add(checked);
+                } else {
+                    unchangedIds.add(row.getId());
                 }
             }
             
-            // 批量更新有效商品状态
-            if (!validProductIds.isEmpty()) {
-                int validCount = productMapper.batchUpdateValidStatus(
-                    validProductIds, 
-                    TtsProductMonitor.ValidStatus.VALID, 
-                    now
-                );
-                result.setValidCount(validCount);
-                log.debug("批次 {} 更新 {} 个有效商品", batchIndex, validCount);
-            }
-            
-            // 批量更新失效商品状态
-            if (!invalidProductIds.isEmpty()) {
-                int invalidCount = productMapper.batchUpdateValidStatus(
-                    invalidProductIds, 
-                    TtsProductMonitor.ValidStatus.INVALID, 
-                    now
-                );
-                result.setInvalidCount(invalidCount);
-                log.debug("批次 {} 更新 {} 个失效商品", batchIndex, invalidCount);
-            }
+            // 只写回发生变化的商品；未变化的商品只刷新校验时间，不改动 updated_at
+            result.setChangedRows(changedRows);
+            result.setUnchangedIds(ttsApiProperties.getCheck().getTouchUnchanged() ? unchangedIds : List.of());
+            log.debug("批次 {} 校验完成 - 状态变化: {}, 未变化: {}", batchIndex, changedRows.size(), unchangedIds.size());
             
-            result.setCheckedCount(productIds.size());
+            result.setChangedCount(changedRows.size());
+            result.setUnchangedCount(unchangedIds.size());
+            result.setCheckedCount(checkedCount);
+            result.setFailedCount(batch.size() - checkedCount);
             
         } catch (Exception e) {
             log.error("批次 {} 处理异常", batchIndex, e);
-            result.setFailedCount(productIds.size());
+            result = new BatchCheckResult();
+            result.setFailedCount(batch.size());
         }
         
         return result;
     }
 
     /**
-     * 将列表分割成多个批次
+     * 根据 TTS API 返回的商品信息计算新快照（与新增商品时的转换规则一致）
+     * 佣金信息完整性校验：commission、rate、currency、amount 都必须有效；
+     * 未返回的字段为 null，写回时保留库中原值
      */
-    private <T> List<List<T>> partitionList(List<T> list, int batchSize) {
-        List<List<T>> partitions = new ArrayList<>();
-        for (int i = 0; i < list.size(); i += batchSize) {
-            partitions.add(list.subList(i, Math.min(i + batchSize, list.size())));
+    private TtsProductMonitor evaluate(TtsProductMonitor row, TtsApiResponse.ProductInfo productInfo) {
+        TtsProductMonitor checked = new TtsProductMonitor();
+        checked.setId(row.getId());
+        checked.setProductId(row.getProductId());
+
+        if (productInfo != null) {
+            checked.setTitle(productInfo.getTitle());
+            if (productInfo.getShop() != null) {
+                checked.setShopName(productInfo.getShop().getName());
+            }
+        }
+
+        if (productInfo != null 
+            && productInfo.getCommission() != null
+            && productInfo.getCommission().getRate() != null
+            && StringUtils.hasText(productInfo.getCommission().getCurrency())
+            && StringUtils.hasText(productInfo.getCommission().getAmount())) {
+            // 佣金信息完整，标记为有效
+            checked.setIsValid(TtsProductMonitor.ValidStatus.VALID);
+            checked.setCommissionRate(productInfo.getCommission().getRate());
+            checked.setCommissionAmount(productInfo.getCommission().getAmount());
+            checked.setCommissionCurrency(productInfo.getCommission().getCurrency());
+        } else {
+            // 佣金信息不完整或未返回，标记为失效
+            checked.setIsValid(TtsProductMonitor.ValidStatus.INVALID);
         }
-        return partitions;
+
+        checked.setCheckHash(ProductSnapshotHasher.hash(checked));
+
+        // 佣金率变化时记录变化前的值
+        if (checked.getCommissionRate() != null && row.getCommissionRate() != null
+            && !checked.getCommissionRate().equals(row.getCommissionRate())) {
+            checked.setPrevCommissionRate(row.getCommissionRate());
+        }
+        return checked;
+    }
+
+    /**
+     * 判断校验快照与库中是否不同（快照哈希不同即视为变化）
+     */
+    private boolean isChanged(TtsProductMonitor current, TtsProductMonitor checked) {
+        return !Objects.equals(current.getCheckHash(), checked.getCheckHash());
+    }
+
+    /**
+     * 判断佣金率是否下降
+     */
+    private boolean isCommissionDropped(TtsProductMonitor current, TtsProductMonitor checked) {
+        return checked.getPrevCommissionRate() != null
+            && checked.getCommissionRate() < current.getCommissionRate();
+    }
+
+    /**
+     * 提取批次内的商品ID
+     */
+    private List<String> toProductIds(List<TtsProductMonitor> batch) {
+        return batch.stream()
+            .map(TtsProductMonitor::getProductId)
+            .collect(Collectors.toList());
     }
 
     /**
@@ -295,28 +759,121 @@ public class ProductCheckService implements IProductCheckService {
         private int validCount = 0;
         private int invalidCount = 0;
         private int failedCount = 0;
+        private int changedCount = 0;
+        private int unchangedCount = 0;
+        private int commissionDropCount = 0;
         private long duration = 0;
         private String errorMessage;
 
+        /**
+         * 运行 ID
+         */
+        private String runId;
+
+        /**
+         * 是否因时间预算用完停在检查点（未校验完全部商品）
+         */
+        private boolean stopped = false;
+
+        /**
+         * 本实例在运行期间接收的 TTS 响应体字节数（压缩传输时为压缩后的字节数，不参与累加）
+         */
+        private long wireBytes = 0;
+
+        /**
+         * 本实例在运行期间解压后的 TTS 响应体字节数（不参与累加）
+         */
+        private long decodedBytes = 0;
+
+        /**
+         * 计算相对另一个结果的计数增量
+         */
+        public CheckResult minus(CheckResult other) {
+            CheckResult delta = new CheckResult();
+            delta.totalCount = this.totalCount - other.totalCount;
+            delta.checkedCount = this.checkedCount - other.checkedCount;
+            delta.validCount = this.validCount - other.validCount;
+            delta.invalidCount = this.invalidCount - other.invalidCount;
+            delta.failedCount = this.failedCount - other.failedCount;
+            delta.changedCount = this.changedCount - other.changedCount;
+            delta.unchangedCount = this.unchangedCount - other.unchangedCount;
+            delta.commissionDropCount = this.commissionDropCount - other.commissionDropCount;
+            return delta;
+        }
+
         public void merge(CheckResult other) {
+            this.totalCount += other.totalCount;
             this.checkedCount += other.checkedCount;
             this.validCount += other.validCount;
             this.invalidCount += other.invalidCount;
             this.failedCount += other.failedCount;
+            this.changedCount += other.changedCount;
+            this.unchangedCount += other.unchangedCount;
+            this.commissionDropCount += other.commissionDropCount;
         }
 
     }
 
+    /**
+     * 校验运行计划
+     * 
+     */
+    @Data
+    public static class CheckRunPlan {
+
+        /**
+         * 运行记录
+         */
+        private TtsCheckRun run;
+
+        /**
+         * 主键区间，startAfterId 为已提交的游标
+         */
+        private List<ProductIdCursor.IdRange> ranges;
+
+        /**
+         * 检查点保存的计数，新运行为 0
+         */
+        private CheckResult baseline;
+
+        /**
+         * 是否为集群模式（区间由租约分配）
+         */
+        private boolean cluster;
+
+        public String getRunId() {
+            return run.getRunId();
+        }
+    }
+
     /**
      * 批次校验结果
      * 
      */
     @Data
-    private static class BatchCheckResult {
+    static class BatchCheckResult {
         private int checkedCount = 0;
         private int validCount = 0;
         private int invalidCount = 0;
         private int failedCount = 0;
+        private int changedCount = 0;
+        private int unchangedCount = 0;
+        private int commissionDropCount = 0;
+
+        /**
+         * 待写回的状态变化商品
+         */
+        private List<TtsProductMonitor> changedRows = List.of();
+
+        /**
+         * 待刷新校验时间的未变化商品主键
+         */
+        private List<Integer> unchangedIds = List.of();
+
+        /**
+         * 是否因熔断延后，延后的批次不推进检查点，由下次运行重新校验
+         */
+        private boolean deferred = false;
 
     }
 }
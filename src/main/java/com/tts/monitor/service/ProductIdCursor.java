@@ -0,0 +1,118 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.entity.TtsProductMonitor;
+import com.tts.monitor.mapper.TtsProductMonitorMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商品主键游标
+ * 基于 WHERE id > lastId ORDER BY id LIMIT n 的 keyset 分页，每页耗时与偏移量无关，
+ * 校验过程中新增或删除记录也不会导致漏查、重复查询；内存占用只与每页大小有关
+ *
+ */
+public class ProductIdCursor {
+
+    private final TtsProductMonitorMapper productMapper;
+    private final IdRange range;
+    private final int pageSize;
+
+    /**
+     * 已读取的最后一条记录主键
+     */
+    private int lastId;
+
+    /**
+     * 游标是否已读完
+     */
+    private boolean exhausted;
+
+    public ProductIdCursor(TtsProductMonitorMapper productMapper, IdRange range, int pageSize) {
+        this.productMapper = productMapper;
+        this.range = range;
+        this.pageSize = pageSize;
+        this.lastId = range.getStartAfterId();
+    }
+
+    /**
+     * 读取下一页
+     *
+     * @return 下一页商品（仅包含 id、product_id），读完时返回空列表
+     */
+    public List<TtsProductMonitor> nextPage() {
+        if (exhausted) {
+            return List.of();
+        }
+
+        List<TtsProductMonitor> rows = productMapper.selectCheckRowsAfter(lastId, range.getEndId(), pageSize);
+        if (rows.size() < pageSize) {
+            exhausted = true;
+        }
+        if (!rows.isEmpty()) {
+            lastId = rows.get(rows.size() - 1).getId();
+        }
+        return rows;
+    }
+
+    public int getLastId() {
+        return lastId;
+    }
+
+    public IdRange getRange() {
+        return range;
+    }
+
+    /**
+     * 按主键跨度将全表切分为若干区间
+     * 最后一个区间不设上界，校验期间新增的商品也会被读取到
+     *
+     * @param productMapper 商品 Mapper
+     * @param parts 区间数量
+     * @return 区间列表，表为空时返回空列表
+     */
+    public static List<IdRange> splitRanges(TtsProductMonitorMapper productMapper, int parts) {
+        Map<String, Object> bounds = productMapper.selectIdBounds();
+        if (bounds == null || bounds.get("minId") == null || bounds.get("maxId") == null) {
+            return List.of();
+        }
+
+        int minId = ((Number) bounds.get("minId")).intValue();
+        int maxId = ((Number) bounds.get("maxId")).intValue();
+        int count = Math.max(1, parts);
+        long span = (long) maxId - minId + 1;
+        long step = Math.max(1, (span + count - 1) / count);
+
+        List<IdRange> ranges = new ArrayList<>();
+        long startAfter = (long) minId - 1;
+        while (startAfter < maxId) {
+            long end = Math.min(startAfter + step, maxId);
+            boolean last = end >= maxId;
+            ranges.add(new IdRange((int) startAfter, last ? null : (int) end));
+            startAfter = end;
+        }
+        return ranges;
+    }
+
+    /**
+     * 主键区间 (startAfterId, endId]
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class IdRange {
+        /**
+         * 起始主键（不包含）
+         */
+        private int startAfterId;
+
+        /**
+         * 结束主键（包含），为 null 时不限制上界
+         */
+        private Integer endId;
+    }
+}
@@ -0,0 +1,204 @@
+package com.tts.monitor.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 商品信息缓存
+ * 按商品 ID 缓存 TTS 接口返回的商品信息，接口未返回的商品记入负缓存（有效期较短）。
+ * 新增商品等交互式查询先查缓存，只为未缓存的商品调用接口；定时校验不读缓存，只刷新已缓存的商品
+ *
+ */
+@Slf4j
+public class ProductInfoCache {
+
+    private final boolean enabled;
+
+    /**
+     * 商品 ID -> 商品信息
+     */
+    private final Cache<String, TtsApiResponse.ProductInfo> products;
+
+    /**
+     * 接口未返回的商品 ID
+     */
+    private final Cache<String, Boolean> absent;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ProductInfoCache(TtsApiProperties.CacheConfig config) {
+        this.enabled = config.getEnabled();
+        this.products = CacheBuilder.newBuilder()
+            .maximumSize(config.getMaximumSize())
+            .expireAfterWrite(config.getTtl())
+            .recordStats()
+            .build();
+        this.absent = CacheBuilder.newBuilder()
+            .maximumSize(config.getMaximumSize())
+            .expireAfterWrite(config.getNegativeTtl())
+            .recordStats()
+            .build();
+        log.info("初始化商品信息缓存 - 启用: {}, 容量: {}, 有效期: {}, 负缓存有效期: {}",
+            enabled, config.getMaximumSize(), config.getTtl(), config.getNegativeTtl());
+    }
+
+    /**
+     * 按商品 ID 查询缓存
+     *
+     * @param productIds 商品 ID
+     * @return 已缓存的商品、确认未返回的商品和需要调用接口的商品
+     */
+    public Lookup lookup(Collection<String> productIds) {
+        Lookup lookup = new Lookup();
+        for (String id : productIds) {
+            TtsApiResponse.ProductInfo product = enabled ? products.getIfPresent(id) : null;
+            if (product != null) {
+                hits.increment();
+                lookup.found.put(id, product);
+            } else if (enabled && absent.getIfPresent(id) != null) {
+                negativeHits.increment();
+                lookup.absent.add(id);
+            } else {
+                misses.increment();
+                lookup.misses.add(id);
+            }
+        }
+        return lookup;
+    }
+
+    /**
+     * 记录查询结果：返回的商品写入缓存，确认未返回的商品写入负缓存
+     *
+     * @param found 接口返回的商品
+     * @param missing 确认未返回的商品
+     */
+    public void put(Collection<TtsApiResponse.ProductInfo> found, Collection<String> missing) {
+        if (!enabled) {
+            return;
+        }
+        for (TtsApiResponse.ProductInfo product : found) {
+            if (product.getId() != null) {
+                products.put(product.getId(), product);
+                absent.invalidate(product.getId());
+            }
+        }
+        for (String id : missing) {
+            absent.put(id, Boolean.TRUE);
+            products.invalidate(id);
+        }
+    }
+
+    /**
+     * 用校验结果刷新已缓存的商品，不新增缓存项（校验的商品数远超缓存容量）
+     *
+     * @param found 接口返回的商品
+     * @param missing 确认未返回的商品
+     */
+    public void refresh(Collection<TtsApiResponse.ProductInfo> found, Collection<String> missing) {
+        if (!enabled) {
+            return;
+        }
+        for (TtsApiResponse.ProductInfo product : found) {
+            String id = product.getId();
+            if (products.asMap().replace(id, product) == null && absent.asMap().remove(id) != null) {
+                products.put(id, product);
+            }
+        }
+        for (String id : missing) {
+            if (products.asMap().remove(id) != null || absent.getIfPresent(id) != null) {
+                absent.put(id, Boolean.TRUE);
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getNegativeHitCount() {
+        return negativeHits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 因容量或过期被淘汰的缓存项数
+     */
+    public long getEvictionCount() {
+        return products.stats().evictionCount() + absent.stats().evictionCount();
+    }
+
+    /**
+     * 注册缓存指标：命中、负缓存命中和未命中次数，淘汰数和缓存项数
+     */
+    public void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("tts.product.cache.requests", hits, LongAdder::sum)
+            .tag("result", "hit")
+            .description("商品信息缓存查询次数")
+            .register(registry);
+        FunctionCounter.builder("tts.product.cache.requests", negativeHits, LongAdder::sum)
+            .tag("result", "negative-hit")
+            .description("商品信息缓存查询次数")
+            .register(registry);
+        FunctionCounter.builder("tts.product.cache.requests", misses, LongAdder::sum)
+            .tag("result", "miss")
+            .description("商品信息缓存查询次数")
+            .register(registry);
+        FunctionCounter.builder("tts.product.cache.evictions", products, cache -> cache.stats().evictionCount())
+            .tag("type", "product")
+            .description("因容量或过期被淘汰的缓存项数")
+            .register(registry);
+        FunctionCounter.builder("tts.product.cache.evictions", absent, cache -> cache.stats().evictionCount())
+            .tag("type", "absent")
+            .description("因容量或过期被淘汰的缓存项数")
+            .register(registry);
+        Gauge.builder("tts.product.cache.size", products, Cache::size)
+            .tag("type", "product")
+            .description("缓存项数")
+            .register(registry);
+        Gauge.builder("tts.product.cache.size", absent, Cache::size)
+            .tag("type", "absent")
+            .description("缓存项数")
+            .register(registry);
+    }
+
+    /**
+     * 缓存查询结果
+     */
+    @Getter
+    public static class Lookup {
+
+        /**
+         * 已缓存的商品（按查询顺序）
+         */
+        private final Map<String, TtsApiResponse.ProductInfo> found = new LinkedHashMap<>();
+
+        /**
+         * 负缓存中的商品
+         */
+        private final List<String> absent = new ArrayList<>();
+
+        /**
+         * 需要调用接口的商品
+         */
+        private final List<String> misses = new ArrayList<>();
+    }
+}
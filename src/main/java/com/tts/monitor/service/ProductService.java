@@ -2,14 +2,18 @@ package com.tts.monitor.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.google.common.collect.Lists;
+import com.tts.monitor.config.TtsApiProperties;
 import com.tts.monitor.dto.PageResult;
+import com.tts.monitor.dto.ProductAddReport;
 import com.tts.monitor.dto.ProductQueryDTO;
 import com.tts.monitor.dto.tts.TtsApiResponse;
 import com.tts.monitor.entity.TtsProductMonitor;
 import com.tts.monitor.exception.BusinessException;
 import com.tts.monitor.mapper.TtsProductMonitorMapper;
+import com.tts.monitor.util.ProductSnapshotHasher;
 import com.tts.monitor.util.TtsApiClient;
-import lombok.RequiredArgsConstructor;
+import com.tts.monitor.util.TtsCredential;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,6 +21,11 @@ import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -25,11 +34,37 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ProductService implements IProductService {
 
     private final TtsProductMonitorMapper productMapper;
     private final TtsApiClient ttsApiClient;
+    private final CredentialPool credentialPool;
+    private final ProductInfoCache productInfoCache;
+    private final TtsApiProperties ttsApiProperties;
+    private final BatchResolver batchResolver;
+
+    /**
+     * 新增商品查询的批次大小，跨请求保留学习到的批次大小和 URL 字节预算
+     */
+    private final AdaptiveBatchSizer batchSizer;
+
+    public ProductService(TtsProductMonitorMapper productMapper,
+                          TtsApiClient ttsApiClient,
+                          CredentialPool credentialPool,
+                          ProductInfoCache productInfoCache,
+                          TtsApiProperties ttsApiProperties) {
+        this.productMapper = productMapper;
+        this.ttsApiClient = ttsApiClient;
+        this.credentialPool = credentialPool;
+        this.productInfoCache = productInfoCache;
+        this.ttsApiProperties = ttsApiProperties;
+        this.batchResolver = new BatchResolver(ttsApiClient, credentialPool, ttsApiProperties.getRetry(),
+            ttsApiProperties.getCircuitBreaker().getMaxPause());
+
+        TtsApiProperties.BatchConfig batchConfig = ttsApiProperties.getBatch();
+        this.batchSizer = new AdaptiveBatchSizer(batchConfig.getAdaptive(), batchConfig.getSize(),
+            ttsApiClient.urlOverheadBytes());
+    }
 
     /**
      * 分页查询商品列表
@@ -84,12 +119,14 @@ public class ProductService implements IProductService {
 
     /**
      * 批量新增监控商品
+     * 不开启事务：已存在的商品分块查询；其余商品先查缓存，未缓存的按接口批次大小切分，
+     * 在共享令牌桶限流下并行查询（重试、补查与校验一致）；查询结果按 insert-chunk-size 分块写入。
+     * 单个批次或写入块失败只影响其中的商品，结果按商品列出
      * 
      * @param productIds 商品ID列表
-     * @return 新增数量
+     * @return 每个商品的处理结果
      */
-    @Transactional(rollbackFor = Exception.class)
-    public int addProducts(List<String> productIds) {
+    public ProductAddReport addProducts(List<String> productIds) {
         if (productIds == null || productIds.isEmpty()) {
             throw new BusinessException("商品ID列表不能为空");
         }
@@ -107,53 +144,173 @@ public class ProductService implements IProductService {
         }
 
         log.debug("去重后商品ID数量: {}", uniqueProductIds.size());
-
-        // 查询已存在的商品
-        List<TtsProductMonitor> existingProducts = productMapper.selectByProductIds(uniqueProductIds);
-        Set<String> existingProductIds = existingProducts.stream()
-            .map(TtsProductMonitor::getProductId)
-            .collect(Collectors.toSet());
+        TtsApiProperties.BulkAddConfig config = ttsApiProperties.getBulkAdd();
+        int chunkSize = Math.max(1, config.getInsertChunkSize());
+        ProductAddReport report = new ProductAddReport();
+        report.setRequested(uniqueProductIds.size());
+
+        // 分块查询已存在的商品
+        Set<String> existingProductIds = new HashSet<>();
+        for (List<String> chunk : Lists.partition(uniqueProductIds, chunkSize)) {
+            productMapper.selectByProductIds(chunk).forEach(row -> existingProductIds.add(row.getProductId()));
+        }
 
         // 过滤出新商品ID
-        List<String> newProductIds = uniqueProductIds.stream()
-            .filter(id -> !existingProductIds.contains(id))
-            .collect(Collectors.toList());
+        List<String> newProductIds = new ArrayList<>();
+        for (String id : uniqueProductIds) {
+            if (existingProductIds.contains(id)) {
+                report.getExisting().add(id);
+            } else {
+                newProductIds.add(id);
+            }
+        }
 
         if (newProductIds.isEmpty()) {
             log.warn("所有商品ID已存在，无需新增");
-            return 0;
+            return report;
         }
 
         log.info("需要新增的商品数量: {}, 已存在的商品数量: {}", newProductIds.size(), existingProductIds.size());
 
-        // 调用 TTS API 验证并获取商品信息
-        TtsApiResponse apiResponse = ttsApiClient.getProductsByIds(newProductIds);
-
-        if (!apiResponse.isSuccess()) {
-            throw new BusinessException("调用 TTS API 失败: " + apiResponse.getMessage());
+        // 先查商品信息缓存，只为未缓存的商品调用 TTS API
+        ProductInfoCache.Lookup cached = productInfoCache.lookup(newProductIds);
+        Map<String, TtsApiResponse.ProductInfo> found = new LinkedHashMap<>(cached.getFound());
+        Set<String> unknown = new HashSet<>(cached.getAbsent());
+        Set<String> failed = new HashSet<>();
+        if (!cached.getFound().isEmpty() || !cached.getAbsent().isEmpty()) {
+            log.info("商品信息缓存命中 - 商品: {}, 确认无效: {}, 需查询: {}",
+                cached.getFound().size(), cached.getAbsent().size(), cached.getMisses().size());
         }
-
-        if (apiResponse.getData() == null || apiResponse.getData().getProducts() == null) {
-            throw new BusinessException("TTS API 返回数据为空");
+        if (!cached.getMisses().isEmpty()) {
+            fetchProducts(cached.getMisses(), config, found, unknown, failed);
         }
 
-        List<TtsApiResponse.ProductInfo> products = apiResponse.getData().getProducts();
-
-        if (products.isEmpty()) {
-            throw new BusinessException("商品ID无效，未查询到任何商品信息");
+        // 分块写入，每块单独提交
+        LocalDateTime checkTime = LocalDateTime.now().withNano(0);
+        List<TtsProductMonitor> rows = found.values().stream()
+            .map(product -> convertToEntity(product, checkTime))
+            .collect(Collectors.toList());
+        for (List<TtsProductMonitor> chunk : Lists.partition(rows, chunkSize)) {
+            insertChunk(chunk, report, failed);
         }
 
-        log.info("TTS API 返回商品数量: {}", products.size());
+        // 按请求顺序列出无效和失败的商品
+        for (String id : newProductIds) {
+            if (unknown.contains(id)) {
+                report.getUnknown().add(id);
+            } else if (failed.contains(id)) {
+                report.getFailed().add(id);
+            }
+        }
+        log.info("批量新增商品完成 - {}", report.summary());
+        return report;
+    }
 
-        // 转换为实体类并批量插入
-        List<TtsProductMonitor> monitorList = products.stream()
-            .map(this::convertToEntity)
-            .collect(Collectors.toList());
+    /**
+     * 按接口批次大小切分商品，在共享令牌桶限流下并行查询（最多 parallelism 个批次在途）
+     *
+     * @param found 接口返回的商品
+     * @param unknown 单独查询仍未返回的商品
+     * @param failed 查询失败的商品
+     */
+    private void fetchProducts(List<String> productIds, TtsApiProperties.BulkAddConfig config,
+                               Map<String, TtsApiResponse.ProductInfo> found, Set<String> unknown,
+                               Set<String> failed) {
+        Semaphore inFlight = new Semaphore(Math.max(1, config.getParallelism()));
+        List<Future<BatchResolver.BatchLookup>> lookups = new ArrayList<>();
+        List<List<String>> batches = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("tts-add-", 0).factory())) {
+            int from = 0;
+            while (from < productIds.size()) {
+                int end = batchSizer.pack(productIds, from, Function.identity());
+                List<String> batch = productIds.subList(from, end);
+                boolean permit = false;
+                TtsCredential credential;
+                try {
+                    inFlight.acquire();
+                    permit = true;
+                    // 与校验共用令牌桶，批次用令牌所属的凭证发出请求
+                    credential = credentialPool.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    if (permit) {
+                        inFlight.release();
+                    }
+                    failed.addAll(productIds.subList(from, productIds.size()));
+                    log.warn("等待请求令牌时被中断，剩余商品计为失败 - 商品数: {}", productIds.size() - from);
+                    break;
+                }
+                batches.add(batch);
+                lookups.add(executor.submit(() -> {
+                    try {
+                        long start = System.nanoTime();
+                        TtsApiResponse apiResponse = ttsApiClient.getProductsByIds(batch, credential);
+                        long latency = System.nanoTime() - start;
+                        credentialPool.record(apiResponse, latency);
+                        batchSizer.record(batch, apiResponse, latency);
+                        return batchResolver.resolve(batch, apiResponse);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+                from = end;
+            }
+        }
 
-        int insertCount = productMapper.batchInsertIgnore(monitorList);
-        log.info("批量新增商品完成 - 成功: {}", insertCount);
+        for (int i = 0; i < lookups.size(); i++) {
+            List<String> batch = batches.get(i);
+            BatchResolver.BatchLookup lookup;
+            try {
+                lookup = lookups.get(i).get();
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                log.error("商品查询批次异常 - 商品数: {}", batch.size(), e);
+                failed.addAll(batch);
+                continue;
+            }
+            if (lookup.isDeferred()) {
+                failed.addAll(batch);
+                continue;
+            }
+            found.putAll(lookup.getFound());
+            unknown.addAll(lookup.getMissing());
+            failed.addAll(lookup.getFailed());
+            productInfoCache.put(lookup.getFound().values(), lookup.getMissing());
+        }
+    }
 
-        return insertCount;
+    /**
+     * 写入一块商品（INSERT IGNORE），写入失败时这些商品计为失败。
+     * 影响行数少于商品数时说明部分商品在查询已存在商品之后被并发新增（或被忽略），
+     * 此时无法区分由哪次调用写入：写入后存在的商品都计为新增，不存在的计为失败
+     */
+    private void insertChunk(List<TtsProductMonitor> chunk, ProductAddReport report, Set<String> failed) {
+        List<String> ids = chunk.stream().map(TtsProductMonitor::getProductId).collect(Collectors.toList());
+        try {
+            int inserted = productMapper.batchInsertIgnore(chunk);
+            if (inserted >= chunk.size()) {
+                report.getAdded().addAll(ids);
+                return;
+            }
+            Set<String> written = new HashSet<>();
+            productMapper.selectByProductIds(ids).forEach(row -> written.add(row.getProductId()));
+            for (String id : ids) {
+                if (written.contains(id)) {
+                    report.getAdded().add(id);
+                } else {
+                    failed.add(id);
+                }
+            }
+            log.info("部分商品被并发新增 - 本块: {}, 本次写入: {}, 并发写入: {}, 未写入: {}",
+                chunk.size(), inserted, written.size() - inserted, chunk.size() - written.size());
+        } catch (Exception e) {
+            log.error("批量写入商品失败 - 商品数: {}", chunk.size(), e);
+            failed.addAll(ids);
+        }
     }
 
     /**
@@ -243,7 +400,7 @@ public class ProductService implements IProductService {
     /**
      * 将 TTS API 响应转换为实体类
      */
-    private TtsProductMonitor convertToEntity(TtsApiResponse.ProductInfo productInfo) {
+    private TtsProductMonitor convertToEntity(TtsApiResponse.ProductInfo productInfo, LocalDateTime checkTime) {
         TtsProductMonitor monitor = new TtsProductMonitor();
         monitor.setProductId(productInfo.getId());
         monitor.setTitle(productInfo.getTitle());
@@ -269,7 +426,8 @@ public class ProductService implements IProductService {
         }
 
         monitor.setConfirmStatus(TtsProductMonitor.ConfirmStatus.PENDING);
-        monitor.setLastCheckTime(LocalDateTime.now());
+        monitor.setCheckHash(ProductSnapshotHasher.hash(monitor));
+        monitor.setLastCheckTime(checkTime);
 
         return monitor;
     }
@@ -0,0 +1,156 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.mapper.TtsRateBucketMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集群共享令牌桶
+ * 令牌桶保存在 tts_rate_bucket 表中，按数据库时钟以 qps 的速率补充。每次领取 chunk-size 个令牌
+ * 在本地使用，减少数据库往返；领取的令牌超过 slice-ttl 未用完时丢弃，避免囤积后集中发出
+ *
+ */
+@Slf4j
+public class SharedTokenBucket {
+
+    /**
+     * 数据库异常日志的最小间隔
+     */
+    private static final long ERROR_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final TtsRateBucketMapper bucketMapper;
+    private final String bucketKey;
+    private final double rate;
+    private final double capacity;
+    private final int chunkSize;
+    private final long sliceTtlNanos;
+    private final boolean failOpen;
+
+    /**
+     * 本地剩余令牌及其过期时间
+     */
+    private int localTokens = 0;
+    private long sliceExpiresAt = System.nanoTime();
+
+    private volatile boolean bucketCreated = false;
+    private long lastErrorLogNanos = System.nanoTime() - ERROR_LOG_INTERVAL_NANOS;
+
+    public SharedTokenBucket(TtsRateBucketMapper bucketMapper, String bucketKey, double rate, double capacity,
+                             int chunkSize, long sliceTtlNanos, boolean failOpen) {
+        this.bucketMapper = bucketMapper;
+        this.bucketKey = bucketKey;
+        this.rate = rate;
+        this.capacity = capacity;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.sliceTtlNanos = sliceTtlNanos;
+        this.failOpen = failOpen;
+    }
+
+    /**
+     * 获取一个令牌，全局令牌不足时等待
+     */
+    public void acquire() throws InterruptedException {
+        while (true) {
+            synchronized (this) {
+                if (takeLocal() || claim()) {
+                    return;
+                }
+            }
+            TimeUnit.MICROSECONDS.sleep(retryMicros());
+        }
+    }
+
+    /**
+     * 在等待时间内获取一个令牌
+     *
+     * @return 是否在等待时间内获取到
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            synchronized (this) {
+                if (takeLocal() || claim()) {
+                    return true;
+                }
+            }
+            long remainingMicros = TimeUnit.NANOSECONDS.toMicros(deadline - System.nanoTime());
+            if (remainingMicros <= 0) {
+                return false;
+            }
+            TimeUnit.MICROSECONDS.sleep(Math.min(retryMicros(), remainingMicros));
+        }
+    }
+
+    /**
+     * 不等待地获取一个令牌，只使用本地已领取的令牌，不访问数据库
+     */
+    public synchronized boolean tryAcquire() {
+        return takeLocal();
+    }
+
+    /**
+     * 归还一个已获取但未使用的令牌（本地令牌桶未放行时），领取的令牌已过期时直接丢弃
+     */
+    public synchronized void release() {
+        if (System.nanoTime() - sliceExpiresAt < 0) {
+            localTokens++;
+        }
+    }
+
+    public String getBucketKey() {
+        return bucketKey;
+    }
+
+    /**
+     * 使用本地已领取且未过期的令牌
+     */
+    private boolean takeLocal() {
+        if (localTokens > 0 && System.nanoTime() - sliceExpiresAt < 0) {
+            localTokens--;
+            return true;
+        }
+        localTokens = 0;
+        return false;
+    }
+
+    /**
+     * 从数据库领取一批令牌，不足一批时只领取一个；领取成功时消耗其中一个
+     */
+    private boolean claim() {
+        try {
+            ensureBucket();
+            int claimed = bucketMapper.claimTokens(bucketKey, chunkSize, rate, capacity) > 0 ? chunkSize
+                : chunkSize > 1 && bucketMapper.claimTokens(bucketKey, 1, rate, capacity) > 0 ? 1 : 0;
+            if (claimed == 0) {
+                return false;
+            }
+            localTokens = claimed - 1;
+            sliceExpiresAt = System.nanoTime() + sliceTtlNanos;
+            return true;
+        } catch (Exception e) {
+            long now = System.nanoTime();
+            if (now - lastErrorLogNanos >= ERROR_LOG_INTERVAL_NANOS) {
+                lastErrorLogNanos = now;
+                log.error("领取共享令牌失败，{} - 标识: {}", failOpen ? "暂时只按本实例速率限流" : "等待数据库恢复", bucketKey, e);
+            }
+            return failOpen;
+        }
+    }
+
+    /**
+     * 全局令牌不足时的重试间隔：约一个令牌的补充时间（随机抖动，避免各实例同时重试）
+     */
+    private long retryMicros() {
+        long waitMicros = (long) (1_000_000 / rate);
+        return waitMicros + ThreadLocalRandom.current().nextLong(waitMicros + 1);
+    }
+
+    private void ensureBucket() {
+        if (!bucketCreated) {
+            bucketMapper.insertIgnore(bucketKey, capacity);
+            bucketCreated = true;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.mapper.TtsRateBucketMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 集群共享令牌桶服务实现类
+ * 每个凭证一个令牌桶，所有实例、所有调用方式共用。本实例的自适应速率仍在本地生效，实际速率取两者中较低的一个
+ *
+ */
+@Slf4j
+@Service
+public class TokenBucketService implements ITokenBucketService {
+
+    private final TtsRateBucketMapper bucketMapper;
+    private final TtsApiProperties.SharedBucketConfig config;
+    private final Map<String, SharedTokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public TokenBucketService(TtsRateBucketMapper bucketMapper, TtsApiProperties ttsApiProperties) {
+        this.bucketMapper = bucketMapper;
+        this.config = ttsApiProperties.getRateLimit().getShared();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return config.getEnabled();
+    }
+
+    @Override
+    public SharedTokenBucket bucket(String bucketKey, double qps) {
+        if (!isEnabled()) {
+            return null;
+        }
+        return buckets.computeIfAbsent(bucketKey, key -> {
+            double capacity = config.getBurst() != null ? config.getBurst() : qps;
+            log.info("启用共享令牌桶 - 标识: {}, QPS: {}, 容量: {}, 每次领取: {}", key, qps, capacity, config.getChunkSize());
+            return new SharedTokenBucket(bucketMapper, key, qps, capacity, config.getChunkSize(),
+                config.getSliceTtl().toNanos(), config.getFailOpen());
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package com.tts.monitor.task;
+
+import com.tts.monitor.service.IImportJobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 商品导入任务扫描
+ * 定时领取等待中的任务和心跳超时的任务（应用重启或实例退出后从检查点继续）
+ *
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportJobTask {
+
+    private final IImportJobService importJobService;
+
+    @Scheduled(initialDelayString = "${tts.api.bulk-import.scan-interval:30s}",
+        fixedDelayString = "${tts.api.bulk-import.scan-interval:30s}")
+    public void dispatchImportJobs() {
+        try {
+            importJobService.dispatch();
+        } catch (Exception e) {
+            log.error("扫描商品导入任务异常", e);
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.tts.monitor.task;
 
-import com.tts.monitor.service.IAlertService;
-import com.tts.monitor.service.IProductCheckService;
+import com.tts.monitor.service.CheckTask;
+import com.tts.monitor.service.ICheckTaskService;
 import com.tts.monitor.service.ProductCheckService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,30 +19,28 @@ import org.springframework.stereotype.Component;
 @ConditionalOnProperty(prefix = "schedule.product-check", name = "enabled", havingValue = "true")
 public class ProductCheckTask {
 
-    private final IProductCheckService productCheckService;
-    private final IAlertService alertService;
+    private final ICheckTaskService checkTaskService;
 
     /**
      * 每日定时校验任务
-     * 默认每天凌晨2点执行
+     * 默认每天凌晨2点执行；手动触发的运行尚未结束时等待该运行，不重复执行
      */
     @Scheduled(cron = "${schedule.product-check.cron:0 0 2 * * ?}")
     public void scheduledProductCheck() {
         log.info("触发定时商品校验任务");
         
         try {
-            // 执行商品校验
-            ProductCheckService.CheckResult result = productCheckService.executeProductCheck();
+            // 执行商品校验，完成后由运行协调服务执行告警
+            CheckTask task = checkTaskService.submit(ICheckTaskService.SCOPE_ALL, null, true);
+            ProductCheckService.CheckResult result = task.getFuture().join();
             
             if (result.isSuccess()) {
-                log.info("定时商品校验任务完成 - 总数: {}, 有效: {}, 失效: {}, 耗时: {}ms",
+                log.info("定时商品校验任务{} - 运行ID: {}, 总数: {}, 有效: {}, 失效: {}, 耗时: {}ms",
+                    result.isStopped() ? "停在检查点（下次运行继续）" : "完成", result.getRunId(),
                     result.getTotalCount(), result.getValidCount(), 
                     result.getInvalidCount(), result.getDuration());
-                
-                // 校验完成后执行告警
-                alertService.executeAlert();
             } else {
-                log.error("定时商品校验任务失败 - 错误: {}", result.getErrorMessage());
+                log.error("定时商品校验任务失败 - 运行ID: {}, 错误: {}", result.getRunId(), result.getErrorMessage());
             }
             
         } catch (Exception e) {
@@ -0,0 +1,238 @@
+package com.tts.monitor.util;
+
+import com.tts.monitor.config.TtsApiProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 熔断器
+ * 按最近 window-size 次调用统计错误率和慢调用率，任一超过阈值时打开：打开期间调用直接失败，
+ * open-duration 后进入半开状态，放行 half-open-calls 个探测调用，全部正常则关闭，任一失败或过慢则重新打开。
+ * 每个许可记录发放时的状态代次，只统计当前代次的结果：打开前发出的调用晚到的结果不会被当作探测结果，
+ * 探测调用被取消时释放名额，不会一直停在半开状态
+ *
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    /**
+     * 等待熔断恢复时分段休眠的最长时间
+     */
+    private static final long WAIT_SLICE_MS = 200;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final boolean enabled;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final double slowCallRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    /**
+     * 最近调用的环形窗口：是否失败、是否过慢
+     */
+    private final boolean[] failures;
+    private final boolean[] slows;
+    private int index = 0;
+    private int count = 0;
+    private int failureCount = 0;
+    private int slowCount = 0;
+
+    private volatile State state = State.CLOSED;
+
+    /**
+     * 状态代次，每次状态变化时递增
+     */
+    private long generation = 0;
+    private long openedAt;
+    private int halfOpenIssued;
+    private int halfOpenSucceeded;
+    private volatile long openedCount = 0;
+
+    public CircuitBreaker(String name, TtsApiProperties.CircuitBreakerConfig config) {
+        this.name = name;
+        this.enabled = config.getEnabled();
+        int windowSize = Math.max(1, config.getWindowSize());
+        this.minimumCalls = Math.min(windowSize, Math.max(1, config.getMinimumCalls()));
+        this.failureRateThreshold = config.getFailureRateThreshold() / 100d;
+        this.slowCallNanos = config.getSlowCallDuration().toNanos();
+        this.slowCallRateThreshold = config.getSlowCallRateThreshold() / 100d;
+        this.openNanos = config.getOpenDuration().toNanos();
+        this.halfOpenCalls = Math.max(1, config.getHalfOpenCalls());
+        this.failures = new boolean[windowSize];
+        this.slows = new boolean[windowSize];
+    }
+
+    /**
+     * 获取调用许可：关闭时总是放行，打开时拒绝，半开时放行有限个探测调用
+     *
+     * @return 调用许可，拒绝时返回 null；调用结束后用 onResult 上报结果，未完成（取消）时用 release 归还
+     */
+    public synchronized Permit tryAcquire() {
+        if (!enabled || state == State.CLOSED) {
+            return new Permit(generation, false);
+        }
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return null;
+            }
+            state = State.HALF_OPEN;
+            generation++;
+            halfOpenIssued = 0;
+            halfOpenSucceeded = 0;
+            log.info("熔断器 {} 进入半开状态，放行 {} 个探测调用", name, halfOpenCalls);
+        }
+        if (halfOpenIssued < halfOpenCalls) {
+            halfOpenIssued++;
+            return new Permit(generation, true);
+        }
+        return null;
+    }
+
+    /**
+     * 记录一次调用的结果，许可发放后状态已变化（如打开前发出的调用）时忽略
+     *
+     * @param permit 调用许可
+     * @param failure 是否失败（超时、连接失败、5xx）
+     * @param durationNanos 调用耗时
+     */
+    public synchronized void onResult(Permit permit, boolean failure, long durationNanos) {
+        if (!enabled || permit.generation() != generation) {
+            return;
+        }
+        boolean slow = durationNanos >= slowCallNanos;
+        switch (state) {
+            case HALF_OPEN -> {
+                if (!permit.probe()) {
+                    return;
+                }
+                if (failure || slow) {
+                    open(failure ? "探测调用失败" : "探测调用过慢");
+                } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                    close();
+                }
+            }
+            case CLOSED -> {
+                if (count == failures.length) {
+                    failureCount -= failures[index] ? 1 : 0;
+                    slowCount -= slows[index] ? 1 : 0;
+                } else {
+                    count++;
+                }
+                failures[index] = failure;
+                slows[index] = slow;
+                failureCount += failure ? 1 : 0;
+                slowCount += slow ? 1 : 0;
+                index = (index + 1) % failures.length;
+
+                if (count >= minimumCalls) {
+                    double failureRate = (double) failureCount / count;
+                    double slowRate = (double) slowCount / count;
+                    if (failureRate >= failureRateThreshold) {
+                        open(String.format("错误率 %.0f%%", failureRate * 100));
+                    } else if (slowRate >= slowCallRateThreshold) {
+                        open(String.format("慢调用率 %.0f%%", slowRate * 100));
+                    }
+                }
+            }
+            default -> {
+                // 代次相同时不会处于打开状态
+            }
+        }
+    }
+
+    /**
+     * 归还没有结果的调用许可（调用被取消或未发出），探测名额可再次发放
+     *
+     * @param permit 调用许可
+     */
+    public synchronized void release(Permit permit) {
+        if (permit.probe() && permit.generation() == generation && state == State.HALF_OPEN && halfOpenIssued > 0) {
+            halfOpenIssued--;
+        }
+    }
+
+    /**
+     * 当前是否可以发起调用（不占用半开探测名额）
+     */
+    public synchronized boolean isCallPermitted() {
+        if (!enabled || state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            return System.nanoTime() - openedAt >= openNanos;
+        }
+        return halfOpenIssued < halfOpenCalls;
+    }
+
+    /**
+     * 等待熔断恢复到可以发起调用
+     *
+     * @param maxWait 最长等待时间
+     * @return 是否在等待时间内恢复
+     */
+    public boolean awaitCallPermitted(Duration maxWait) throws InterruptedException {
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        while (!isCallPermitted()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            Thread.sleep(Math.min(WAIT_SLICE_MS, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+        }
+        return true;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 熔断器打开的次数
+     */
+    public long getOpenedCount() {
+        return openedCount;
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        generation++;
+        openedAt = System.nanoTime();
+        openedCount++;
+        resetWindow();
+        log.warn("熔断器 {} 打开（{}），{}s 内调用直接失败", name, reason, TimeUnit.NANOSECONDS.toSeconds(openNanos));
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        generation++;
+        resetWindow();
+        log.info("熔断器 {} 关闭，恢复调用", name);
+    }
+
+    private void resetWindow() {
+        index = 0;
+        count = 0;
+        failureCount = 0;
+        slowCount = 0;
+        Arrays.fill(failures, false);
+        Arrays.fill(slows, false);
+    }
+
+    /**
+     * 调用许可
+     *
+     * @param generation 发放时的状态代次
+     * @param probe 是否为半开状态的探测调用
+     */
+    public record Permit(long generation, boolean probe) {
+    }
+}
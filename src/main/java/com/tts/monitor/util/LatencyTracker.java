@@ -0,0 +1,72 @@
+package com.tts.monitor.util;
+
+import java.util.Arrays;
+
+/**
+ * 请求耗时分布
+ * 保存最近 window-size 次请求的耗时，按分位数估算对冲阈值和请求超时。
+ * 分位数基于排序后的快照计算，快照每记录若干次才重新生成
+ *
+ */
+public class LatencyTracker {
+
+    /**
+     * 每记录多少次重新生成排序快照
+     */
+    private static final int REFRESH_EVERY = 16;
+
+    private final long[] samples;
+    private int index = 0;
+    private int count = 0;
+    private int sinceRefresh = 0;
+
+    /**
+     * 排序后的耗时快照
+     */
+    private long[] sorted = new long[0];
+
+    public LatencyTracker(int windowSize) {
+        this.samples = new long[Math.max(1, windowSize)];
+    }
+
+    /**
+     * 记录一次请求耗时（超时的请求记录超时时间，使分布能随耗时上升而变大）
+     */
+    public synchronized void record(long latencyNanos) {
+        samples[index] = latencyNanos;
+        index = (index + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        if (++sinceRefresh >= REFRESH_EVERY || sorted.length < REFRESH_EVERY) {
+            refresh();
+        }
+    }
+
+    /**
+     * 已记录的样本数（不超过窗口大小）
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * 耗时分位数（纳秒），没有样本时返回 0
+     *
+     * @param percentile 分位数（0-100）
+     */
+    public synchronized long percentile(double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100d * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+
+    private void refresh() {
+        long[] snapshot = Arrays.copyOf(samples, count);
+        Arrays.sort(snapshot);
+        sorted = snapshot;
+        sinceRefresh = 0;
+    }
+}
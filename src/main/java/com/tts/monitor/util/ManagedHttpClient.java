@@ -0,0 +1,370 @@
+package com.tts.monitor.util;
+
+import com.tts.monitor.config.HttpClientProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 托管的出站 HTTP 客户端
+ * 由多个共用同一专用执行器（虚拟线程）的 HttpClient 组成，请求按轮询分配：优先使用 HTTP/2 多路复用，
+ * 到同一主机的请求分散到 connections 条连接上，避免单条连接的并发流上限成为瓶颈。
+ * 运行开始前可预热连接，提前完成 TCP 和 TLS 握手。统计请求数、TLS 握手数（每次握手对应一条新连接）、
+ * 空闲时间内使用过的连接数（按 TLS 会话估算）和连接复用率
+ *
+ */
+@Slf4j
+public class ManagedHttpClient extends HttpClient {
+
+    private final String name;
+    private final List<HttpClient> clients = new ArrayList<>();
+    private final ExecutorService executor;
+    private final SSLContext sslContext;
+    private final boolean prewarmEnabled;
+    private final Duration prewarmTimeout;
+    private final long idleTimeoutNanos;
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder handshakes = new LongAdder();
+
+    /**
+     * 最近使用的 TLS 会话及最后使用时间，会话对象回收后自动移除
+     */
+    private final Map<SSLSession, Long> sessions = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * @param name 客户端名称（线程名和指标标签）
+     * @param properties 出站 HTTP 配置
+     */
+    public ManagedHttpClient(String name, HttpClientProperties properties) {
+        this.name = name;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-http-", 0).factory());
+        try {
+            this.sslContext = new CountingSslContext(SSLContext.getDefault(), handshakes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("无法初始化 SSLContext", e);
+        }
+        int connections = Math.max(1, properties.getConnections());
+        for (int i = 0; i < connections; i++) {
+            clients.add(HttpClient.newBuilder()
+                .version(properties.getVersion())
+                .connectTimeout(properties.getConnectTimeout())
+                .executor(executor)
+                .sslContext(sslContext)
+                .build());
+        }
+        this.prewarmEnabled = properties.getPrewarm();
+        this.prewarmTimeout = properties.getPrewarmTimeout();
+        this.idleTimeoutNanos = properties.getIdleTimeout().toNanos();
+        log.info("初始化出站 HTTP 客户端 - 名称: {}, 版本: {}, 连接扇出: {}", name, properties.getVersion(), connections);
+    }
+
+    /**
+     * 预热到目标地址的连接：每个内部客户端发出一个 HEAD 请求，提前完成 TCP 和 TLS 握手。
+     * 任何状态码都视为连接已建立，超时或失败只记录日志
+     *
+     * @param uri 目标地址
+     */
+    public void prewarm(URI uri) {
+        if (!prewarmEnabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long handshakesBefore = handshakes.sum();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .method("HEAD", HttpRequest.BodyPublishers.noBody())
+            .timeout(prewarmTimeout)
+            .build();
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (HttpClient client : clients) {
+            requests.increment();
+            futures.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenAccept(this::onResponse));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .get(prewarmTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            log.info("预热连接完成 - 客户端: {}, 主机: {}, 连接数: {}, 新握手: {}, 耗时: {}ms", name, uri.getHost(),
+                clients.size(), handshakes.sum() - handshakesBefore,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("预热连接失败 - 客户端: {}, 主机: {}, 原因: {}", name, uri.getHost(), e.toString());
+        }
+    }
+
+    /**
+     * 注册连接指标（按 client 标签区分）
+     */
+    public void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("outbound.http.requests", requests, LongAdder::sum)
+            .tag("client", name)
+            .description("发出的请求数")
+            .register(registry);
+        FunctionCounter.builder("outbound.http.handshakes", handshakes, LongAdder::sum)
+            .tag("client", name)
+            .description("TLS 握手数（新建连接数）")
+            .register(registry);
+        Gauge.builder("outbound.http.connections.active", this, ManagedHttpClient::getActiveConnections)
+            .tag("client", name)
+            .description("空闲时间内使用过的连接数（按 TLS 会话估算）")
+            .register(registry);
+        Gauge.builder("outbound.http.connection.reuse", this, ManagedHttpClient::getReuseRatio)
+            .tag("client", name)
+            .description("连接复用率：未新建连接的请求占比")
+            .register(registry);
+    }
+
+    /**
+     * 发出的请求数
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * TLS 握手数（新建连接数）
+     */
+    public long getHandshakeCount() {
+        return handshakes.sum();
+    }
+
+    /**
+     * 空闲时间内使用过的连接数（按 TLS 会话估算）
+     */
+    public int getActiveConnections() {
+        long now = System.nanoTime();
+        synchronized (sessions) {
+            sessions.values().removeIf(lastUsed -> now - lastUsed > idleTimeoutNanos);
+            return sessions.size();
+        }
+    }
+
+    /**
+     * 连接复用率：未新建连接的请求占比，没有请求时为 0
+     */
+    public double getReuseRatio() {
+        long total = requests.sum();
+        return total == 0 ? 0 : Math.max(0, 1 - (double) handshakes.sum() / total);
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+        throws IOException, InterruptedException {
+        requests.increment();
+        HttpResponse<T> response = next().send(request, handler);
+        onResponse(response);
+        return response;
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                            HttpResponse.BodyHandler<T> handler) {
+        return sendAsync(request, handler, null);
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                            HttpResponse.BodyHandler<T> handler,
+                                                            HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+        requests.increment();
+        CompletableFuture<HttpResponse<T>> future = next().sendAsync(request, handler, pushPromiseHandler);
+        // 统计挂在旁路上，返回原始 Future，取消时能中止底层交换
+        future.thenAccept(this::onResponse);
+        return future;
+    }
+
+    @Override
+    public Optional<CookieHandler> cookieHandler() {
+        return clients.get(0).cookieHandler();
+    }
+
+    @Override
+    public Optional<Duration> connectTimeout() {
+        return clients.get(0).connectTimeout();
+    }
+
+    @Override
+    public Redirect followRedirects() {
+        return clients.get(0).followRedirects();
+    }
+
+    @Override
+    public Optional<ProxySelector> proxy() {
+        return clients.get(0).proxy();
+    }
+
+    @Override
+    public SSLContext sslContext() {
+        return sslContext;
+    }
+
+    @Override
+    public SSLParameters sslParameters() {
+        return clients.get(0).sslParameters();
+    }
+
+    @Override
+    public Optional<Authenticator> authenticator() {
+        return clients.get(0).authenticator();
+    }
+
+    @Override
+    public Version version() {
+        return clients.get(0).version();
+    }
+
+    @Override
+    public Optional<Executor> executor() {
+        return Optional.of(executor);
+    }
+
+    @Override
+    public void shutdown() {
+        clients.forEach(HttpClient::shutdown);
+        executor.shutdown();
+    }
+
+    @Override
+    public void shutdownNow() {
+        clients.forEach(HttpClient::shutdownNow);
+        executor.shutdownNow();
+    }
+
+    @Override
+    public boolean awaitTermination(Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        for (HttpClient client : clients) {
+            if (!client.awaitTermination(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())))) {
+                return false;
+            }
+        }
+        return executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return clients.stream().allMatch(HttpClient::isTerminated) && executor.isTerminated();
+    }
+
+    @Override
+    public void close() {
+        clients.forEach(HttpClient::close);
+        executor.close();
+    }
+
+    private HttpClient next() {
+        return clients.get(Math.floorMod(cursor.getAndIncrement(), clients.size()));
+    }
+
+    private void onResponse(HttpResponse<?> response) {
+        response.sslSession().ifPresent(session -> sessions.put(session, System.nanoTime()));
+    }
+
+    /**
+     * 统计握手次数的 SSLContext：HttpClient 每建立一条 TLS 连接创建一个 SSLEngine
+     */
+    private static final class CountingSslContext extends SSLContext {
+
+        private CountingSslContext(SSLContext delegate, LongAdder handshakes) {
+            super(new CountingSpi(delegate, handshakes), delegate.getProvider(), delegate.getProtocol());
+        }
+    }
+
+    private static final class CountingSpi extends SSLContextSpi {
+
+        private final SSLContext delegate;
+        private final LongAdder handshakes;
+
+        private CountingSpi(SSLContext delegate, LongAdder handshakes) {
+            this.delegate = delegate;
+            this.handshakes = handshakes;
+        }
+
+        @Override
+        protected void engineInit(KeyManager[] km, TrustManager[] tm, SecureRandom random) {
+            // 使用已初始化的默认 SSLContext
+        }
+
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            return delegate.getSocketFactory();
+        }
+
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            return delegate.getServerSocketFactory();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            handshakes.increment();
+            return delegate.createSSLEngine();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            handshakes.increment();
+            return delegate.createSSLEngine(host, port);
+        }
+
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return delegate.getServerSessionContext();
+        }
+
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            return delegate.getClientSessionContext();
+        }
+
+        @Override
+        protected SSLParameters engineGetDefaultSSLParameters() {
+            return delegate.getDefaultSSLParameters();
+        }
+
+        @Override
+        protected SSLParameters engineGetSupportedSSLParameters() {
+            return delegate.getSupportedSSLParameters();
+        }
+    }
+}
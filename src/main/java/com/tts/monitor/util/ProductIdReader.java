@@ -0,0 +1,111 @@
+package com.tts.monitor.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 商品ID流式读取器
+ * 逐行读取上传的文件，不把整个文件读入内存。支持两种格式：
+ * CSV（取每行第一列，首行不是商品ID时视为表头跳过）和按行分隔的商品ID（每行一个，可带 JSON 字符串引号）。
+ * 空行跳过，其余无法解析为商品ID的行计入无效行数
+ *
+ */
+public class ProductIdReader implements Closeable {
+
+    /**
+     * 商品ID最大长度（与 product_id 字段一致）
+     */
+    private static final int MAX_ID_LENGTH = 64;
+
+    private final BufferedReader reader;
+    private boolean firstLine = true;
+    private int lineCount;
+    private int invalidLineCount;
+
+    public ProductIdReader(InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 读取下一个商品ID
+     *
+     * @return 商品ID，读到文件末尾时返回 null
+     */
+    public String next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineCount++;
+            boolean header = firstLine;
+            if (firstLine && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+                line = line.substring(1);
+            }
+            String field = firstField(line);
+            if (field.isEmpty()) {
+                continue;
+            }
+            firstLine = false;
+            if (isProductId(field)) {
+                return field;
+            }
+            if (!header) {
+                invalidLineCount++;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 已读取的行数
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * 无法解析为商品ID的行数（不含表头）
+     */
+    public int getInvalidLineCount() {
+        return invalidLineCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * 取一行的第一列（逗号或制表符分隔），去掉首尾空白和引号
+     */
+    private static String firstField(String line) {
+        int end = line.length();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ',' || c == '\t') {
+                end = i;
+                break;
+            }
+        }
+        String field = line.substring(0, end).strip();
+        if (field.length() >= 2 && field.charAt(0) == '"' && field.charAt(field.length() - 1) == '"') {
+            field = field.substring(1, field.length() - 1).strip();
+        }
+        return field;
+    }
+
+    private static boolean isProductId(String field) {
+        if (field.length() > MAX_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,43 @@
+package com.tts.monitor.util;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.tts.monitor.entity.TtsProductMonitor;
+
+/**
+ * 商品快照哈希工具类
+ * 对校验写回的字段（有效性、佣金、标题、店铺）计算 64 位哈希，
+ * 与库中 check_hash 相同时说明接口返回内容未变化，可跳过写库
+ *
+ */
+public class ProductSnapshotHasher {
+
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    private ProductSnapshotHasher() {
+    }
+
+    /**
+     * 计算商品快照哈希
+     *
+     * @param product 商品（使用 isValid、commission*、title、shopName 字段）
+     * @return 64 位哈希值
+     */
+    public static long hash(TtsProductMonitor product) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putInt(product.getIsValid() != null ? product.getIsValid() : -1);
+        hasher.putInt(product.getCommissionRate() != null ? product.getCommissionRate() : -1);
+        putField(hasher, product.getCommissionAmount());
+        putField(hasher, product.getCommissionCurrency());
+        putField(hasher, product.getTitle());
+        putField(hasher, product.getShopName());
+        return hasher.hash().asLong();
+    }
+
+    private static void putField(Hasher hasher, String value) {
+        if (value != null) {
+            hasher.putUnencodedChars(value);
+        }
+        hasher.putChar(FIELD_SEPARATOR);
+    }
+}
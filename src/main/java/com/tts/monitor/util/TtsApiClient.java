@@ -1,20 +1,56 @@
 package com.tts.monitor.util;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.CountingInputStream;
 import com.tts.monitor.config.TtsApiProperties;
 import com.tts.monitor.dto.tts.TtsApiResponse;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * TTS API 工具类
@@ -22,13 +58,131 @@ import java.util.Map;
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class TtsApiClient {
 
     private final TtsApiProperties ttsApiProperties;
-    private final ObjectMapper objectMapper;
+
+    /**
+     * 响应解码器，只读取商品 ID、标题、店铺名称和佣金
+     */
+    private final TtsProductDecoder productDecoder;
     private final HttpClient httpClient;
 
+    /**
+     * 读取并解码响应体的执行器（阻塞读取，不在 HttpClient 的完成线程上执行）
+     * 优先使用出站 HTTP 客户端的虚拟线程执行器，客户端未配置执行器时使用独立的虚拟线程执行器
+     */
+    private final Executor decodeExecutor;
+
+    /**
+     * 请求签名与 URL 构建
+     */
+    private final TtsRequestSigner requestSigner;
+
+    /**
+     * 在途请求名额
+     */
+    private final Semaphore inFlightPermits;
+
+    /**
+     * 等待在途名额的请求
+     */
+    private final Queue<Runnable> waitingRequests = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 熔断器，TTS 接口故障时调用直接失败，不再等待超时
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * 最近请求的耗时分布，用于对冲阈值和自适应超时
+     */
+    private final LatencyTracker latencyTracker;
+
+    /**
+     * 调用方未传入凭证时的凭证来源（凭证池），未配置时固定使用 app-key、app-secret、access-token
+     */
+    private final TtsCredentialProvider credentialProvider;
+
+    /**
+     * 视为鉴权失败的业务错误码
+     */
+    private final Set<Integer> authErrorCodes;
+
+    /**
+     * 在途请求登记：商品 ID -> 包含该商品的在途请求的结果
+     */
+    private final Map<String, CompletableFuture<TtsApiResponse>> inFlightIds = new ConcurrentHashMap<>();
+
+    private final LongAdder requestsSent = new LongAdder();
+
+    /**
+     * 合并到其他在途请求的商品数
+     */
+    private final LongAdder coalescedIds = new LongAdder();
+
+    /**
+     * 接收的响应体字节数（压缩时为压缩后的字节数）
+     */
+    private final LongAdder wireBytes = new LongAdder();
+
+    /**
+     * 解压后的响应体字节数
+     */
+    private final LongAdder decodedBytes = new LongAdder();
+    private final LongAdder hedgesSent = new LongAdder();
+    private final LongAdder hedgesWon = new LongAdder();
+
+    public TtsApiClient(TtsApiProperties ttsApiProperties, ObjectMapper objectMapper, HttpClient httpClient,
+                        ObjectProvider<MeterRegistry> meterRegistry,
+                        ObjectProvider<TtsCredentialProvider> credentialProvider) {
+        this.ttsApiProperties = ttsApiProperties;
+        this.productDecoder = new TtsProductDecoder(objectMapper);
+        this.httpClient = httpClient;
+        this.decodeExecutor = httpClient.executor().orElseGet(() ->
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("tts-decode-", 0).factory()));
+        this.requestSigner = new TtsRequestSigner(ttsApiProperties.getBaseUrl(), API_PATH);
+        this.inFlightPermits = new Semaphore(ttsApiProperties.getClient().getMaxInFlight());
+        this.circuitBreaker = new CircuitBreaker("tts-api", ttsApiProperties.getCircuitBreaker());
+        this.latencyTracker = new LatencyTracker(ttsApiProperties.getClient().getLatencyWindow());
+        TtsCredential defaultCredential = new TtsCredential("default", ttsApiProperties.getAppKey(),
+            ttsApiProperties.getAppSecret(), ttsApiProperties.getAccessToken());
+        TtsCredentialProvider provider = credentialProvider.getIfAvailable();
+        this.credentialProvider = provider != null ? provider : () -> defaultCredential;
+        this.authErrorCodes = Set.copyOf(ttsApiProperties.getCredentialPool().getAuthErrorCodes());
+        meterRegistry.ifAvailable(registry -> {
+            Gauge.builder("tts.api.timeout.effective", this, TtsApiClient::currentTimeoutMs)
+                .description("当前请求超时时间（毫秒）")
+                .register(registry);
+            Gauge.builder("tts.api.hedge.threshold", this, TtsApiClient::hedgeDelayMs)
+                .description("触发对冲的耗时阈值（毫秒）")
+                .register(registry);
+            FunctionCounter.builder("tts.api.hedge.sent", hedgesSent, LongAdder::sum)
+                .description("发出的对冲请求数")
+                .register(registry);
+            FunctionCounter.builder("tts.api.response.bytes.wire", wireBytes, LongAdder::sum)
+                .description("接收的响应体字节数（压缩传输时为压缩后的字节数）")
+                .baseUnit("bytes")
+                .register(registry);
+            FunctionCounter.builder("tts.api.response.bytes.decoded", decodedBytes, LongAdder::sum)
+                .description("解压后的响应体字节数")
+                .baseUnit("bytes")
+                .register(registry);
+            FunctionCounter.builder("tts.api.coalesced.ids", coalescedIds, LongAdder::sum)
+                .description("合并到其他在途请求、未重复查询的商品数")
+                .register(registry);
+            FunctionCounter.builder("tts.api.hedge.won", hedgesWon, LongAdder::sum)
+                .description("对冲请求先于原请求返回的次数")
+                .register(registry);
+            Gauge.builder("tts.api.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("熔断器状态：0 关闭，1 打开，2 半开")
+                .register(registry);
+            FunctionCounter.builder("tts.api.circuit.opened", circuitBreaker, CircuitBreaker::getOpenedCount)
+                .description("熔断器打开的次数")
+                .register(registry);
+        });
+    }
+
     /**
      * API 路径常量
      */
@@ -36,81 +190,746 @@ public class TtsApiClient {
     private static final String HEADER_ACCESS_TOKEN = "x-tts-access-token";
     private static final String HEADER_CONTENT_TYPE = "Content-Type";
     private static final String CONTENT_TYPE_JSON = "application/json";
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    /**
+     * 解压缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 请求阶段：排队等待在途名额、已发出、排队超时未发出
+     */
+    private static final int QUEUED = 0;
+    private static final int SENT = 1;
+    private static final int EXPIRED = 2;
 
     /**
      * 查询商品信息（批量）
+     * 同步调用，等价于等待异步调用完成；未经令牌桶，由凭证来源选取凭证
      * 
      * @param productIds 商品ID列表
      * @return TTS API 响应
      */
     public TtsApiResponse getProductsByIds(List<String> productIds) {
+        return getProductsByIds(productIds, null);
+    }
+
+    /**
+     * 查询商品信息（批量），使用调用方获取令牌时选定的凭证
+     *
+     * @param productIds 商品ID列表
+     * @param credential 令牌所属的凭证，为 null 时由凭证来源选取
+     * @return TTS API 响应
+     */
+    public TtsApiResponse getProductsByIds(List<String> productIds, TtsCredential credential) {
+        return getProductsByIdsAsync(productIds, credential, null).join();
+    }
+
+    /**
+     * 查询商品信息（批量），耗时超过阈值时对冲
+     *
+     * @param productIds 商品ID列表
+     * @param credential 令牌所属的凭证，为 null 时由凭证来源选取
+     * @param hedgeBudget 对冲请求的令牌来源，返回令牌所属的凭证，返回 null 时不发出对冲请求
+     * @return TTS API 响应
+     */
+    public TtsApiResponse getProductsByIds(List<String> productIds, TtsCredential credential,
+                                           Supplier<TtsCredential> hedgeBudget) {
+        return getProductsByIdsAsync(productIds, credential, hedgeBudget).join();
+    }
+
+    /**
+     * 异步查询商品信息（批量）
+     * 在途请求数超过上限时排队等待，不占用调用线程；超时从取得在途许可、实际发出时开始计算，不包含排队时间（排队最多等待一个超时时间）。
+     * 返回的 Future 不会异常完成，失败时返回错误响应
+     * 
+     * @param productIds 商品ID列表
+     * @return TTS API 响应
+     */
+    public CompletableFuture<TtsApiResponse> getProductsByIdsAsync(List<String> productIds) {
+        return getProductsByIdsAsync(productIds, null, null);
+    }
+
+    /**
+     * 异步查询商品信息（批量），耗时超过阈值时对冲
+     * 请求耗时超过最近请求的分位数阈值（hedge.percentile）仍未返回时，从 hedgeBudget 获取令牌后用返回的凭证发出相同的请求，
+     * 取先返回的正常结果并取消另一个请求。对冲请求与原请求共用截止时间。
+     * 商品已在其他在途请求中时（client.coalesce）等待该请求的结果，只为其余商品发出请求，结果合并后返回
+     *
+     * @param productIds 商品ID列表
+     * @param credential 令牌所属的凭证，为 null 时由凭证来源选取
+     * @param hedgeBudget 对冲请求的令牌来源，为 null 或返回 null 时不发出对冲请求
+     * @return TTS API 响应
+     */
+    public CompletableFuture<TtsApiResponse> getProductsByIdsAsync(List<String> productIds, TtsCredential credential,
+                                                                   Supplier<TtsCredential> hedgeBudget) {
         if (productIds == null || productIds.isEmpty()) {
             log.warn("商品ID列表为空，跳过查询");
-            return createEmptyResponse();
+            return CompletableFuture.completedFuture(createEmptyResponse());
+        }
+        TtsCredential resolved = credential != null ? credential : credentialProvider.next();
+        if (!ttsApiProperties.getClient().getCoalesce()) {
+            return request(productIds, resolved, hedgeBudget);
         }
 
-        try {
-            // 生成时间戳（秒级）
-            long timestamp = System.currentTimeMillis() / 1000;
-
-            // 构建查询参数
-            Map<String, String> params = new HashMap<>();
-            params.put("app_key", ttsApiProperties.getAppKey());
-            params.put("timestamp", String.valueOf(timestamp));
-            params.put("product_ids", String.join(",", productIds));
-
-            // 生成签名
-            String sign = TtsSignatureUtil.generateSign(
-                params,
-                null,
-                ttsApiProperties.getAppSecret(),
-                API_PATH,
-                CONTENT_TYPE_JSON
-            );
-            params.put("sign", sign);
-
-            // 构建完整URL
-            String queryString = TtsSignatureUtil.buildQueryString(params);
-            String fullUrl = ttsApiProperties.getBaseUrl() + API_PATH + "?" + queryString;
-
-            log.debug("发送 TTS API 请求 - URL: {}, 商品数量: {}", fullUrl, productIds.size());
-
-            // 构建请求
-            HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(fullUrl))
-                .header(HEADER_CONTENT_TYPE, CONTENT_TYPE_JSON)
-                .header(HEADER_ACCESS_TOKEN, ttsApiProperties.getAccessToken())
-                .POST(HttpRequest.BodyPublishers.noBody())
-                .timeout(Duration.ofMillis(ttsApiProperties.getTimeout()))
-                .build();
-
-            // 发送请求
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            // 记录响应
-            log.debug("TTS API 响应 - 状态码: {}, 响应体: {}", response.statusCode(), response.body());
-
-            // 解析响应
-            if (response.statusCode() == 200) {
-                TtsApiResponse apiResponse = objectMapper.readValue(response.body(), TtsApiResponse.class);
-                if (apiResponse.isSuccess()) {
-                    log.info("TTS API 查询成功 - 请求商品数: {}, 返回商品数: {}", 
-                        productIds.size(), 
-                        apiResponse.getData() != null && apiResponse.getData().getProducts() != null 
-                            ? apiResponse.getData().getProducts().size() : 0);
-                } else {
-                    log.warn("TTS API 返回错误 - code: {}, message: {}", 
-                        apiResponse.getCode(), apiResponse.getMessage());
+        // 登记本次请求的商品，已在途的商品按所在请求分组
+        CompletableFuture<TtsApiResponse> own = new CompletableFuture<>();
+        List<String> ownIds = new ArrayList<>(productIds.size());
+        Map<CompletableFuture<TtsApiResponse>, List<String>> attached = null;
+        for (String id : productIds) {
+            CompletableFuture<TtsApiResponse> pending = inFlightIds.putIfAbsent(id, own);
+            if (pending == null || pending == own) {
+                ownIds.add(id);
+            } else {
+                if (attached == null) {
+                    attached = new LinkedHashMap<>();
+                }
+                attached.computeIfAbsent(pending, k -> new ArrayList<>()).add(id);
+            }
+        }
+
+        CompletableFuture<TtsApiResponse> response = null;
+        if (!ownIds.isEmpty()) {
+            try {
+                response = request(ownIds, resolved, hedgeBudget);
+            } catch (RuntimeException e) {
+                for (String id : ownIds) {
+                    inFlightIds.remove(id, own);
+                }
+                own.complete(createErrorResponse("调用API异常: " + e.getMessage()));
+                throw e;
+            }
+            response.whenComplete((apiResponse, e) -> {
+                // 先移除登记再完成，之后的查询发出新请求
+                for (String id : ownIds) {
+                    inFlightIds.remove(id, own);
                 }
+                own.complete(e == null ? apiResponse : createErrorResponse("调用API异常: " + e.getMessage()));
+            });
+        }
+        if (attached == null) {
+            return response;
+        }
+
+        int coalesced = productIds.size() - ownIds.size();
+        coalescedIds.add(coalesced);
+        log.debug("商品已在其他请求中，等待其结果 - 商品数: {}, 合并: {}, 在途请求: {}",
+            productIds.size(), coalesced, attached.size());
+        Map<CompletableFuture<TtsApiResponse>, List<String>> parts = attached;
+        List<CompletableFuture<TtsApiResponse>> waits = new ArrayList<>(parts.keySet());
+        if (response != null) {
+            waits.add(own);
+        }
+        CompletableFuture<TtsApiResponse> ownResult = response != null ? own : null;
+        return CompletableFuture.allOf(waits.toArray(new CompletableFuture[0]))
+            .thenApply(v -> merge(ownResult != null ? ownResult.join() : null, resolved, parts, coalesced));
+    }
+
+    /**
+     * 合并本次请求与在途请求的结果：任一请求失败时返回失败响应，否则返回各请求中属于本次查询的商品。
+     * 本次未发出请求或失败来自其他请求时标记为合并结果，调用方不重复记录速率反馈。
+     * 合并结果记录本次调用的凭证名称，调用方据此结束该凭证的试探
+     *
+     * @param own 本次请求的响应，全部商品已在途时为 null
+     * @param credential 本次调用的凭证
+     * @param attached 在途请求 -> 从该请求获取结果的商品
+     * @param coalesced 合并到在途请求的商品数
+     */
+    private TtsApiResponse merge(TtsApiResponse own, TtsCredential credential,
+                                 Map<CompletableFuture<TtsApiResponse>, List<String>> attached, int coalesced) {
+        TtsApiResponse base = own;
+        if (own == null || own.isSuccess()) {
+            for (CompletableFuture<TtsApiResponse> pending : attached.keySet()) {
+                TtsApiResponse other = pending.join();
+                if (base == null || !other.isSuccess()) {
+                    base = other;
+                    if (!other.isSuccess()) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        TtsApiResponse merged = new TtsApiResponse();
+        merged.setCode(base.getCode());
+        merged.setMessage(base.getMessage());
+        merged.setRequestId(base.getRequestId());
+        merged.setHttpStatus(base.getHttpStatus());
+        merged.setRetryAfter(base.getRetryAfter());
+        merged.setTimedOut(base.isTimedOut());
+        merged.setCircuitOpen(base.isCircuitOpen());
+        merged.setCredential(credential.name());
+        merged.setAuthFailed(base.isAuthFailed());
+        merged.setCoalescedIds(coalesced);
+        merged.setCoalesced(base != own);
+        if (!base.isSuccess()) {
+            return merged;
+        }
+
+        List<TtsApiResponse.ProductInfo> products = new ArrayList<>();
+        if (own != null && own.getData() != null && own.getData().getProducts() != null) {
+            products.addAll(own.getData().getProducts());
+        }
+        attached.forEach((pending, ids) -> {
+            TtsApiResponse other = pending.join();
+            if (other.getData() == null || other.getData().getProducts() == null) {
+                return;
+            }
+            Set<String> wanted = new HashSet<>(ids);
+            for (TtsApiResponse.ProductInfo product : other.getData().getProducts()) {
+                if (wanted.contains(product.getId())) {
+                    products.add(product);
+                }
+            }
+        });
+        TtsApiResponse.DataWrapper data = new TtsApiResponse.DataWrapper();
+        data.setProducts(products);
+        merged.setData(data);
+        return merged;
+    }
+
+    /**
+     * 为一组商品发出查询（熔断检查、自适应超时和对冲）
+     */
+    private CompletableFuture<TtsApiResponse> request(List<String> productIds, TtsCredential credential,
+                                                      Supplier<TtsCredential> hedgeBudget) {
+        CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            log.debug("TTS API 熔断中，调用直接失败 - 商品数量: {}", productIds.size());
+            TtsApiResponse rejected = createErrorResponse("TTS API 熔断中");
+            rejected.setCircuitOpen(true);
+            rejected.setCredential(credential.name());
+            return CompletableFuture.completedFuture(rejected);
+        }
+
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(currentTimeoutMs());
+        Exchange primary = exchange(productIds, credential, permit, timeoutNanos, 0);
+        if (hedgeBudget == null || !ttsApiProperties.getHedge().getEnabled()
+            || latencyTracker.getCount() < ttsApiProperties.getHedge().getMinSamples()) {
+            return primary.response;
+        }
+
+        CompletableFuture<TtsApiResponse> result = new CompletableFuture<>();
+        AtomicReference<Exchange> hedgeRef = new AtomicReference<>();
+        primary.response.whenComplete((apiResponse, e) -> {
+            if (result.complete(apiResponse)) {
+                Exchange hedge = hedgeRef.get();
+                if (hedge != null) {
+                    hedge.cancel();
+                }
+            }
+        });
+        // 对冲阈值从原请求发出时开始计算，排队时间不计入
+        primary.sent.thenAccept(deadlineNanos -> CompletableFuture
+            .delayedExecutor(hedgeDelayMs(), TimeUnit.MILLISECONDS)
+            .execute(() -> hedge(productIds, hedgeBudget, deadlineNanos, primary, result, hedgeRef)));
+        return result;
+    }
+
+    /**
+     * 原请求耗时超过阈值仍未返回时，从 hedgeBudget 获取令牌后发出对冲请求，与原请求共用截止时间
+     */
+    private void hedge(List<String> productIds, Supplier<TtsCredential> hedgeBudget, long deadlineNanos,
+                       Exchange primary, CompletableFuture<TtsApiResponse> result,
+                       AtomicReference<Exchange> hedgeRef) {
+        if (result.isDone() || !allowHedge(deadlineNanos)) {
+            return;
+        }
+        CircuitBreaker.Permit hedgePermit = circuitBreaker.tryAcquire();
+        if (hedgePermit == null) {
+            return;
+        }
+        TtsCredential hedgeCredential = hedgeBudget.get();
+        if (hedgeCredential == null) {
+            circuitBreaker.release(hedgePermit);
+            return;
+        }
+        hedgesSent.increment();
+        log.debug("TTS API 请求耗时超过阈值，发出对冲请求 - 商品数量: {}", productIds.size());
+        Exchange hedge = exchange(productIds, hedgeCredential, hedgePermit, 0, deadlineNanos);
+        hedgeRef.set(hedge);
+        if (result.isDone()) {
+            hedge.cancel();
+            return;
+        }
+        hedge.response.whenComplete((apiResponse, e) -> {
+            // 对冲请求失败时继续等待原请求
+            if (!hedge.isCancelled() && !isFailure(apiResponse) && result.complete(apiResponse)) {
+                hedgesWon.increment();
+                primary.cancel();
+            }
+        });
+    }
+
+    /**
+     * 用给定凭证发出一次请求，返回的 Future 不会异常完成；响应记录请求使用的凭证名称。
+     * 超时和耗时从取得在途名额、实际发出时开始计算，排队时间不计入；排队超过超时时间时不再发出，
+     * 返回未发出的错误响应，不计入熔断和耗时统计。结果按熔断许可上报，请求被取消或未发出时归还许可
+     *
+     * @param timeoutNanos 请求超时，从发出时开始计算（deadlineNanos 为 0 时使用）
+     * @param deadlineNanos 固定的截止时间（对冲请求与原请求共用），为 0 时按 timeoutNanos 计算
+     */
+    private Exchange exchange(List<String> productIds, TtsCredential credential, CircuitBreaker.Permit permit,
+                              long timeoutNanos, long deadlineNanos) {
+        CompletableFuture<TtsApiResponse> raw = new CompletableFuture<>();
+        CompletableFuture<Long> sent = new CompletableFuture<>();
+        AtomicInteger phase = new AtomicInteger(QUEUED);
+        AtomicLong sentNanos = new AtomicLong();
+        requestsSent.increment();
+
+        // 排队最多等待一个超时时间，超过后不再发出
+        long queueLimitNanos = deadlineNanos != 0 ? deadlineNanos - System.nanoTime() : timeoutNanos;
+        CompletableFuture.delayedExecutor(Math.max(1, queueLimitNanos), TimeUnit.NANOSECONDS).execute(() -> {
+            if (phase.compareAndSet(QUEUED, EXPIRED)) {
+                raw.completeExceptionally(new QueueTimeoutException());
+            }
+        });
+        acquireSlot(() -> {
+            if (!phase.compareAndSet(QUEUED, SENT) || raw.isDone()) {
+                // 排队期间已超时或被取消
+                releaseSlot();
+                return;
+            }
+            long now = System.nanoTime();
+            long deadline = deadlineNanos != 0 ? deadlineNanos : now + timeoutNanos;
+            sentNanos.set(now);
+            raw.orTimeout(Math.max(1, deadline - now), TimeUnit.NANOSECONDS);
+            sent.complete(deadline);
+            send(productIds, credential, deadline, raw);
+        });
+
+        CompletableFuture<TtsApiResponse> response = raw.handle((apiResponse, e) -> {
+            if (e == null) {
                 return apiResponse;
-            } else {
-                log.error("TTS API 请求失败 - HTTP状态码: {}, 响应: {}", response.statusCode(), response.body());
-                return createErrorResponse("HTTP请求失败: " + response.statusCode());
             }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof CancellationException) {
+                // 另一个请求已先返回
+                return createErrorResponse("请求已取消");
+            }
+            if (cause instanceof QueueTimeoutException) {
+                log.warn("等待在途名额超时，请求未发出 - 商品数量: {}", productIds.size());
+                return createErrorResponse("等待在途名额超时，请求未发出");
+            }
+            if (cause instanceof TimeoutException) {
+                long timeoutMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentNanos.get());
+                log.error("调用 TTS API 超时 - 商品数量: {}, 超时时间: {}ms", productIds.size(), timeoutMs);
+                TtsApiResponse timeoutResponse = createErrorResponse("调用API超时: " + timeoutMs + "ms");
+                timeoutResponse.setTimedOut(true);
+                return timeoutResponse;
+            }
+            log.error("调用 TTS API 异常 - 商品ID: {}", productIds, cause);
+            return createErrorResponse("调用API异常: " + cause.getMessage());
+        }).thenApply(apiResponse -> {
+            apiResponse.setCredential(credential.name());
+            return apiResponse;
+        }).whenComplete((apiResponse, e) -> {
+            long sentAt = sentNanos.get();
+            if (raw.isCancelled() || sentAt == 0) {
+                // 请求被取消或未发出，没有接口结果
+                circuitBreaker.release(permit);
+                return;
+            }
+            long elapsed = System.nanoTime() - sentAt;
+            circuitBreaker.onResult(permit, isFailure(apiResponse), elapsed);
+            if (apiResponse != null && (apiResponse.getHttpStatus() != null || apiResponse.isTimedOut())) {
+                latencyTracker.record(elapsed);
+            }
+        });
+        return new Exchange(raw, response, sent);
+    }
+
+    /**
+     * 是否可以发出对冲请求：熔断关闭、剩余时间足够且对冲比例未超过上限
+     */
+    private boolean allowHedge(long deadlineNanos) {
+        if (circuitBreaker.getState() != CircuitBreaker.State.CLOSED
+            || deadlineNanos - System.nanoTime() < TimeUnit.MILLISECONDS.toNanos(hedgeDelayMs())) {
+            return false;
+        }
+        return hedgesSent.sum() < ttsApiProperties.getHedge().getMaxRatio() * requestsSent.sum();
+    }
 
+    /**
+     * 触发对冲的等待时间（毫秒）：最近请求耗时的分位数，不低于 hedge.min-delay
+     */
+    public long hedgeDelayMs() {
+        TtsApiProperties.HedgeConfig hedge = ttsApiProperties.getHedge();
+        long threshold = TimeUnit.NANOSECONDS.toMillis(latencyTracker.percentile(hedge.getPercentile()));
+        return Math.max(hedge.getMinDelay().toMillis(), threshold);
+    }
+
+    /**
+     * 当前请求超时时间（毫秒）：最近请求耗时的分位数乘以倍数，介于 min-timeout 和 timeout 之间；
+     * 未启用或样本不足时使用 timeout
+     */
+    public long currentTimeoutMs() {
+        long maxTimeoutMs = ttsApiProperties.getTimeout();
+        TtsApiProperties.AdaptiveTimeoutConfig config = ttsApiProperties.getAdaptiveTimeout();
+        if (!config.getEnabled() || latencyTracker.getCount() < config.getMinSamples()) {
+            return maxTimeoutMs;
+        }
+        long basisMs = TimeUnit.NANOSECONDS.toMillis(latencyTracker.percentile(config.getPercentile()));
+        long timeoutMs = (long) (basisMs * config.getMultiplier());
+        return Math.min(maxTimeoutMs, Math.max(config.getMinTimeout().toMillis(), timeoutMs));
+    }
+
+    /**
+     * 预热到 TTS 网关的连接（校验运行开始前调用），HTTP 客户端不是托管客户端时跳过
+     */
+    public void prewarm() {
+        if (httpClient instanceof ManagedHttpClient managedHttpClient) {
+            managedHttpClient.prewarm(URI.create(ttsApiProperties.getBaseUrl() + "/"));
+        }
+    }
+
+    /**
+     * 熔断器
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * 等待熔断恢复到可以发起调用
+     *
+     * @param maxWait 最长等待时间
+     * @return 是否在等待时间内恢复
+     */
+    public boolean awaitCircuit(Duration maxWait) throws InterruptedException {
+        return circuitBreaker.awaitCallPermitted(maxWait);
+    }
+
+    /**
+     * 是否计为熔断错误：超时、连接失败（没有 HTTP 状态码）、5xx；限流和业务错误不计入
+     */
+    private static boolean isFailure(TtsApiResponse response) {
+        if (response == null || response.isTimedOut()) {
+            return true;
+        }
+        Integer status = response.getHttpStatus();
+        return status == null ? !response.isSuccess() : status >= 500;
+    }
+
+    /**
+     * 累计接收的响应体字节数（压缩传输时为压缩后的字节数）
+     */
+    public long getWireBytes() {
+        return wireBytes.sum();
+    }
+
+    /**
+     * 累计解压后的响应体字节数
+     */
+    public long getDecodedBytes() {
+        return decodedBytes.sum();
+    }
+
+    /**
+     * 合并到其他在途请求的商品数（累计）
+     */
+    public long getCoalescedIds() {
+        return coalescedIds.sum();
+    }
+
+    /**
+     * 当前在途请求数
+     */
+    public int getInFlightRequests() {
+        return ttsApiProperties.getClient().getMaxInFlight() - inFlightPermits.availablePermits();
+    }
+
+    /**
+     * 当前排队等待发送的请求数
+     */
+    public int getQueuedRequests() {
+        return waitingRequests.size();
+    }
+
+    /**
+     * 获取到在途名额后发送请求
+     */
+    private void send(List<String> productIds, TtsCredential credential, long deadlineNanos,
+                      CompletableFuture<TtsApiResponse> result) {
+        long remainingNanos = Math.max(1, deadlineNanos - System.nanoTime());
+
+        CompletableFuture<HttpResponse<InputStream>> httpFuture;
+        try {
+            HttpRequest request = buildRequest(productIds, credential, Duration.ofNanos(remainingNanos));
+            httpFuture = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
         } catch (Exception e) {
-            log.error("调用 TTS API 异常 - 商品ID: {}", productIds, e);
-            return createErrorResponse("调用API异常: " + e.getMessage());
+            releaseSlot();
+            result.completeExceptionally(e);
+            return;
+        }
+
+        // 收到响应头后在解码执行器上边读取边解码（阻塞读取不占用 HttpClient 的完成线程），读完响应体才释放在途名额
+        httpFuture.whenCompleteAsync((response, e) -> {
+            if (e != null) {
+                releaseSlot();
+                result.completeExceptionally(e);
+                return;
+            }
+            TtsApiResponse apiResponse = null;
+            try (InputStream raw = response.body(); ResponseBody body = new ResponseBody(response, raw)) {
+                if (!result.isDone()) {
+                    apiResponse = parseResponse(productIds, response, body.stream());
+                }
+            } catch (Exception parseError) {
+                result.completeExceptionally(parseError);
+                return;
+            } finally {
+                releaseSlot();
+            }
+            // 响应流关闭（字节数已累计）后再返回结果
+            if (apiResponse != null) {
+                result.complete(apiResponse);
+            }
+        }, decodeExecutor);
+        // 整体超时或被取消后取消底层 HTTP 交换，正在读取的响应流随之关闭
+        result.whenComplete((r, e) -> {
+            if (e != null) {
+                httpFuture.cancel(true);
+                httpFuture.thenAccept(response -> closeQuietly(response.body()));
+            }
+        });
+    }
+
+    /**
+     * 请求 URL 中 product_ids 之外部分的字节数（基础地址、路径、app_key、timestamp、sign）
+     * 配置多个凭证时按最长的 app_key 计算
+     */
+    public int urlOverheadBytes() {
+        String appKey = ttsApiProperties.getAppKey() != null ? ttsApiProperties.getAppKey() : "";
+        for (TtsApiProperties.CredentialConfig credential : ttsApiProperties.getCredentials()) {
+            if (credential.getAppKey() != null && credential.getAppKey().length() > appKey.length()) {
+                appKey = credential.getAppKey();
+            }
+        }
+        Map<String, String> params = new HashMap<>();
+        params.put("app_key", appKey);
+        params.put("timestamp", String.valueOf(System.currentTimeMillis() / 1000));
+        params.put("product_ids", "");
+        // HMAC-SHA256 十六进制签名
+        params.put("sign", "0".repeat(64));
+        String url = ttsApiProperties.getBaseUrl() + API_PATH + "?" + TtsSignatureUtil.buildQueryString(params);
+        return url.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * 构建请求（按凭证签名、URL、请求头）
+     */
+    private HttpRequest buildRequest(List<String> productIds, TtsCredential credential, Duration timeout) {
+        // 生成时间戳（秒级），签名并构建完整URL
+        long timestamp = System.currentTimeMillis() / 1000;
+        URI uri = requestSigner.buildUri(credential, timestamp, productIds);
+
+        log.debug("发送 TTS API 请求 - URL: {}, 商品数量: {}", uri, productIds.size());
+
+        // 构建请求
+        HttpRequest.Builder builder = HttpRequest.newBuilder();
+        if (ttsApiProperties.getClient().getCompression()) {
+            builder.header(HEADER_ACCEPT_ENCODING, ACCEPT_ENCODING);
+        }
+        return builder
+            .uri(uri)
+            .header(HEADER_CONTENT_TYPE, CONTENT_TYPE_JSON)
+            .header(HEADER_ACCESS_TOKEN, credential.accessToken())
+            .POST(HttpRequest.BodyPublishers.noBody())
+            .timeout(timeout)
+            .build();
+    }
+
+    /**
+     * 解析响应
+     */
+    private TtsApiResponse parseResponse(List<String> productIds, HttpResponse<?> response, InputStream body)
+        throws Exception {
+        Duration retryAfter = parseRetryAfter(response);
+        if (response.statusCode() == 200) {
+            TtsApiResponse apiResponse;
+            if (log.isDebugEnabled()) {
+                // 调试时读出完整响应体记录日志
+                byte[] bytes = body.readAllBytes();
+                log.debug("TTS API 响应 - 状态码: {}, 响应体: {}", response.statusCode(),
+                    new String(bytes, StandardCharsets.UTF_8));
+                apiResponse = productDecoder.decode(bytes);
+            } else {
+                apiResponse = productDecoder.decode(body);
+            }
+            apiResponse.setHttpStatus(response.statusCode());
+            apiResponse.setRetryAfter(retryAfter);
+            apiResponse.setAuthFailed(apiResponse.getCode() != null && authErrorCodes.contains(apiResponse.getCode()));
+            if (apiResponse.isSuccess()) {
+                log.debug("TTS API 查询成功 - 请求商品数: {}, 返回商品数: {}", 
+                    productIds.size(), 
+                    apiResponse.getData() != null && apiResponse.getData().getProducts() != null 
+                        ? apiResponse.getData().getProducts().size() : 0);
+            } else {
+                log.warn("TTS API 返回错误 - code: {}, message: {}", 
+                    apiResponse.getCode(), apiResponse.getMessage());
+            }
+            return apiResponse;
+        } else {
+            log.error("TTS API 请求失败 - HTTP状态码: {}, 响应: {}", response.statusCode(),
+                new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            TtsApiResponse errorResponse = createErrorResponse("HTTP请求失败: " + response.statusCode());
+            errorResponse.setHttpStatus(response.statusCode());
+            errorResponse.setRetryAfter(retryAfter);
+            errorResponse.setAuthFailed(response.statusCode() == 401 || response.statusCode() == 403);
+            return errorResponse;
+        }
+    }
+
+    /**
+     * 响应体：按 Content-Encoding 流式解压，关闭时累计传输和解压后的字节数
+     */
+    private final class ResponseBody implements Closeable {
+
+        private final CountingInputStream wire;
+        private final CountingInputStream decoded;
+
+        private ResponseBody(HttpResponse<?> response, InputStream raw) throws IOException {
+            this.wire = new CountingInputStream(raw);
+            String encoding = response.headers().firstValue("Content-Encoding").orElse("")
+                .trim().toLowerCase(Locale.ROOT);
+            InputStream stream = switch (encoding) {
+                case "", "identity" -> wire;
+                case "gzip", "x-gzip" -> new GZIPInputStream(wire, BUFFER_SIZE);
+                case "deflate" -> inflate(wire);
+                default -> throw new IOException("不支持的 Content-Encoding: " + encoding);
+            };
+            this.decoded = new CountingInputStream(stream);
+        }
+
+        private InputStream stream() {
+            return decoded;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                decoded.close();
+            } finally {
+                wireBytes.add(wire.getCount());
+                decodedBytes.add(decoded.getCount());
+            }
+        }
+    }
+
+    /**
+     * 解压 deflate 响应体：按规范应为 zlib 格式，部分服务端发送不带 zlib 头的原始 deflate 数据，按前两个字节判断
+     */
+    private static InputStream inflate(InputStream in) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(in, 2);
+        byte[] header = pushback.readNBytes(2);
+        pushback.unread(header);
+        boolean zlib = header.length == 2 && (header[0] & 0x0F) == 8
+            && (((header[0] & 0xFF) << 8) | (header[1] & 0xFF)) % 31 == 0;
+        Inflater inflater = new Inflater(!zlib);
+        return new InflaterInputStream(pushback, inflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // 传入的 Inflater 不会随流关闭释放
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            log.debug("关闭响应流失败", e);
+        }
+    }
+
+    /**
+     * 解析 Retry-After 响应头（秒数或 HTTP 日期），未返回或无法解析时为 null
+     */
+    private static Duration parseRetryAfter(HttpResponse<?> response) {
+        String value = response.headers().firstValue("Retry-After").orElse(null);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime until = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                Duration wait = Duration.between(ZonedDateTime.now(until.getZone()), until);
+                return wait.isNegative() ? Duration.ZERO : wait;
+            } catch (DateTimeParseException parseError) {
+                log.warn("无法解析 Retry-After 响应头: {}", value);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 获取在途名额，名额不足时加入等待队列，不阻塞调用线程
+     */
+    private void acquireSlot(Runnable task) {
+        if (inFlightPermits.tryAcquire()) {
+            task.run();
+            return;
+        }
+        waitingRequests.add(task);
+        // 入队前可能刚好有名额释放，重新尝试一次避免遗漏唤醒
+        drainWaiting();
+    }
+
+    /**
+     * 释放在途名额，并启动排队中的请求
+     */
+    private void releaseSlot() {
+        inFlightPermits.release();
+        drainWaiting();
+    }
+
+    /**
+     * 有空闲名额时依次启动排队中的请求
+     */
+    private void drainWaiting() {
+        while (!waitingRequests.isEmpty() && inFlightPermits.tryAcquire()) {
+            Runnable next = waitingRequests.poll();
+            if (next == null) {
+                inFlightPermits.release();
+                continue;
+            }
+            next.run();
+        }
+    }
+
+    /**
+     * 排队等待在途名额超时，请求未发出
+     */
+    private static final class QueueTimeoutException extends Exception {
+
+        private QueueTimeoutException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * 一次请求：raw 由发送过程完成，取消 raw 会取消底层 HTTP 交换；response 是处理后的响应；
+     * sent 在取得在途名额、实际发出时完成，值为请求的截止时间
+     */
+    private record Exchange(CompletableFuture<TtsApiResponse> raw, CompletableFuture<TtsApiResponse> response,
+                            CompletableFuture<Long> sent) {
+
+        void cancel() {
+            raw.cancel(false);
+        }
+
+        boolean isCancelled() {
+            return raw.isCancelled();
         }
     }
 
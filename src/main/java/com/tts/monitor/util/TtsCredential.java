@@ -0,0 +1,19 @@
+package com.tts.monitor.util;
+
+/**
+ * TTS API 凭证
+ * 每个凭证单独限流
+ *
+ * @param name 凭证名称（日志和指标中使用）
+ * @param appKey 应用唯一 Key
+ * @param appSecret 应用密钥
+ * @param accessToken 访问令牌
+ */
+public record TtsCredential(String name, String appKey, String appSecret, String accessToken) {
+
+    @Override
+    public String toString() {
+        // 不输出密钥和令牌
+        return "TtsCredential[" + name + "]";
+    }
+}
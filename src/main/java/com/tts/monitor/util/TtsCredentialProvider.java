@@ -0,0 +1,14 @@
+package com.tts.monitor.util;
+
+/**
+ * 请求凭证来源
+ * 经令牌桶的调用由调用方传入获取令牌时选定的凭证，未传入凭证时由凭证来源选取
+ *
+ */
+public interface TtsCredentialProvider {
+
+    /**
+     * 选取未经令牌桶的请求使用的凭证
+     */
+    TtsCredential next();
+}
@@ -0,0 +1,166 @@
+package com.tts.monitor.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TTS 商品查询响应解码器
+ * 使用 Jackson 流式解析器直接从响应流读取，只保留校验和新增商品用到的字段（商品 ID、标题、店铺名称、佣金），
+ * 价格、图片、类目链、广告佣金等其他字段直接跳过，不创建对象也不生成中间字符串
+ *
+ */
+public class TtsProductDecoder {
+
+    private final JsonFactory jsonFactory;
+
+    public TtsProductDecoder(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * 从响应流解码
+     */
+    public TtsApiResponse decode(InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return decode(parser);
+        }
+    }
+
+    /**
+     * 从响应字节解码
+     */
+    public TtsApiResponse decode(byte[] body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return decode(parser);
+        }
+    }
+
+    private static TtsApiResponse decode(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("TTS API 响应不是 JSON 对象");
+        }
+        TtsApiResponse response = new TtsApiResponse();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "code" -> response.setCode(intValue(parser));
+                case "message" -> response.setMessage(text(parser));
+                case "request_id" -> response.setRequestId(text(parser));
+                case "data" -> response.setData(readData(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return response;
+    }
+
+    private static TtsApiResponse.DataWrapper readData(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        TtsApiResponse.DataWrapper data = new TtsApiResponse.DataWrapper();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("products".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                List<TtsApiResponse.ProductInfo> products = new ArrayList<>();
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    products.add(readProduct(parser));
+                }
+                data.setProducts(products);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return data;
+    }
+
+    private static TtsApiResponse.ProductInfo readProduct(JsonParser parser) throws IOException {
+        TtsApiResponse.ProductInfo product = new TtsApiResponse.ProductInfo();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> product.setId(text(parser));
+                case "title" -> product.setTitle(text(parser));
+                case "shop" -> product.setShop(readShop(parser));
+                case "commission" -> product.setCommission(readCommission(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return product;
+    }
+
+    private static TtsApiResponse.ShopInfo readShop(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        TtsApiResponse.ShopInfo shop = new TtsApiResponse.ShopInfo();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("name".equals(field)) {
+                shop.setName(text(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return shop;
+    }
+
+    private static TtsApiResponse.CommissionInfo readCommission(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        TtsApiResponse.CommissionInfo commission = new TtsApiResponse.CommissionInfo();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "rate" -> commission.setRate(intValue(parser));
+                case "currency" -> commission.setCurrency(text(parser));
+                case "amount" -> commission.setAmount(text(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return commission;
+    }
+
+    /**
+     * 标量值的文本（数字按原样转为字符串），null 或对象、数组时返回 null
+     */
+    private static String text(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
+
+    private static Integer intValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsInt();
+    }
+}
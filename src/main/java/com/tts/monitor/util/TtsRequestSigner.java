@@ -0,0 +1,243 @@
+package com.tts.monitor.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 商品查询请求签名与 URL 构建
+ * 结果与 {@link TtsSignatureUtil#generateSign} + {@link TtsSignatureUtil#buildQueryString} 逐字节一致：
+ * 签名串为 secret + 路径 + app_key{appKey}product_ids{ids}timestamp{ts} + secret，
+ * 查询参数顺序为 app_key、product_ids、sign、timestamp。
+ * 每个凭证的签名前缀和已初始化的 Mac 预先计算并缓存，签名输入直接写入复用的字节缓冲区，
+ * 同一次遍历商品 ID 时同时写入签名缓冲区和 URL。
+ *
+ */
+public class TtsRequestSigner {
+
+    private static final String HMAC_SHA256 = "HmacSHA256";
+    private static final byte[] TIMESTAMP_KEY = "timestamp".getBytes(StandardCharsets.US_ASCII);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * 每个凭证缓存的签名上下文上限，超出时用完即丢弃
+     */
+    private static final int MAX_POOLED = 64;
+
+    private final String urlPrefix;
+    private final String pathname;
+    private final Map<TtsCredential, SigningKey> keys = new ConcurrentHashMap<>();
+
+    public TtsRequestSigner(String baseUrl, String pathname) {
+        this.urlPrefix = baseUrl + pathname + "?app_key=";
+        this.pathname = pathname;
+    }
+
+    /**
+     * 构建带签名的请求地址
+     *
+     * @param credential 签名使用的凭证
+     * @param timestamp  时间戳（秒）
+     * @param productIds 商品 ID
+     */
+    public URI buildUri(TtsCredential credential, long timestamp, List<String> productIds) {
+        SigningKey key = keys.computeIfAbsent(credential, this::createKey);
+        Scratch scratch = key.borrow();
+        try {
+            return URI.create(scratch.build(key, timestamp, productIds));
+        } finally {
+            key.release(scratch);
+        }
+    }
+
+    private SigningKey createKey(TtsCredential credential) {
+        return new SigningKey(credential, urlPrefix, pathname);
+    }
+
+    /**
+     * URL 编码，与 TtsSignatureUtil 一致（空格编码为 %20）
+     */
+    private static String urlEncode(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    /**
+     * 单个凭证的预计算数据和已初始化 Mac 的复用池
+     * 商品校验可能运行在虚拟线程上，线程本地缓存无法复用，因此按借还方式复用
+     */
+    private static final class SigningKey {
+
+        /**
+         * secret + 路径 + "app_key" + appKey + "product_ids"
+         */
+        private final byte[] signPrefix;
+        private final byte[] secret;
+
+        /**
+         * 基础地址 + 路径 + "?app_key=" + 编码后的 appKey + "&product_ids="
+         */
+        private final String urlPrefix;
+        private final Mac prototype;
+        private final ArrayBlockingQueue<Scratch> pool = new ArrayBlockingQueue<>(MAX_POOLED);
+
+        private SigningKey(TtsCredential credential, String baseUrlPrefix, String pathname) {
+            String secret = String.valueOf(credential.appSecret());
+            this.secret = secret.getBytes(StandardCharsets.UTF_8);
+            this.signPrefix = (secret + pathname + "app_key" + credential.appKey() + "product_ids")
+                .getBytes(StandardCharsets.UTF_8);
+            this.urlPrefix = baseUrlPrefix + urlEncode(credential.appKey()) + "&product_ids=";
+            try {
+                this.prototype = Mac.getInstance(HMAC_SHA256);
+                this.prototype.init(new SecretKeySpec(this.secret, HMAC_SHA256));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("初始化签名失败: " + e.getMessage(), e);
+            }
+        }
+
+        private Scratch borrow() {
+            Scratch scratch = pool.poll();
+            return scratch != null ? scratch : new Scratch(newMac());
+        }
+
+        private void release(Scratch scratch) {
+            pool.offer(scratch);
+        }
+
+        private Mac newMac() {
+            try {
+                return (Mac) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                try {
+                    Mac mac = Mac.getInstance(HMAC_SHA256);
+                    mac.init(new SecretKeySpec(secret, HMAC_SHA256));
+                    return mac;
+                } catch (GeneralSecurityException ex) {
+                    throw new IllegalStateException("初始化签名失败: " + ex.getMessage(), ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * 一次签名使用的 Mac 和缓冲区，归还后复用
+     */
+    private static final class Scratch {
+
+        private final Mac mac;
+        private final byte[] digest;
+        private byte[] buffer = new byte[1024];
+        private int length;
+        private final StringBuilder url = new StringBuilder(1024);
+
+        private Scratch(Mac mac) {
+            this.mac = mac;
+            this.digest = new byte[mac.getMacLength()];
+        }
+
+        private String build(SigningKey key, long timestamp, List<String> productIds) {
+            length = 0;
+            url.setLength(0);
+            url.append(key.urlPrefix);
+
+            // 商品 ID 同时写入签名缓冲区和 URL（product_ids 不编码）
+            for (int i = 0; i < productIds.size(); i++) {
+                if (i > 0) {
+                    write((byte) ',');
+                    url.append(',');
+                }
+                String id = String.valueOf(productIds.get(i));
+                write(id);
+                url.append(id);
+            }
+            write(TIMESTAMP_KEY);
+            int timestampStart = length;
+            writeDigits(timestamp);
+            int timestampEnd = length;
+            write(key.secret);
+
+            mac.reset();
+            mac.update(key.signPrefix);
+            mac.update(buffer, 0, length);
+            try {
+                mac.doFinal(digest, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("生成签名失败: " + e.getMessage(), e);
+            }
+
+            url.append("&sign=");
+            for (byte b : digest) {
+                url.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+            }
+            url.append("&timestamp=");
+            for (int i = timestampStart; i < timestampEnd; i++) {
+                url.append((char) buffer[i]);
+            }
+            return url.toString();
+        }
+
+        private void write(byte b) {
+            ensureCapacity(1);
+            buffer[length++] = b;
+        }
+
+        private void write(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+
+        /**
+         * 按 UTF-8 写入字符串，ASCII（商品 ID 均为数字）直接写入，其余字符按 UTF-8 编码
+         */
+        private void write(String value) {
+            int size = value.length();
+            ensureCapacity(size);
+            for (int i = 0; i < size; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    write(value.getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                buffer[length + i] = (byte) c;
+            }
+            length += size;
+        }
+
+        /**
+         * 按十进制写入非负整数
+         */
+        private void writeDigits(long value) {
+            if (value < 0) {
+                write(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            int digits = 1;
+            for (long rest = value / 10; rest > 0; rest /= 10) {
+                digits++;
+            }
+            ensureCapacity(digits);
+            for (int i = length + digits - 1; i >= length; i--) {
+                buffer[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            length += digits;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+            }
+        }
+    }
+}
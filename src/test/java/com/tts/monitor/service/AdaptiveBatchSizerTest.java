@@ -0,0 +1,108 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 自适应批次大小测试
+ */
+public class AdaptiveBatchSizerTest {
+
+    private static final long FAST = Duration.ofMillis(200).toNanos();
+    private static final long SLOW = Duration.ofSeconds(5).toNanos();
+
+    @Test
+    public void testGrowsAfterHealthyBatches() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(config(), 50, 0);
+        for (int i = 0; i < 10; i++) {
+            List<String> ids = ids(sizer.getCurrentSize());
+            sizer.record(ids, response(ids), FAST);
+        }
+        assertEquals(55, sizer.getCurrentSize());
+    }
+
+    @Test
+    public void testShrinksWhenLatencyExceedsTarget() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(config(), 80, 0);
+        for (int i = 0; i < 10; i++) {
+            List<String> ids = ids(80);
+            sizer.record(ids, response(ids), SLOW);
+        }
+        assertEquals(60, sizer.getCurrentSize());
+    }
+
+    @Test
+    public void testTruncatedTailLowersCeiling() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(config(), 80, 0);
+        List<String> ids = ids(80);
+        int truncated = sizer.record(ids, response(ids.subList(0, 64)), FAST);
+
+        assertEquals(16, truncated);
+        assertEquals(64, sizer.getCeiling());
+        assertEquals(64, sizer.getCurrentSize());
+    }
+
+    @Test
+    public void testScatteredMissingIsNotTruncation() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(config(), 50, 0);
+        List<String> ids = ids(50);
+        List<String> returned = new ArrayList<>(ids);
+        returned.remove(10);
+        returned.remove(20);
+        returned.remove(returned.size() - 1);
+
+        assertEquals(0, sizer.record(ids, response(returned), FAST));
+        assertEquals(100, sizer.getCeiling());
+    }
+
+    @Test
+    public void testPackRespectsUrlByteBudget() {
+        TtsApiProperties.AdaptiveBatchConfig config = config();
+        config.setUrlByteBudget(1000);
+        // 19 位商品 ID + 逗号，预算内可装入 (1000 - 500 + 1) / 20 = 25 个
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(config, 50, 500);
+        List<String> ids = ids(100);
+
+        int end = sizer.pack(ids, 0, Function.identity());
+        assertEquals(25, end);
+        assertTrue(sizer.getLastUrlBytes() <= 1000);
+    }
+
+    private static TtsApiProperties.AdaptiveBatchConfig config() {
+        TtsApiProperties.AdaptiveBatchConfig config = new TtsApiProperties.AdaptiveBatchConfig();
+        config.setLatencyTarget(Duration.ofSeconds(3));
+        return config;
+    }
+
+    private static List<String> ids(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(String.valueOf(1729000000000000000L + i));
+        }
+        return ids;
+    }
+
+    private static TtsApiResponse response(List<String> ids) {
+        List<TtsApiResponse.ProductInfo> products = new ArrayList<>();
+        for (String id : ids) {
+            TtsApiResponse.ProductInfo product = new TtsApiResponse.ProductInfo();
+            product.setId(id);
+            products.add(product);
+        }
+        TtsApiResponse.DataWrapper data = new TtsApiResponse.DataWrapper();
+        data.setProducts(products);
+        TtsApiResponse response = new TtsApiResponse();
+        response.setCode(0);
+        response.setData(data);
+        return response;
+    }
+}
@@ -0,0 +1,141 @@
+package com.tts.monitor.service;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+import com.tts.monitor.mapper.TtsRateBucketMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 自适应速率控制测试
+ */
+public class AdaptiveRateControllerTest {
+
+    private static final long LATENCY = Duration.ofMillis(100).toNanos();
+
+    @Test
+    public void testBacksOffOncePerCooldownOnThrottle() {
+        RateLimiter rateLimiter = RateLimiter.create(50);
+        AdaptiveRateController controller = new AdaptiveRateController(rateLimiter, config());
+
+        controller.record(response(429, 0), LATENCY);
+        controller.record(response(503, 0), LATENCY);
+
+        assertEquals(25, controller.getRate(), 0.001);
+        assertEquals(25, rateLimiter.getRate(), 0.001);
+        assertEquals(2, controller.getThrottledCount());
+    }
+
+    @Test
+    public void testThrottleCodeBacksOff() {
+        TtsApiProperties.RateLimitConfig config = config();
+        config.setThrottleCodes(List.of(36009004));
+        AdaptiveRateController controller = new AdaptiveRateController(RateLimiter.create(50), config);
+
+        controller.record(response(200, 36009004), LATENCY);
+
+        assertEquals(25, controller.getRate(), 0.001);
+    }
+
+    @Test
+    public void testRampsUpAdditivelyToCeiling() {
+        TtsApiProperties.RateLimitConfig config = config();
+        config.setIncreaseInterval(Duration.ZERO);
+        config.setDecreaseCooldown(Duration.ZERO);
+        AdaptiveRateController controller = new AdaptiveRateController(RateLimiter.create(50), config);
+        controller.record(response(429, 0), LATENCY);
+
+        for (int i = 0; i < 30; i++) {
+            controller.record(response(200, 0), LATENCY);
+        }
+
+        assertEquals(50, controller.getRate(), 0.001);
+    }
+
+    @Test
+    public void testRetryAfterPausesDispatch() {
+        AdaptiveRateController controller = new AdaptiveRateController(RateLimiter.create(50), config());
+        TtsApiResponse throttled = response(429, 0);
+        throttled.setRetryAfter(Duration.ofSeconds(5));
+
+        controller.record(throttled, LATENCY);
+
+        assertTrue(controller.isPaused());
+    }
+
+    @Test
+    public void testCeilingCapsRate() {
+        AdaptiveRateController controller = new AdaptiveRateController(RateLimiter.create(50), config());
+
+        controller.setCeiling(10);
+
+        assertEquals(10, controller.getRate(), 0.001);
+        assertFalse(controller.isPaused());
+    }
+
+    /**
+     * 共享令牌不足时不消耗本地令牌，限时获取在等待时间内返回
+     */
+    @Test
+    public void testSharedBucketExhaustedKeepsLocalToken() throws Exception {
+        RateLimiter rateLimiter = RateLimiter.create(1);
+        AdaptiveRateController controller = new AdaptiveRateController(rateLimiter, config(), sharedBucket(0));
+
+        assertFalse(controller.tryAcquire());
+        long start = System.nanoTime();
+        assertFalse(controller.tryAcquire(200, TimeUnit.MILLISECONDS));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertTrue(rateLimiter.tryAcquire());
+    }
+
+    /**
+     * 本地令牌桶未放行时归还已领取的共享令牌
+     */
+    @Test
+    public void testLocalLimiterExhaustedReturnsSharedToken() throws Exception {
+        RateLimiter rateLimiter = RateLimiter.create(1);
+        SharedTokenBucket sharedBucket = sharedBucket(1);
+        AdaptiveRateController controller = new AdaptiveRateController(rateLimiter, config(), sharedBucket);
+        rateLimiter.acquire();
+
+        assertFalse(controller.tryAcquire(10, TimeUnit.MILLISECONDS));
+
+        assertTrue(sharedBucket.tryAcquire());
+    }
+
+    /**
+     * @param claimed 每次领取返回的影响行数，0 表示全局令牌不足
+     */
+    private static SharedTokenBucket sharedBucket(int claimed) {
+        TtsRateBucketMapper mapper = mock(TtsRateBucketMapper.class);
+        when(mapper.claimTokens(anyString(), anyInt(), anyDouble(), anyDouble())).thenReturn(claimed);
+        return new SharedTokenBucket(mapper, "app", 50, 50, 1, TimeUnit.MINUTES.toNanos(1), false);
+    }
+
+    private static TtsApiProperties.RateLimitConfig config() {
+        TtsApiProperties.RateLimitConfig config = new TtsApiProperties.RateLimitConfig();
+        config.setQps(50);
+        return config;
+    }
+
+    private static TtsApiResponse response(int httpStatus, int code) {
+        TtsApiResponse response = new TtsApiResponse();
+        response.setHttpStatus(httpStatus);
+        response.setCode(code);
+        return response;
+    }
+}
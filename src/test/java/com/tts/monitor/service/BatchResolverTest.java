@@ -0,0 +1,195 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+import com.tts.monitor.util.TtsApiClient;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批次结果补全测试
+ */
+public class BatchResolverTest {
+
+    private static final String POISON = "1729000000000000013";
+
+    private final TtsApiClient client = mock(TtsApiClient.class);
+
+    @Test
+    public void testBisectsPoisonId() {
+        // 包含 POISON 的请求返回业务错误
+        when(client.getProductsByIds(anyList(), any())).thenAnswer(invocation -> {
+            List<String> ids = invocation.getArgument(0);
+            return ids.contains(POISON) ? error(200, 40006) : success(ids);
+        });
+        List<String> ids = ids(16);
+
+        BatchResolver.BatchLookup lookup = resolver(config()).resolve(ids, error(200, 40006));
+
+        assertEquals(Set.of(POISON), lookup.getFailed());
+        assertEquals(15, lookup.getFound().size());
+        assertTrue(lookup.getRequests() <= 8);
+    }
+
+    @Test
+    public void testRequeriesMissingIndividuallyBeforeInvalid() {
+        List<String> ids = ids(10);
+        String flaky = ids.get(3);
+        String gone = ids.get(7);
+        // 单独查询时 flaky 能返回，gone 始终不返回
+        when(client.getProductsByIds(anyList(), any())).thenAnswer(invocation -> {
+            List<String> requested = new ArrayList<>(invocation.<List<String>>getArgument(0));
+            requested.remove(gone);
+            return success(requested);
+        });
+        List<String> firstReturned = new ArrayList<>(ids);
+        firstReturned.remove(flaky);
+        firstReturned.remove(gone);
+
+        BatchResolver.BatchLookup lookup = resolver(config()).resolve(ids, success(firstReturned));
+
+        assertEquals(9, lookup.getFound().size());
+        assertEquals(Set.of(gone), lookup.getMissing());
+        assertTrue(lookup.getFailed().isEmpty());
+        assertEquals(2, lookup.getRequests());
+    }
+
+    @Test
+    public void testRetriesTransientFailure() {
+        AtomicInteger calls = new AtomicInteger();
+        when(client.getProductsByIds(anyList(), any())).thenAnswer(invocation -> {
+            List<String> ids = invocation.getArgument(0);
+            return calls.incrementAndGet() == 1 ? error(503, -1) : success(ids);
+        });
+        List<String> ids = ids(5);
+
+        BatchResolver.BatchLookup lookup = resolver(config()).resolve(ids, error(503, -1));
+
+        assertEquals(5, lookup.getFound().size());
+        assertEquals(2, lookup.getRequests());
+    }
+
+    @Test
+    public void testRequestBudgetMarksRestFailed() {
+        when(client.getProductsByIds(anyList(), any())).thenReturn(error(200, 40006));
+        TtsApiProperties.RetryConfig config = config();
+        config.setMaxRequestsPerBatch(4);
+
+        BatchResolver.BatchLookup lookup = resolver(config).resolve(ids(16), error(200, 40006));
+
+        assertEquals(16, lookup.getFailed().size());
+        assertEquals(4, lookup.getRequests());
+    }
+
+    @Test
+    public void testDoesNotBisectServerOrGlobalErrors() {
+        when(client.getProductsByIds(anyList(), any())).thenReturn(error(503, -1));
+
+        BatchResolver.BatchLookup lookup = resolver(config()).resolve(ids(16), error(503, -1));
+
+        // 只按退避重试，不拆分
+        assertEquals(16, lookup.getFailed().size());
+        assertEquals(2, lookup.getRequests());
+
+        when(client.getProductsByIds(anyList(), any())).thenReturn(error(200, 36009004));
+        TtsApiProperties.RetryConfig config = config();
+        config.setGlobalErrorCodes(List.of(36009004));
+
+        lookup = resolver(config).resolve(ids(16), error(200, 36009004));
+
+        assertEquals(16, lookup.getFailed().size());
+        assertEquals(2, lookup.getRequests());
+    }
+
+    @Test
+    public void testCircuitRejectionKeepsToken() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        when(client.awaitCircuit(any())).thenReturn(true);
+        when(client.getProductsByIds(anyList(), any())).thenAnswer(invocation -> {
+            List<String> ids = invocation.getArgument(0);
+            return calls.incrementAndGet() <= 2 ? circuitOpen() : success(ids);
+        });
+        CredentialPool pool = spy(pool());
+
+        BatchResolver.BatchLookup lookup = new BatchResolver(client, pool, config(), Duration.ofSeconds(1))
+            .resolve(ids(5), circuitOpen());
+
+        // 熔断拒绝的调用未发出请求，熔断恢复后只获取一次令牌
+        assertEquals(5, lookup.getFound().size());
+        assertEquals(3, calls.get());
+        verify(pool, times(1)).acquire();
+    }
+
+    private BatchResolver resolver(TtsApiProperties.RetryConfig config) {
+        return new BatchResolver(client, pool(), config, Duration.ofSeconds(1));
+    }
+
+    private static CredentialPool pool() {
+        TtsApiProperties properties = new TtsApiProperties();
+        TtsApiProperties.RateLimitConfig rateConfig = new TtsApiProperties.RateLimitConfig();
+        rateConfig.setQps(1000);
+        properties.setRateLimit(rateConfig);
+        return new CredentialPool(properties, null);
+    }
+
+    private static TtsApiResponse circuitOpen() {
+        TtsApiResponse response = new TtsApiResponse();
+        response.setCode(-1);
+        response.setCircuitOpen(true);
+        return response;
+    }
+
+    private static TtsApiProperties.RetryConfig config() {
+        TtsApiProperties.RetryConfig config = new TtsApiProperties.RetryConfig();
+        config.setInitialBackoff(Duration.ofMillis(1));
+        config.setMaxBackoff(Duration.ofMillis(5));
+        return config;
+    }
+
+    private static List<String> ids(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(String.valueOf(1729000000000000000L + i));
+        }
+        return ids;
+    }
+
+    private static TtsApiResponse success(List<String> ids) {
+        List<TtsApiResponse.ProductInfo> products = new ArrayList<>();
+        for (String id : ids) {
+            TtsApiResponse.ProductInfo product = new TtsApiResponse.ProductInfo();
+            product.setId(id);
+            products.add(product);
+        }
+        TtsApiResponse.DataWrapper data = new TtsApiResponse.DataWrapper();
+        data.setProducts(products);
+        TtsApiResponse response = new TtsApiResponse();
+        response.setCode(0);
+        response.setHttpStatus(200);
+        response.setData(data);
+        return response;
+    }
+
+    private static TtsApiResponse error(int httpStatus, int code) {
+        TtsApiResponse response = new TtsApiResponse();
+        response.setCode(code);
+        response.setHttpStatus(httpStatus);
+        response.setMessage("error");
+        return response;
+    }
+}
@@ -0,0 +1,115 @@
+package com.tts.monitor.service;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.tts.monitor.entity.TtsProductMonitor;
+import com.tts.monitor.mapper.TtsProductMonitorMapper;
+import com.tts.monitor.util.TtsCredential;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批次执行方式对比基准
+ * 模拟阻塞的 TTS 请求，对比共享线程池与虚拟线程两种执行方式跑完同一批商品的耗时（benchmark 标签，默认不运行）
+ *
+ */
+@Slf4j
+@Tag("benchmark")
+public class CheckExecutionBenchmarkTest {
+
+    private static final int PRODUCT_COUNT = 10_000;
+    private static final int PAGE_SIZE = 1000;
+    private static final int BATCH_SIZE = 50;
+    private static final long API_LATENCY_MS = 200;
+    private static final int QPS = 1000;
+
+    @Test
+    void comparePooledAndVirtualExecution() {
+        TtsProductMonitorMapper mapper = mockMapper();
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(10, 20, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(100), new ThreadPoolExecutor.CallerRunsPolicy());
+        long pooledMs;
+        try (CheckExecution execution = CheckExecution.pooled(pool)) {
+            pooledMs = runPipeline(mapper, execution, 20);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long virtualMs;
+        try (CheckExecution execution = CheckExecution.virtual()) {
+            virtualMs = runPipeline(mapper, execution, 200);
+        }
+
+        log.info("商品数: {}, 批次数: {}, 模拟请求耗时: {}ms",
+            PRODUCT_COUNT, PRODUCT_COUNT / BATCH_SIZE, API_LATENCY_MS);
+        log.info("POOL    (10-20 平台线程, 在途 20):  {}ms", pooledMs);
+        log.info("VIRTUAL (虚拟线程, 在途 200):      {}ms", virtualMs);
+    }
+
+    private long runPipeline(TtsProductMonitorMapper mapper, CheckExecution execution, int maxInFlight) {
+        ProductCheckPipeline pipeline = ProductCheckPipeline.builder()
+            .productMapper(mapper)
+            .execution(execution)
+            .rateLimiter(RateLimiter.create(QPS))
+            .batchChecker(this::simulateBatch)
+            .pageSize(PAGE_SIZE)
+            .batchSize(BATCH_SIZE)
+            .prefetchPages(2)
+            .maxInFlight(maxInFlight)
+            .build();
+
+        long start = System.nanoTime();
+        ProductCheckService.CheckResult result = pipeline.run(ProductIdCursor.splitRanges(mapper, 1));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(result.isSuccess());
+        assertEquals(PRODUCT_COUNT, result.getTotalCount());
+        assertEquals(PRODUCT_COUNT, result.getCheckedCount());
+        return elapsedMs;
+    }
+
+    private ProductCheckService.BatchCheckResult simulateBatch(List<TtsProductMonitor> batch, int batchIndex,
+                                                               TtsCredential credential) {
+        try {
+            Thread.sleep(API_LATENCY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ProductCheckService.BatchCheckResult result = new ProductCheckService.BatchCheckResult();
+        result.setCheckedCount(batch.size());
+        result.setValidCount(batch.size());
+        return result;
+    }
+
+    private TtsProductMonitorMapper mockMapper() {
+        TtsProductMonitorMapper mapper = mock(TtsProductMonitorMapper.class);
+        when(mapper.selectIdBounds()).thenReturn(Map.of("minId", 1, "maxId", PRODUCT_COUNT));
+        when(mapper.selectCheckRowsAfter(anyInt(), any(), anyInt())).thenAnswer(invocation -> {
+            int lastId = invocation.getArgument(0);
+            int limit = invocation.getArgument(2);
+            List<TtsProductMonitor> rows = new ArrayList<>();
+            for (int id = lastId + 1; id <= PRODUCT_COUNT && rows.size() < limit; id++) {
+                TtsProductMonitor row = new TtsProductMonitor();
+                row.setId(id);
+                row.setProductId(String.valueOf(1730000000000000000L + id));
+                rows.add(row);
+            }
+            return rows;
+        });
+        return mapper;
+    }
+}
@@ -0,0 +1,88 @@
+package com.tts.monitor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 批次执行方式测试
+ */
+public class CheckExecutionTest {
+
+    /**
+     * 关闭时等待本次运行提交的任务全部结束
+     */
+    @Test
+    public void testPooledCloseWaitsForTasks() {
+        ThreadPoolExecutor executor = executor();
+        AtomicInteger finished = new AtomicInteger();
+        try {
+            try (CheckExecution execution = CheckExecution.pooled(executor)) {
+                for (int i = 0; i < 8; i++) {
+                    execution.execute(() -> {
+                        sleep(100);
+                        finished.incrementAndGet();
+                    });
+                }
+            }
+            assertEquals(8, finished.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 取消时中断本次运行正在执行的任务，不影响共享线程池
+     */
+    @Test
+    public void testPooledCancelInterruptsRunningTasks() throws Exception {
+        ThreadPoolExecutor executor = executor();
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        try {
+            try (CheckExecution execution = CheckExecution.pooled(executor)) {
+                execution.execute(() -> {
+                    started.countDown();
+                    try {
+                        Thread.sleep(60_000);
+                    } catch (InterruptedException e) {
+                        interrupted.set(true);
+                    }
+                });
+                assertTrue(started.await(5, TimeUnit.SECONDS));
+                execution.cancel();
+            }
+            assertTrue(interrupted.get());
+
+            // 线程池仍可用，且中断标记已清除
+            AtomicBoolean reused = new AtomicBoolean(true);
+            try (CheckExecution execution = CheckExecution.pooled(executor)) {
+                execution.execute(() -> reused.set(Thread.currentThread().isInterrupted()));
+            }
+            assertFalse(reused.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ThreadPoolExecutor executor() {
+        return new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.entity.TtsProductMonitor;
+import com.tts.monitor.mapper.TtsProductMonitorMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 校验结果写回器测试
+ */
+public class CheckResultWriterTest {
+
+    private final TtsProductMonitorMapper mapper = mock(TtsProductMonitorMapper.class);
+    private final CheckCounters counters = new CheckCounters();
+
+    @Test
+    public void testWriteFailureDoesNotAdvanceCheckpoint() throws Exception {
+        // 包含主键 15 的写回失败
+        doThrow(new RuntimeException("deadlock")).when(mapper).batchUpdateCheckState(
+            argThat(chunk -> chunk.stream().anyMatch(row -> row.getId() == 15)), any());
+        CheckpointTracker tracker = new CheckpointTracker(List.of(new ProductIdCursor.IdRange(0, null)));
+        tracker.register(0, 10);
+        tracker.register(0, 20);
+        tracker.register(0, 30);
+
+        try (CheckResultWriter writer = writer()) {
+            writer.submit(rows(1, 10), List.of(), () -> tracker.complete(0, 10));
+            writer.submit(rows(11, 20), List.of(), () -> tracker.complete(0, 20));
+            writer.submit(rows(21, 30), List.of(), () -> tracker.complete(0, 30));
+        }
+
+        // 第二个批次写回失败，检查点停在第一个批次
+        assertEquals(10, tracker.snapshot().get(0).getStartAfterId());
+        assertEquals(5, counters.snapshot().getFailedCount());
+    }
+
+    @Test
+    public void testTouchFailureStillAdvances() throws Exception {
+        doThrow(new RuntimeException("timeout")).when(mapper).touchLastCheckTime(anyList(), any());
+        List<Integer> written = new ArrayList<>();
+
+        try (CheckResultWriter writer = writer()) {
+            writer.submit(List.of(), List.of(1, 2, 3), () -> written.add(3));
+        }
+
+        // 只影响校验时间，不计入失败
+        assertEquals(List.of(3), written);
+        assertEquals(0, counters.snapshot().getFailedCount());
+    }
+
+    /**
+     * 关闭后提交不阻塞，丢弃结果并计入失败，不推进检查点
+     */
+    @Test
+    public void testSubmitAfterCloseIsDropped() throws Exception {
+        CheckResultWriter writer = new CheckResultWriter(mapper, counters, 1, 1000, 5, Duration.ofMinutes(1));
+        writer.close();
+        List<Integer> written = new ArrayList<>();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            writer.submit(rows(1, 3), List.of(), () -> written.add(3));
+            writer.submit(rows(4, 6), List.of(), () -> written.add(6));
+        });
+
+        assertEquals(List.of(), written);
+        assertEquals(6, counters.snapshot().getFailedCount());
+        verify(mapper, never()).batchUpdateCheckState(anyList(), any());
+    }
+
+    private CheckResultWriter writer() {
+        return new CheckResultWriter(mapper, counters, 16, 1000, 5, Duration.ofMinutes(1));
+    }
+
+    private static List<TtsProductMonitor> rows(int fromId, int toId) {
+        List<TtsProductMonitor> rows = new ArrayList<>();
+        for (int id = fromId; id <= toId; id++) {
+            TtsProductMonitor row = new TtsProductMonitor();
+            row.setId(id);
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,117 @@
+package com.tts.monitor.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.entity.TtsCheckRun;
+import com.tts.monitor.exception.BusinessException;
+import com.tts.monitor.mapper.TtsCheckRunMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 校验运行记录测试：检查点保存与恢复、接管条件
+ */
+public class CheckRunServiceTest {
+
+    private final TtsCheckRunMapper mapper = mock(TtsCheckRunMapper.class);
+    private final CheckRunService service = new CheckRunService(mapper, new TtsApiProperties(), new ObjectMapper());
+
+    @BeforeAll
+    public static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), TtsCheckRun.class);
+    }
+
+    /**
+     * 检查点保存区间游标和计数，恢复时读回相同的区间
+     */
+    @Test
+    public void testCheckpointRoundTrip() {
+        TtsCheckRun run = run(TtsCheckRun.RunStatus.RUNNING, LocalDateTime.now());
+        List<ProductIdCursor.IdRange> ranges = List.of(
+            new ProductIdCursor.IdRange(30, 100), new ProductIdCursor.IdRange(120, null));
+        ProductCheckService.CheckResult progress = new ProductCheckService.CheckResult();
+        progress.setCheckedCount(50);
+        progress.setFailedCount(2);
+
+        service.checkpoint(run, ranges, progress);
+
+        ArgumentCaptor<TtsCheckRun> saved = ArgumentCaptor.forClass(TtsCheckRun.class);
+        verify(mapper).updateById(saved.capture());
+        assertEquals(ranges, service.getRanges(saved.getValue()));
+        assertEquals(50, service.getProgress(saved.getValue()).getCheckedCount());
+        assertEquals(2, service.getProgress(saved.getValue()).getFailedCount());
+    }
+
+    /**
+     * 心跳正常的运行不会被接管
+     */
+    @Test
+    public void testLiveRunIsNotTakenOver() {
+        when(mapper.selectOne(any())).thenReturn(run(TtsCheckRun.RunStatus.RUNNING, LocalDateTime.now()));
+
+        assertThrows(BusinessException.class, service::claimResumable);
+        verify(mapper, never()).update(isNull(), any());
+    }
+
+    /**
+     * 心跳超时的运行由本实例接管；条件更新失败时说明已被其他实例接管
+     */
+    @Test
+    public void testStaleRunIsTakenOverOnce() {
+        TtsCheckRun stale = run(TtsCheckRun.RunStatus.RUNNING, LocalDateTime.now().minusMinutes(5));
+        when(mapper.selectOne(any())).thenReturn(stale);
+        when(mapper.update(isNull(), any())).thenReturn(1);
+
+        TtsCheckRun claimed = service.claimResumable();
+
+        assertEquals(CheckRunService.OWNER, claimed.getOwner());
+        assertEquals(TtsCheckRun.RunStatus.RUNNING, claimed.getStatus());
+
+        TtsCheckRun raced = run(TtsCheckRun.RunStatus.STOPPED, LocalDateTime.now().minusMinutes(5));
+        when(mapper.selectOne(any())).thenReturn(raced);
+        when(mapper.update(isNull(), any())).thenReturn(0);
+        assertThrows(BusinessException.class, service::claimResumable);
+    }
+
+    /**
+     * 超出续跑窗口的运行被放弃，由新运行从头校验
+     */
+    @Test
+    public void testRunOutsideResumeWindowIsAbandoned() {
+        TtsCheckRun old = run(TtsCheckRun.RunStatus.STOPPED, LocalDateTime.now().minusDays(2));
+        old.setStartedAt(LocalDateTime.now().minusDays(2));
+        when(mapper.selectOne(any())).thenReturn(old);
+
+        assertNull(service.claimResumable());
+        verify(mapper).update(isNull(), any());
+    }
+
+    private static TtsCheckRun run(String status, LocalDateTime heartbeat) {
+        TtsCheckRun run = new TtsCheckRun();
+        run.setId(1L);
+        run.setRunId("run-1");
+        run.setStatus(status);
+        run.setActiveKey(CheckRunService.ACTIVE_KEY);
+        run.setOwner("other");
+        run.setHeartbeatTime(heartbeat);
+        run.setStartedAt(LocalDateTime.now().minusHours(1));
+        return run;
+    }
+}
@@ -0,0 +1,152 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.entity.TtsCheckRun;
+import com.tts.monitor.exception.BusinessException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 校验运行协调测试
+ */
+public class CheckTaskServiceTest {
+
+    private static final String SCOPE = "all";
+
+    private final IProductCheckService productCheckService = mock(IProductCheckService.class);
+    private final IAlertService alertService = mock(IAlertService.class);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger runs = new AtomicInteger();
+    private CheckTaskService service;
+
+    @BeforeEach
+    public void setUp() {
+        when(productCheckService.prepareRun(any())).thenAnswer(invocation -> {
+            TtsCheckRun run = new TtsCheckRun();
+            run.setRunId("run-" + runs.incrementAndGet());
+            ProductCheckService.CheckRunPlan plan = new ProductCheckService.CheckRunPlan();
+            plan.setRun(run);
+            plan.setBaseline(new ProductCheckService.CheckResult());
+            return plan;
+        });
+        when(productCheckService.executeRun(any(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new ProductCheckService.CheckResult();
+        });
+        service = new CheckTaskService(productCheckService, alertService, new TtsApiProperties(), executor);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    /**
+     * 同一范围已有运行时重复提交返回正在执行的运行
+     */
+    @Test
+    public void testDuplicateSubmitReturnsRunningTask() {
+        CheckTask first = service.submit(SCOPE, null, false);
+        CheckTask second = service.submit(SCOPE, null, true);
+
+        assertSame(first, second);
+        assertSame(first, service.getActiveTask(SCOPE));
+        assertEquals(TtsCheckRun.RunStatus.RUNNING, second.getStatus());
+        verify(productCheckService, times(1)).prepareRun(any());
+    }
+
+    /**
+     * 结果缓存期内返回最近完成的运行，强制提交时开始新的运行
+     */
+    @Test
+    public void testCompletedTaskReusedUnlessForced() {
+        release.countDown();
+        CheckTask first = service.submit(SCOPE, null, false);
+        first.getFuture().join();
+
+        assertSame(first, service.submit(SCOPE, null, false));
+        assertNull(service.getActiveTask(SCOPE));
+
+        CheckTask forced = service.submit(SCOPE, null, true);
+        assertNotSame(first, forced);
+        assertSame(forced, service.getTask(forced.getRunId()));
+    }
+
+    /**
+     * 准备运行（数据库操作）在锁外执行：准备期间查询不阻塞，同一范围的并发提交返回同一个运行
+     */
+    @Test
+    public void testConcurrentSubmitWaitsForPreparingRun() throws Exception {
+        CountDownLatch preparing = new CountDownLatch(1);
+        CountDownLatch prepared = new CountDownLatch(1);
+        when(productCheckService.prepareRun(any())).thenAnswer(invocation -> {
+            preparing.countDown();
+            prepared.await(5, TimeUnit.SECONDS);
+            TtsCheckRun run = new TtsCheckRun();
+            run.setRunId("run-" + runs.incrementAndGet());
+            ProductCheckService.CheckRunPlan plan = new ProductCheckService.CheckRunPlan();
+            plan.setRun(run);
+            plan.setBaseline(new ProductCheckService.CheckResult());
+            return plan;
+        });
+        ExecutorService submitters = Executors.newFixedThreadPool(2);
+        try {
+            Future<CheckTask> first = submitters.submit(() -> service.submit(SCOPE, null, false));
+            assertTrue(preparing.await(5, TimeUnit.SECONDS));
+            Future<CheckTask> second = submitters.submit(() -> service.submit(SCOPE, null, false));
+
+            assertTimeoutPreemptively(Duration.ofSeconds(1), () -> assertNull(service.getTask("run-1")));
+            prepared.countDown();
+
+            assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+            verify(productCheckService, times(1)).prepareRun(any());
+        } finally {
+            submitters.shutdownNow();
+        }
+    }
+
+    /**
+     * 运行成功后总是执行告警检查，即使本次没有发现失效商品
+     */
+    @Test
+    public void testAlertsAfterSuccessfulRun() {
+        release.countDown();
+        ProductCheckService.CheckResult result = new ProductCheckService.CheckResult();
+        result.setSuccess(true);
+        when(productCheckService.executeRun(any(), any())).thenReturn(result);
+
+        service.submit(SCOPE, null, false).getFuture().join();
+
+        verify(alertService, timeout(5000)).executeAlert();
+    }
+
+    @Test
+    public void testCancelUnknownRunFails() {
+        assertThrows(BusinessException.class, () -> service.cancel("missing"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.tts.monitor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 校验检查点测试
+ */
+public class CheckpointTrackerTest {
+
+    /**
+     * 乱序写回时游标只推进到之前批次全部写回的位置
+     */
+    @Test
+    public void testAdvancesOnlyOverContiguousPrefix() {
+        CheckpointTracker tracker = new CheckpointTracker(List.of(new ProductIdCursor.IdRange(0, 100)));
+        tracker.register(0, 10);
+        tracker.register(0, 20);
+        tracker.register(0, 30);
+
+        tracker.complete(0, 30);
+        assertEquals(0, startAfter(tracker, 0));
+        tracker.complete(0, 10);
+        assertEquals(10, startAfter(tracker, 0));
+        tracker.complete(0, 20);
+        assertEquals(30, startAfter(tracker, 0));
+        assertEquals(100, tracker.snapshot().get(0).getEndId());
+    }
+
+    /**
+     * 区间之间互不影响，恢复的区间从已提交的游标开始
+     */
+    @Test
+    public void testRangesAdvanceIndependently() {
+        CheckpointTracker tracker = new CheckpointTracker(List.of(
+            new ProductIdCursor.IdRange(40, 100), new ProductIdCursor.IdRange(100, null)));
+        tracker.register(0, 50);
+        tracker.register(1, 110);
+        tracker.register(1, 120);
+
+        tracker.complete(1, 120);
+        assertEquals(List.of(new ProductIdCursor.IdRange(40, 100), new ProductIdCursor.IdRange(100, null)),
+            tracker.snapshot());
+        tracker.complete(1, 110);
+        tracker.complete(0, 50);
+        assertEquals(List.of(new ProductIdCursor.IdRange(50, 100), new ProductIdCursor.IdRange(120, null)),
+            tracker.snapshot());
+    }
+
+    /**
+     * 计数只累加已随游标提交的批次，之后的已写回批次不计入
+     */
+    @Test
+    public void testCommittedCountersFollowPrefix() {
+        CheckCounters committed = new CheckCounters();
+        CheckpointTracker tracker = new CheckpointTracker(List.of(new ProductIdCursor.IdRange(0, null)), committed);
+        tracker.register(0, 10);
+        tracker.register(0, 20);
+        tracker.register(0, 30);
+
+        tracker.complete(0, 10, 10, checked(10));
+        tracker.complete(0, 30, 10, checked(10));
+
+        assertEquals(10, committed.snapshot().getTotalCount());
+        assertEquals(10, committed.snapshot().getCheckedCount());
+        tracker.complete(0, 20, 10, checked(10));
+        assertEquals(30, committed.snapshot().getTotalCount());
+        assertEquals(30, committed.snapshot().getCheckedCount());
+    }
+
+    private static ProductCheckService.BatchCheckResult checked(int count) {
+        ProductCheckService.BatchCheckResult result = new ProductCheckService.BatchCheckResult();
+        result.setCheckedCount(count);
+        result.setValidCount(count);
+        return result;
+    }
+
+    private static int startAfter(CheckpointTracker tracker, int rangeIndex) {
+        return tracker.snapshot().get(rangeIndex).getStartAfterId();
+    }
+}
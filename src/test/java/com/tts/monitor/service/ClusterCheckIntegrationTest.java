@@ -0,0 +1,243 @@
+package com.tts.monitor.service;
+
+import com.sun.net.httpserver.HttpServer;
+import com.tts.monitor.TtsMonitorApplication;
+import com.tts.monitor.entity.TtsCheckLease;
+import com.tts.monitor.entity.TtsCheckRun;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 集群模式集成测试：多个应用上下文共用一个数据库，通过区间租约共同完成一次校验运行
+ * 会删除并重建测试库中的表，只在指定专用测试库时执行：
+ * mvn test -Dtest=ClusterCheckIntegrationTest -Dtts.it.jdbc-url=jdbc:mysql://127.0.0.1:3306/tts_it?... -Dtts.it.username=root -Dtts.it.password=123
+ */
+public class ClusterCheckIntegrationTest {
+
+    private static final int NODE_COUNT = 3;
+    private static final int PRODUCT_COUNT = 3000;
+    private static final int LEASE_COUNT = 12;
+
+    private final String jdbcUrl = System.getProperty("tts.it.jdbc-url");
+    private final String username = System.getProperty("tts.it.username", "root");
+    private final String password = System.getProperty("tts.it.password", "");
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private HttpServer ttsStub;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        assumeTrue(jdbcUrl != null, "未指定 tts.it.jdbc-url，跳过集群集成测试");
+        createSchema();
+        ttsStub = startTtsStub();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+        if (ttsStub != null) {
+            ttsStub.stop(0);
+        }
+    }
+
+    @Test
+    public void testLeasesSharedAcrossNodesAndReclaimedFromDeadNode() throws Exception {
+        insertProducts();
+        String runId = "it-" + System.currentTimeMillis();
+        seedRun(runId);
+
+        for (int i = 0; i < NODE_COUNT; i++) {
+            contexts.add(startNode("node-" + i));
+        }
+
+        long start = System.nanoTime();
+        List<CompletableFuture<ProductCheckService.CheckResult>> futures = new ArrayList<>();
+        for (ConfigurableApplicationContext context : contexts) {
+            ICheckTaskService checkTaskService = context.getBean(ICheckTaskService.class);
+            futures.add(checkTaskService.submit(CheckTaskService.SCOPE_ALL, null, true).getFuture());
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(2, TimeUnit.MINUTES);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        // 所有实例共用 30 QPS 的共享令牌桶（容量 30）
+        assertTrue(requestCount.get() <= 30 * elapsedSeconds + 30 + 5,
+            "请求数超过共享预算: " + requestCount.get() + " / " + String.format("%.1f", elapsedSeconds) + "s");
+
+        try (Connection connection = connect()) {
+            assertEquals(TtsCheckRun.RunStatus.COMPLETED,
+                queryString(connection, "SELECT status FROM tts_check_run WHERE run_id = '" + runId + "'"));
+            assertEquals(LEASE_COUNT, queryLong(connection,
+                "SELECT COUNT(*) FROM tts_check_lease WHERE status = '" + TtsCheckLease.LeaseStatus.DONE + "'"));
+            assertEquals(0, queryLong(connection,
+                "SELECT COUNT(*) FROM tts_product_monitor WHERE last_check_time IS NULL"));
+            assertEquals(PRODUCT_COUNT, queryLong(connection,
+                "SELECT checked_count FROM tts_check_run WHERE run_id = '" + runId + "'"));
+            assertTrue(queryLong(connection, "SELECT COUNT(DISTINCT owner) FROM tts_check_lease") >= 2,
+                "区间应由多个实例共同完成");
+            assertTrue(queryString(connection,
+                "SELECT owner FROM tts_check_lease WHERE range_index = 0").startsWith("node-"),
+                "过期租约应被存活实例接管");
+        }
+        System.out.println("TTS 接口请求次数: " + requestCount.get());
+    }
+
+    private ConfigurableApplicationContext startNode(String nodeId) {
+        return new SpringApplicationBuilder(TtsMonitorApplication.class).run(
+            "--server.port=0",
+            "--spring.main.banner-mode=off",
+            "--spring.datasource.url=" + jdbcUrl,
+            "--spring.datasource.username=" + username,
+            "--spring.datasource.password=" + password,
+            "--spring.datasource.hikari.minimum-idle=1",
+            "--schedule.product-check.enabled=false",
+            "--tts.api.base-url=http://127.0.0.1:" + ttsStub.getAddress().getPort(),
+            "--tts.api.check.checkpoint-interval=500ms",
+            "--tts.api.check.cluster.enabled=true",
+            "--tts.api.check.cluster.node-id=" + nodeId,
+            "--tts.api.check.cluster.leases-per-node=1",
+            "--tts.api.check.cluster.lease-ttl=5s",
+            "--tts.api.check.cluster.global-qps=30",
+            "--tts.api.rate-limit.qps=30",
+            "--tts.api.rate-limit.shared.enabled=true",
+            "--tts.api.rate-limit.shared.bucket-key=it");
+    }
+
+    /**
+     * 预先创建运行和租约，其中区间 0 由已退出的实例持有且租约已过期
+     */
+    private void seedRun(String runId) throws Exception {
+        try (Connection connection = connect()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("INSERT INTO tts_check_run (run_id, active_key, status, range_state, owner, "
+                    + "heartbeat_time, started_at) VALUES ('" + runId + "', '" + CheckRunService.ACTIVE_KEY + "', '"
+                    + TtsCheckRun.RunStatus.RUNNING + "', '[]', 'dead-node', NOW(), NOW())");
+            }
+            int rangeSize = PRODUCT_COUNT / LEASE_COUNT;
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO tts_check_lease "
+                    + "(run_id, range_index, cursor_id, end_id, status, owner, lease_until) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < LEASE_COUNT; i++) {
+                    boolean dead = i == 0;
+                    insert.setString(1, runId);
+                    insert.setInt(2, i);
+                    insert.setInt(3, i * rangeSize);
+                    insert.setObject(4, i == LEASE_COUNT - 1 ? null : (i + 1) * rangeSize);
+                    insert.setString(5, dead ? TtsCheckLease.LeaseStatus.LEASED : TtsCheckLease.LeaseStatus.PENDING);
+                    insert.setString(6, dead ? "dead-node" : null);
+                    insert.setObject(7, dead ? LocalDateTime.now().minusMinutes(1) : null);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private void insertProducts() throws Exception {
+        try (Connection connection = connect();
+             PreparedStatement insert = connection.prepareStatement(
+                 "INSERT INTO tts_product_monitor (product_id) VALUES (?)")) {
+            for (int i = 1; i <= PRODUCT_COUNT; i++) {
+                insert.setString(1, String.valueOf(1729000000000000000L + i));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private void createSchema() throws Exception {
+        String script;
+        try (InputStream in = getClass().getResourceAsStream("/sql/cluster-check-schema.sql")) {
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            for (String sql : script.split(";\\s*\\n")) {
+                String trimmed = sql.replaceAll("(?m)^--.*$", "").trim();
+                if (!trimmed.isEmpty()) {
+                    statement.execute(trimmed);
+                }
+            }
+        }
+    }
+
+    /**
+     * 模拟 TTS 接口：所有商品都有效并带佣金，每次请求延迟 20ms
+     */
+    private HttpServer startTtsStub() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requestCount.incrementAndGet();
+            String productIds = "";
+            for (String param : exchange.getRequestURI().getRawQuery().split("&")) {
+                if (param.startsWith("product_ids=")) {
+                    productIds = URLDecoder.decode(param.substring("product_ids=".length()), StandardCharsets.UTF_8);
+                }
+            }
+            StringBuilder body = new StringBuilder("{\"code\":0,\"message\":\"Success\",\"request_id\":\"it\",\"data\":{\"products\":[");
+            String[] ids = productIds.split(",");
+            for (int i = 0; i < ids.length; i++) {
+                if (i > 0) {
+                    body.append(',');
+                }
+                body.append("{\"id\":\"").append(ids[i]).append("\",\"title\":\"Product ").append(ids[i])
+                    .append("\",\"shop\":{\"name\":\"Shop\"},\"commission\":{\"rate\":1000,\"currency\":\"USD\",\"amount\":\"1.00\"}}");
+            }
+            body.append("]}}");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(16));
+        server.start();
+        return server;
+    }
+
+    private Connection connect() throws Exception {
+        return DriverManager.getConnection(jdbcUrl, username, password);
+    }
+
+    private static long queryLong(Connection connection, String sql) throws Exception {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String queryString(Connection connection, String sql) throws Exception {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+}
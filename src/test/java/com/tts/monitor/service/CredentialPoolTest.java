@@ -0,0 +1,125 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 凭证池测试
+ */
+public class CredentialPoolTest {
+
+    @Test
+    public void testSpreadsRequestsAcrossCredentials() throws Exception {
+        CredentialPool pool = new CredentialPool(properties(Duration.ofMinutes(5)), null);
+
+        Map<String, Integer> used = take(pool, 20);
+
+        assertEquals(200, pool.getTotalQps(), 0.001);
+        assertTrue(used.getOrDefault("a", 0) >= 5);
+        assertTrue(used.getOrDefault("b", 0) >= 5);
+    }
+
+    @Test
+    public void testAuthFailureTakesCredentialOutOfRotation() throws Exception {
+        CredentialPool pool = new CredentialPool(properties(Duration.ofMinutes(5)), null);
+        TtsApiResponse authFailed = response("a", 401);
+        authFailed.setAuthFailed(true);
+
+        pool.record(authFailed, 1_000_000);
+
+        assertTrue(pool.isThrottled(authFailed));
+        assertEquals(1, pool.getHealthyCount());
+        assertEquals(Map.of("b", 10), take(pool, 10));
+    }
+
+    @Test
+    public void testCredentialRecoversAfterSuccessfulProbe() throws Exception {
+        CredentialPool pool = new CredentialPool(properties(Duration.ofMillis(50)), null);
+        TtsApiResponse authFailed = response("a", 401);
+        authFailed.setAuthFailed(true);
+        pool.record(authFailed, 1_000_000);
+
+        Thread.sleep(60);
+        // 冷却到期后放行一个试探请求
+        assertTrue(take(pool, 10).containsKey("a"));
+        pool.record(response("a", 200), 1_000_000);
+
+        assertEquals(2, pool.getHealthyCount());
+    }
+
+    @Test
+    public void testProbeWithoutHttpStatusAllowsNextProbe() throws Exception {
+        CredentialPool pool = new CredentialPool(properties(Duration.ofMillis(50)), null);
+        TtsApiResponse authFailed = response("a", 401);
+        authFailed.setAuthFailed(true);
+        pool.record(authFailed, 1_000_000);
+
+        Thread.sleep(60);
+        assertEquals(1, take(pool, 10).getOrDefault("a", 0));
+        // 试探请求超时，没有 HTTP 状态：不恢复，但允许再次试探
+        TtsApiResponse timedOut = new TtsApiResponse();
+        timedOut.setTimedOut(true);
+        timedOut.setCredential("a");
+        pool.record(timedOut, 1_000_000);
+
+        assertEquals(1, pool.getHealthyCount());
+        assertEquals(1, take(pool, 10).getOrDefault("a", 0));
+    }
+
+    @Test
+    public void testUnreportedProbeExpires() throws Exception {
+        TtsApiProperties properties = properties(Duration.ofMillis(50));
+        properties.getCredentialPool().setProbeTimeout(Duration.ofMillis(300));
+        CredentialPool pool = new CredentialPool(properties, null);
+        TtsApiResponse authFailed = response("a", 401);
+        authFailed.setAuthFailed(true);
+        pool.record(authFailed, 1_000_000);
+
+        Thread.sleep(60);
+        assertEquals(1, take(pool, 10).getOrDefault("a", 0));
+        // 试探请求没有返回结果（如令牌取得后未发出），超过 probe-timeout 后再次试探
+        assertEquals(0, take(pool, 10).getOrDefault("a", 0));
+        Thread.sleep(300);
+        assertEquals(1, take(pool, 10).getOrDefault("a", 0));
+    }
+
+    private static Map<String, Integer> take(CredentialPool pool, int count) throws InterruptedException {
+        Map<String, Integer> used = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            used.merge(pool.acquire().name(), 1, Integer::sum);
+        }
+        return used;
+    }
+
+    private static TtsApiProperties properties(Duration authCooldown) {
+        TtsApiProperties properties = new TtsApiProperties();
+        properties.setRateLimit(new TtsApiProperties.RateLimitConfig());
+        properties.getRateLimit().setQps(100);
+        properties.getCredentialPool().setAuthCooldown(authCooldown);
+        for (String name : new String[]{"a", "b"}) {
+            TtsApiProperties.CredentialConfig credential = new TtsApiProperties.CredentialConfig();
+            credential.setName(name);
+            credential.setAppKey("key-" + name);
+            credential.setAppSecret("secret-" + name);
+            credential.setAccessToken("token-" + name);
+            properties.getCredentials().add(credential);
+        }
+        return properties;
+    }
+
+    private static TtsApiResponse response(String credential, int httpStatus) {
+        TtsApiResponse response = new TtsApiResponse();
+        response.setCode(httpStatus == 200 ? 0 : -1);
+        response.setHttpStatus(httpStatus);
+        response.setCredential(credential);
+        return response;
+    }
+}
@@ -0,0 +1,232 @@
+package com.tts.monitor.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.Update;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.ProductAddReport;
+import com.tts.monitor.entity.TtsImportItem;
+import com.tts.monitor.entity.TtsImportJob;
+import com.tts.monitor.mapper.TtsImportItemMapper;
+import com.tts.monitor.mapper.TtsImportJobMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 商品导入任务领取、检查点和继续执行测试
+ */
+public class ImportJobServiceTest {
+
+    private static final int ITEM_COUNT = 4;
+
+    private final TtsImportJobMapper jobMapper = mock(TtsImportJobMapper.class);
+    private final TtsImportItemMapper itemMapper = mock(TtsImportItemMapper.class);
+    private final IProductService productService = mock(IProductService.class);
+    private final TtsApiProperties properties = new TtsApiProperties();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * 等待领取的任务
+     */
+    private final List<TtsImportJob> claimable = new ArrayList<>();
+
+    /**
+     * 每次条件更新的 SET 子句
+     */
+    private final Queue<String> updates = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> pageCursors = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 返回 0 的条件更新（模拟被其他实例领取或任务已取消）
+     */
+    private Predicate<String> rejected = sqlSet -> false;
+    private long pageDelayMs = 0;
+
+    private ImportJobService service;
+
+    @BeforeAll
+    public static void initTableInfo() {
+        MapperBuilderAssistant assistant = new MapperBuilderAssistant(new MybatisConfiguration(), "");
+        TableInfoHelper.initTableInfo(assistant, TtsImportJob.class);
+        TableInfoHelper.initTableInfo(assistant, TtsImportItem.class);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        properties.getBulkImport().setPageSize(2);
+
+        when(jobMapper.selectList(any())).thenAnswer(invocation -> {
+            AbstractWrapper<?, ?, ?> wrapper = invocation.getArgument(0);
+            // 条件参数在生成 SQL 片段时才写入
+            wrapper.getSqlSegment();
+            if (wrapper.getParamNameValuePairs().containsValue(TtsImportJob.JobStatus.UPLOADING)) {
+                return List.of();
+            }
+            return new ArrayList<>(claimable);
+        });
+        when(jobMapper.update(isNull(), any())).thenAnswer(invocation -> {
+            String sqlSet = ((Update<?, ?>) invocation.getArgument(1)).getSqlSet();
+            updates.add(sqlSet);
+            if (rejected.test(sqlSet)) {
+                return 0;
+            }
+            if (isClaim(sqlSet)) {
+                claimable.clear();
+            }
+            return 1;
+        });
+        when(jobMapper.selectOne(any())).thenAnswer(invocation -> job(1L, TtsImportJob.JobStatus.COMPLETED, 0L));
+        when(itemMapper.selectPageAfter(anyString(), anyLong(), anyInt())).thenAnswer(invocation -> {
+            long lastId = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            pageCursors.add(lastId);
+            List<TtsImportItem> page = new ArrayList<>();
+            for (long id = lastId + 1; id <= ITEM_COUNT && page.size() < limit; id++) {
+                TtsImportItem item = new TtsImportItem();
+                item.setId(id);
+                item.setProductId(String.valueOf(1729000000000000000L + id));
+                page.add(item);
+            }
+            return page;
+        });
+        when(productService.addProducts(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(pageDelayMs);
+            ProductAddReport report = new ProductAddReport();
+            report.getAdded().addAll(invocation.getArgument(0));
+            return report;
+        });
+
+        service = new ImportJobService(jobMapper, itemMapper, productService, mock(IAlertService.class),
+            properties, executor);
+    }
+
+    @Test
+    public void testClaimsAndCheckpointsEachPage() throws Exception {
+        claimable.add(job(1L, TtsImportJob.JobStatus.PENDING, 0L));
+
+        runDispatch();
+
+        assertEquals(List.of(0L, 2L, 4L), List.copyOf(pageCursors));
+        assertEquals(2, count(ImportJobServiceTest::isCheckpoint));
+        assertEquals(1, count(sqlSet -> sqlSet.contains("finished_at")));
+        verify(itemMapper, times(2)).batchUpdateResult(anyString(), anyList(), eq(TtsImportItem.ItemResult.ADDED));
+    }
+
+    /**
+     * 领取以原状态和心跳为条件，被其他实例抢先领取的任务跳过
+     */
+    @Test
+    public void testSkipsJobClaimedByAnotherInstance() throws Exception {
+        claimable.add(job(1L, TtsImportJob.JobStatus.PENDING, 0L));
+        rejected = ImportJobServiceTest::isClaim;
+
+        runDispatch();
+
+        assertEquals(1, count(ImportJobServiceTest::isClaim));
+        assertTrue(pageCursors.isEmpty());
+    }
+
+    /**
+     * 心跳超时的任务从游标处继续，不重新处理已保存检查点的页
+     */
+    @Test
+    public void testResumesStaleJobFromCursor() throws Exception {
+        TtsImportJob stale = job(1L, TtsImportJob.JobStatus.RUNNING, 2L);
+        stale.setHeartbeatTime(LocalDateTime.now().minusHours(1));
+        claimable.add(stale);
+
+        runDispatch();
+
+        assertEquals(List.of(2L, 4L), List.copyOf(pageCursors));
+        assertEquals(1, count(ImportJobServiceTest::isCheckpoint));
+    }
+
+    /**
+     * 任务被取消后检查点条件更新失败，停止执行
+     */
+    @Test
+    public void testStopsWhenCheckpointRejected() throws Exception {
+        claimable.add(job(1L, TtsImportJob.JobStatus.PENDING, 0L));
+        rejected = ImportJobServiceTest::isCheckpoint;
+
+        runDispatch();
+
+        assertEquals(List.of(0L), List.copyOf(pageCursors));
+        assertEquals(0, count(sqlSet -> sqlSet.contains("finished_at")));
+    }
+
+    /**
+     * 单页处理时间超过心跳超时时间时，心跳仍按间隔刷新
+     */
+    @Test
+    public void testHeartbeatDuringLongPage() throws Exception {
+        properties.getBulkImport().setStaleAfter(Duration.ofMillis(300));
+        claimable.add(job(1L, TtsImportJob.JobStatus.PENDING, 0L));
+        pageDelayMs = 450;
+
+        runDispatch();
+
+        // 心跳间隔按心跳超时时间的三分之一（100ms）执行
+        assertTrue(count(sqlSet -> sqlSet.matches("heartbeat_time=[^,]*")) >= 4);
+        assertEquals(2, count(ImportJobServiceTest::isCheckpoint));
+    }
+
+    private void runDispatch() throws InterruptedException {
+        service.dispatch();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private long count(Predicate<String> filter) {
+        return updates.stream().filter(filter).count();
+    }
+
+    private static boolean isClaim(String sqlSet) {
+        return sqlSet.contains("owner");
+    }
+
+    private static boolean isCheckpoint(String sqlSet) {
+        return sqlSet.contains("cursor_id");
+    }
+
+    private static TtsImportJob job(long id, String status, long cursorId) {
+        TtsImportJob job = new TtsImportJob();
+        job.setId(id);
+        job.setJobId("job-" + id);
+        job.setStatus(status);
+        job.setTotalCount(ITEM_COUNT);
+        job.setCursorId(cursorId);
+        job.setAddedCount(0);
+        job.setOwner("other");
+        job.setHeartbeatTime(LocalDateTime.now());
+        return job;
+    }
+}
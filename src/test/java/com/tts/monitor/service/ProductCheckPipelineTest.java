@@ -0,0 +1,234 @@
+package com.tts.monitor.service;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.tts.monitor.entity.TtsProductMonitor;
+import com.tts.monitor.mapper.TtsProductMonitorMapper;
+import com.tts.monitor.util.TtsCredential;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 商品校验流水线测试
+ */
+public class ProductCheckPipelineTest {
+
+    private static final int PRODUCT_COUNT = 100;
+
+    private final TtsProductMonitorMapper mapper = mockMapper();
+    private final ThreadPoolExecutor pool = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>());
+    private final CheckCounters counters = new CheckCounters();
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 批次乱序完成，每个区间的检查点推进到区间末尾
+     */
+    @Test
+    public void testChecksEveryRangeAndCommitsCheckpoint() {
+        List<ProductIdCursor.IdRange> ranges = List.of(
+            new ProductIdCursor.IdRange(0, 50), new ProductIdCursor.IdRange(50, null));
+        CheckpointTracker tracker = new CheckpointTracker(ranges);
+
+        ProductCheckService.CheckResult result = run(ranges, tracker, 4, null, (batch, index, credential) -> {
+            sleep(ThreadLocalRandom.current().nextInt(20));
+            return checked(batch);
+        });
+
+        assertTrue(result.isSuccess());
+        assertEquals(PRODUCT_COUNT, result.getTotalCount());
+        assertEquals(PRODUCT_COUNT, result.getCheckedCount());
+        assertEquals(List.of(new ProductIdCursor.IdRange(50, 50), new ProductIdCursor.IdRange(100, null)),
+            tracker.snapshot());
+    }
+
+    /**
+     * 因熔断延后的批次不推进检查点，运行以停止状态结束
+     */
+    @Test
+    public void testDeferredBatchStopsAtCheckpoint() {
+        List<ProductIdCursor.IdRange> ranges = List.of(new ProductIdCursor.IdRange(0, null));
+        CheckpointTracker tracker = new CheckpointTracker(ranges);
+
+        ProductCheckService.CheckResult result = run(ranges, tracker, 1, null, (batch, index, credential) -> {
+            if (batch.get(0).getId() == 31) {
+                ProductCheckService.BatchCheckResult deferred = new ProductCheckService.BatchCheckResult();
+                deferred.setDeferred(true);
+                return deferred;
+            }
+            return checked(batch);
+        });
+
+        assertTrue(result.isStopped());
+        assertEquals(30, tracker.snapshot().get(0).getStartAfterId());
+    }
+
+    /**
+     * 处理失败的批次不推进检查点，检查点计数只包含已写回的前缀
+     */
+    @Test
+    public void testFailedBatchStopsCheckpointAndCommittedCounts() {
+        List<ProductIdCursor.IdRange> ranges = List.of(new ProductIdCursor.IdRange(0, null));
+        CheckCounters committed = new CheckCounters();
+        CheckpointTracker tracker = new CheckpointTracker(ranges, committed);
+
+        ProductCheckService.CheckResult result = run(ranges, tracker, 1, null, (batch, index, credential) -> {
+            if (batch.get(0).getId() == 31) {
+                throw new IllegalStateException("lookup failed");
+            }
+            return checked(batch);
+        });
+
+        assertEquals(10, result.getFailedCount());
+        assertEquals(90, result.getCheckedCount());
+        assertEquals(30, tracker.snapshot().get(0).getStartAfterId());
+        assertEquals(30, committed.snapshot().getTotalCount());
+        assertEquals(30, committed.snapshot().getCheckedCount());
+        assertEquals(0, committed.snapshot().getFailedCount());
+    }
+
+    /**
+     * 写回失败的商品从已校验移到失败，已校验与失败之和等于已分发数
+     */
+    @Test
+    public void testWriteFailureMovesRowsFromCheckedToFailed() {
+        doThrow(new RuntimeException("deadlock")).when(mapper).batchUpdateCheckState(
+            argThat(chunk -> chunk.stream().anyMatch(row -> row.getId() == 15)), any());
+        List<ProductIdCursor.IdRange> ranges = List.of(new ProductIdCursor.IdRange(0, null));
+
+        ProductCheckService.CheckResult result = run(ranges, null, 1, null,
+            (batch, index, credential) -> changed(batch));
+
+        assertEquals(PRODUCT_COUNT, result.getTotalCount());
+        assertTrue(result.getFailedCount() > 0);
+        assertEquals(PRODUCT_COUNT, result.getCheckedCount() + result.getFailedCount());
+        assertEquals(result.getCheckedCount(), result.getChangedCount());
+        assertEquals(result.getCheckedCount(), result.getValidCount());
+    }
+
+    /**
+     * 运行超时时取消在途批次，等它们退出后才返回
+     */
+    @Test
+    public void testRunTimeoutWaitsForCancelledBatches() {
+        List<ProductIdCursor.IdRange> ranges = List.of(new ProductIdCursor.IdRange(0, null));
+        AtomicInteger running = new AtomicInteger();
+
+        long start = System.nanoTime();
+        ProductCheckService.CheckResult result = run(ranges, null, 2, Duration.ofMillis(300),
+            (batch, index, credential) -> {
+                running.incrementAndGet();
+                try {
+                    Thread.sleep(10_000);
+                    return checked(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted");
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+
+        assertFalse(result.isSuccess());
+        assertEquals("校验运行超时", result.getErrorMessage());
+        assertEquals(0, running.get());
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+    }
+
+    private ProductCheckService.CheckResult run(List<ProductIdCursor.IdRange> ranges, CheckpointTracker tracker,
+                                                int maxInFlight, Duration runTimeout,
+                                                ProductCheckPipeline.BatchChecker checker) {
+        try (CheckResultWriter writer = new CheckResultWriter(mapper, counters, 16, 100, 50, Duration.ofMillis(50));
+             CheckExecution execution = CheckExecution.pooled(pool)) {
+            ProductCheckPipeline pipeline = ProductCheckPipeline.builder()
+                .productMapper(mapper)
+                .execution(execution)
+                .rateLimiter(RateLimiter.create(1000))
+                .batchChecker(checker)
+                .writer(writer)
+                .checkpointTracker(tracker)
+                .pageSize(20)
+                .batchSize(10)
+                .prefetchPages(2)
+                .maxInFlight(maxInFlight)
+                .runTimeout(runTimeout)
+                .counters(counters)
+                .build();
+            return pipeline.run(ranges);
+        }
+    }
+
+    private static ProductCheckService.BatchCheckResult checked(List<TtsProductMonitor> batch) {
+        ProductCheckService.BatchCheckResult result = new ProductCheckService.BatchCheckResult();
+        result.setCheckedCount(batch.size());
+        result.setValidCount(batch.size());
+        result.setUnchangedCount(batch.size());
+        result.setUnchangedIds(batch.stream().map(TtsProductMonitor::getId).toList());
+        return result;
+    }
+
+    private static ProductCheckService.BatchCheckResult changed(List<TtsProductMonitor> batch) {
+        ProductCheckService.BatchCheckResult result = new ProductCheckService.BatchCheckResult();
+        List<TtsProductMonitor> changedRows = new ArrayList<>();
+        for (TtsProductMonitor row : batch) {
+            TtsProductMonitor checked = new TtsProductMonitor();
+            checked.setId(row.getId());
+            checked.setIsValid(TtsProductMonitor.ValidStatus.VALID);
+            changedRows.add(checked);
+        }
+        result.setCheckedCount(batch.size());
+        result.setValidCount(batch.size());
+        result.setChangedCount(batch.size());
+        result.setChangedRows(changedRows);
+        return result;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static TtsProductMonitorMapper mockMapper() {
+        TtsProductMonitorMapper mapper = mock(TtsProductMonitorMapper.class);
+        when(mapper.selectCheckRowsAfter(anyInt(), any(), anyInt())).thenAnswer(invocation -> {
+            int lastId = invocation.getArgument(0);
+            Integer endId = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            int last = endId != null ? Math.min(endId, PRODUCT_COUNT) : PRODUCT_COUNT;
+            List<TtsProductMonitor> rows = new ArrayList<>();
+            for (int id = lastId + 1; id <= last && rows.size() < limit; id++) {
+                TtsProductMonitor row = new TtsProductMonitor();
+                row.setId(id);
+                row.setProductId(String.valueOf(1730000000000000000L + id));
+                rows.add(row);
+            }
+            return rows;
+        });
+        return mapper;
+    }
+}
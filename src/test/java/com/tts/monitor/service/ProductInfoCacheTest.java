@@ -0,0 +1,92 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 商品信息缓存测试
+ */
+public class ProductInfoCacheTest {
+
+    @Test
+    public void testLookupSplitsHitsNegativesAndMisses() {
+        ProductInfoCache cache = new ProductInfoCache(new TtsApiProperties.CacheConfig());
+        cache.put(products("1", "3"), List.of("2"));
+
+        ProductInfoCache.Lookup lookup = cache.lookup(List.of("3", "2", "4", "1"));
+
+        assertEquals(List.of("3", "1"), List.copyOf(lookup.getFound().keySet()));
+        assertEquals(List.of("2"), lookup.getAbsent());
+        assertEquals(List.of("4"), lookup.getMisses());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getNegativeHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testRefreshOnlyUpdatesCachedIds() {
+        ProductInfoCache cache = new ProductInfoCache(new TtsApiProperties.CacheConfig());
+        cache.put(products("1"), List.of("2"));
+
+        // 1 下架、2 恢复、3 未缓存
+        cache.refresh(List.of(product("2"), product("3")), List.of("1"));
+
+        ProductInfoCache.Lookup lookup = cache.lookup(List.of("1", "2", "3"));
+        assertEquals(List.of("2"), List.copyOf(lookup.getFound().keySet()));
+        assertEquals(List.of("1"), lookup.getAbsent());
+        assertEquals(List.of("3"), lookup.getMisses());
+    }
+
+    @Test
+    public void testEvictionBySizeAndTtl() throws Exception {
+        TtsApiProperties.CacheConfig config = new TtsApiProperties.CacheConfig();
+        config.setMaximumSize(10L);
+        config.setNegativeTtl(Duration.ofMillis(50));
+        ProductInfoCache cache = new ProductInfoCache(config);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(String.valueOf(i));
+        }
+
+        cache.put(products(ids.subList(0, 50).toArray(new String[0])), ids.subList(50, 100));
+        Thread.sleep(100);
+
+        ProductInfoCache.Lookup lookup = cache.lookup(ids);
+        assertTrue(lookup.getFound().size() <= 10);
+        assertTrue(lookup.getAbsent().isEmpty());
+        assertTrue(cache.getEvictionCount() >= 80);
+    }
+
+    @Test
+    public void testDisabled() {
+        TtsApiProperties.CacheConfig config = new TtsApiProperties.CacheConfig();
+        config.setEnabled(false);
+        ProductInfoCache cache = new ProductInfoCache(config);
+        cache.put(products("1"), List.of("2"));
+
+        assertEquals(List.of("1", "2"), cache.lookup(List.of("1", "2")).getMisses());
+    }
+
+    private static List<TtsApiResponse.ProductInfo> products(String... ids) {
+        List<TtsApiResponse.ProductInfo> products = new ArrayList<>();
+        for (String id : ids) {
+            products.add(product(id));
+        }
+        return products;
+    }
+
+    private static TtsApiResponse.ProductInfo product(String id) {
+        TtsApiResponse.ProductInfo product = new TtsApiResponse.ProductInfo();
+        product.setId(id);
+        product.setTitle("Product " + id);
+        return product;
+    }
+}
@@ -0,0 +1,220 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.ProductAddReport;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+import com.tts.monitor.entity.TtsProductMonitor;
+import com.tts.monitor.mapper.TtsProductMonitorMapper;
+import com.tts.monitor.util.ProductSnapshotHasher;
+import com.tts.monitor.util.TtsApiClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批量新增商品测试
+ */
+public class ProductServiceAddTest {
+
+    private static final String GONE = "1729000000000000007";
+    private static final String POISON = "1729000000000000042";
+
+    private final TtsProductMonitorMapper mapper = mock(TtsProductMonitorMapper.class);
+    private final TtsApiClient client = mock(TtsApiClient.class);
+    private final Queue<Integer> batchSizes = new ConcurrentLinkedQueue<>();
+    private final Queue<Integer> insertSizes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private ProductService service;
+
+    @BeforeEach
+    public void setUp() {
+        TtsApiProperties properties = new TtsApiProperties();
+        TtsApiProperties.RateLimitConfig rateConfig = new TtsApiProperties.RateLimitConfig();
+        rateConfig.setQps(1000);
+        properties.setRateLimit(rateConfig);
+        TtsApiProperties.BatchConfig batchConfig = new TtsApiProperties.BatchConfig();
+        batchConfig.setSize(20);
+        properties.setBatch(batchConfig);
+        properties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+        properties.getRetry().setMaxBackoff(Duration.ofMillis(5));
+        properties.getBulkAdd().setParallelism(3);
+        properties.getBulkAdd().setInsertChunkSize(50);
+
+        when(client.urlOverheadBytes()).thenReturn(200);
+        when(client.getProductsByIds(anyList(), any())).thenAnswer(invocation -> {
+            List<String> ids = invocation.getArgument(0);
+            batchSizes.add(ids.size());
+            int now = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(now, Math::max);
+            Thread.sleep(20);
+            concurrent.decrementAndGet();
+            if (ids.contains(POISON)) {
+                return error();
+            }
+            List<String> returned = new ArrayList<>(ids);
+            returned.remove(GONE);
+            return success(returned);
+        });
+        when(mapper.batchInsertIgnore(anyList())).thenAnswer(invocation -> {
+            List<TtsProductMonitor> rows = invocation.getArgument(0);
+            insertSizes.add(rows.size());
+            return rows.size();
+        });
+
+        CredentialPool credentialPool = new CredentialPool(properties, null);
+        service = new ProductService(mapper, client, credentialPool,
+            new ProductInfoCache(new TtsApiProperties.CacheConfig()), properties);
+    }
+
+    @Test
+    public void testChunkedAddWithPerIdOutcome() {
+        List<String> ids = ids(200);
+        List<TtsProductMonitor> existing = new ArrayList<>();
+        for (String id : ids.subList(190, 200)) {
+            TtsProductMonitor row = new TtsProductMonitor();
+            row.setProductId(id);
+            existing.add(row);
+        }
+        when(mapper.selectByProductIds(anyList())).thenAnswer(invocation -> {
+            List<String> requested = invocation.getArgument(0);
+            return existing.stream().filter(row -> requested.contains(row.getProductId())).toList();
+        });
+
+        ProductAddReport report = service.addProducts(ids);
+
+        assertEquals(200, report.getRequested());
+        assertEquals(188, report.getAdded().size());
+        assertEquals(ids.subList(190, 200), report.getExisting());
+        assertEquals(List.of(GONE), report.getUnknown());
+        assertEquals(List.of(POISON), report.getFailed());
+        // 按接口批次大小切分，并行数不超过配置
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 20));
+        assertTrue(maxConcurrent.get() <= 3 && maxConcurrent.get() > 1, "并行数: " + maxConcurrent.get());
+        // 按块写入
+        assertEquals(List.of(50, 50, 50, 38), List.copyOf(insertSizes));
+    }
+
+    @Test
+    public void testFailedInsertIsReportedAsFailed() {
+        when(mapper.selectByProductIds(anyList())).thenReturn(List.of());
+        AtomicInteger inserts = new AtomicInteger();
+        when(mapper.batchInsertIgnore(anyList())).thenAnswer(invocation -> {
+            List<TtsProductMonitor> rows = invocation.getArgument(0);
+            if (inserts.incrementAndGet() == 1) {
+                throw new IllegalStateException("Deadlock found when trying to get lock");
+            }
+            return rows.size();
+        });
+
+        ProductAddReport report = service.addProducts(ids(30));
+
+        assertEquals(29, report.getFailed().size());
+        assertEquals(List.of(GONE), report.getUnknown());
+        assertTrue(report.getAdded().isEmpty());
+    }
+
+    /**
+     * 写入时保存快照哈希；被并发请求写入的商品计为新增，被忽略未写入的商品计为失败
+     */
+    @Test
+    public void testConcurrentlyAddedRowsCountAsAdded() {
+        List<String> ids = ids(10);
+        String raced = ids.get(3);
+        String ignored = ids.get(5);
+        Map<String, TtsProductMonitor> stored = new ConcurrentHashMap<>();
+        when(mapper.batchInsertIgnore(anyList())).thenAnswer(invocation -> {
+            List<TtsProductMonitor> rows = invocation.getArgument(0);
+            for (TtsProductMonitor row : rows) {
+                assertEquals(ProductSnapshotHasher.hash(row), row.getCheckHash());
+                if (!row.getProductId().equals(ignored)) {
+                    stored.put(row.getProductId(), row);
+                }
+            }
+            // 并发请求先写入了 raced
+            return rows.size() - 2;
+        });
+        when(mapper.selectByProductIds(anyList())).thenAnswer(invocation -> {
+            List<String> requested = invocation.getArgument(0);
+            return requested.stream().map(stored::get).filter(Objects::nonNull).toList();
+        });
+
+        ProductAddReport report = service.addProducts(ids);
+
+        assertEquals(8, report.getAdded().size());
+        assertTrue(report.getAdded().contains(raced));
+        assertEquals(List.of(ignored), report.getFailed());
+        assertTrue(report.getExisting().isEmpty());
+    }
+
+    /**
+     * 批次大小跨请求保留：上一次新增时学习到的截断上限用于下一次新增
+     */
+    @Test
+    public void testBatchSizeLearnedAcrossRequests() {
+        when(mapper.selectByProductIds(anyList())).thenReturn(List.of());
+        AtomicInteger calls = new AtomicInteger();
+        when(client.getProductsByIds(anyList(), any())).thenAnswer(invocation -> {
+            List<String> requested = invocation.getArgument(0);
+            batchSizes.add(requested.size());
+            // 第一次请求只返回前 12 个商品（末尾被截断）
+            return success(calls.incrementAndGet() == 1 ? requested.subList(0, 12) : requested);
+        });
+        List<String> ids = ids(40);
+
+        service.addProducts(ids.subList(0, 20));
+        batchSizes.clear();
+        service.addProducts(ids.subList(20, 40));
+
+        assertEquals(12, batchSizes.stream().mapToInt(Integer::intValue).max().orElseThrow());
+    }
+
+    private static List<String> ids(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(String.valueOf(1729000000000000000L + i));
+        }
+        return ids;
+    }
+
+    private static TtsApiResponse success(List<String> ids) {
+        List<TtsApiResponse.ProductInfo> products = new ArrayList<>();
+        for (String id : ids) {
+            TtsApiResponse.ProductInfo product = new TtsApiResponse.ProductInfo();
+            product.setId(id);
+            product.setTitle("Product " + id);
+            products.add(product);
+        }
+        TtsApiResponse.DataWrapper data = new TtsApiResponse.DataWrapper();
+        data.setProducts(products);
+        TtsApiResponse response = new TtsApiResponse();
+        response.setCode(0);
+        response.setHttpStatus(200);
+        response.setData(data);
+        return response;
+    }
+
+    private static TtsApiResponse error() {
+        TtsApiResponse response = new TtsApiResponse();
+        response.setCode(40006);
+        response.setHttpStatus(200);
+        response.setMessage("error");
+        return response;
+    }
+}
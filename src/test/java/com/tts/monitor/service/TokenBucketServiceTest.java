@@ -0,0 +1,97 @@
+package com.tts.monitor.service;
+
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.mapper.TtsRateBucketMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 共享令牌桶测试
+ */
+public class TokenBucketServiceTest {
+
+    private final TtsRateBucketMapper mapper = mock(TtsRateBucketMapper.class);
+
+    @Test
+    public void testClaimsTokensInChunks() throws Exception {
+        when(mapper.claimTokens(anyString(), anyInt(), anyDouble(), anyDouble())).thenReturn(1);
+        TokenBucketService service = new TokenBucketService(mapper, properties(Duration.ofMinutes(1)));
+        SharedTokenBucket bucket = service.bucket("app", 50);
+
+        for (int i = 0; i < 10; i++) {
+            bucket.acquire();
+        }
+
+        verify(mapper, times(1)).insertIgnore("app", 50);
+        verify(mapper, times(2)).claimTokens("app", 5, 50, 50);
+    }
+
+    @Test
+    public void testFallsBackToSingleTokenWhenChunkUnavailable() throws Exception {
+        when(mapper.claimTokens(anyString(), eq(5), anyDouble(), anyDouble())).thenReturn(0);
+        when(mapper.claimTokens(anyString(), eq(1), anyDouble(), anyDouble())).thenReturn(1);
+        TokenBucketService service = new TokenBucketService(mapper, properties(Duration.ofMinutes(1)));
+        SharedTokenBucket bucket = service.bucket("app", 50);
+
+        bucket.acquire();
+
+        // 只领取到一个令牌，本地没有剩余
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void testExpiredSliceIsDiscarded() throws Exception {
+        when(mapper.claimTokens(anyString(), anyInt(), anyDouble(), anyDouble())).thenReturn(1);
+        TokenBucketService service = new TokenBucketService(mapper, properties(Duration.ZERO));
+        SharedTokenBucket bucket = service.bucket("app", 50);
+
+        bucket.acquire();
+
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void testSeparateBucketPerKey() {
+        TokenBucketService service = new TokenBucketService(mapper, properties(Duration.ofMinutes(1)));
+
+        assertSame(service.bucket("app:a", 50), service.bucket("app:a", 50));
+        assertNotSame(service.bucket("app:a", 50), service.bucket("app:b", 50));
+    }
+
+    @Test
+    public void testFailsOpenWhenDatabaseUnavailable() throws Exception {
+        when(mapper.claimTokens(anyString(), anyInt(), anyDouble(), anyDouble()))
+            .thenThrow(new RuntimeException("connection refused"));
+        TokenBucketService service = new TokenBucketService(mapper, properties(Duration.ofMinutes(1)));
+        SharedTokenBucket bucket = service.bucket("app", 50);
+
+        bucket.acquire();
+
+        assertTrue(service.isEnabled());
+    }
+
+    private static TtsApiProperties properties(Duration sliceTtl) {
+        TtsApiProperties properties = new TtsApiProperties();
+        properties.setAppKey("app");
+        TtsApiProperties.RateLimitConfig rateLimit = new TtsApiProperties.RateLimitConfig();
+        rateLimit.setQps(50);
+        rateLimit.getShared().setEnabled(true);
+        rateLimit.getShared().setSliceTtl(sliceTtl);
+        properties.setRateLimit(rateLimit);
+        return properties;
+    }
+}
@@ -0,0 +1,135 @@
+package com.tts.monitor.util;
+
+import com.tts.monitor.config.TtsApiProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 熔断器测试
+ */
+public class CircuitBreakerTest {
+
+    private static final long FAST = Duration.ofMillis(100).toNanos();
+    private static final long SLOW = Duration.ofSeconds(20).toNanos();
+
+    @Test
+    public void testOpensOnFailureRate() {
+        CircuitBreaker breaker = new CircuitBreaker("test", config(Duration.ofMinutes(1)));
+
+        for (int i = 0; i < 10; i++) {
+            breaker.onResult(breaker.tryAcquire(), i % 2 == 0, FAST);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+        assertEquals(1, breaker.getOpenedCount());
+    }
+
+    @Test
+    public void testOpensOnSlowCallRate() {
+        CircuitBreaker breaker = new CircuitBreaker("test", config(Duration.ofMinutes(1)));
+
+        for (int i = 0; i < 10; i++) {
+            breaker.onResult(breaker.tryAcquire(), false, i < 8 ? SLOW : FAST);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testStaysClosedBelowMinimumCalls() {
+        CircuitBreaker breaker = new CircuitBreaker("test", config(Duration.ofMinutes(1)));
+
+        for (int i = 0; i < 9; i++) {
+            breaker.onResult(breaker.tryAcquire(), true, FAST);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertNotNull(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testHalfOpenClosesAfterSuccessfulProbes() {
+        CircuitBreaker breaker = openBreaker();
+
+        CircuitBreaker.Permit first = breaker.tryAcquire();
+        CircuitBreaker.Permit second = breaker.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onResult(first, false, FAST);
+        breaker.onResult(second, false, FAST);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testFailedProbeReopens() {
+        CircuitBreaker breaker = openBreaker();
+
+        breaker.onResult(breaker.tryAcquire(), true, FAST);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getOpenedCount());
+    }
+
+    @Test
+    public void testLateResultFromBeforeOpenIsNotAProbe() {
+        CircuitBreaker breaker = new CircuitBreaker("test", config(Duration.ZERO));
+        CircuitBreaker.Permit stale = breaker.tryAcquire();
+        for (int i = 0; i < 10; i++) {
+            breaker.onResult(breaker.tryAcquire(), true, FAST);
+        }
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // 打开前发出的调用晚到的成功结果不计为探测
+        breaker.onResult(stale, false, FAST);
+        breaker.onResult(probe, false, FAST);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testCancelledProbeReleasesSlot() {
+        CircuitBreaker breaker = openBreaker();
+        CircuitBreaker.Permit first = breaker.tryAcquire();
+        CircuitBreaker.Permit second = breaker.tryAcquire();
+        assertNull(breaker.tryAcquire());
+
+        breaker.release(second);
+        CircuitBreaker.Permit retry = breaker.tryAcquire();
+        assertNotNull(retry);
+        breaker.onResult(first, false, FAST);
+        breaker.onResult(retry, false, FAST);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    /**
+     * 打开后立即可以进入半开的熔断器
+     */
+    private static CircuitBreaker openBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker("test", config(Duration.ZERO));
+        for (int i = 0; i < 10; i++) {
+            breaker.onResult(breaker.tryAcquire(), true, FAST);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    private static TtsApiProperties.CircuitBreakerConfig config(Duration openDuration) {
+        TtsApiProperties.CircuitBreakerConfig config = new TtsApiProperties.CircuitBreakerConfig();
+        config.setWindowSize(20);
+        config.setMinimumCalls(10);
+        config.setOpenDuration(openDuration);
+        config.setHalfOpenCalls(2);
+        return config;
+    }
+}
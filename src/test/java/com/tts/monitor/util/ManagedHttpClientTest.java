@@ -0,0 +1,91 @@
+package com.tts.monitor.util;
+
+import com.sun.net.httpserver.HttpServer;
+import com.tts.monitor.config.HttpClientProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 托管出站 HTTP 客户端测试
+ * 使用本地桩服务（HTTP），TLS 握手计数通过 SSLContext 直接验证
+ */
+public class ManagedHttpClientTest {
+
+    private final AtomicInteger headRequests = new AtomicInteger();
+    private HttpServer stub;
+    private ManagedHttpClient client;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.createContext("/", exchange -> {
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                headRequests.incrementAndGet();
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            byte[] bytes = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        stub.start();
+
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.setConnections(3);
+        client = new ManagedHttpClient("test", properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.close();
+        stub.stop(0);
+    }
+
+    @Test
+    public void testPrewarmOpensOneRequestPerConnection() {
+        client.prewarm(uri());
+
+        assertEquals(3, headRequests.get());
+        assertEquals(3, client.getRequestCount());
+    }
+
+    @Test
+    public void testSendsThroughFanOut() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri()).GET().build();
+
+        for (int i = 0; i < 6; i++) {
+            assertEquals("ok", client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+        }
+        assertEquals("ok", client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).join().body());
+
+        assertEquals(7, client.getRequestCount());
+        // 明文 HTTP 没有握手
+        assertEquals(1.0, client.getReuseRatio(), 0.001);
+    }
+
+    @Test
+    public void testCountsTlsHandshakes() {
+        client.sslContext().createSSLEngine("open-api.tiktokglobalshop.com", 443);
+        client.sslContext().createSSLEngine("open.feishu.cn", 443);
+
+        assertEquals(2, client.getHandshakeCount());
+    }
+
+    private URI uri() {
+        return URI.create("http://127.0.0.1:" + stub.getAddress().getPort() + "/");
+    }
+}
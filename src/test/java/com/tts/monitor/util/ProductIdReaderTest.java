@@ -0,0 +1,92 @@
+package com.tts.monitor.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 商品ID流式读取测试
+ */
+public class ProductIdReaderTest {
+
+    @Test
+    public void testCsvWithHeaderAndExtraColumns() throws IOException {
+        String csv = "\uFEFFproduct_id,remark\r\n"
+            + "1729382476852425281,first\r\n"
+            + "\"1729382476852425282\",\"quoted\"\r\n"
+            + "\r\n"
+            + "  1729382476852425283\t tab\r\n"
+            + "abc,not an id\r\n";
+        ProductIdReader reader = new ProductIdReader(stream(csv));
+
+        assertEquals(List.of("1729382476852425281", "1729382476852425282", "1729382476852425283"), readAll(reader));
+        assertEquals(6, reader.getLineCount());
+        assertEquals(1, reader.getInvalidLineCount());
+    }
+
+    @Test
+    public void testNewlineDelimitedIds() throws IOException {
+        String ndjson = "\"1729382476852425281\"\n1729382476852425282\n{\"id\":\"1\"}\n" + "9".repeat(65) + "\n3";
+        ProductIdReader reader = new ProductIdReader(stream(ndjson));
+
+        assertEquals(List.of("1729382476852425281", "1729382476852425282", "3"), readAll(reader));
+        assertEquals(2, reader.getInvalidLineCount());
+    }
+
+    /**
+     * 按块读取，不一次性读入整个输入
+     */
+    @Test
+    public void testStreamsLargeInput() throws IOException {
+        int count = 200_000;
+        InputStream generated = new InputStream() {
+            private int line;
+            private byte[] current = new byte[0];
+            private int pos;
+
+            @Override
+            public int read() {
+                if (pos == current.length) {
+                    if (line == count) {
+                        return -1;
+                    }
+                    current = (1729000000000000000L + line++ + "\n").getBytes(StandardCharsets.US_ASCII);
+                    pos = 0;
+                }
+                return current[pos++];
+            }
+        };
+        ProductIdReader reader = new ProductIdReader(generated);
+
+        int read = 0;
+        String last = null;
+        String id;
+        while ((id = reader.next()) != null) {
+            read++;
+            last = id;
+        }
+        assertEquals(count, read);
+        assertEquals(String.valueOf(1729000000000000000L + count - 1), last);
+        assertEquals(0, reader.getInvalidLineCount());
+    }
+
+    private static List<String> readAll(ProductIdReader reader) throws IOException {
+        List<String> ids = new ArrayList<>();
+        String id;
+        while ((id = reader.next()) != null) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,166 @@
+package com.tts.monitor.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.tts.monitor.config.JacksonConfig;
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 并发查询合并测试
+ * 本地桩服务在放行前阻塞请求，记录每个请求实际查询的商品 ID
+ */
+public class TtsApiClientCoalesceTest {
+
+    private final Queue<String> requestedIds = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger received = new AtomicInteger();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private ExecutorService stubExecutor;
+    private HttpServer stub;
+    private TtsApiClient client;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stubExecutor = Executors.newCachedThreadPool();
+        stub.setExecutor(stubExecutor);
+        stub.createContext("/", exchange -> {
+            String ids = exchange.getRequestURI().getRawQuery().replaceAll(".*product_ids=([^&]*).*", "$1");
+            requestedIds.add(ids);
+            received.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] bytes = body(ids.split(",")).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status.get(), bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        stub.start();
+        client = client();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        stub.stop(0);
+        stubExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testOnlyNewIdsAreRequested() throws Exception {
+        release = new CountDownLatch(1);
+        CompletableFuture<TtsApiResponse> first = client.getProductsByIdsAsync(List.of("1", "2", "3"));
+        awaitReceived(1);
+        CompletableFuture<TtsApiResponse> second = client.getProductsByIdsAsync(List.of("2", "3", "4"));
+        awaitReceived(2);
+        release.countDown();
+
+        TtsApiResponse response = second.get(5, TimeUnit.SECONDS);
+        assertTrue(first.get(5, TimeUnit.SECONDS).isSuccess());
+        assertTrue(response.isSuccess());
+        assertEquals(List.of("1,2,3", "4"), List.copyOf(requestedIds));
+        assertEquals(List.of("4", "2", "3"), ids(response));
+        assertEquals(2, response.getCoalescedIds());
+        assertFalse(response.isCoalesced());
+        assertEquals(2, client.getCoalescedIds());
+    }
+
+    @Test
+    public void testFullyCoalescedLookupSendsNothing() throws Exception {
+        release = new CountDownLatch(1);
+        CompletableFuture<TtsApiResponse> first = client.getProductsByIdsAsync(List.of("1", "2", "3"));
+        awaitReceived(1);
+        CompletableFuture<TtsApiResponse> second = client.getProductsByIdsAsync(List.of("3", "1"));
+        release.countDown();
+
+        TtsApiResponse response = second.get(5, TimeUnit.SECONDS);
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals(1, received.get());
+        assertTrue(response.isCoalesced());
+        assertEquals(List.of("1", "3"), ids(response));
+
+        // 完成后不再合并
+        client.getProductsByIds(List.of("1"));
+        assertEquals(2, received.get());
+    }
+
+    @Test
+    public void testFailureOfSharedRequestIsPropagated() throws Exception {
+        release = new CountDownLatch(1);
+        status.set(500);
+        CompletableFuture<TtsApiResponse> first = client.getProductsByIdsAsync(List.of("1", "2"));
+        awaitReceived(1);
+        CompletableFuture<TtsApiResponse> second = client.getProductsByIdsAsync(List.of("2"));
+        release.countDown();
+
+        TtsApiResponse response = second.get(5, TimeUnit.SECONDS);
+        assertFalse(first.get(5, TimeUnit.SECONDS).isSuccess());
+        assertFalse(response.isSuccess());
+        assertEquals(500, response.getHttpStatus());
+        // 失败已由发出方记录
+        assertTrue(response.isCoalesced());
+    }
+
+    private void awaitReceived(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (received.get() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, received.get());
+    }
+
+    private static List<String> ids(TtsApiResponse response) {
+        return response.getData().getProducts().stream().map(TtsApiResponse.ProductInfo::getId).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private TtsApiClient client() {
+        TtsApiProperties properties = new TtsApiProperties();
+        properties.setBaseUrl("http://127.0.0.1:" + stub.getAddress().getPort());
+        properties.setAppKey("key");
+        properties.setAppSecret("secret");
+        properties.setAccessToken("token");
+        properties.setTimeout(5000);
+        ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+        return new TtsApiClient(properties, objectMapper, HttpClient.newHttpClient(), mock(ObjectProvider.class),
+            mock(ObjectProvider.class));
+    }
+
+    private static String body(String[] ids) {
+        StringBuilder json = new StringBuilder("{\"code\":0,\"message\":\"Success\",\"data\":{\"products\":[");
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(ids[i]).append("\",\"title\":\"Product ").append(ids[i]).append("\"}");
+        }
+        return json.append("]}}").toString();
+    }
+}
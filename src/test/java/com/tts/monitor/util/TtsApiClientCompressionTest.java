@@ -0,0 +1,142 @@
+package com.tts.monitor.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.tts.monitor.config.JacksonConfig;
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 压缩传输测试
+ * 使用本地桩服务，按请求的 Accept-Encoding 返回 gzip、deflate 或未压缩的响应
+ */
+public class TtsApiClientCompressionTest {
+
+    private static final List<String> PRODUCT_IDS = List.of("1729000000000000001", "1729000000000000002");
+
+    private final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+    private final AtomicReference<String> encoding = new AtomicReference<>("gzip");
+    private HttpServer stub;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.createContext("/", exchange -> {
+            String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            acceptEncoding.set(accepted);
+            byte[] bytes = body();
+            if (accepted != null) {
+                String responseEncoding = encoding.get();
+                exchange.getResponseHeaders().set("Content-Encoding",
+                    responseEncoding.equals("gzip") ? "gzip" : "deflate");
+                bytes = compress(bytes, responseEncoding);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        stub.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        stub.stop(0);
+    }
+
+    @Test
+    public void testGzipResponse() throws Exception {
+        TtsApiClient client = client(true);
+
+        TtsApiResponse response = client.getProductsByIds(PRODUCT_IDS);
+
+        assertTrue(response.isSuccess());
+        assertEquals(2, response.getData().getProducts().size());
+        assertEquals("gzip, deflate", acceptEncoding.get());
+        assertTrue(client.getWireBytes() < client.getDecodedBytes());
+    }
+
+    @Test
+    public void testDeflateWithAndWithoutZlibHeader() throws Exception {
+        TtsApiClient client = client(true);
+        for (String deflate : List.of("deflate", "raw-deflate")) {
+            encoding.set(deflate);
+
+            TtsApiResponse response = client.getProductsByIds(PRODUCT_IDS);
+
+            assertTrue(response.isSuccess(), deflate);
+            assertEquals("Blue t-shirt", response.getData().getProducts().get(0).getTitle());
+        }
+    }
+
+    @Test
+    public void testCompressionDisabled() throws Exception {
+        TtsApiClient client = client(false);
+
+        TtsApiResponse response = client.getProductsByIds(PRODUCT_IDS);
+
+        assertTrue(response.isSuccess());
+        assertNull(acceptEncoding.get());
+        assertEquals(client.getWireBytes(), client.getDecodedBytes());
+    }
+
+    @SuppressWarnings("unchecked")
+    private TtsApiClient client(boolean compression) {
+        TtsApiProperties properties = new TtsApiProperties();
+        properties.setBaseUrl("http://127.0.0.1:" + stub.getAddress().getPort());
+        properties.setAppKey("key");
+        properties.setAppSecret("secret");
+        properties.setAccessToken("token");
+        properties.setTimeout(5000);
+        properties.getClient().setCompression(compression);
+        ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+        return new TtsApiClient(properties, objectMapper, HttpClient.newHttpClient(), mock(ObjectProvider.class),
+            mock(ObjectProvider.class));
+    }
+
+    private static byte[] compress(byte[] bytes, String encoding) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream out = encoding.equals("gzip")
+            ? new GZIPOutputStream(buffer)
+            : new DeflaterOutputStream(buffer, new Deflater(Deflater.DEFAULT_COMPRESSION, encoding.equals("raw-deflate")))) {
+            out.write(bytes);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] body() {
+        StringBuilder json = new StringBuilder("{\"code\":0,\"message\":\"Success\",\"data\":{\"products\":[");
+        for (int i = 0; i < PRODUCT_IDS.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(PRODUCT_IDS.get(i)).append("\",\"title\":\"Blue t-shirt\",")
+                .append("\"shop\":{\"name\":\"Test shop\"},")
+                .append("\"commission\":{\"rate\":1000,\"currency\":\"USD\",\"amount\":\"1.22\"},")
+                .append("\"category_chains\":[{\"id\":\"3435545\",\"local_name\":\"COMPUTER\",\"is_leaf\":false}]}");
+        }
+        return json.append("]}}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,161 @@
+package com.tts.monitor.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.tts.monitor.config.JacksonConfig;
+import com.tts.monitor.config.TtsApiProperties;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 对冲请求和自适应超时测试
+ * 使用本地桩服务，不调用真实 API
+ */
+public class TtsApiClientHedgeTest {
+
+    private static final List<String> PRODUCT_IDS = List.of("1729000000000000001", "1729000000000000002");
+
+    private static final TtsCredential HEDGE_CREDENTIAL = new TtsCredential("hedge", "key", "secret", "token");
+
+    private final AtomicBoolean slowNext = new AtomicBoolean(false);
+    private final AtomicLong delayMs = new AtomicLong(5);
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private HttpServer stub;
+    private ExecutorService stubExecutor;
+    private TtsApiClient client;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.createContext("/", exchange -> {
+            requestCount.incrementAndGet();
+            try {
+                Thread.sleep(slowNext.getAndSet(false) ? 3000 : delayMs.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] bytes = "{\"code\":0,\"message\":\"Success\",\"data\":{\"products\":[]}}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        stubExecutor = Executors.newFixedThreadPool(16);
+        stub.setExecutor(stubExecutor);
+        stub.start();
+
+        TtsApiProperties properties = properties();
+        properties.setTimeout(10000);
+        properties.getHedge().setEnabled(true);
+        properties.getHedge().setMinDelay(Duration.ofMillis(50));
+        properties.getHedge().setMinSamples(20);
+        properties.getAdaptiveTimeout().setMinSamples(20);
+        properties.getAdaptiveTimeout().setMinTimeout(Duration.ofMillis(2000));
+        // 预热请求的商品相同，关闭合并使每次调用都发出请求
+        properties.getClient().setCoalesce(false);
+        client = client(properties);
+
+        // 积累耗时样本
+        List<CompletableFuture<TtsApiResponse>> warmUp = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            warmUp.add(client.getProductsByIdsAsync(PRODUCT_IDS));
+        }
+        warmUp.forEach(future -> assertTrue(future.join().isSuccess()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        stub.stop(0);
+        stubExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testHedgeReturnsBeforeSlowRequest() {
+        slowNext.set(true);
+        int before = requestCount.get();
+
+        long start = System.nanoTime();
+        TtsApiResponse response = client.getProductsByIds(PRODUCT_IDS, null, () -> HEDGE_CREDENTIAL);
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertTrue(response.isSuccess());
+        assertTrue(elapsedMs < 2000, "对冲请求应先返回，耗时: " + elapsedMs + "ms");
+        assertEquals(before + 2, requestCount.get());
+    }
+
+    @Test
+    public void testNoHedgeWithoutBudget() {
+        slowNext.set(true);
+        int before = requestCount.get();
+
+        TtsApiResponse response = client.getProductsByIds(PRODUCT_IDS, null, () -> null);
+
+        // 没有令牌时不对冲，只等待原请求（返回或超时）
+        assertTrue(response.isSuccess() || response.isTimedOut());
+        assertEquals(before + 1, requestCount.get());
+    }
+
+    @Test
+    public void testTimeoutTracksLatency() {
+        // 耗时远低于下限时使用 min-timeout，而不是 timeout
+        assertEquals(2000, client.currentTimeoutMs());
+    }
+
+    @Test
+    public void testQueueTimeDoesNotCountTowardsTimeout() {
+        delayMs.set(400);
+        TtsApiProperties properties = properties();
+        properties.setTimeout(1000);
+        properties.getClient().setMaxInFlight(1);
+        properties.getClient().setCoalesce(false);
+        TtsApiClient queued = client(properties);
+
+        // 同时只有一个请求在途，第三个请求排队约 800ms，加上接口耗时超过 timeout
+        List<CompletableFuture<TtsApiResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(queued.getProductsByIdsAsync(PRODUCT_IDS));
+        }
+
+        futures.forEach(future -> assertTrue(future.join().isSuccess()));
+        assertEquals(CircuitBreaker.State.CLOSED, queued.getCircuitBreaker().getState());
+    }
+
+    private TtsApiProperties properties() {
+        TtsApiProperties properties = new TtsApiProperties();
+        properties.setBaseUrl("http://127.0.0.1:" + stub.getAddress().getPort());
+        properties.setAppKey("key");
+        properties.setAppSecret("secret");
+        properties.setAccessToken("token");
+        return properties;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TtsApiClient client(TtsApiProperties properties) {
+        ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+        return new TtsApiClient(properties, objectMapper, HttpClient.newHttpClient(), mock(ObjectProvider.class),
+            mock(ObjectProvider.class));
+    }
+}
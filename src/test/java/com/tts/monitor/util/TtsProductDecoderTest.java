@@ -0,0 +1,141 @@
+package com.tts.monitor.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tts.monitor.dto.tts.TtsApiResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 商品查询响应解码测试
+ * 包含解码方式对比基准（benchmark 标签，默认不运行）：完整绑定（响应体转为字符串后绑定全部字段）与流式只读所需字段，
+ * 每个商品分配的字节数
+ *
+ */
+@Slf4j
+public class TtsProductDecoderTest {
+
+    private static final int PRODUCTS_PER_RESPONSE = 50;
+    private static final int ROUNDS = 2000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final TtsProductDecoder decoder = new TtsProductDecoder(objectMapper);
+
+    @Test
+    public void testDecodesOnlyCheckFields() throws Exception {
+        TtsApiResponse response = decoder.decode(stream(body(2)));
+
+        assertEquals(0, response.getCode());
+        assertEquals("success", response.getMessage());
+        assertEquals("req-1", response.getRequestId());
+        assertEquals(2, response.getData().getProducts().size());
+        TtsApiResponse.ProductInfo product = response.getData().getProducts().get(1);
+        assertEquals("1729000000000000001", product.getId());
+        assertEquals("Blue t-shirt 1", product.getTitle());
+        assertEquals("Test shop", product.getShop().getName());
+        assertEquals(1000, product.getCommission().getRate());
+        assertEquals("USD", product.getCommission().getCurrency());
+        assertEquals("1.22", product.getCommission().getAmount());
+        // 校验不需要的字段不解析
+        assertNull(product.getSalesPrice());
+        assertNull(product.getCategoryChains());
+        assertNull(product.getMainImageUrl());
+    }
+
+    @Test
+    public void testHandlesNullsAndNumericIds() throws Exception {
+        String json = "{\"code\":40006,\"message\":\"bad\",\"extra\":{\"a\":[1,2]},\"data\":{\"products\":["
+            + "{\"id\":1729000000000000099,\"commission\":null,\"shop\":null,\"title\":null}]}}";
+
+        TtsApiResponse response = decoder.decode(json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(40006, response.getCode());
+        TtsApiResponse.ProductInfo product = response.getData().getProducts().get(0);
+        assertEquals("1729000000000000099", product.getId());
+        assertNull(product.getCommission());
+        assertNull(product.getShop());
+        assertNull(product.getTitle());
+    }
+
+    /**
+     * 解码方式对比基准（默认不运行）：只在支持按线程统计分配字节数的 JVM 上执行，结果记录到日志
+     */
+    @Test
+    @Tag("benchmark")
+    void compareAllocationPerProduct() throws Exception {
+        byte[] body = body(PRODUCTS_PER_RESPONSE);
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+            "JVM 不支持按线程统计分配字节数");
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+
+        // 预热
+        for (int i = 0; i < ROUNDS; i++) {
+            objectMapper.readValue(new String(body, StandardCharsets.UTF_8), TtsApiResponse.class);
+            decoder.decode(stream(body));
+        }
+
+        long start = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ROUNDS; i++) {
+            objectMapper.readValue(new String(body, StandardCharsets.UTF_8), TtsApiResponse.class);
+        }
+        long fullBytes = threads.getThreadAllocatedBytes(thread) - start;
+
+        start = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ROUNDS; i++) {
+            decoder.decode(stream(body));
+        }
+        long streamingBytes = threads.getThreadAllocatedBytes(thread) - start;
+
+        long products = (long) ROUNDS * PRODUCTS_PER_RESPONSE;
+        log.info("响应体: {} 字节, 商品数: {}", body.length, PRODUCTS_PER_RESPONSE);
+        log.info("完整绑定（字符串 + 全部字段）: {} 字节/商品", fullBytes / products);
+        log.info("流式解码（只读所需字段）:     {} 字节/商品", streamingBytes / products);
+    }
+
+    private static ByteArrayInputStream stream(byte[] body) {
+        return new ByteArrayInputStream(body);
+    }
+
+    /**
+     * 按接口文档的响应示例生成包含全部字段的响应体
+     */
+    private static byte[] body(int count) {
+        StringBuilder json = new StringBuilder("{\"code\":0,\"message\":\"success\",\"request_id\":\"req-1\","
+            + "\"data\":{\"products\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"shop\":{\"name\":\"Test shop\"},")
+                .append("\"id\":\"").append(1729000000000000000L + i).append("\",")
+                .append("\"has_inventory\":false,\"units_sold\":12,")
+                .append("\"title\":\"Blue t-shirt ").append(i).append("\",")
+                .append("\"sale_region\":\"ID\",")
+                .append("\"main_image_url\":\"https://p16-oec-va.ibyteimg.com/tos-maliva-i-o3syd03w52-us/").append(i)
+                .append("~tplv-o3syd03w52-origin-jpeg.jpeg\",")
+                .append("\"detail_link\":\"https://shop.tiktok.com/view/product/").append(1729000000000000000L + i)
+                .append("?region=ID&locale=en\",")
+                .append("\"original_price\":{\"currency\":\"USD\",\"minimum_amount\":\"12.21\",\"maximum_amount\":\"100.00\"},")
+                .append("\"sales_price\":{\"currency\":\"USD\",\"minimum_amount\":\"10.21\",\"maximum_amount\":\"90.00\"},")
+                .append("\"commission\":{\"rate\":1000,\"currency\":\"USD\",\"amount\":\"1.22\"},")
+                .append("\"shop_ads_commission\":{\"rate\":500},")
+                .append("\"category_chains\":[")
+                .append("{\"id\":\"3435545\",\"local_name\":\"COMPUTER\",\"is_leaf\":false,\"parent_id\":\"0\"},")
+                .append("{\"id\":\"3435546\",\"local_name\":\"ACCESSORIES\",\"is_leaf\":false,\"parent_id\":\"3435545\"},")
+                .append("{\"id\":\"3435547\",\"local_name\":\"CABLES\",\"is_leaf\":true,\"parent_id\":\"3435546\"}]}");
+        }
+        return json.append("]}}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,123 @@
+package com.tts.monitor.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 请求签名测试
+ * 与 TtsSignatureUtil 逐字节对比，并对比两种方式每次请求分配的字节数
+ *
+ */
+public class TtsRequestSignerTest {
+
+    private static final String BASE_URL = "https://open-api.tiktokglobalshop.com";
+    private static final String PATH = "/affiliate_creator/202509/open_collaborations/products";
+    private static final int ROUNDS = 20000;
+
+    private final TtsRequestSigner signer = new TtsRequestSigner(BASE_URL, PATH);
+
+    @Test
+    public void testMatchesSignatureUtil() {
+        List<TtsCredential> credentials = List.of(
+            new TtsCredential("a", "6abc123def", "0123456789abcdef", "token"),
+            new TtsCredential("b", "key with space+plus/slash", "密钥-secret", "token"),
+            new TtsCredential("c", "", "s", "token"));
+        for (TtsCredential credential : credentials) {
+            for (int count : new int[] {0, 1, 20, 500}) {
+                List<String> ids = ids(count);
+                long timestamp = 1700000000L + count;
+
+                assertEquals(reference(credential, timestamp, ids),
+                    signer.buildUri(credential, timestamp, ids).toString(),
+                    credential.name() + "/" + count);
+            }
+        }
+        // 非 ASCII 商品 ID 走 UTF-8 编码分支
+        TtsCredential credential = credentials.get(0);
+        List<String> ids = List.of("1729000000000000001", "ID-é");
+        assertEquals(reference(credential, 1L, ids), signer.buildUri(credential, 1L, ids).toString());
+    }
+
+    @Test
+    public void testConcurrentUse() throws Exception {
+        TtsCredential credential = new TtsCredential("a", "key", "secret", "token");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                List<String> ids = ids(i % 50 + 1);
+                long timestamp = 1700000000L + i;
+                futures.add(executor.submit(() ->
+                    reference(credential, timestamp, ids).equals(signer.buildUri(credential, timestamp, ids).toString())));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void compareAllocationPerRequest() {
+        TtsCredential credential = new TtsCredential("a", "6abc123def", "0123456789abcdef", "token");
+        List<String> ids = ids(50);
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+
+        // 预热
+        for (int i = 0; i < ROUNDS; i++) {
+            URI.create(reference(credential, i, ids));
+            signer.buildUri(credential, i, ids);
+        }
+
+        long start = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ROUNDS; i++) {
+            URI.create(reference(credential, i, ids));
+        }
+        long referenceBytes = threads.getThreadAllocatedBytes(thread) - start;
+
+        start = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ROUNDS; i++) {
+            signer.buildUri(credential, i, ids);
+        }
+        long signerBytes = threads.getThreadAllocatedBytes(thread) - start;
+
+        System.out.printf("TtsSignatureUtil: %d 字节/请求%n", referenceBytes / ROUNDS);
+        System.out.printf("TtsRequestSigner: %d 字节/请求%n", signerBytes / ROUNDS);
+        assertTrue(signerBytes < referenceBytes);
+    }
+
+    /**
+     * 原实现：HashMap 参数 + generateSign + buildQueryString
+     */
+    private static String reference(TtsCredential credential, long timestamp, List<String> ids) {
+        Map<String, String> params = new HashMap<>();
+        params.put("app_key", credential.appKey());
+        params.put("timestamp", String.valueOf(timestamp));
+        params.put("product_ids", String.join(",", ids));
+        params.put("sign", TtsSignatureUtil.generateSign(params, null, credential.appSecret(), PATH, "application/json"));
+        return BASE_URL + PATH + "?" + TtsSignatureUtil.buildQueryString(params);
+    }
+
+    private static List<String> ids(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(String.valueOf(1729000000000000000L + i));
+        }
+        return ids;
+    }
+}
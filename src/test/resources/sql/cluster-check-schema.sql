@@ -0,0 +1,76 @@
+-- 集群校验集成测试使用的表结构（与设计文档第 3 节一致），会先删除同名表
+
+DROP TABLE IF EXISTS `tts_product_monitor`;
+CREATE TABLE `tts_product_monitor` (
+  `id` int NOT NULL AUTO_INCREMENT COMMENT '自增主键',
+  `product_id` varchar(64) NOT NULL COMMENT 'TTS 商品唯一 ID',
+  `title` varchar(255) DEFAULT '' COMMENT '商品标题',
+  `shop_name` varchar(255) DEFAULT '' COMMENT '店铺名称',
+  `sale_region` varchar(10) DEFAULT NULL COMMENT '产品销售的国家',
+  `is_valid` tinyint(1) NOT NULL DEFAULT 1 COMMENT '是否有效：1-有效, 0-失效',
+  `confirm_status` tinyint(1) NOT NULL DEFAULT 0 COMMENT '确认状态：0-待处理, 1-运营已确认(跳过告警)',
+  `commission_rate` int DEFAULT NULL COMMENT '佣金率（万分比，如 100 代表 1%）',
+  `commission_amount` varchar(32) DEFAULT NULL COMMENT '预估佣金金额',
+  `commission_currency` varchar(10) DEFAULT NULL COMMENT '佣金货币单位 (如 USD, IDR)',
+  `prev_commission_rate` int DEFAULT NULL COMMENT '佣金率变化前的值',
+  `check_hash` bigint DEFAULT NULL COMMENT '校验快照哈希（有效性、佣金、标题、店铺）',
+  `last_check_time` datetime DEFAULT NULL COMMENT '最后一次系统校验的时间',
+  `created_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '记录创建时间',
+  `updated_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '记录更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_product_id` (`product_id`)
+);
+
+DROP TABLE IF EXISTS `tts_check_run`;
+CREATE TABLE `tts_check_run` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '自增主键',
+  `run_id` varchar(64) NOT NULL COMMENT '运行 ID',
+  `active_key` varchar(32) DEFAULT NULL COMMENT '未完成运行的占位键，保证同时只有一个未完成的运行',
+  `status` varchar(16) NOT NULL COMMENT '运行状态：RUNNING、STOPPED、COMPLETED、FAILED、CANCELLED',
+  `range_state` text NOT NULL COMMENT '各主键区间已提交的游标（JSON）',
+  `total_count` int NOT NULL DEFAULT 0 COMMENT '已分发的商品数',
+  `checked_count` int NOT NULL DEFAULT 0 COMMENT '已校验的商品数',
+  `valid_count` int NOT NULL DEFAULT 0 COMMENT '有效商品数',
+  `invalid_count` int NOT NULL DEFAULT 0 COMMENT '失效商品数',
+  `failed_count` int NOT NULL DEFAULT 0 COMMENT '失败商品数',
+  `changed_count` int NOT NULL DEFAULT 0 COMMENT '状态变化商品数',
+  `unchanged_count` int NOT NULL DEFAULT 0 COMMENT '确认未变化商品数',
+  `commission_drop_count` int NOT NULL DEFAULT 0 COMMENT '佣金率下降商品数',
+  `owner` varchar(128) DEFAULT NULL COMMENT '当前执行的实例',
+  `heartbeat_time` datetime DEFAULT NULL COMMENT '最后一次保存检查点的时间',
+  `started_at` datetime NOT NULL COMMENT '开始时间',
+  `finished_at` datetime DEFAULT NULL COMMENT '完成时间',
+  `error_message` varchar(512) DEFAULT NULL COMMENT '失败原因',
+  `created_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '记录创建时间',
+  `updated_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '记录更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_run_id` (`run_id`),
+  UNIQUE KEY `uk_active_key` (`active_key`),
+  KEY `idx_status_started` (`status`, `started_at`)
+);
+
+DROP TABLE IF EXISTS `tts_check_lease`;
+CREATE TABLE `tts_check_lease` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '自增主键',
+  `run_id` varchar(64) NOT NULL COMMENT '所属运行 ID',
+  `range_index` int NOT NULL COMMENT '区间序号',
+  `cursor_id` int DEFAULT NULL COMMENT '区间已提交的游标（不包含）',
+  `end_id` int DEFAULT NULL COMMENT '区间上界主键（包含）',
+  `status` varchar(16) NOT NULL COMMENT '租约状态：PENDING、LEASED、DONE',
+  `owner` varchar(128) DEFAULT NULL COMMENT '持有租约的实例',
+  `lease_until` datetime DEFAULT NULL COMMENT '租约到期时间',
+  `created_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '记录创建时间',
+  `updated_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '记录更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_run_range` (`run_id`, `range_index`),
+  KEY `idx_run_status` (`run_id`, `status`)
+);
+
+DROP TABLE IF EXISTS `tts_rate_bucket`;
+CREATE TABLE `tts_rate_bucket` (
+  `bucket_key` varchar(64) NOT NULL COMMENT '令牌桶标识（默认 app key）',
+  `tokens` double NOT NULL DEFAULT 0 COMMENT '剩余令牌数（截至 refilled_at）',
+  `refilled_at` bigint NOT NULL COMMENT '上次补充令牌的时间（毫秒，数据库时钟）',
+  `updated_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '记录更新时间',
+  PRIMARY KEY (`bucket_key`)
+);